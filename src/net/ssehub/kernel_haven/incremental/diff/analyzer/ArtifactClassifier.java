@@ -0,0 +1,171 @@
+package net.ssehub.kernel_haven.incremental.diff.analyzer;
+
+import java.nio.file.Path;
+
+/**
+ * Classifies files of the Linux kernel as code, build or Kconfig files based on
+ * their file name. The classification is equivalent to the regular expressions
+ * used for ComAn (e.g. <code>.*&#47;Kconfig((\.|\-|\_|\+|\~).*)?</code>) but
+ * only looks at the file name and does not use regular expressions so that
+ * classifying all entries of large diff files is cheap.
+ *
+ * @author moritz
+ */
+public final class ArtifactClassifier {
+
+    /**
+     * The category of a file.
+     */
+    public enum Category {
+
+        /** Code files (*.c, *.h, *.S). */
+        CODE,
+
+        /** Build files (Makefile*, Kbuild*). */
+        BUILD,
+
+        /** Kconfig files (Kconfig*). */
+        VARIABILITY_MODEL,
+
+        /** Any other file. */
+        OTHER
+    }
+
+    /** The file name prefix of Kconfig files. */
+    private static final String KCONFIG = "Kconfig";
+
+    /** The file name prefix of Makefiles. */
+    private static final String MAKEFILE = "Makefile";
+
+    /** The file name prefix of Kbuild files. */
+    private static final String KBUILD = "Kbuild";
+
+    /** The suffixes of files that are never analyzed. */
+    private static final String[] EXCLUDED_SUFFIXES = {".txt", ".lb"};
+
+    /**
+     * Instantiates a new artifact classifier.
+     */
+    private ArtifactClassifier() {
+    }
+
+    /**
+     * Classifies a file by its path. Code files take precedence over build and
+     * Kconfig files like they do in ComAn.
+     *
+     * @param path the path of the file
+     * @return the category
+     */
+    public static Category classify(Path path) {
+        Path fileName = path.getFileName();
+        return fileName == null ? Category.OTHER : classify(fileName.toString());
+    }
+
+    /**
+     * Classifies a file by its name.
+     *
+     * @param fileName the file name
+     * @return the category
+     */
+    public static Category classify(String fileName) {
+        Category category = Category.OTHER;
+        if (isCodeFileName(fileName)) {
+            category = Category.CODE;
+        } else if (!fileName.isEmpty()) {
+            // Only file names starting with 'K' or 'M' can be Kconfig or build files
+            char first = fileName.charAt(0);
+            if (first == 'K') {
+                if (hasPrefix(fileName, KCONFIG)) {
+                    category = Category.VARIABILITY_MODEL;
+                } else if (hasPrefix(fileName, KBUILD)) {
+                    category = Category.BUILD;
+                }
+            } else if (first == 'M' && hasPrefix(fileName, MAKEFILE)) {
+                category = Category.BUILD;
+            }
+        }
+        return category;
+    }
+
+    /**
+     * Checks whether a file is excluded from the analysis of variability changes
+     * as ComAn does. This applies to text files and all files within
+     * documentation or script folders.
+     *
+     * @param path the path of the file
+     * @return true, if the file is excluded
+     */
+    public static boolean isExcluded(Path path) {
+        boolean excluded = false;
+        String pathString = path.toString();
+        for (int i = 0; !excluded && i < EXCLUDED_SUFFIXES.length; i++) {
+            excluded = pathString.endsWith(EXCLUDED_SUFFIXES[i]);
+        }
+        for (int i = 0; !excluded && i < path.getNameCount() - 1; i++) {
+            excluded = isExcludedFolderName(path.getName(i).toString());
+        }
+        return excluded;
+    }
+
+    /**
+     * Checks whether a folder name matches <code>[dD]ocumentation(s)?</code> or
+     * <code>[sS]cript(s)?</code>.
+     *
+     * @param folderName the folder name
+     * @return true, if the folder is excluded
+     */
+    private static boolean isExcludedFolderName(String folderName) {
+        boolean excluded = false;
+        if (!folderName.isEmpty()) {
+            String rest = folderName.substring(1);
+            char first = Character.toLowerCase(folderName.charAt(0));
+            excluded = (first == 'd' && (rest.equals("ocumentation") || rest.equals("ocumentations")))
+                    || (first == 's' && (rest.equals("cript") || rest.equals("cripts")));
+        }
+        return excluded;
+    }
+
+    /**
+     * Checks whether the file name contains ".c", ".h" or ".S" followed by the end
+     * of the name or a separator.
+     *
+     * @param fileName the file name
+     * @return true, if the name is the name of a code file
+     */
+    private static boolean isCodeFileName(String fileName) {
+        boolean code = false;
+        int dot = fileName.indexOf('.');
+        while (!code && dot >= 0 && dot + 1 < fileName.length()) {
+            char type = fileName.charAt(dot + 1);
+            code = (type == 'c' || type == 'h' || type == 'S')
+                    && (dot + 2 == fileName.length() || isSeparator(fileName.charAt(dot + 2)));
+            dot = fileName.indexOf('.', dot + 1);
+        }
+        return code;
+    }
+
+    /**
+     * Checks whether the file name equals the prefix or starts with the prefix
+     * followed by a separator.
+     *
+     * @param fileName the file name
+     * @param prefix   the prefix
+     * @return true, if the file name has the prefix
+     */
+    private static boolean hasPrefix(String fileName, String prefix) {
+        return fileName.startsWith(prefix)
+                && (fileName.length() == prefix.length() || isSeparator(fileName.charAt(prefix.length())));
+    }
+
+    /**
+     * Checks whether a character separates the name of a file from a suffix like
+     * in "Kconfig.debug" or "Makefile-orig".
+     *
+     * @param character the character
+     * @return true, if the character is a separator
+     */
+    private static boolean isSeparator(char character) {
+        return character == '.' || character == '-' || character == '_' || character == '+' || character == '~';
+    }
+
+}
@@ -0,0 +1,135 @@
+package net.ssehub.kernel_haven.incremental.diff.analyzer;
+
+import java.util.regex.Pattern;
+
+/**
+ * {@link FileDiffCheck} for build files. A change is relevant if it references
+ * a configuration option or ends a conditional block whose condition
+ * references a configuration option.
+ *
+ * @author moritz
+ */
+class BuildFileDiffCheck extends FileDiffCheck {
+
+    /** The comment marker. */
+    private static final String COMMENT_MARKER = "#";
+
+    /** The pattern for references to configuration options. */
+    private static final Pattern VAR_PATTERN = Pattern.compile(".*(\\s+|\\(|\\[|\\{|\\<|\\)|\\]|\\}|\\>)\\!?CONFIG_.*");
+
+    /** The pattern for the start of a conditional block. */
+    private static final Pattern CONDITION_START_PATTERN = Pattern.compile(".*(ifeq|ifneq|ifdef|ifndef).*");
+
+    /** The pattern for the end of a conditional block. */
+    private static final Pattern CONDITION_END_PATTERN = Pattern.compile(".*endif.*");
+
+    /** The pattern for the end of a block within a conditional. */
+    private static final Pattern CONDITION_BLOCK_END_PATTERN = Pattern.compile(".*(else|endif).*");
+
+    /**
+     * Instantiates a new {@link BuildFileDiffCheck}.
+     *
+     * @param diffLines the diff lines including their markers
+     */
+    BuildFileDiffCheck(String[] diffLines) {
+        super(diffLines);
+    }
+
+    @Override
+    protected String normalize(String diffLine, int diffLinePosition) {
+        String normalizedDiffLine = before(removeMarker(diffLine), COMMENT_MARKER);
+        if (!normalizedDiffLine.trim().isEmpty() && isPartOfComment(diffLinePosition)) {
+            normalizedDiffLine = "";
+        }
+        return normalizedDiffLine;
+    }
+
+    @Override
+    protected boolean isRelevantChange(String cleanDiffLine, int cleanDiffLinePosition) {
+        return !isPartOfComment(cleanDiffLinePosition)
+                && (VAR_PATTERN.matcher(cleanDiffLine).matches()
+                        || (CONDITION_BLOCK_END_PATTERN.matcher(cleanDiffLine).matches()
+                                && backtrackCondition(cleanDiffLinePosition)));
+    }
+
+    /**
+     * Checks whether the line continues a comment, i.e. whether the previous lines
+     * end with a line continuation and contain a comment marker.
+     *
+     * @param diffLinePosition the position of the line
+     * @return true, if the line is part of a comment
+     */
+    private boolean isPartOfComment(int diffLinePosition) {
+        boolean isPartOfComment = false;
+        boolean parentElementFound = false;
+        int diffLineCounter = diffLinePosition - 1;
+        while (diffLineCounter >= 0 && !parentElementFound) {
+            String previousDiffLine = diffLines[diffLineCounter].trim();
+            if (previousDiffLine.isEmpty() || !previousDiffLine.endsWith("\\")) {
+                parentElementFound = true;
+            } else if (previousDiffLine.contains(COMMENT_MARKER)) {
+                parentElementFound = true;
+                isPartOfComment = true;
+            }
+            diffLineCounter--;
+        }
+        return isPartOfComment;
+    }
+
+    /**
+     * Searches the condition of the block ended by the given line and checks
+     * whether it references a configuration option.
+     *
+     * @param blockEndIndex the position of the line ending the block
+     * @return true, if the condition references a configuration option
+     */
+    private boolean backtrackCondition(int blockEndIndex) {
+        boolean conditionIsVariabilityRelated = false;
+        boolean conditionFound = false;
+        int nestedEndifCounter = 0;
+        int diffLinesCounter = blockEndIndex - 1;
+        while (!conditionFound && diffLinesCounter >= 0) {
+            String diffLine = normalize(diffLines[diffLinesCounter], diffLinesCounter);
+            if (nestedEndifCounter == 0 && !CONDITION_BLOCK_END_PATTERN.matcher(diffLine).matches()
+                    && CONDITION_START_PATTERN.matcher(diffLine).matches()) {
+                conditionFound = true;
+                if (VAR_PATTERN.matcher(diffLine).matches()) {
+                    conditionIsVariabilityRelated = true;
+                } else if (diffLine.trim().endsWith("\\")) {
+                    conditionIsVariabilityRelated = continuationIsVariabilityRelated(diffLinesCounter, blockEndIndex);
+                }
+            } else if (CONDITION_END_PATTERN.matcher(diffLine).matches()) {
+                nestedEndifCounter++;
+            } else if (CONDITION_START_PATTERN.matcher(diffLine).matches()) {
+                nestedEndifCounter--;
+            }
+            diffLinesCounter--;
+        }
+        return conditionIsVariabilityRelated;
+    }
+
+    /**
+     * Checks whether the lines continuing a condition reference a configuration
+     * option.
+     *
+     * @param conditionIndex the position of the line starting the condition
+     * @param blockEndIndex  the position of the line ending the block
+     * @return true, if a configuration option is referenced
+     */
+    private boolean continuationIsVariabilityRelated(int conditionIndex, int blockEndIndex) {
+        boolean variabilityRelated = false;
+        int blockLinesCounter = conditionIndex + 1;
+        String blockLine;
+        do {
+            // Comments are detected relative to the condition like ComAn does
+            blockLine = normalize(diffLines[blockLinesCounter], conditionIndex);
+            if (VAR_PATTERN.matcher(blockLine).matches()) {
+                variabilityRelated = true;
+            }
+            blockLinesCounter++;
+        } while (blockLinesCounter < blockEndIndex && blockLine.trim().endsWith("\\")
+                && !CONDITION_START_PATTERN.matcher(blockLine).matches());
+        return variabilityRelated;
+    }
+
+}
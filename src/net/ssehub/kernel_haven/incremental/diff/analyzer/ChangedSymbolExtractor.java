@@ -0,0 +1,161 @@
+package net.ssehub.kernel_haven.incremental.diff.analyzer;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+
+/**
+ * Determines the configuration options whose definition is changed by the
+ * changes of a Kconfig file. The changed lines are assigned to the
+ * configuration option defined by the preceding <code>config</code> or
+ * <code>menuconfig</code> entry. Options selected or implied by a changed line
+ * are changed as well. Changes of help texts, comments and comment entries do
+ * not change any option.
+ *
+ * If a change can not be assigned to single options, e.g. as it changes a
+ * menu, a choice, an if-block, an included Kconfig file or an option with a
+ * global effect like <code>option modules</code> or as the surrounding entry
+ * is not part of the diff, the changed options are unknown. This is also the
+ * case for entries without lines and for changed lines that match no known
+ * element, e.g. <code>optional</code> or help texts whose start is not part of
+ * the diff.
+ *
+ * @author moritz
+ */
+public final class ChangedSymbolExtractor {
+
+    /** The comment marker. */
+    private static final String COMMENT_MARKER = "#";
+
+    /** The state of lines belonging to a comment entry. */
+    private static final String COMMENT_ENTRY = "";
+
+    /** The pattern for the definition of a configuration option. */
+    private static final Pattern CONFIG_PATTERN = Pattern.compile("^\\s*(?:config|menuconfig)\\s+(\\w+)\\s*$");
+
+    /** The pattern for comment entries. */
+    private static final Pattern CONFIG_COMMENT_PATTERN = Pattern.compile("^\\s*comment(\\s+.*)?");
+
+    /** The pattern for the start of help texts. */
+    private static final Pattern HELP_PATTERN = Pattern.compile("^\\s*(help|-+help-+)\\s*$");
+
+    /** The pattern for elements affecting an unknown number of configuration options. */
+    private static final Pattern STRUCTURE_PATTERN = Pattern.compile("^\\s*(choice|endchoice|menu|endmenu|if"
+            + "|endif|mainmenu|source|rsource|osource|orsource)(\\s+.*)?");
+
+    /** The pattern for attributes of configuration options. */
+    private static final Pattern ATTRIBUTE_PATTERN = Pattern.compile("^\\s*(bool|boolean|tristate|string|hex|int"
+            + "|default|def_bool|def_tristate|prompt|depends|visible|range|transitional)(\\s+.*)?");
+
+    /** The pattern for attributes selecting or implying other configuration options. */
+    private static final Pattern SELECT_PATTERN = Pattern.compile("^\\s*(?:select|imply)\\s+(\\w+).*");
+
+    /**
+     * Instantiates a new changed symbol extractor.
+     */
+    private ChangedSymbolExtractor() {
+    }
+
+    /**
+     * Determines the configuration options whose definition is changed by a
+     * Kconfig file entry.
+     *
+     * @param entry the entry of a Kconfig file
+     * @return the names of the changed configuration options without the
+     *         <code>CONFIG_</code> prefix or null if the changed options are
+     *         unknown
+     */
+    public static Set<String> extract(FileEntry entry) {
+        // Without lines, the changes of the entry are unknown
+        String[] diffLines = entry.getLines() == null ? new String[0] : FileDiffCheck.toDiffLines(entry);
+        Set<String> symbols = entry.getLines() == null ? null : new TreeSet<>();
+        // The option defined by the current entry, the comment entry state or null if unknown
+        String currentEntry = null;
+        int helpIndentation = -1;
+        boolean continuation = false;
+        for (int i = 0; symbols != null && i < diffLines.length; i++) {
+            String diffLine = diffLines[i];
+            boolean changed = diffLine.startsWith(FileDiffCheck.LINE_ADDED_MARKER)
+                    || diffLine.startsWith(FileDiffCheck.LINE_DELETED_MARKER);
+            String line = FileDiffCheck.before(FileDiffCheck.removeMarker(diffLine), COMMENT_MARKER);
+            if (diffLine.equals(FileDiffCheck.CHUNK_HEADER)) {
+                // The entry surrounding the next chunk is unknown
+                currentEntry = null;
+                helpIndentation = -1;
+                continuation = false;
+            } else if (!line.trim().isEmpty() && (helpIndentation < 0 || getIndentation(line) <= helpIndentation)) {
+                // The line is neither blank nor part of a help text, which do not change any option
+                helpIndentation = -1;
+                Matcher configMatcher = CONFIG_PATTERN.matcher(line);
+                Matcher selectMatcher = SELECT_PATTERN.matcher(line);
+                if (continuation) {
+                    if (changed) {
+                        symbols = addChange(symbols, currentEntry);
+                    }
+                } else if (configMatcher.matches()) {
+                    currentEntry = configMatcher.group(1);
+                    if (changed) {
+                        symbols.add(currentEntry);
+                    }
+                } else if (CONFIG_COMMENT_PATTERN.matcher(line).matches()) {
+                    currentEntry = COMMENT_ENTRY;
+                } else if (HELP_PATTERN.matcher(line).matches()) {
+                    helpIndentation = getIndentation(line);
+                } else if (STRUCTURE_PATTERN.matcher(line).matches()) {
+                    currentEntry = null;
+                    if (changed) {
+                        symbols = null;
+                    }
+                } else if (changed && selectMatcher.matches()) {
+                    symbols = addChange(symbols, currentEntry);
+                    if (symbols != null) {
+                        symbols.add(selectMatcher.group(1));
+                    }
+                } else if (changed && ATTRIBUTE_PATTERN.matcher(line).matches()) {
+                    symbols = addChange(symbols, currentEntry);
+                } else if (changed) {
+                    // Unknown elements, help texts or continuations whose start is not part of the diff
+                    symbols = null;
+                }
+                continuation = line.trim().endsWith("\\");
+            }
+        }
+        return symbols;
+    }
+
+    /**
+     * Adds the option defined by the current entry to the changed options.
+     *
+     * @param symbols      the changed options
+     * @param currentEntry the option defined by the current entry, the comment
+     *                     entry state or null if unknown
+     * @return the changed options or null if the changed options are unknown
+     */
+    private static Set<String> addChange(Set<String> symbols, String currentEntry) {
+        Set<String> result = symbols;
+        if (currentEntry == null) {
+            result = null;
+        } else if (!currentEntry.equals(COMMENT_ENTRY)) {
+            result.add(currentEntry);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of leading whitespace characters.
+     *
+     * @param line the line
+     * @return the indentation
+     */
+    private static int getIndentation(String line) {
+        int indentation = 0;
+        while (indentation < line.length() && Character.isWhitespace(line.charAt(indentation))) {
+            indentation++;
+        }
+        return indentation;
+    }
+
+}
@@ -0,0 +1,131 @@
+package net.ssehub.kernel_haven.incremental.diff.analyzer;
+
+import java.util.regex.Pattern;
+
+/**
+ * {@link FileDiffCheck} for code files. A change is relevant if it adds,
+ * removes or modifies a preprocessor block statement or the continuation of
+ * its condition.
+ *
+ * @author moritz
+ */
+class CodeFileDiffCheck extends FileDiffCheck {
+
+    /** The single line comment marker. */
+    private static final String SL_COMMENT_MARKER = "//";
+
+    /** The multi line comment start marker. */
+    private static final String ML_COMMENT_START_MARKER = "/*";
+
+    /** The multi line comment end marker. */
+    private static final String ML_COMMENT_END_MARKER = "*/";
+
+    /** The pattern for #if, #ifdef and #ifndef. */
+    private static final Pattern CPP_IF_PATTERN = Pattern.compile(".*#\\s*if.*");
+
+    /** The pattern for #else. */
+    private static final Pattern CPP_ELSE_PATTERN = Pattern.compile(".*#\\s*else.*");
+
+    /** The pattern for #elif. */
+    private static final Pattern CPP_ELIF_PATTERN = Pattern.compile(".*#\\s*elif.*");
+
+    /** The pattern for #endif. */
+    private static final Pattern CPP_ENDIF_PATTERN = Pattern.compile(".*#\\s*endif.*");
+
+    /**
+     * Instantiates a new {@link CodeFileDiffCheck}.
+     *
+     * @param diffLines the diff lines including their markers
+     */
+    CodeFileDiffCheck(String[] diffLines) {
+        super(diffLines);
+    }
+
+    @Override
+    protected String normalize(String diffLine, int diffLinePosition) {
+        String normalizedDiffLine = removeMarker(diffLine);
+        if (normalizedDiffLine.contains(SL_COMMENT_MARKER)) {
+            normalizedDiffLine = before(normalizedDiffLine, SL_COMMENT_MARKER);
+        } else if (normalizedDiffLine.contains(ML_COMMENT_START_MARKER)) {
+            if (normalizedDiffLine.contains(ML_COMMENT_END_MARKER)) {
+                normalizedDiffLine = before(normalizedDiffLine, ML_COMMENT_START_MARKER) + " "
+                        + after(normalizedDiffLine, ML_COMMENT_END_MARKER);
+            } else {
+                normalizedDiffLine = before(normalizedDiffLine, ML_COMMENT_START_MARKER);
+            }
+        } else if (normalizedDiffLine.contains(ML_COMMENT_END_MARKER)) {
+            normalizedDiffLine = after(normalizedDiffLine, ML_COMMENT_END_MARKER);
+        }
+        if (!normalizedDiffLine.trim().isEmpty() && isPartOfComment(diffLinePosition)) {
+            normalizedDiffLine = "";
+        }
+        return normalizedDiffLine;
+    }
+
+    @Override
+    protected boolean isRelevantChange(String cleanDiffLine, int cleanDiffLinePosition) {
+        return !isPartOfComment(cleanDiffLinePosition)
+                && (containsBlockStatement(cleanDiffLine) || isBlockConditionContinuation(cleanDiffLinePosition));
+    }
+
+    /**
+     * Checks whether a line contains a preprocessor block statement.
+     *
+     * @param cleanDiffLine the normalized line
+     * @return true, if a block statement is present
+     */
+    private static boolean containsBlockStatement(String cleanDiffLine) {
+        return CPP_IF_PATTERN.matcher(cleanDiffLine).matches()
+                || CPP_ELIF_PATTERN.matcher(cleanDiffLine).matches()
+                || CPP_ELSE_PATTERN.matcher(cleanDiffLine).matches()
+                || CPP_ENDIF_PATTERN.matcher(cleanDiffLine).matches();
+    }
+
+    /**
+     * Checks whether the line continues the condition of a block statement in one
+     * of the previous lines.
+     *
+     * @param diffLinePosition the position of the line
+     * @return true, if the line is part of a block condition
+     */
+    private boolean isBlockConditionContinuation(int diffLinePosition) {
+        boolean isBlockConditionContinuation = false;
+        boolean continuationFound = true;
+        int diffLineCounter = diffLinePosition - 1;
+        while (!isBlockConditionContinuation && continuationFound && diffLineCounter >= 0) {
+            String normalizedDiffLine = normalize(diffLines[diffLineCounter], diffLineCounter).trim();
+            if (!normalizedDiffLine.endsWith("\\")) {
+                continuationFound = false;
+            } else if (containsBlockStatement(normalizedDiffLine)) {
+                isBlockConditionContinuation = true;
+            }
+            diffLineCounter--;
+        }
+        return isBlockConditionContinuation;
+    }
+
+    /**
+     * Checks whether the line is located within a multi line comment by searching
+     * the previous lines for the start or end of a comment.
+     *
+     * @param diffLinePosition the position of the line
+     * @return true, if the line is part of a comment
+     */
+    private boolean isPartOfComment(int diffLinePosition) {
+        boolean isPartOfComment = false;
+        boolean commentMarkerFound = false;
+        int diffLineCounter = diffLinePosition - 1;
+        while (diffLineCounter >= 0 && !commentMarkerFound) {
+            String previousDiffLine = diffLines[diffLineCounter];
+            if (previousDiffLine.contains(ML_COMMENT_END_MARKER)) {
+                commentMarkerFound = true;
+            } else if (previousDiffLine.contains(ML_COMMENT_START_MARKER)) {
+                commentMarkerFound = true;
+                isPartOfComment = true;
+            }
+            diffLineCounter--;
+        }
+        return isPartOfComment;
+    }
+
+}
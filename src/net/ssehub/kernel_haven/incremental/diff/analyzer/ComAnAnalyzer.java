@@ -3,27 +3,23 @@
  */
 package net.ssehub.kernel_haven.incremental.diff.analyzer;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.StringJoiner;
-import java.util.regex.Pattern;
 
 import net.ssehub.comani.analysis.AnalysisSetupException;
 import net.ssehub.comani.analysis.deadcodechange.core.DeadCodeChangeAnalyzer;
 import net.ssehub.comani.analysis.deadcodechange.diff.AnalysisResult;
+import net.ssehub.comani.data.ChangedArtifact;
+import net.ssehub.comani.data.Commit;
 import net.ssehub.comani.data.CommitQueue;
 import net.ssehub.comani.data.CommitQueue.QueueState;
-import net.ssehub.comani.extraction.ExtractionSetupException;
-import net.ssehub.comani.extraction.git.GitCommitExtractor;
 import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.incremental.diff.analyzer.ArtifactClassifier.Category;
 import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
 import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
 import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry.VariabilityChange;
@@ -56,90 +52,57 @@ public class ComAnAnalyzer implements VariabilityChangeAnalyzer {
      */
     @Override
     public void analyzeDiffFile(DiffFile diffFile, Configuration config) throws IOException {
-        AnalysisResult comAnResult = null;
-        try {
-            comAnResult = getComAnResults(config);
-        } catch (IOException exc) {
-            Logger.get().logException("Failed to extract variability change information from diff file with ComAnIn",
-                    exc);
-            throw exc;
-        }
+        AnalysisResult comAnResult = getComAnResults(diffFile, config);
         if (comAnResult != null) {
             boolean buildChanges = comAnResult.getRelevantBuildChanges();
             boolean vmChanges = comAnResult.getRelevantVariabilityModelChanges();
-            Set<Path> changedCodeFiles = new HashSet<Path>();
-            comAnResult.getRelevantCodeChanges().forEach(entry -> changedCodeFiles.add(Paths.get(entry.substring(1))));
-
-            Pattern buildPattern = Pattern.compile(comAnBuildPattern);
-            Pattern vmPattern = Pattern.compile(comAnKConfigPattern);
-            Pattern codePattern = Pattern.compile(comAnCodePattern);
+            Set<String> changedCodeFiles = new HashSet<>(comAnResult.getRelevantCodeChanges());
 
             for (FileEntry entry : diffFile.getEntries()) {
-                if (changedCodeFiles.contains(Paths.get(entry.getPath().toString()))) {
-                    entry.setVariabilityChange(VariabilityChange.CHANGE);
-                } else if (buildPattern.matcher(entry.getPath().toString()).find()) {
-                    if (buildChanges) {
-                        entry.setVariabilityChange(VariabilityChange.CHANGE);
-                    } else {
-                        entry.setVariabilityChange(VariabilityChange.NO_CHANGE);
-                    }
-                } else if (vmPattern.matcher(entry.getPath().toString()).find()) {
-                    if (vmChanges) {
-                        entry.setVariabilityChange(VariabilityChange.CHANGE);
-                    } else {
-                        entry.setVariabilityChange(VariabilityChange.NO_CHANGE);
-                    }
-                } else if (codePattern.matcher(entry.getPath().toString()).find()) {
-                    entry.setVariabilityChange(VariabilityChange.NO_CHANGE);
-                } else {
-                    entry.setVariabilityChange(VariabilityChange.NOT_A_VARIABILITY_FILE);
+                VariabilityChange change;
+                switch (ArtifactClassifier.classify(entry.getPath())) {
+                case CODE:
+                    change = changedCodeFiles.contains(toArtifactPath(entry)) ? VariabilityChange.CHANGE
+                            : VariabilityChange.NO_CHANGE;
+                    break;
+                case BUILD:
+                    change = buildChanges ? VariabilityChange.CHANGE : VariabilityChange.NO_CHANGE;
+                    break;
+                case VARIABILITY_MODEL:
+                    change = vmChanges ? VariabilityChange.CHANGE : VariabilityChange.NO_CHANGE;
+                    break;
+                default:
+                    change = VariabilityChange.NOT_A_VARIABILITY_FILE;
+                    break;
                 }
+                entry.setVariabilityChange(change);
             }
         }
     }
 
     /**
-     * Gets the results from ComAn describing differences in variability.
+     * Gets the results from ComAn describing differences in variability. The commit
+     * analyzed by ComAn is created from the already parsed {@link DiffFile} and
+     * only contains entries for files that ComAn considers as variability model,
+     * build or code files.
      *
-     * @param config the config
+     * @param diffFile the diff file
+     * @param config   the config
      * @return the com an results
-     * @throws IOException Signals that an I/O exception has occurred.
      */
-    public AnalysisResult getComAnResults(Configuration config) throws IOException {
-        Properties pluginProperties = new Properties();
-
-        pluginProperties.setProperty("core.version_control_system", "git");
-        pluginProperties.setProperty("analysis.output", ""); // Unused but mandatory
-        pluginProperties.setProperty("analysis.dead_code_change_analyzer.vm_files_regex", comAnKConfigPattern);
-        pluginProperties.setProperty("analysis.dead_code_change_analyzer.code_files_regex", comAnCodePattern);
-        pluginProperties.setProperty("analysis.dead_code_change_analyzer.build_files_regex", comAnBuildPattern);
+    public AnalysisResult getComAnResults(DiffFile diffFile, Configuration config) {
+        Properties pluginProperties = createPluginProperties();
 
         AnalysisResult result = null;
 
-        
         try {
             Map<String, AnalysisResult> analysisResults = null;
             CommitQueue commitQueue = new CommitQueue(1);
-            GitCommitExtractor commitExtractor = new GitCommitExtractor(pluginProperties, commitQueue);
             DeadCodeChangeAnalyzer commitAnalyzer = new DeadCodeChangeAnalyzer(pluginProperties, commitQueue);
-            // Extract the commits based on the commit files in the test commits directory
             commitQueue.setState(QueueState.OPEN);
 
-            StringJoiner joiner = new StringJoiner("\n");
-            File originalDiffFile = config.getValue(IncrementalAnalysisSettings.SOURCE_TREE_DIFF_FILE);
-            try (BufferedReader br = new BufferedReader(new FileReader(originalDiffFile))) {
-                String currentLine = br.readLine();
-                if (!currentLine.startsWith("commit ")) {
-                    joiner.add("commit " + originalDiffFile.getName());
-                }
-                while (currentLine != null) {
-                    joiner.add(currentLine);
-                    currentLine = br.readLine();
-                }
-
-            }
-
-            commitExtractor.extract(joiner.toString());
+            String commitId = config.getValue(IncrementalAnalysisSettings.SOURCE_TREE_DIFF_FILE).getName();
+            commitQueue.addCommit(createCommit(commitId, diffFile));
             commitQueue.setState(QueueState.CLOSED); // Actual closing after all commits are analyzed
             // Analyze the extracted commits
             if (commitAnalyzer.analyze()) {
@@ -149,11 +112,77 @@ public class ComAnAnalyzer implements VariabilityChangeAnalyzer {
                 result = analysisResults.get(analysisResults.keySet().iterator().next());
             }
 
-        } catch (ExtractionSetupException | AnalysisSetupException e) {
-            e.printStackTrace();
+        } catch (AnalysisSetupException exc) {
+            Logger.get().logException("Could not set up ComAn for analyzing the diff file", exc);
         }
 
         return result;
     }
 
+    /**
+     * Creates the properties for setting up ComAn.
+     *
+     * @return the plugin properties
+     */
+    static Properties createPluginProperties() {
+        Properties pluginProperties = new Properties();
+
+        pluginProperties.setProperty("core.version_control_system", "git");
+        pluginProperties.setProperty("analysis.output", ""); // Unused but mandatory
+        pluginProperties.setProperty("analysis.dead_code_change_analyzer.vm_files_regex", comAnKConfigPattern);
+        pluginProperties.setProperty("analysis.dead_code_change_analyzer.code_files_regex", comAnCodePattern);
+        pluginProperties.setProperty("analysis.dead_code_change_analyzer.build_files_regex", comAnBuildPattern);
+        return pluginProperties;
+    }
+
+    /**
+     * Creates the commit analyzed by ComAn from a {@link DiffFile}. This produces
+     * the same {@link ChangedArtifact}s as the {@link
+     * net.ssehub.comani.extraction.git.GitCommitExtractor} for the entries that
+     * are relevant for ComAn.
+     *
+     * @param commitId the commit id
+     * @param diffFile the diff file
+     * @return the commit
+     */
+    private static Commit createCommit(String commitId, DiffFile diffFile) {
+        List<ChangedArtifact> changedArtifacts = new ArrayList<>();
+        for (FileEntry entry : diffFile.getEntries()) {
+            if (ArtifactClassifier.classify(entry.getPath()) != Category.OTHER) {
+                changedArtifacts.add(createChangedArtifact(entry, toArtifactPath(entry)));
+            }
+        }
+        return new Commit(commitId, "<no_date>", new String[] {"commit " + commitId}, changedArtifacts);
+    }
+
+    /**
+     * Creates the {@link ChangedArtifact} for a single entry.
+     *
+     * @param entry        the entry
+     * @param artifactPath the artifact path as used by ComAn
+     * @return the changed artifact
+     */
+    private static ChangedArtifact createChangedArtifact(FileEntry entry, String artifactPath) {
+        ChangedArtifact changedArtifact = new ChangedArtifact();
+        changedArtifact.addDiffHeaderLine("diff --git a" + artifactPath + " b" + artifactPath);
+        changedArtifact.addDiffHeaderLine(FileDiffCheck.CHUNK_HEADER);
+        changedArtifact.addArtifactPath(artifactPath);
+        changedArtifact.addArtifactName(entry.getPath().getFileName().toString());
+        for (String diffLine : FileDiffCheck.toDiffLines(entry)) {
+            changedArtifact.addContentLine(diffLine);
+        }
+        return changedArtifact;
+    }
+
+    /**
+     * Gets the path of an entry as used by ComAn, i.e. the path within the new
+     * revision without the leading "b".
+     *
+     * @param entry the entry
+     * @return the artifact path
+     */
+    static String toArtifactPath(FileEntry entry) {
+        return "/" + entry.getPath().toString();
+    }
+
 }
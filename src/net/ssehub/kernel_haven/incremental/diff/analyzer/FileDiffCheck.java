@@ -0,0 +1,165 @@
+package net.ssehub.kernel_haven.incremental.diff.analyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry.Lines;
+
+/**
+ * Checks whether the diff lines of a single file contain a change that is
+ * relevant for variability. The checks follow the ones of ComAn's dead code
+ * change analysis but only depend on the lines of one file so that different
+ * files can be checked in parallel.
+ *
+ * @author moritz
+ */
+abstract class FileDiffCheck {
+
+    /** The marker of added lines. */
+    protected static final String LINE_ADDED_MARKER = "+";
+
+    /** The marker of deleted lines. */
+    protected static final String LINE_DELETED_MARKER = "-";
+
+    /** The line marking the start of a new chunk. */
+    static final String CHUNK_HEADER = "@@ -0,0 +0,0 @@";
+
+    /** The diff lines including their markers. */
+    protected final String[] diffLines;
+
+    /**
+     * Instantiates a new {@link FileDiffCheck}.
+     *
+     * @param diffLines the diff lines including their markers
+     */
+    protected FileDiffCheck(String[] diffLines) {
+        this.diffLines = diffLines;
+    }
+
+    /**
+     * Checks whether any added or deleted line is relevant for variability.
+     *
+     * @return true, if a relevant change was found
+     */
+    public boolean isRelevant() {
+        boolean changeRelevant = false;
+        int lineCounter = 0;
+        while (!changeRelevant && lineCounter < diffLines.length) {
+            String diffLine = diffLines[lineCounter];
+            if ((diffLine.startsWith(LINE_ADDED_MARKER) || diffLine.startsWith(LINE_DELETED_MARKER))
+                    && !diffLine.substring(1).trim().isEmpty()) {
+                String cleanDiffLine = normalize(diffLine, lineCounter);
+                if (!cleanDiffLine.trim().isEmpty()) {
+                    changeRelevant = isRelevantChange(cleanDiffLine, lineCounter);
+                }
+            }
+            lineCounter++;
+        }
+        return changeRelevant;
+    }
+
+    /**
+     * Removes the marker and comments from a diff line.
+     *
+     * @param diffLine         the diff line
+     * @param diffLinePosition the position of the line within {@link #diffLines}
+     * @return the line without marker and comments
+     */
+    protected abstract String normalize(String diffLine, int diffLinePosition);
+
+    /**
+     * Checks whether a normalized line is relevant for variability.
+     *
+     * @param cleanDiffLine         the normalized line
+     * @param cleanDiffLinePosition the position of the line within
+     *                              {@link #diffLines}
+     * @return true, if the line is relevant
+     */
+    protected abstract boolean isRelevantChange(String cleanDiffLine, int cleanDiffLinePosition);
+
+    /**
+     * Removes the added or deleted marker from a diff line.
+     *
+     * @param diffLine the diff line
+     * @return the line without marker
+     */
+    protected static String removeMarker(String diffLine) {
+        String line = diffLine;
+        if (diffLine.startsWith(LINE_ADDED_MARKER) || diffLine.startsWith(LINE_DELETED_MARKER)) {
+            line = diffLine.substring(1);
+        }
+        return line;
+    }
+
+    /**
+     * Gets the part of a line before the first occurrence of a marker or the
+     * whole line if the marker is not present.
+     *
+     * @param line   the line
+     * @param marker the marker
+     * @return the part before the marker
+     */
+    protected static String before(String line, String marker) {
+        int index = line.indexOf(marker);
+        return index < 0 ? line : line.substring(0, index);
+    }
+
+    /**
+     * Gets the part of a line between the first and the second occurrence of a
+     * marker or up to the end of the line if the marker occurs only once.
+     *
+     * @param line   the line
+     * @param marker the marker
+     * @return the part after the marker or an empty string if the marker is not
+     *         present
+     */
+    protected static String after(String line, String marker) {
+        String part = "";
+        int index = line.indexOf(marker);
+        if (index >= 0) {
+            int start = index + marker.length();
+            int end = line.indexOf(marker, start);
+            part = end < 0 ? line.substring(start) : line.substring(start, end);
+        }
+        return part;
+    }
+
+    /**
+     * Creates the diff lines of an entry in the form of a git diff without the
+     * header lines. Every line starts with its marker and gaps between chunks are
+     * represented by a chunk header.
+     *
+     * @param entry the entry
+     * @return the diff lines
+     */
+    static String[] toDiffLines(FileEntry entry) {
+        List<String> diffLines = new ArrayList<>();
+        for (Lines lines : entry.getLines()) {
+            String prefix;
+            switch (lines.getType()) {
+            case ADDED:
+                prefix = LINE_ADDED_MARKER;
+                break;
+            case DELETED:
+                prefix = LINE_DELETED_MARKER;
+                break;
+            case UNMODIFIED:
+                prefix = " ";
+                break;
+            default:
+                prefix = null;
+                break;
+            }
+            if (prefix == null) {
+                diffLines.add(CHUNK_HEADER);
+            } else if (lines.getCount() > 0) {
+                for (String line : lines.getContent().split("\\n", -1)) {
+                    diffLines.add(prefix + line);
+                }
+            }
+        }
+        return diffLines.toArray(new String[diffLines.size()]);
+    }
+
+}
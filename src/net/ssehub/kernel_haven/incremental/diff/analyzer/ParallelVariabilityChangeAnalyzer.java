@@ -0,0 +1,185 @@
+package net.ssehub.kernel_haven.incremental.diff.analyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.incremental.diff.analyzer.ArtifactClassifier.Category;
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry.VariabilityChange;
+import net.ssehub.kernel_haven.incremental.settings.IncrementalAnalysisSettings;
+import net.ssehub.kernel_haven.util.Logger;
+
+/**
+ * A {@link VariabilityChangeAnalyzer}-Implementation that analyzes the
+ * {@link FileEntry}s of a {@link DiffFile} for variability changes in parallel.
+ * The results are equivalent to the ones of the {@link ComAnAnalyzer} but each
+ * file is checked on its own instead of analyzing the whole diff as a single
+ * commit on one thread. ComAn is not required for this analyzer.
+ *
+ * As with ComAn, a relevant change in any build file or Kconfig file flags all
+ * build files or Kconfig files as changed while code files are flagged
+ * individually. The results for single files can be kept in a
+ * {@link VariabilityChangeCache} within the hybrid cache directory.
+ *
+ * @author moritz
+ */
+public class ParallelVariabilityChangeAnalyzer implements VariabilityChangeAnalyzer {
+
+    /** The Constant LOGGER. */
+    private static final Logger LOGGER = Logger.get();
+
+    /** The name of the file within the hybrid cache directory that holds the cached results. */
+    public static final String CACHE_FILE = "variability-change-cache.txt";
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see net.ssehub.kernel_haven.incremental.diff.analyzer.
+     * VariabilityChangeAnalyzer#analyzeDiffFile(net.ssehub.kernel_haven.
+     * incremental.diff.parser.DiffFile,
+     * net.ssehub.kernel_haven.config.Configuration)
+     */
+    @Override
+    public void analyzeDiffFile(DiffFile diffFile, Configuration config) throws IOException {
+        Collection<FileEntry> entries = diffFile.getEntries();
+        VariabilityChangeCache cache = openCache(config);
+
+        Map<Path, Boolean> relevantCodeChanges = new ConcurrentHashMap<>();
+        entries.parallelStream().filter(entry -> isAnalyzed(entry, Category.CODE)).forEach(entry -> relevantCodeChanges
+                .put(entry.getPath(), isRelevantChange(entry, Category.CODE, cache)));
+
+        boolean buildChanges = containsRelevantChange(entries, Category.BUILD, cache);
+        boolean vmChanges = containsRelevantChange(entries, Category.VARIABILITY_MODEL, cache);
+        for (FileEntry entry : entries) {
+            VariabilityChange change;
+            switch (ArtifactClassifier.classify(entry.getPath())) {
+            case CODE:
+                change = relevantCodeChanges.getOrDefault(entry.getPath(), false) ? VariabilityChange.CHANGE
+                        : VariabilityChange.NO_CHANGE;
+                break;
+            case BUILD:
+                change = buildChanges ? VariabilityChange.CHANGE : VariabilityChange.NO_CHANGE;
+                break;
+            case VARIABILITY_MODEL:
+                change = vmChanges ? VariabilityChange.CHANGE : VariabilityChange.NO_CHANGE;
+                break;
+            default:
+                change = VariabilityChange.NOT_A_VARIABILITY_FILE;
+                break;
+            }
+            entry.setVariabilityChange(change);
+        }
+
+        if (cache != null) {
+            cache.save();
+        }
+        LOGGER.logDebug("Analyzed " + entries.size() + " entries for variability changes. Build changes: "
+                + buildChanges + ", variability model changes: " + vmChanges);
+    }
+
+    /**
+     * Opens the {@link VariabilityChangeCache} if caching is enabled.
+     *
+     * @param config the config, may be null
+     * @return the cache or null if results are not cached
+     */
+    private static VariabilityChangeCache openCache(Configuration config) {
+        VariabilityChangeCache cache = null;
+        if (config != null && config.getValue(IncrementalAnalysisSettings.VARIABILITY_CHANGE_CACHE)) {
+            cache = new VariabilityChangeCache(
+                    new File(config.getValue(IncrementalAnalysisSettings.HYBRID_CACHE_DIRECTORY), CACHE_FILE),
+                    config.getValue(IncrementalAnalysisSettings.VARIABILITY_CHANGE_CACHE_SIZE));
+        }
+        return cache;
+    }
+
+    /**
+     * Checks whether an entry belongs to a category and is analyzed for
+     * variability changes.
+     *
+     * @param entry    the entry
+     * @param category the category
+     * @return true, if the entry is analyzed as part of the category
+     */
+    private static boolean isAnalyzed(FileEntry entry, Category category) {
+        return ArtifactClassifier.classify(entry.getPath()) == category
+                && !ArtifactClassifier.isExcluded(entry.getPath());
+    }
+
+    /**
+     * Checks whether any entry of the given category contains a relevant change.
+     * Without cache, the check stops at the first relevant change as a single
+     * one flags all files of the category. With cache, all entries are checked so
+     * that their results are available for later runs.
+     *
+     * @param entries  the entries
+     * @param category the category
+     * @param cache    the cache, may be null
+     * @return true, if a relevant change was found
+     */
+    private boolean containsRelevantChange(Collection<FileEntry> entries, Category category,
+            VariabilityChangeCache cache) {
+        Stream<FileEntry> analyzedEntries = entries.parallelStream().filter(entry -> isAnalyzed(entry, category));
+        boolean relevant;
+        if (cache == null) {
+            relevant = analyzedEntries.anyMatch(entry -> isRelevantChange(entry, category, null));
+        } else {
+            relevant = analyzedEntries.map(entry -> isRelevantChange(entry, category, cache))
+                    .reduce(false, Boolean::logicalOr);
+        }
+        return relevant;
+    }
+
+    /**
+     * Checks whether an entry contains a change relevant for variability. The
+     * result is taken from the cache if available.
+     *
+     * @param entry    the entry
+     * @param category the category of the entry
+     * @param cache    the cache, may be null
+     * @return true, if the change is relevant
+     */
+    private boolean isRelevantChange(FileEntry entry, Category category, VariabilityChangeCache cache) {
+        String key = null;
+        Boolean relevant = null;
+        if (cache != null) {
+            key = VariabilityChangeCache.getKey(entry, getClass().getSimpleName() + "/" + category);
+            relevant = cache.get(key);
+        }
+        if (relevant == null) {
+            switch (category) {
+            case CODE:
+                relevant = isRelevantCodeChange(entry);
+                break;
+            case BUILD:
+                relevant = new BuildFileDiffCheck(FileDiffCheck.toDiffLines(entry)).isRelevant();
+                break;
+            default:
+                relevant = new VariabilityModelFileDiffCheck(FileDiffCheck.toDiffLines(entry)).isRelevant();
+                break;
+            }
+            if (cache != null) {
+                cache.put(key, relevant);
+            }
+        }
+        return relevant;
+    }
+
+    /**
+     * Checks whether the changes of a code file are relevant for variability.
+     *
+     * @param entry the entry of the code file
+     * @return true, if the changes are relevant
+     */
+    protected boolean isRelevantCodeChange(FileEntry entry) {
+        return new CodeFileDiffCheck(FileDiffCheck.toDiffLines(entry)).isRelevant();
+    }
+
+}
@@ -0,0 +1,141 @@
+package net.ssehub.kernel_haven.incremental.diff.analyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The preprocessor skeleton of the lines described by a diff of a code file,
+ * i.e. the sequence of conditional preprocessor directives together with their
+ * expressions. The skeleton is built for the file before the change (unmodified
+ * and deleted lines) and after the change (unmodified and added lines). If both
+ * skeletons are equal, the change does neither alter the structure of
+ * conditional blocks nor their conditions but may only shift lines.
+ *
+ * The comparison is conservative. A diff is considered to change the skeleton
+ * if a changed line opens or closes a multi line comment or may continue a
+ * directive that is not part of the diff.
+ *
+ * @author moritz
+ */
+class PreprocessorSkeleton {
+
+    /** The pattern for conditional directives. */
+    private static final Pattern DIRECTIVE_PATTERN =
+            Pattern.compile("^\\s*#\\s*(ifdef|ifndef|if|elif|else|endif)\\b.*");
+
+    /** The pattern for comments within a single line. */
+    private static final Pattern INLINE_COMMENT_PATTERN = Pattern.compile("/\\*.*?\\*/");
+
+    /** The pattern for sequences of whitespace. */
+    private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
+
+    /** The token marking a gap between chunks within a skeleton. */
+    private static final String GAP_TOKEN = "@@";
+
+    /** The diff lines including their markers. */
+    private final String[] diffLines;
+
+    /**
+     * Instantiates a new {@link PreprocessorSkeleton}.
+     *
+     * @param diffLines the diff lines including their markers as created by
+     *                  {@link FileDiffCheck#toDiffLines(net.ssehub.kernel_haven.incremental.diff.parser.FileEntry)}
+     */
+    PreprocessorSkeleton(String[] diffLines) {
+        this.diffLines = diffLines;
+    }
+
+    /**
+     * Checks whether the skeleton after the change differs from the one before
+     * the change.
+     *
+     * @return true, if the skeleton changed or a change can not be ruled out
+     */
+    public boolean hasChanged() {
+        List<String> before = new ArrayList<>();
+        List<String> after = new ArrayList<>();
+        boolean uncertain = extract(FileDiffCheck.LINE_DELETED_MARKER, before)
+                || extract(FileDiffCheck.LINE_ADDED_MARKER, after);
+        return uncertain || !before.equals(after);
+    }
+
+    /**
+     * Extracts the skeleton for one side of the diff.
+     *
+     * @param changeMarker the marker of changed lines belonging to the side
+     * @param skeleton     the list to which the directives are added
+     * @return true, if the skeleton can not be determined reliably
+     */
+    private boolean extract(String changeMarker, List<String> skeleton) {
+        boolean uncertain = false;
+        boolean afterGap = false;
+        boolean chainReachesChunkStart = false;
+        int linesInChunk = 0;
+        StringBuilder directive = null;
+        for (int i = 0; !uncertain && i < diffLines.length; i++) {
+            String diffLine = diffLines[i];
+            if (diffLine.equals(FileDiffCheck.CHUNK_HEADER)) {
+                if (directive != null) {
+                    skeleton.add(normalize(directive));
+                    directive = null;
+                }
+                skeleton.add(GAP_TOKEN);
+                afterGap = true;
+                chainReachesChunkStart = true;
+                linesInChunk = 0;
+            } else if (diffLine.startsWith(" ") || diffLine.startsWith(changeMarker)) {
+                boolean changed = !diffLine.startsWith(" ");
+                String line = diffLine.substring(1);
+                // A changed line may continue a directive within the gap before the chunk. The first line of a chunk
+                // never ends such a chain as it may be the function context repeated by git.
+                uncertain = changed && (opensOrClosesComment(line) || (afterGap && chainReachesChunkStart));
+                linesInChunk++;
+                boolean continued = line.trim().endsWith("\\");
+                chainReachesChunkStart = chainReachesChunkStart && (linesInChunk == 1 || continued);
+                if (directive == null && DIRECTIVE_PATTERN.matcher(line).matches()) {
+                    directive = new StringBuilder();
+                }
+                if (directive != null) {
+                    directive.append(continued ? line.substring(0, line.lastIndexOf('\\')) : line).append(' ');
+                    if (!continued) {
+                        skeleton.add(normalize(directive));
+                        directive = null;
+                    }
+                }
+            }
+        }
+        if (directive != null) {
+            skeleton.add(normalize(directive));
+        }
+        return uncertain;
+    }
+
+    /**
+     * Checks whether a line contains the start or end of a multi line comment
+     * that is not closed or opened within the same line.
+     *
+     * @param line the line
+     * @return true, if the line may change which lines are commented
+     */
+    private static boolean opensOrClosesComment(String line) {
+        String withoutInlineComments = INLINE_COMMENT_PATTERN.matcher(line).replaceAll(" ");
+        return withoutInlineComments.contains("/*") || withoutInlineComments.contains("*/");
+    }
+
+    /**
+     * Removes comments and redundant whitespace from a directive.
+     *
+     * @param directive the directive
+     * @return the normalized directive
+     */
+    private static String normalize(CharSequence directive) {
+        String normalized = INLINE_COMMENT_PATTERN.matcher(directive).replaceAll(" ");
+        int singleLineComment = normalized.indexOf("//");
+        if (singleLineComment >= 0) {
+            normalized = normalized.substring(0, singleLineComment);
+        }
+        return WHITESPACE_PATTERN.matcher(normalized).replaceAll(" ").trim().replaceFirst("^# ", "#");
+    }
+
+}
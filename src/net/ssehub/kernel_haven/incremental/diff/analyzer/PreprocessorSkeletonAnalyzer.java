@@ -0,0 +1,33 @@
+package net.ssehub.kernel_haven.incremental.diff.analyzer;
+
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry.FileChange;
+
+/**
+ * A {@link ParallelVariabilityChangeAnalyzer} that flags modified code files as
+ * changed only if their {@link PreprocessorSkeleton} changed. Modifications
+ * that leave all conditional directives and their expressions untouched are
+ * flagged as {@link FileEntry.VariabilityChange#NO_CHANGE} as they only shift
+ * lines, which is handled by the
+ * {@link net.ssehub.kernel_haven.incremental.diff.linecount.LineCounter}
+ * without extracting the file again.
+ *
+ * Added and deleted code files as well as build and Kconfig files are analyzed
+ * like the {@link ParallelVariabilityChangeAnalyzer} does.
+ *
+ * @author moritz
+ */
+public class PreprocessorSkeletonAnalyzer extends ParallelVariabilityChangeAnalyzer {
+
+    @Override
+    protected boolean isRelevantCodeChange(FileEntry entry) {
+        boolean relevant;
+        if (entry.getType().equals(FileChange.MODIFICATION)) {
+            relevant = new PreprocessorSkeleton(FileDiffCheck.toDiffLines(entry)).hasChanged();
+        } else {
+            relevant = super.isRelevantCodeChange(entry);
+        }
+        return relevant;
+    }
+
+}
@@ -0,0 +1,180 @@
+package net.ssehub.kernel_haven.incremental.diff.analyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.ssehub.kernel_haven.incremental.diff.applier.FileContentWriter;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry.Lines;
+import net.ssehub.kernel_haven.util.Logger;
+
+/**
+ * Persistent cache for the results of checking single files for variability
+ * relevant changes. Results are identified by the SHA-256 hash of the changed
+ * lines of a file so that the same change does not need to be analyzed again
+ * when the same commits are analyzed again or show up on different branches.
+ * The (abbreviated) git object ids given by the diff are not used because the
+ * cache spans every diff ever processed and a collision of abbreviated ids
+ * would silently return the result of another change.
+ *
+ * The cache holds at most a given number of results. If it is full, the least
+ * recently used results are evicted.
+ *
+ * @author moritz
+ */
+public class VariabilityChangeCache {
+
+    /** The Constant LOGGER. */
+    private static final Logger LOGGER = Logger.get();
+
+    /** The separator between key and result in the cache file. */
+    private static final char SEPARATOR = ' ';
+
+    /** The cache file. */
+    private final File cacheFile;
+
+    /** The cached results in the order of their last use. */
+    private final Map<String, Boolean> results;
+
+    /** Whether results were added since the cache was loaded. */
+    private boolean modified;
+
+    /**
+     * Instantiates a new {@link VariabilityChangeCache} and loads the results
+     * stored in the cache file if it exists.
+     *
+     * @param cacheFile  the cache file
+     * @param maxEntries the maximum number of results kept in the cache
+     */
+    public VariabilityChangeCache(File cacheFile, int maxEntries) {
+        this.cacheFile = cacheFile;
+        this.results = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        load();
+    }
+
+    /**
+     * Loads the results from the cache file. A missing or unreadable file results
+     * in an empty cache.
+     */
+    private void load() {
+        if (cacheFile.isFile()) {
+            try {
+                for (String line : Files.readAllLines(cacheFile.toPath(), Charset.defaultCharset())) {
+                    int separator = line.lastIndexOf(SEPARATOR);
+                    if (separator > 0) {
+                        results.put(line.substring(0, separator), line.charAt(separator + 1) == '1');
+                    }
+                }
+            } catch (IOException exc) {
+                LOGGER.logException("Could not read variability change cache " + cacheFile, exc);
+                results.clear();
+            }
+        }
+    }
+
+    /**
+     * Creates the key for the result of checking an entry. The key is derived
+     * from the lines of the entry, which are the only input of the checks.
+     *
+     * @param entry   the entry
+     * @param checkId identifies the check that produced the result
+     * @return the key or null if the entry has no lines
+     */
+    public static String getKey(FileEntry entry, String checkId) {
+        String key = null;
+        if (entry.getLines() != null) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                for (Lines lines : entry.getLines()) {
+                    digest.update((lines.getType() + "\0" + lines.getCount() + "\0").getBytes(StandardCharsets.UTF_8));
+                    if (lines.getContent() != null) {
+                        digest.update(lines.getContent().getBytes(StandardCharsets.UTF_8));
+                    }
+                    digest.update((byte) 0);
+                }
+                StringBuilder hex = new StringBuilder(checkId).append(':');
+                for (byte b : digest.digest()) {
+                    hex.append(String.format("%02x", b));
+                }
+                key = hex.toString();
+            } catch (NoSuchAlgorithmException exc) {
+                LOGGER.logException("Could not create key for variability change cache", exc);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Gets a cached result.
+     *
+     * @param key the key
+     * @return the result or null if no result is cached for the key
+     */
+    public synchronized Boolean get(String key) {
+        return key == null ? null : results.get(key);
+    }
+
+    /**
+     * Adds a result to the cache.
+     *
+     * @param key      the key, results without key are not cached
+     * @param relevant the result
+     */
+    public synchronized void put(String key, boolean relevant) {
+        if (key != null) {
+            results.put(key, relevant);
+            modified = true;
+        }
+    }
+
+    /**
+     * Writes the cache to the cache file if results were added.
+     *
+     * @return true, if successful
+     */
+    public synchronized boolean save() {
+        boolean success = true;
+        if (modified) {
+            StringBuilder content = new StringBuilder();
+            for (Map.Entry<String, Boolean> result : results.entrySet()) {
+                content.append(result.getKey()).append(SEPARATOR).append(result.getValue() ? '1' : '0').append('\n');
+            }
+            try {
+                Files.createDirectories(cacheFile.getAbsoluteFile().toPath().getParent());
+                FileContentWriter.writeAtomically(cacheFile.getAbsoluteFile().toPath(), content,
+                        PosixFilePermissions.fromString("rw-r--r--"));
+                modified = false;
+            } catch (IOException exc) {
+                success = false;
+                LOGGER.logException("Could not write variability change cache " + cacheFile, exc);
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Gets the number of cached results.
+     *
+     * @return the number of cached results
+     */
+    public synchronized int size() {
+        return results.size();
+    }
+
+}
@@ -0,0 +1,112 @@
+package net.ssehub.kernel_haven.incremental.diff.analyzer;
+
+import java.util.regex.Pattern;
+
+/**
+ * {@link FileDiffCheck} for Kconfig files. A change is relevant if it affects
+ * the definition of a configuration option, a menu, a choice, an included
+ * Kconfig file or a dependency. Changes of help texts and comments are not
+ * relevant.
+ *
+ * @author moritz
+ */
+class VariabilityModelFileDiffCheck extends FileDiffCheck {
+
+    /** The comment marker. */
+    private static final String COMMENT_MARKER = "#";
+
+    /** The pattern for comment entries. */
+    private static final Pattern CONFIG_COMMENT_PATTERN = Pattern.compile("^\\s*comment\\s+\\\".*");
+
+    /** The pattern for definitions and attributes of model elements. */
+    private static final Pattern CONFIG_DEF_PATTERN = Pattern.compile("^\\s*(config|menuconfig|choice|endchoice"
+            + "|menu|endmenu|if|endif|bool|tristate|string|hex|int|default|def_bool|def_tristate|prompt|select"
+            + "|visible if|range)(\\s+.*)?");
+
+    /** The pattern for included Kconfig files. */
+    private static final Pattern FILE_INCLUDE_PATTERN = Pattern.compile("^\\s*source\\s+((\\\".*\\\".*)|(.*\\/.*))");
+
+    /** The pattern for dependencies. */
+    private static final Pattern DEPENDS_ON_PATTERN = Pattern.compile("^\\s*depends on\\s+.*");
+
+    /**
+     * Instantiates a new {@link VariabilityModelFileDiffCheck}.
+     *
+     * @param diffLines the diff lines including their markers
+     */
+    VariabilityModelFileDiffCheck(String[] diffLines) {
+        super(diffLines);
+    }
+
+    @Override
+    protected String normalize(String diffLine, int diffLinePosition) {
+        return before(removeMarker(diffLine), COMMENT_MARKER);
+    }
+
+    @Override
+    protected boolean isRelevantChange(String cleanDiffLine, int cleanDiffLinePosition) {
+        boolean isVariabilityChange = false;
+        if (!isPartOfHelp(cleanDiffLine, cleanDiffLinePosition)) {
+            if (CONFIG_DEF_PATTERN.matcher(cleanDiffLine).matches()
+                    || FILE_INCLUDE_PATTERN.matcher(cleanDiffLine).matches()) {
+                isVariabilityChange = true;
+            } else if (DEPENDS_ON_PATTERN.matcher(cleanDiffLine).matches()) {
+                // A dependency is relevant if it belongs to a model element and not to a comment
+                boolean previousModelElementFound = false;
+                int diffLineCounter = cleanDiffLinePosition - 1;
+                while (diffLineCounter >= 0 && !previousModelElementFound) {
+                    String previousDiffLine = normalize(diffLines[diffLineCounter], diffLineCounter);
+                    if (CONFIG_COMMENT_PATTERN.matcher(previousDiffLine).matches()) {
+                        previousModelElementFound = true;
+                    } else if (isRelevantChange(previousDiffLine, diffLineCounter)) {
+                        previousModelElementFound = true;
+                        isVariabilityChange = true;
+                    }
+                    diffLineCounter--;
+                }
+            }
+        }
+        return isVariabilityChange;
+    }
+
+    /**
+     * Checks whether an indented line belongs to a help text or comment by
+     * searching the previous lines for its less indented parent element.
+     *
+     * @param diffLine         the normalized line
+     * @param diffLinePosition the position of the line
+     * @return true, if the line is part of a help text or comment
+     */
+    private boolean isPartOfHelp(String diffLine, int diffLinePosition) {
+        boolean isPartOfHelp = false;
+        boolean parentElementFound = false;
+        int diffLineIndentation = getIndentation(diffLine);
+        int diffLineCounter = diffLinePosition - 1;
+        while (diffLineIndentation > 0 && diffLineCounter >= 0 && !parentElementFound) {
+            String previousDiffLine = normalize(diffLines[diffLineCounter], diffLineCounter);
+            if (!previousDiffLine.isEmpty() && getIndentation(previousDiffLine) < diffLineIndentation) {
+                parentElementFound = true;
+                previousDiffLine = previousDiffLine.trim();
+                isPartOfHelp = previousDiffLine.startsWith("help") || previousDiffLine.startsWith("--help--")
+                        || previousDiffLine.startsWith("comment");
+            }
+            diffLineCounter--;
+        }
+        return isPartOfHelp;
+    }
+
+    /**
+     * Gets the number of leading whitespace characters.
+     *
+     * @param diffLine the line
+     * @return the indentation
+     */
+    private static int getIndentation(String diffLine) {
+        int indentation = 0;
+        while (indentation < diffLine.length() && Character.isWhitespace(diffLine.charAt(indentation))) {
+            indentation++;
+        }
+        return indentation;
+    }
+
+}
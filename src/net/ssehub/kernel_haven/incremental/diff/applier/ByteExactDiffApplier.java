@@ -0,0 +1,418 @@
+package net.ssehub.kernel_haven.incremental.diff.applier;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+import net.ssehub.kernel_haven.util.Logger;
+
+/**
+ * A {@link FileReplacingDiffApplier} that does not reconstruct files from the
+ * decoded lines of a {@link DiffFile}. Instead the git diff file is memory
+ * mapped and the content of each line is copied byte by byte from the diff file
+ * to the resulting file. This avoids decoding and encoding every line and
+ * preserves the exact bytes of files that are not encoded in the default
+ * charset (e.g. Latin-1) as well as carriage returns and missing new lines at
+ * the end of files.
+ *
+ * The {@link DiffFile} is still used for checking preconditions and for
+ * determining which files are added, modified or deleted. Entries that can not
+ * be found within the mapped diff file are written from the {@link DiffFile}
+ * like the {@link FileReplacingDiffApplier} does.
+ *
+ * Diff files larger than 2GB can not be mapped at once. They are mapped in
+ * windows of at most 2GB that are cut at the start of entries, so each entry
+ * lies within a single window. Only entries that do not fit into a window on
+ * their own are written from the {@link DiffFile}.
+ *
+ * @author moritz
+ */
+public class ByteExactDiffApplier extends FileReplacingDiffApplier {
+
+    /** The Constant LOGGER. */
+    private static final Logger LOGGER = Logger.get();
+
+    /** The start of a new entry in a git diff file. */
+    private static final byte[] DIFF_START = "diff --git a/".getBytes(Charset.forName("US-ASCII"));
+
+    /** The separator between the old and the new path of an entry. */
+    private static final byte[] NEW_PATH_START = " b/".getBytes(Charset.forName("US-ASCII"));
+
+    /** The maximum size of a window of the mapped diff file. */
+    private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+    /** The raw git diff file. */
+    private final File rawDiff;
+
+    /** The maximum size of a window of the mapped diff file. */
+    private final int maxWindowSize;
+
+    /**
+     * The mapped windows of the git diff file. Only set while changes get merged or
+     * reverted.
+     */
+    private List<MappedByteBuffer> windows;
+
+    /**
+     * The line ranges within the mapped diff file for each file path. Each range
+     * consists of the index of its window and the start and end within the window
+     * and spans from the first chunk header of an entry to the end of the entry. A
+     * path has two ranges if its modification is described as deletion followed
+     * by an addition.
+     */
+    private Map<Path, List<int[]>> entryRanges;
+
+    /** The paths of entries that do not fit into a single window. */
+    private Set<Path> unmappedEntries;
+
+    /**
+     * Instantiates a new {@link ByteExactDiffApplier} that uses one thread per
+     * available processor.
+     *
+     * @param filesStorageDir the files storage dir
+     * @param diffFile        the diff file parsed from rawDiff
+     * @param rawDiff         the git diff file
+     */
+    public ByteExactDiffApplier(File filesStorageDir, DiffFile diffFile, File rawDiff) {
+        this(filesStorageDir, diffFile, rawDiff, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Instantiates a new {@link ByteExactDiffApplier}.
+     *
+     * @param filesStorageDir the files storage dir
+     * @param diffFile        the diff file parsed from rawDiff
+     * @param rawDiff         the git diff file
+     * @param threadCount     the number of threads used for writing files
+     */
+    public ByteExactDiffApplier(File filesStorageDir, DiffFile diffFile, File rawDiff, int threadCount) {
+        this(filesStorageDir, diffFile, rawDiff, threadCount, MAX_WINDOW_SIZE);
+    }
+
+    /**
+     * Instantiates a new {@link ByteExactDiffApplier} that maps the diff file in
+     * windows of the given size.
+     *
+     * @param filesStorageDir the files storage dir
+     * @param diffFile        the diff file parsed from rawDiff
+     * @param rawDiff         the git diff file
+     * @param threadCount     the number of threads used for writing files
+     * @param maxWindowSize   the maximum size of a window of the mapped diff file
+     */
+    ByteExactDiffApplier(File filesStorageDir, DiffFile diffFile, File rawDiff, int threadCount,
+            int maxWindowSize) {
+        super(filesStorageDir, diffFile, threadCount);
+        this.rawDiff = rawDiff;
+        this.maxWindowSize = maxWindowSize;
+    }
+
+    /**
+     * Merge changes.
+     *
+     * @return true, if successful
+     */
+    @Override
+    public boolean mergeChanges() {
+        mapDiff();
+        try {
+            return super.mergeChanges();
+        } finally {
+            unmapDiff();
+        }
+    }
+
+    /**
+     * Revert changes.
+     *
+     * @return true, if successful
+     */
+    @Override
+    public boolean revertChanges() {
+        boolean success;
+        if (revertsFromSnapshot()) {
+            // The snapshot does not need the diff file
+            success = super.revertChanges();
+        } else {
+            mapDiff();
+            try {
+                success = super.revertChanges();
+            } finally {
+                unmapDiff();
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Maps the git diff file into memory and indexes its entries. If the file can
+     * not be mapped, all files are written from the {@link DiffFile}.
+     */
+    private void mapDiff() {
+        windows = new ArrayList<>();
+        entryRanges = new HashMap<>();
+        unmappedEntries = new HashSet<>();
+        try (FileChannel channel = FileChannel.open(rawDiff.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long windowStart = 0;
+            while (windowStart < size) {
+                long windowSize = Math.min(maxWindowSize, size - windowStart);
+                windows.add(channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize));
+                windowStart += indexEntries(windows.size() - 1, windowStart + windowSize == size);
+            }
+        } catch (IOException exc) {
+            LOGGER.logException("Could not map diff file " + rawDiff
+                    + " into memory. Files will be reconstructed from the parsed diff file.", exc);
+            windows.clear();
+            entryRanges.clear();
+        }
+        if (!unmappedEntries.isEmpty()) {
+            LOGGER.logWarning(unmappedEntries.size() + " entries of diff file " + rawDiff + " are too large to be"
+                    + " mapped into memory. These files will be reconstructed from the parsed diff file.");
+        }
+    }
+
+    /**
+     * Releases the mapped diff file.
+     */
+    private void unmapDiff() {
+        windows = null;
+        entryRanges = null;
+        unmappedEntries = null;
+    }
+
+    /**
+     * Finds the line ranges for all entries within a window of the mapped diff
+     * file. Windows start at the beginning of an entry. Unless the window is the
+     * last one, only the entries that end within the window are indexed and the
+     * next window starts at the beginning of the first entry that does not.
+     *
+     * @param windowIndex the index of the window
+     * @param lastWindow  whether the window reaches the end of the diff file
+     * @return the number of bytes of the window that were indexed
+     */
+    private int indexEntries(int windowIndex, boolean lastWindow) {
+        ByteBuffer window = windows.get(windowIndex);
+        int size = window.limit();
+        Path currentPath = null;
+        int rangeStart = -1;
+        int entryStart = 0;
+        int lineStart = 0;
+        int indexed = -1;
+        while (indexed < 0 && (lineStart < size || !lastWindow)) {
+            int lineEnd = endOfLine(window, lineStart, size);
+            if (lineEnd == size && !lastWindow) {
+                // The line may be cut by the end of the window, so may be the entry
+                if (lineStart > 0 && startsWith(window, lineStart, size, DIFF_START)) {
+                    // The current entry ends before the header of the next one
+                    addRange(currentPath, windowIndex, rangeStart, lineStart);
+                    indexed = lineStart;
+                } else if (entryStart > 0) {
+                    indexed = entryStart;
+                } else {
+                    // The entry does not fit into a window, skip it up to the cut line
+                    if (currentPath != null) {
+                        unmappedEntries.add(currentPath);
+                    }
+                    indexed = lineStart > 0 ? lineStart : size;
+                }
+            } else {
+                if (startsWith(window, lineStart, lineEnd, DIFF_START)) {
+                    addRange(currentPath, windowIndex, rangeStart, lineStart);
+                    currentPath = parsePath(window, lineStart + DIFF_START.length, lineEnd);
+                    entryRanges.computeIfAbsent(currentPath, path -> new ArrayList<>(1));
+                    rangeStart = -1;
+                    entryStart = lineStart;
+                } else if (rangeStart < 0 && currentPath != null && lineEnd - lineStart >= 2
+                        && window.get(lineStart) == '@' && window.get(lineStart + 1) == '@') {
+                    rangeStart = lineStart;
+                }
+                lineStart = lineEnd + 1;
+            }
+        }
+        if (indexed < 0) {
+            addRange(currentPath, windowIndex, rangeStart, size);
+            indexed = size;
+        }
+        return indexed;
+    }
+
+    /**
+     * Adds a line range to the ranges of a path.
+     *
+     * @param path        the path
+     * @param windowIndex the index of the window containing the range
+     * @param start       the start of the range, negative if the entry has no chunks
+     * @param end         the end of the range
+     */
+    private void addRange(Path path, int windowIndex, int start, int end) {
+        if (path != null && start >= 0) {
+            entryRanges.get(path).add(new int[] {windowIndex, start, end});
+        }
+    }
+
+    /**
+     * Parses the old path of an entry header the same way the
+     * {@link net.ssehub.kernel_haven.incremental.diff.parser.DiffFileParser} does.
+     *
+     * @param window the window containing the header line
+     * @param start  the start of the path after "diff --git a/"
+     * @param end    the end of the header line
+     * @return the path
+     */
+    private static Path parsePath(ByteBuffer window, int start, int end) {
+        int pathEnd = start;
+        while (pathEnd < end && !startsWith(window, pathEnd, end, NEW_PATH_START)) {
+            pathEnd++;
+        }
+        byte[] pathBytes = new byte[pathEnd - start];
+        for (int i = 0; i < pathBytes.length; i++) {
+            pathBytes[i] = window.get(start + i);
+        }
+        return Paths.get(new String(pathBytes, Charset.defaultCharset()));
+    }
+
+    /**
+     * Finds the end of the line starting at the given position.
+     *
+     * @param window    the window of the mapped diff
+     * @param lineStart the line start
+     * @param size      the position up to which the line may extend
+     * @return the position of the line feed or size if the line has none
+     */
+    private static int endOfLine(ByteBuffer window, int lineStart, int size) {
+        int pos = lineStart;
+        while (pos < size && window.get(pos) != '\n') {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Checks whether the mapped diff contains the prefix at the given position.
+     *
+     * @param window the window of the mapped diff
+     * @param start  the start position
+     * @param end    the position up to which the prefix may extend
+     * @param prefix the prefix
+     * @return true, if the prefix is present
+     */
+    private static boolean startsWith(ByteBuffer window, int start, int end, byte[] prefix) {
+        boolean matches = end - start >= prefix.length;
+        for (int i = 0; matches && i < prefix.length; i++) {
+            matches = window.get(start + i) == prefix[i];
+        }
+        return matches;
+    }
+
+    @Override
+    protected void writeFile(FileEntry entry, Path target, boolean merge) throws IOException {
+        List<int[]> ranges = entryRanges.get(entry.getPath());
+        if (ranges == null || unmappedEntries.contains(entry.getPath())) {
+            super.writeFile(entry, target, merge);
+        } else {
+            FileContentWriter.writeAtomically(target, entry.getPermissions(),
+                    channel -> copyLines(ranges, merge ? (byte) '+' : (byte) '-', channel));
+        }
+    }
+
+    /**
+     * Copies the content of all unmodified lines and all lines with the given
+     * prefix to the channel. A line followed by "\ No newline at end of file" is
+     * written without its line feed.
+     *
+     * @param ranges     the line ranges of the entry
+     * @param keptPrefix the prefix of added ('+') or removed ('-') lines to keep
+     * @param channel    the channel
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void copyLines(List<int[]> ranges, byte keptPrefix, FileChannel channel)
+            throws IOException {
+        ByteBuffer buffer = FileContentWriter.pooledBuffer();
+        boolean pendingLineFeed = false;
+        for (int[] range : ranges) {
+            // Each thread works on its own view of the shared mapping
+            ByteBuffer source = windows.get(range[0]).duplicate();
+            boolean lastLineKept = false;
+            int lineStart = range[1];
+            while (lineStart < range[2]) {
+                int lineEnd = endOfLine(source, lineStart, range[2]);
+                byte prefix = source.get(lineStart);
+                if (prefix == ' ' || prefix == keptPrefix) {
+                    if (pendingLineFeed) {
+                        putLineFeed(buffer, channel);
+                    }
+                    put(source, lineStart + 1, lineEnd, buffer, channel);
+                    pendingLineFeed = true;
+                    lastLineKept = true;
+                } else {
+                    if (prefix == '\\' && lastLineKept) {
+                        pendingLineFeed = false;
+                    }
+                    lastLineKept = false;
+                }
+                lineStart = lineEnd + 1;
+            }
+        }
+        if (pendingLineFeed) {
+            putLineFeed(buffer, channel);
+        }
+        FileContentWriter.drain(channel, buffer);
+    }
+
+    /**
+     * Puts a line feed into the buffer, draining the buffer to the channel if it is
+     * full.
+     *
+     * @param buffer  the buffer
+     * @param channel the channel
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void putLineFeed(ByteBuffer buffer, FileChannel channel) throws IOException {
+        if (!buffer.hasRemaining()) {
+            FileContentWriter.drain(channel, buffer);
+        }
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Copies a byte range of the source into the buffer, draining the buffer to
+     * the channel whenever it is full.
+     *
+     * @param source  the source
+     * @param start   the start of the range
+     * @param end     the end of the range
+     * @param buffer  the buffer
+     * @param channel the channel
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void put(ByteBuffer source, int start, int end, ByteBuffer buffer, FileChannel channel)
+            throws IOException {
+        int pos = start;
+        while (pos < end) {
+            if (!buffer.hasRemaining()) {
+                FileContentWriter.drain(channel, buffer);
+            }
+            int chunkEnd = Math.min(end, pos + buffer.remaining());
+            source.limit(chunkEnd);
+            source.position(pos);
+            buffer.put(source);
+            pos = chunkEnd;
+        }
+        source.clear();
+    }
+
+}
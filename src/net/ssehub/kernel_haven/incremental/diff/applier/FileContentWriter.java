@@ -0,0 +1,180 @@
+package net.ssehub.kernel_haven.incremental.diff.applier;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Set;
+
+/**
+ * Utility class for writing files created by {@link DiffApplier}s. Files are
+ * written through a {@link FileChannel} using a direct {@link ByteBuffer} that
+ * is pooled per thread. Replaced files are written to a temporary file within
+ * the same directory first and then moved to their target location with an
+ * atomic rename so that a file is either present in its old or its new form but
+ * never half-written.
+ *
+ * @author moritz
+ */
+public final class FileContentWriter {
+
+    /**
+     * Writes content to a {@link FileChannel}.
+     */
+    @FunctionalInterface
+    public interface ChannelWriter {
+
+        /**
+         * Writes the content to the channel.
+         *
+         * @param channel the channel
+         * @throws IOException Signals that an I/O exception has occurred.
+         */
+        void writeTo(FileChannel channel) throws IOException;
+    }
+
+    /** The size of the pooled buffers. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The suffix of temporary files. */
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    /** The buffer for each writing thread. */
+    private static final ThreadLocal<ByteBuffer> BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    /**
+     * The encoder for each writing thread. The default charset is used and invalid
+     * characters are replaced to produce the same files as a
+     * {@link java.io.FileWriter} does.
+     */
+    private static final ThreadLocal<CharsetEncoder> ENCODER =
+            ThreadLocal.withInitial(() -> Charset.defaultCharset().newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE));
+
+    /**
+     * Instantiates a new file content writer.
+     */
+    private FileContentWriter() {
+    }
+
+    /**
+     * Replaces the target file with a file containing the given content. The
+     * parent directory of the target must exist.
+     *
+     * @param target      the target file
+     * @param content     the content
+     * @param permissions the permissions of the written file
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static void writeAtomically(Path target, CharSequence content, Set<PosixFilePermission> permissions)
+            throws IOException {
+        writeAtomically(target, permissions, channel -> write(channel, content));
+    }
+
+    /**
+     * Replaces the target file with a file containing the content written by the
+     * given {@link ChannelWriter}. The content is written to a temporary file in
+     * the directory of the target which is then renamed to the target. If writing
+     * fails, the target remains untouched.
+     *
+     * @param target      the target file
+     * @param permissions the permissions of the written file
+     * @param writer      the writer producing the content
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static void writeAtomically(Path target, Set<PosixFilePermission> permissions, ChannelWriter writer)
+            throws IOException {
+        Path tempFile = Files.createTempFile(target.getParent(), "." + target.getFileName(), TEMP_FILE_SUFFIX);
+        boolean moved = false;
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                writer.writeTo(channel);
+            }
+            Files.setPosixFilePermissions(tempFile, permissions);
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            moved = true;
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    /**
+     * Encodes the content with the default charset and writes it to the channel
+     * using the buffer of the current thread.
+     *
+     * @param channel the channel
+     * @param content the content
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static void write(FileChannel channel, CharSequence content) throws IOException {
+        ByteBuffer buffer = pooledBuffer();
+        CharsetEncoder encoder = ENCODER.get();
+        CharBuffer input = CharBuffer.wrap(content);
+        encoder.reset();
+        CoderResult result;
+        do {
+            result = encoder.encode(input, buffer, true);
+            checkResult(result);
+            drain(channel, buffer);
+        } while (result.isOverflow());
+        do {
+            result = encoder.flush(buffer);
+            checkResult(result);
+            drain(channel, buffer);
+        } while (result.isOverflow());
+    }
+
+    /**
+     * Gets the cleared buffer of the current thread. The buffer must only be used
+     * until the next call to a write method of this class.
+     *
+     * @return the buffer
+     */
+    static ByteBuffer pooledBuffer() {
+        ByteBuffer buffer = BUFFER.get();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Throws an exception if the result of an encoding step is an error.
+     *
+     * @param result the result
+     * @throws CharacterCodingException if the result is an error
+     */
+    private static void checkResult(CoderResult result) throws CharacterCodingException {
+        if (result.isError()) {
+            result.throwException();
+        }
+    }
+
+    /**
+     * Writes the content of the buffer to the channel and clears the buffer.
+     *
+     * @param channel the channel
+     * @param buffer  the buffer
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+}
@@ -1,13 +1,22 @@
 package net.ssehub.kernel_haven.incremental.diff.applier;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import net.ssehub.kernel_haven.incremental.diff.applier.PreconditionViolation.Reason;
 import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
 import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
 import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry.FileChange;
@@ -26,108 +35,169 @@ import net.ssehub.kernel_haven.util.Logger;
  * In contrast to the legacy {@link GitDiffApplier} git does not need to be
  * installed on the system.
  * 
+ * The files are written in parallel. Each file is written to a temporary file
+ * first which then replaces the previous version through an atomic rename (see
+ * {@link FileContentWriter}).
+ * 
  */
 public class FileReplacingDiffApplier implements DiffApplier {
 
     /** The Constant LOGGER. */
     private static final Logger LOGGER = Logger.get();
 
+    /**
+     * Minimum number of entries within a directory for which the directory gets
+     * listed instead of checking each file on its own.
+     */
+    private static final int DIRECTORY_LISTING_THRESHOLD = 4;
+
     /** The files storage dir. */
     private final File filesStorageDir;
 
     /** The input diff. */
     private final DiffFile diffFile;
 
+    /** The number of threads used for writing files. */
+    private final int threadCount;
+
+    /** The snapshot keeping the pre-images of merged files, null if not used. */
+    private SourceTreeSnapshot snapshot;
+
     /**
-     * Instantiates a new {@link DiffApplyUtil}.
+     * Instantiates a new {@link DiffApplyUtil} that uses one thread per available
+     * processor.
      *
      * @param filesStorageDir the files storage dir
      * @param diffFile        the diff file
-     * @throws IOException Signals that an I/O exception has occurred.
      */
     public FileReplacingDiffApplier(File filesStorageDir, DiffFile diffFile) {
+        this(filesStorageDir, diffFile, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Instantiates a new {@link DiffApplyUtil}.
+     *
+     * @param filesStorageDir the files storage dir
+     * @param diffFile        the diff file
+     * @param threadCount     the number of threads used for writing files
+     */
+    public FileReplacingDiffApplier(File filesStorageDir, DiffFile diffFile, int threadCount) {
         this.filesStorageDir = filesStorageDir;
         this.diffFile = diffFile;
+        this.threadCount = Math.max(1, threadCount);
     }
 
     /**
-     * Check preconditions for applying the changes described by the git diff file.
-     * 
-     * @return true, if successful
+     * Sets the snapshot used for keeping the pre-images of all files touched by a
+     * merge. If a snapshot is set, {@link #revertChanges()} restores the
+     * pre-images from the snapshot instead of rebuilding them from the diff file.
+     *
+     * @param snapshot the snapshot, null for not using a snapshot
      */
-    private boolean checkMergePreconditions() {
-        boolean preconditionsMet = true;
-
-        // iterate over all entries within the diff file
-        for (FileEntry entry : diffFile.getEntries()) {
-            for (Lines lines : entry.getLines()) {
-                if (lines.getType().equals(Lines.LineType.BETWEEN_CHUNKS) && lines.getCount() > 0) {
-                    LOGGER.logError("The diff does not explicitly contain all lines of the files that it describes."
-                            + " Use \"git diff --no-renames -U100000\" for generating the diff files "
-                            + "to make sure that the diff file describes the changed files completely.");
-                    LOGGER.logError("This concerns the file: " + entry.getPath().toString());
-                    preconditionsMet = false;
-                }
-            }
+    public void setSnapshot(SourceTreeSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
 
-            // only consider deletions and modifications. deleted and modified
-            // files should be present before applying the diff.
-            // We do not need to check for added files as those are not on
-            // the filesystem before the diff is applied.
-            if (entry.getType().equals(FileChange.DELETION) || entry.getType().equals(FileChange.MODIFICATION)) {
+    /**
+     * Check preconditions for applying the changes described by the git diff file.
+     * Deleted and modified files need to be present before applying the diff while
+     * added files must not exist.
+     *
+     * @return the violations, empty if the changes can be merged
+     */
+    public List<PreconditionViolation> checkMergePreconditions() {
+        return checkPreconditions(true);
+    }
 
-                if (!filesStorageDir.toPath().resolve(entry.getPath()).toFile().exists()) {
-                    LOGGER.logError("File " + entry.getPath() + " does not exist on filesystem eventhough the"
-                            + " git-diff file used has a modification/deletion entry for it.");
-                    preconditionsMet = false;
-                }
+    /**
+     * Check preconditions for reverting the changes described by the git diff file.
+     * Added and modified files need to be present before reverting the diff while
+     * deleted files must not exist.
+     *
+     * @return the violations, empty if the changes can be reverted
+     */
+    public List<PreconditionViolation> checkRevertPreconditions() {
+        return checkPreconditions(false);
+    }
 
-            } else if (entry.getType().equals(FileChange.ADDITION)
-                    && filesStorageDir.toPath().resolve(entry.getPath()).toFile().exists()) {
-                LOGGER.logError("File " + entry.getPath() + " does already exist on filesystem eventhough the"
-                        + " git-diff file used has an addition entry for it.");
-                preconditionsMet = false;
+    /**
+     * Checks the preconditions for all entries in one parallel pass. Entries are
+     * grouped by their directory so that directories with many entries are listed
+     * once instead of checking the existence of every single file.
+     *
+     * @param merge true for checking the preconditions of a merge, false for a
+     *              revert
+     * @return the violations sorted by path
+     */
+    private List<PreconditionViolation> checkPreconditions(boolean merge) {
+        Map<Path, List<FileEntry>> entriesByDirectory = new HashMap<>();
+        for (FileEntry entry : diffFile.getEntries()) {
+            Path directory = entry.getPath().getParent();
+            entriesByDirectory.computeIfAbsent(directory == null ? Paths.get("") : directory,
+                    key -> new ArrayList<>()).add(entry);
+        }
 
-            }
+        List<PreconditionViolation> violations = entriesByDirectory.entrySet().parallelStream()
+                .flatMap(group -> checkPreconditions(group.getKey(), group.getValue(), merge).stream())
+                .sorted(Comparator.comparing(PreconditionViolation::getPath)).collect(Collectors.toList());
+        for (PreconditionViolation violation : violations) {
+            LOGGER.logError(violation.getMessage());
         }
-        return preconditionsMet;
+        return violations;
     }
 
     /**
-     * Check preconditions for reverting the changes described by the git diff file.
+     * Checks the preconditions for the entries within a single directory.
      *
-     * @return true, if successful
+     * @param directory the directory relative to the files storage dir
+     * @param entries   the entries for files within the directory
+     * @param merge     true for checking the preconditions of a merge, false for a
+     *                  revert
+     * @return the violations
      */
-    private boolean checkRevertPreconditions() {
-        boolean preconditionsMet = true;
+    private List<PreconditionViolation> checkPreconditions(Path directory, List<FileEntry> entries,
+            boolean merge) {
+        List<PreconditionViolation> violations = new ArrayList<>();
+        Set<String> existingFiles = null;
+        if (entries.size() >= DIRECTORY_LISTING_THRESHOLD) {
+            String[] fileNames = filesStorageDir.toPath().resolve(directory).toFile().list();
+            existingFiles = fileNames == null ? Collections.emptySet() : new HashSet<>(Arrays.asList(fileNames));
+        }
 
-        for (FileEntry entry : diffFile.getEntries()) {
-            for (Lines lines : entry.getLines()) {
-                if (lines.getType().equals(Lines.LineType.BETWEEN_CHUNKS) && lines.getCount() > 0) {
-                    LOGGER.logError("The diff does not explicitly contain all lines of the files that it describes."
-                            + " Use \"git diff --no-renames -U100000\" for generating the diff files "
-                            + "to make sure that the diff file describes the changed files completely.");
-                    LOGGER.logError("This concerns the file: " + entry.getPath().toString());
-                    preconditionsMet = false;
-                }
+        FileChange createdFile = merge ? FileChange.ADDITION : FileChange.DELETION;
+        for (FileEntry entry : entries) {
+            if (entry.hasOmittedLines()) {
+                violations.add(new PreconditionViolation(entry.getPath(), Reason.INCOMPLETE_DIFF,
+                        "The diff does not explicitly contain all lines of the files that it describes."
+                                + " Use \"git diff --no-renames -U100000\" for generating the diff files "
+                                + "to make sure that the diff file describes the changed files completely.\n"
+                                + "This concerns the file: " + entry.getPath().toString()));
             }
-            if (entry.getType().equals(FileChange.ADDITION) || entry.getType().equals(FileChange.MODIFICATION)) {
 
-                if (!filesStorageDir.toPath().resolve(entry.getPath()).toFile().exists()) {
-                    LOGGER.logError("File " + entry.getPath() + " does not exist on filesystem eventhough"
-                            + " the git-diff file used has a modification/addition entry for it.");
-                    preconditionsMet = false;
-                }
-
-            } else if (entry.getType().equals(FileChange.DELETION)
-                    && filesStorageDir.toPath().resolve(entry.getPath()).toFile().exists()) {
-                LOGGER.logError("File " + entry.getPath() + " does already exist on filesystem eventhough"
-                        + " the git-diff file used has an deletion entry for it.");
-                preconditionsMet = false;
+            boolean exists;
+            if (existingFiles != null) {
+                exists = existingFiles.contains(entry.getPath().getFileName().toString());
+            } else {
+                exists = filesStorageDir.toPath().resolve(entry.getPath()).toFile().exists();
+            }
 
+            // We do not need to check whether files that are created exist
+            // as those are not on the filesystem before the diff is applied.
+            if (entry.getType().equals(createdFile)) {
+                if (exists) {
+                    violations.add(new PreconditionViolation(entry.getPath(), Reason.UNEXPECTED_FILE,
+                            "File " + entry.getPath() + " does already exist on filesystem eventhough the git-diff"
+                                    + " file used has an " + (merge ? "addition" : "deletion")
+                                    + " entry for it."));
+                }
+            } else if (!exists) {
+                violations.add(new PreconditionViolation(entry.getPath(), Reason.MISSING_FILE,
+                        "File " + entry.getPath() + " does not exist on filesystem eventhough the git-diff file"
+                                + " used has a " + (merge ? "modification/deletion" : "modification/addition")
+                                + " entry for it."));
             }
         }
-        return preconditionsMet;
+        return violations;
     }
 
     /**
@@ -138,59 +208,7 @@ public class FileReplacingDiffApplier implements DiffApplier {
     @Override
     public boolean mergeChanges() {
         LOGGER.logInfo("Applying changes described by git-diff file ... ");
-        boolean success = true;
-        if (checkMergePreconditions()) {
-            BufferedWriter writer = null;
-            try {
-                for (FileEntry entry : diffFile.getEntries()) {
-                    Path filePath = entry.getPath();
-                    File fileInStorageDir = filesStorageDir.toPath().resolve(filePath).toFile();
-                    if (entry.getType().equals(FileEntry.FileChange.ADDITION)
-                            || entry.getType().equals(FileEntry.FileChange.MODIFICATION)) {
-                        // delete old file
-                        if (entry.getType().equals(FileEntry.FileChange.MODIFICATION) && fileInStorageDir.exists()) {
-                            fileInStorageDir.delete();
-                        }
-                        if (fileInStorageDir.getParentFile() != null) {
-                            fileInStorageDir.getParentFile().mkdirs();
-                        }
-                        fileInStorageDir.createNewFile();
-                        writer = new BufferedWriter(new FileWriter(fileInStorageDir));
-
-                        List<Lines> listOfLines = entry.getLines();
-                        for (int i = 0; i < listOfLines.size(); i++) {
-                            Lines lines = listOfLines.get(i);
-                            if (lines.getType().equals(Lines.LineType.ADDED)
-                                    || lines.getType().equals(Lines.LineType.UNMODIFIED) && lines.getCount() > 0) {
-                                writer.write(lines.getContent());
-                                if (i == listOfLines.size() - 1 && entry.hasNoNewLineAtEndOfFile()) {
-                                    LOGGER.logWarning("No new line at end of file: " + entry.getPath());
-                                } else {
-                                    writer.write("\n");
-                                }
-                            }
-                        }
-                        writer.close();
-                        Files.setPosixFilePermissions(fileInStorageDir.toPath(), entry.getPermissions());
-                    } else if (entry.getType().equals(FileEntry.FileChange.DELETION)) {
-                        fileInStorageDir.delete();
-                    }
-                }
-            } catch (IOException exc) {
-                success = false;
-                LOGGER.logException("Could not merge files ", exc);
-            } finally {
-                try {
-                    if (writer != null) {
-                        writer.close();
-                    }
-                } catch (IOException e) {
-                    // Nothing to be done here
-                }
-            }
-        } else {
-            success = false;
-        }
+        boolean success = checkMergePreconditions().isEmpty() && captureSnapshot() && applyEntries(true);
         if (success) {
             LOGGER.logInfo("Applied changes described by git-diff file.");
         } else {
@@ -207,73 +225,129 @@ public class FileReplacingDiffApplier implements DiffApplier {
      */
     @Override
     public boolean revertChanges() {
-        boolean success = true;
-        LOGGER.logInfo("Reverting changes described by git-diff file ... ");
-        if (checkRevertPreconditions()) {
-            BufferedWriter writer = null;
-            try {
-                for (FileEntry entry : diffFile.getEntries()) {
-                    LOGGER.logDebug("Reverting changes for file entry: " + entry.getPath());
-                    Path filePath = entry.getPath();
-                    File fileInStorageDir = filesStorageDir.toPath().resolve(filePath).toFile();
-                    if (entry.getType().equals(FileEntry.FileChange.DELETION)
-                            || entry.getType().equals(FileEntry.FileChange.MODIFICATION)) {
-                        // delete old file
-                        if (entry.getType().equals(FileEntry.FileChange.MODIFICATION) && fileInStorageDir.exists()) {
-                            fileInStorageDir.delete();
-                        }
-
-                        if (fileInStorageDir.getParentFile() != null) {
-                            fileInStorageDir.getParentFile().mkdirs();
-                        }
-
-                        fileInStorageDir.createNewFile();
-
-                        writer = new BufferedWriter(new FileWriter(fileInStorageDir));
+        boolean success;
+        if (revertsFromSnapshot()) {
+            success = snapshot.restore();
+        } else {
+            LOGGER.logInfo("Reverting changes described by git-diff file ... ");
+            success = checkRevertPreconditions().isEmpty() && applyEntries(false);
+            if (success) {
+                LOGGER.logInfo("Reverted changes described by git-diff file.");
+            } else {
+                LOGGER.logError("Failed to revert changes described by git-diff file.");
+            }
+        }
+        return success;
+    }
 
-                        List<Lines> listOfLines = entry.getLines();
-                        for (int i = 0; i < listOfLines.size(); i++) {
-                            Lines lines = listOfLines.get(i);
-                            if (lines.getType().equals(Lines.LineType.DELETED)
-                                    || lines.getType().equals(Lines.LineType.UNMODIFIED) && lines.getCount() > 0) {
-                                writer.write(lines.getContent());
-                                if (i == listOfLines.size() - 1 && entry.hasNoNewLineAtEndOfFile()) {
-                                    LOGGER.logWarning("No new line at end of file: " + entry.getPath());
-                                } else {
-                                    writer.write("\n");
-                                }
-                            }
-                        }
+    /**
+     * Checks whether {@link #revertChanges()} restores the pre-images from the
+     * snapshot instead of using the diff file.
+     *
+     * @return true, if a snapshot of the merge exists
+     */
+    protected boolean revertsFromSnapshot() {
+        return snapshot != null && snapshot.exists();
+    }
 
-                        writer.close();
-                        // Set POSIX permissions
-                        Files.setPosixFilePermissions(fileInStorageDir.toPath(), entry.getPermissions());
-                    } else if (entry.getType().equals(FileEntry.FileChange.ADDITION)) {
-                        fileInStorageDir.delete();
-                    }
-                }
+    /**
+     * Captures the pre-images of all files touched by the merge if a snapshot is
+     * used. A failing snapshot does not prevent the merge as the changes can still
+     * be reverted through the diff file.
+     *
+     * @return always true
+     */
+    private boolean captureSnapshot() {
+        if (snapshot != null) {
+            try {
+                snapshot.capture(diffFile);
             } catch (IOException exc) {
-                success = false;
-                LOGGER.logException("Could not revert merge ", exc);
-            } finally {
+                LOGGER.logException("Could not create snapshot of source tree; reverting these changes will"
+                        + " require the diff file", exc);
                 try {
-                    if (writer != null) {
-                        writer.close();
-                    }
+                    snapshot.discard();
                 } catch (IOException e) {
-                    // Nothing to be done here
+                    LOGGER.logException("Could not discard incomplete snapshot", e);
                 }
             }
-        } else {
-            success = false;
         }
+        return true;
+    }
 
-        if (success) {
-            LOGGER.logInfo("Reverted changes described by git-diff file.");
-        } else {
-            LOGGER.logError("Failed to revert changes described by git-diff file.");
+    /**
+     * Applies all entries of the diff file in parallel. Each entry describes a
+     * different file so the entries can be processed independently of each other.
+     *
+     * @param merge true for merging the changes, false for reverting them
+     * @return true, if all entries were applied
+     */
+    private boolean applyEntries(boolean merge) {
+        boolean success = true;
+        try {
+            for (Throwable failure : FileWriterPool.writeAll(diffFile.getEntries(), threadCount,
+                    entry -> applyEntry(entry, merge))) {
+                success = false;
+                LOGGER.logException(merge ? "Could not merge files " : "Could not revert merge ", failure);
+            }
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            success = false;
+            LOGGER.logException("Interrupted while applying changes ", exc);
         }
         return success;
     }
 
+    /**
+     * Applies a single entry of the diff file.
+     *
+     * @param entry the entry
+     * @param merge true for merging the changes, false for reverting them
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void applyEntry(FileEntry entry, boolean merge) throws IOException {
+        if (!merge) {
+            LOGGER.logDebug("Reverting changes for file entry: " + entry.getPath());
+        }
+        Path fileInStorageDir = filesStorageDir.toPath().resolve(entry.getPath());
+        FileChange createdFile = merge ? FileChange.ADDITION : FileChange.DELETION;
+        FileChange removedFile = merge ? FileChange.DELETION : FileChange.ADDITION;
+        if (entry.getType().equals(FileChange.MODIFICATION) || entry.getType().equals(createdFile)) {
+            Path parent = fileInStorageDir.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            writeFile(entry, fileInStorageDir, merge);
+        } else if (entry.getType().equals(removedFile)) {
+            Files.deleteIfExists(fileInStorageDir);
+        }
+    }
+
+    /**
+     * Replaces the file described by an entry with its new (merge) or old (revert)
+     * version.
+     *
+     * @param entry  the entry
+     * @param target the file within the files storage dir
+     * @param merge  true for writing the new version, false for the old one
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    protected void writeFile(FileEntry entry, Path target, boolean merge) throws IOException {
+        Lines.LineType keptType = merge ? Lines.LineType.ADDED : Lines.LineType.DELETED;
+        StringBuilder content = new StringBuilder();
+        List<Lines> listOfLines = entry.getLines();
+        for (int i = 0; i < listOfLines.size(); i++) {
+            Lines lines = listOfLines.get(i);
+            if (lines.getType().equals(keptType)
+                    || lines.getType().equals(Lines.LineType.UNMODIFIED) && lines.getCount() > 0) {
+                content.append(lines.getContent());
+                if (i == listOfLines.size() - 1 && entry.hasNoNewLineAtEndOfFile()) {
+                    LOGGER.logWarning("No new line at end of file: " + entry.getPath());
+                } else {
+                    content.append('\n');
+                }
+            }
+        }
+        FileContentWriter.writeAtomically(target, content, entry.getPermissions());
+    }
+
 }
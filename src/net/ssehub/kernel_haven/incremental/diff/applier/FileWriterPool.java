@@ -0,0 +1,119 @@
+package net.ssehub.kernel_haven.incremental.diff.applier;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-lived threads writing the files of {@link DiffApplier}s. The threads are
+ * kept between diff files, so the buffers and encoders that
+ * {@link FileContentWriter} pools per thread are allocated once per thread
+ * instead of once per applied diff file. Each call limits the number of
+ * threads working for it, so appliers with different thread counts can share
+ * the threads.
+ *
+ * @author moritz
+ */
+final class FileWriterPool {
+
+    /**
+     * Writes the file for an item.
+     *
+     * @param <T> the type of the items
+     */
+    @FunctionalInterface
+    interface ItemWriter<T> {
+
+        /**
+         * Writes the file for the item.
+         *
+         * @param item the item
+         * @throws IOException Signals that an I/O exception has occurred.
+         */
+        void write(T item) throws IOException;
+    }
+
+    /** The time in minutes an idle thread is kept. */
+    private static final long KEEP_ALIVE_MINUTES = 10;
+
+    /** The number of created threads, used for naming them. */
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /** The shared threads. */
+    private static final ExecutorService EXECUTOR = new ThreadPoolExecutor(0, Integer.MAX_VALUE, KEEP_ALIVE_MINUTES,
+            TimeUnit.MINUTES, new SynchronousQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "FileWriter-" + THREAD_COUNT.incrementAndGet());
+                // Idle threads must not keep the JVM alive
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * Instantiates a new file writer pool.
+     */
+    private FileWriterPool() {
+    }
+
+    /**
+     * Writes the files for all items using at most the given number of threads
+     * at once. If interrupted, the items that were not started yet are skipped
+     * and the working threads are interrupted.
+     *
+     * @param <T>         the type of the items
+     * @param items       the items
+     * @param threadCount the maximum number of threads writing files for the items
+     * @param writer      the writer
+     * @return the exceptions thrown while writing, empty if all files were
+     *         written
+     * @throws InterruptedException if interrupted while waiting for the files
+     */
+    static <T> List<Throwable> writeAll(Collection<T> items, int threadCount, ItemWriter<T> writer)
+            throws InterruptedException {
+        Queue<T> pending = new ConcurrentLinkedQueue<>(items);
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> workers = new ArrayList<>();
+        boolean completed = false;
+        try {
+            for (int i = 0; i < Math.min(threadCount, items.size()); i++) {
+                workers.add(EXECUTOR.submit(() -> {
+                    T item;
+                    while (!Thread.currentThread().isInterrupted() && (item = pending.poll()) != null) {
+                        try {
+                            writer.write(item);
+                        } catch (IOException | RuntimeException exc) {
+                            failures.add(exc);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (ExecutionException exc) {
+                    failures.add(exc.getCause());
+                }
+            }
+            completed = true;
+        } finally {
+            if (!completed) {
+                pending.clear();
+                for (Future<?> worker : workers) {
+                    worker.cancel(true);
+                }
+            }
+        }
+        return failures;
+    }
+
+}
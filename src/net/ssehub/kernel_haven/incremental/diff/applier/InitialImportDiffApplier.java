@@ -0,0 +1,275 @@
+package net.ssehub.kernel_haven.incremental.diff.applier;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry.FileChange;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry.Lines;
+import net.ssehub.kernel_haven.util.Logger;
+
+/**
+ * A {@link DiffApplier} for the very first increment of an incremental analysis
+ * where the diff describes a commit to an empty repository and the source tree
+ * is empty. As every entry of such a diff is an addition, the files are written
+ * in parallel, each through a single channel. The per-file checks of the
+ * {@link FileReplacingDiffApplier} are replaced by one check for an empty target
+ * directory; files are created exclusively so that an unexpected existing file
+ * still lets the import fail.
+ *
+ * @author moritz
+ */
+public class InitialImportDiffApplier implements DiffApplier {
+
+    /** The Constant LOGGER. */
+    private static final Logger LOGGER = Logger.get();
+
+    /** The files storage dir. */
+    private final File filesStorageDir;
+
+    /** The input diff. */
+    private final DiffFile diffFile;
+
+    /** The number of threads used for writing files. */
+    private final int threadCount;
+
+    /**
+     * Instantiates a new {@link InitialImportDiffApplier} that uses one thread per
+     * available processor.
+     *
+     * @param filesStorageDir the files storage dir
+     * @param diffFile        the diff file
+     */
+    public InitialImportDiffApplier(File filesStorageDir, DiffFile diffFile) {
+        this(filesStorageDir, diffFile, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Instantiates a new {@link InitialImportDiffApplier}.
+     *
+     * @param filesStorageDir the files storage dir
+     * @param diffFile        the diff file
+     * @param threadCount     the number of threads used for writing files
+     */
+    public InitialImportDiffApplier(File filesStorageDir, DiffFile diffFile, int threadCount) {
+        this.filesStorageDir = filesStorageDir;
+        this.diffFile = diffFile;
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * Checks whether the given diff can be applied as initial import to the given
+     * directory. This is the case if the directory is empty (or does not exist yet)
+     * and the diff only consists of additions.
+     *
+     * @param filesStorageDir the files storage dir
+     * @param diffFile        the diff file
+     * @return true, if the diff describes an initial import for the directory
+     */
+    public static boolean isInitialImport(File filesStorageDir, DiffFile diffFile) {
+        String[] existingFiles = filesStorageDir.list();
+        boolean initialImport = existingFiles == null || existingFiles.length == 0;
+        for (FileEntry entry : diffFile.getEntries()) {
+            if (!initialImport) {
+                break;
+            }
+            initialImport = entry.getType().equals(FileChange.ADDITION);
+        }
+        return initialImport;
+    }
+
+    /**
+     * Check preconditions for the import. Instead of checking every file on the
+     * filesystem, only the emptiness of the target directory is checked.
+     *
+     * @return true, if successful
+     */
+    private boolean checkMergePreconditions() {
+        boolean preconditionsMet = isInitialImport(filesStorageDir, diffFile);
+        if (!preconditionsMet) {
+            LOGGER.logError("An initial import requires an empty directory " + filesStorageDir
+                    + " and a git-diff file that only contains additions.");
+        }
+        for (FileEntry entry : diffFile.getEntries()) {
+            if (entry.hasOmittedLines()) {
+                LOGGER.logError("The diff does not explicitly contain all lines of the files that it describes."
+                        + " Use \"git diff --no-renames -U100000\" for generating the diff files "
+                        + "to make sure that the diff file describes the changed files completely.");
+                LOGGER.logError("This concerns the file: " + entry.getPath().toString());
+                preconditionsMet = false;
+            }
+        }
+        return preconditionsMet;
+    }
+
+    /**
+     * Merge changes.
+     *
+     * @return true, if successful
+     */
+    @Override
+    public boolean mergeChanges() {
+        LOGGER.logInfo("Importing files described by git-diff file into empty directory ... ");
+        boolean success = checkMergePreconditions();
+        if (success) {
+            try {
+                createDirectories();
+                success = writeFiles();
+            } catch (IOException exc) {
+                success = false;
+                LOGGER.logException("Could not import files ", exc);
+            }
+        }
+        if (success) {
+            LOGGER.logInfo("Imported files described by git-diff file.");
+        } else {
+            LOGGER.logError("Failed to import files described by git-diff file");
+        }
+        return success;
+    }
+
+    /**
+     * Creates all directories required by the entries of the diff file at once so
+     * that the writing threads do not need to check for their parents.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void createDirectories() throws IOException {
+        Set<Path> directories = new TreeSet<>();
+        for (FileEntry entry : diffFile.getEntries()) {
+            Path parent = filesStorageDir.toPath().resolve(entry.getPath()).getParent();
+            if (parent != null) {
+                directories.add(parent);
+            }
+        }
+        for (Path directory : directories) {
+            Files.createDirectories(directory);
+        }
+    }
+
+    /**
+     * Deletes the directories created for the entries of the diff file. As the
+     * import requires an empty directory, all directories on the paths of the
+     * entries were created by the import. Directories that still contain files not
+     * described by the diff file are kept.
+     *
+     * @return true, if successful
+     */
+    private boolean deleteDirectories() {
+        boolean success = true;
+        Set<Path> directories = new TreeSet<>(Comparator.reverseOrder());
+        for (FileEntry entry : diffFile.getEntries()) {
+            Path parent = entry.getPath().getParent();
+            while (parent != null) {
+                directories.add(filesStorageDir.toPath().resolve(parent));
+                parent = parent.getParent();
+            }
+        }
+        // Sub-directories come before their parents in reverse order
+        for (Path directory : directories) {
+            try {
+                Files.deleteIfExists(directory);
+            } catch (DirectoryNotEmptyException exc) {
+                LOGGER.logDebug("Keeping directory with files not imported: " + directory);
+            } catch (IOException exc) {
+                success = false;
+                LOGGER.logException("Could not delete imported directory " + directory, exc);
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Writes all files in parallel.
+     *
+     * @return true, if all files were written
+     */
+    private boolean writeFiles() {
+        boolean success = true;
+        try {
+            for (Throwable failure : FileWriterPool.writeAll(diffFile.getEntries(), threadCount, this::writeFile)) {
+                success = false;
+                LOGGER.logException("Could not import file ", failure);
+            }
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            success = false;
+            LOGGER.logException("Interrupted while importing files ", exc);
+        }
+        return success;
+    }
+
+    /**
+     * Writes the file described by an entry through a single channel.
+     *
+     * @param entry the entry
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void writeFile(FileEntry entry) throws IOException {
+        Path filePath = filesStorageDir.toPath().resolve(entry.getPath());
+        StringBuilder content = new StringBuilder();
+        List<Lines> listOfLines = entry.getLines();
+        for (int i = 0; i < listOfLines.size(); i++) {
+            Lines lines = listOfLines.get(i);
+            if (lines.getType().equals(Lines.LineType.ADDED)
+                    || lines.getType().equals(Lines.LineType.UNMODIFIED) && lines.getCount() > 0) {
+                content.append(lines.getContent());
+                if (i == listOfLines.size() - 1 && entry.hasNoNewLineAtEndOfFile()) {
+                    LOGGER.logWarning("No new line at end of file: " + entry.getPath());
+                } else {
+                    content.append('\n');
+                }
+            }
+        }
+
+        try (FileChannel channel =
+                FileChannel.open(filePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            FileContentWriter.write(channel, content);
+        }
+        Files.setPosixFilePermissions(filePath, entry.getPermissions());
+    }
+
+    /**
+     * Revert changes. As an initial import only consists of additions, this
+     * deletes all imported files.
+     *
+     * @return true, if successful
+     */
+    @Override
+    public boolean revertChanges() {
+        LOGGER.logInfo("Reverting import described by git-diff file ... ");
+        boolean success = true;
+        for (FileEntry entry : diffFile.getEntries()) {
+            if (entry.getType().equals(FileChange.ADDITION)) {
+                try {
+                    Files.deleteIfExists(filesStorageDir.toPath().resolve(entry.getPath()));
+                } catch (IOException exc) {
+                    success = false;
+                    LOGGER.logException("Could not delete imported file " + entry.getPath(), exc);
+                }
+            } else {
+                success = false;
+                LOGGER.logError("Entry for file " + entry.getPath() + " is not an addition and can therefore not"
+                        + " be part of an initial import.");
+            }
+        }
+        success &= deleteDirectories();
+        if (success) {
+            LOGGER.logInfo("Reverted import described by git-diff file.");
+        } else {
+            LOGGER.logError("Failed to revert import described by git-diff file.");
+        }
+        return success;
+    }
+
+}
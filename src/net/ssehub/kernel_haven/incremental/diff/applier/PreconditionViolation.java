@@ -0,0 +1,87 @@
+package net.ssehub.kernel_haven.incremental.diff.applier;
+
+import java.nio.file.Path;
+
+/**
+ * Describes why an entry of a diff file can not be merged or reverted on a
+ * directory.
+ *
+ * @author moritz
+ */
+public class PreconditionViolation {
+
+    /**
+     * The reason for a violation.
+     */
+    public enum Reason {
+
+        /** The diff does not contain all lines of the file. */
+        INCOMPLETE_DIFF,
+
+        /** The file does not exist eventhough the diff requires it. */
+        MISSING_FILE,
+
+        /** The file exists eventhough the diff is about to create it. */
+        UNEXPECTED_FILE
+    }
+
+    /** The path of the file relative to the directory. */
+    private final Path path;
+
+    /** The reason. */
+    private final Reason reason;
+
+    /** The message describing the violation. */
+    private final String message;
+
+    /**
+     * Instantiates a new {@link PreconditionViolation}.
+     *
+     * @param path    the path of the file relative to the directory
+     * @param reason  the reason
+     * @param message the message describing the violation
+     */
+    public PreconditionViolation(Path path, Reason reason, String message) {
+        this.path = path;
+        this.reason = reason;
+        this.message = message;
+    }
+
+    /**
+     * Gets the path of the file relative to the directory.
+     *
+     * @return the path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the reason.
+     *
+     * @return the reason
+     */
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * Gets the message describing the violation.
+     *
+     * @return the message
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "PreconditionViolation [path=" + path + ", reason=" + reason + "]";
+    }
+
+}
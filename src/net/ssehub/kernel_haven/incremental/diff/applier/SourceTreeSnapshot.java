@@ -0,0 +1,467 @@
+package net.ssehub.kernel_haven.incremental.diff.applier;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry.FileChange;
+import net.ssehub.kernel_haven.incremental.util.FolderUtil;
+import net.ssehub.kernel_haven.util.Logger;
+
+/**
+ * Keeps the pre-image of all files touched by a merge so that the merge can be
+ * reverted by renaming the pre-images back into the source tree without using
+ * the diff file.
+ *
+ * Pre-images are hard links to the files in the source tree. This works as the
+ * {@link FileReplacingDiffApplier} never modifies files in place but replaces
+ * them through a rename, which leaves the linked pre-image untouched. If the
+ * file system does not support hard links, the files get copied instead.
+ *
+ * A snapshot consists of a folder with the pre-images and a manifest listing
+ * every touched file together with its type of change and every directory
+ * created for added files. The manifest is written last so that only complete
+ * snapshots are used for reverting. The manifest also records a fingerprint of
+ * the git diff file of the merge so that a snapshot is only used for reverting
+ * the merge of the same diff file. The fingerprint consists of the size, the
+ * modification time and the hash of the first and last block of the diff file,
+ * so the possibly large diff file is not read completely.
+ *
+ * @author moritz
+ */
+public class SourceTreeSnapshot {
+
+    /** The Constant LOGGER. */
+    private static final Logger LOGGER = Logger.get();
+
+    /** The name of the folder containing the pre-images. */
+    private static final String FILES_FOLDER = "files";
+
+    /** The name of the manifest file. */
+    private static final String MANIFEST_FILE = "manifest.txt";
+
+    /** The prefix of the manifest line holding the fingerprint of the git diff file. */
+    private static final String DIFF_HASH_PREFIX = "# diff ";
+
+    /** The type of the manifest lines listing directories created for added files. */
+    private static final char CREATED_FOLDER_TYPE = 'C';
+
+    /** The size of the blocks at the start and the end of the diff file included in the fingerprint. */
+    private static final int FINGERPRINT_BLOCK_SIZE = 1 << 16;
+
+    /** The suffix of temporary files used for restoring pre-images. */
+    private static final String RESTORE_SUFFIX = ".restore";
+
+    /** The source tree. */
+    private final File sourceTree;
+
+    /** The folder of the snapshot. */
+    private final File snapshotFolder;
+
+    /** The number of threads used for restoring files. */
+    private final int threadCount;
+
+    /** The git diff file of the merge or null if unknown. */
+    private final File gitDiffFile;
+
+    /** The fingerprint of the git diff file, null if not computed yet. */
+    private String diffHash;
+
+    /**
+     * Instantiates a new {@link SourceTreeSnapshot} that uses one thread per
+     * available processor.
+     *
+     * @param sourceTree     the source tree
+     * @param snapshotFolder the folder of the snapshot
+     */
+    public SourceTreeSnapshot(File sourceTree, File snapshotFolder) {
+        this(sourceTree, snapshotFolder, null, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Instantiates a new {@link SourceTreeSnapshot} for the merge of a git diff
+     * file that uses one thread per available processor.
+     *
+     * @param sourceTree     the source tree
+     * @param snapshotFolder the folder of the snapshot
+     * @param gitDiffFile    the git diff file of the merge, null if unknown
+     */
+    public SourceTreeSnapshot(File sourceTree, File snapshotFolder, File gitDiffFile) {
+        this(sourceTree, snapshotFolder, gitDiffFile, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Instantiates a new {@link SourceTreeSnapshot}.
+     *
+     * @param sourceTree     the source tree
+     * @param snapshotFolder the folder of the snapshot
+     * @param threadCount    the number of threads used for restoring files
+     */
+    public SourceTreeSnapshot(File sourceTree, File snapshotFolder, int threadCount) {
+        this(sourceTree, snapshotFolder, null, threadCount);
+    }
+
+    /**
+     * Instantiates a new {@link SourceTreeSnapshot} for the merge of a git diff
+     * file.
+     *
+     * @param sourceTree     the source tree
+     * @param snapshotFolder the folder of the snapshot
+     * @param gitDiffFile    the git diff file of the merge, null if unknown
+     * @param threadCount    the number of threads used for restoring files
+     */
+    public SourceTreeSnapshot(File sourceTree, File snapshotFolder, File gitDiffFile, int threadCount) {
+        this.sourceTree = sourceTree;
+        this.snapshotFolder = snapshotFolder;
+        this.gitDiffFile = gitDiffFile;
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * Checks whether a complete snapshot exists. If the git diff file is known,
+     * the snapshot must have been captured for the merge of the same diff file.
+     *
+     * @return true, if a snapshot can be restored
+     */
+    public boolean exists() {
+        Path manifestFile = snapshotFolder.toPath().resolve(MANIFEST_FILE);
+        boolean exists = Files.isRegularFile(manifestFile);
+        String expectedHash = getDiffHash();
+        if (exists && expectedHash != null) {
+            try (BufferedReader reader = Files.newBufferedReader(manifestFile, Charset.defaultCharset())) {
+                exists = (DIFF_HASH_PREFIX + expectedHash).equals(reader.readLine());
+                if (!exists) {
+                    LOGGER.logWarning("Snapshot " + snapshotFolder + " does not belong to the diff file "
+                            + gitDiffFile + " and is ignored.");
+                }
+            } catch (IOException exc) {
+                exists = false;
+                LOGGER.logException("Could not read manifest of snapshot " + snapshotFolder, exc);
+            }
+        }
+        return exists;
+    }
+
+    /**
+     * Gets the fingerprint of the git diff file.
+     *
+     * @return the fingerprint or null if the git diff file is unknown or can not
+     *         be read
+     */
+    private synchronized String getDiffHash() {
+        if (diffHash == null && gitDiffFile != null && gitDiffFile.isFile()) {
+            diffHash = fingerprint(gitDiffFile);
+        }
+        return diffHash;
+    }
+
+    /**
+     * Computes the fingerprint of a file from its size, its modification time and
+     * the SHA-256 hash of its first and last block.
+     *
+     * @param file the file
+     * @return the fingerprint or null if the file can not be read
+     */
+    static String fingerprint(File file) {
+        String result = null;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(FINGERPRINT_BLOCK_SIZE);
+            digestBlock(channel, 0, buffer, digest);
+            if (size > FINGERPRINT_BLOCK_SIZE) {
+                digestBlock(channel, Math.max(FINGERPRINT_BLOCK_SIZE, size - FINGERPRINT_BLOCK_SIZE), buffer, digest);
+            }
+            StringBuilder hex = new StringBuilder();
+            hex.append(size).append('-').append(file.lastModified()).append('-');
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            result = hex.toString();
+        } catch (IOException | NoSuchAlgorithmException exc) {
+            LOGGER.logException("Could not hash diff file " + file, exc);
+        }
+        return result;
+    }
+
+    /**
+     * Adds a block of a file to a digest.
+     *
+     * @param channel  the channel of the file
+     * @param position the position of the block
+     * @param buffer   the buffer with the size of the block
+     * @param digest   the digest
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void digestBlock(FileChannel channel, long position, ByteBuffer buffer, MessageDigest digest)
+            throws IOException {
+        buffer.clear();
+        int read = 0;
+        while (buffer.hasRemaining() && read >= 0) {
+            read = channel.read(buffer, position + buffer.position());
+        }
+        buffer.flip();
+        digest.update(buffer);
+    }
+
+    /**
+     * Replaces the current snapshot with the pre-images of all files touched by
+     * the diff file. Needs to be called before the changes get merged.
+     *
+     * @param diffFile the diff file
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void capture(DiffFile diffFile) throws IOException {
+        discard();
+        Path filesFolder = snapshotFolder.toPath().resolve(FILES_FOLDER);
+        Files.createDirectories(filesFolder);
+        StringBuilder manifest = new StringBuilder();
+        String hash = getDiffHash();
+        if (hash != null) {
+            manifest.append(DIFF_HASH_PREFIX).append(hash).append('\n');
+        }
+        Set<Path> createdFolders = new LinkedHashSet<>();
+        for (FileEntry entry : diffFile.getEntries()) {
+            manifest.append(toManifestType(entry.getType())).append(' ').append(entry.getPath()).append('\n');
+            if (entry.getType().equals(FileChange.ADDITION)) {
+                Path createdFolder = getCreatedFolder(entry.getPath());
+                if (createdFolder != null) {
+                    createdFolders.add(createdFolder);
+                }
+            }
+        }
+        for (Path createdFolder : createdFolders) {
+            manifest.append(CREATED_FOLDER_TYPE).append(' ').append(createdFolder).append('\n');
+        }
+        try {
+            diffFile.getEntries().parallelStream()
+                    .filter(entry -> !entry.getType().equals(FileChange.ADDITION))
+                    .forEach(entry -> {
+                        try {
+                            keepPreImage(sourceTree.toPath().resolve(entry.getPath()),
+                                    filesFolder.resolve(entry.getPath()));
+                        } catch (IOException exc) {
+                            throw new UncheckedIOException(exc);
+                        }
+                    });
+        } catch (UncheckedIOException exc) {
+            throw exc.getCause();
+        }
+        FileContentWriter.writeAtomically(snapshotFolder.toPath().resolve(MANIFEST_FILE), manifest,
+                PosixFilePermissions.fromString("rw-r--r--"));
+    }
+
+    /**
+     * Gets the outermost directory that does not exist yet and will be created
+     * when the file is added.
+     *
+     * @param path the path of the added file relative to the source tree
+     * @return the path of the directory relative to the source tree or null if
+     *         the parent directory of the file exists
+     */
+    private Path getCreatedFolder(Path path) {
+        Path createdFolder = null;
+        Path folder = path.getParent();
+        while (folder != null && !Files.exists(sourceTree.toPath().resolve(folder))) {
+            createdFolder = folder;
+            folder = folder.getParent();
+        }
+        return createdFolder;
+    }
+
+    /**
+     * Keeps the pre-image of a file as hard link or as copy if linking fails.
+     *
+     * @param file     the file within the source tree
+     * @param preImage the location of the pre-image
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void keepPreImage(Path file, Path preImage) throws IOException {
+        Files.createDirectories(preImage.getParent());
+        try {
+            Files.createLink(preImage, file);
+        } catch (IOException | UnsupportedOperationException exc) {
+            Files.copy(file, preImage, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+
+    /**
+     * Restores the pre-images in parallel and discards the snapshot afterwards.
+     * Files added by the merge are deleted, modified and deleted files are moved
+     * from the snapshot into the source tree. Directories created for added files
+     * are deleted afterwards if they are empty.
+     *
+     * @return true, if successful
+     */
+    public boolean restore() {
+        LOGGER.logInfo("Reverting changes from source tree snapshot ... ");
+        boolean success = true;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        List<Path> createdFolders = new ArrayList<>();
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (String line : Files.readAllLines(snapshotFolder.toPath().resolve(MANIFEST_FILE),
+                    Charset.defaultCharset())) {
+                if (!line.isEmpty() && line.charAt(0) == CREATED_FOLDER_TYPE) {
+                    createdFolders.add(Paths.get(line.substring(2)));
+                } else if (!line.isEmpty() && !line.startsWith(DIFF_HASH_PREFIX)) {
+                    results.add(executor.submit(() -> {
+                        restoreFile(line.charAt(0), Paths.get(line.substring(2)));
+                        return null;
+                    }));
+                }
+            }
+            for (Future<?> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException exc) {
+                    success = false;
+                    LOGGER.logException("Could not restore file from snapshot ", exc.getCause());
+                }
+            }
+        } catch (IOException exc) {
+            success = false;
+            LOGGER.logException("Could not read manifest of snapshot " + snapshotFolder, exc);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            success = false;
+            LOGGER.logException("Interrupted while restoring snapshot ", exc);
+        } finally {
+            executor.shutdownNow();
+        }
+        for (Path createdFolder : createdFolders) {
+            success &= deleteEmptyFolders(sourceTree.toPath().resolve(createdFolder));
+        }
+
+        if (success) {
+            try {
+                discard();
+            } catch (IOException exc) {
+                LOGGER.logException("Could not discard restored snapshot " + snapshotFolder, exc);
+            }
+            LOGGER.logInfo("Reverted changes from source tree snapshot.");
+        } else {
+            LOGGER.logError("Failed to revert changes from source tree snapshot.");
+        }
+        return success;
+    }
+
+    /**
+     * Restores a single file.
+     *
+     * @param type the type of change as written to the manifest
+     * @param path the path relative to the source tree
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void restoreFile(char type, Path path) throws IOException {
+        Path file = sourceTree.toPath().resolve(path);
+        if (type == toManifestType(FileChange.ADDITION)) {
+            Files.deleteIfExists(file);
+        } else {
+            Files.createDirectories(file.getParent());
+            // The snapshot may lie on another file system, so the pre-image is first moved next to the file
+            Path tempFile = Files.createTempFile(file.getParent(), "." + file.getFileName(), RESTORE_SUFFIX);
+            boolean moved = false;
+            try {
+                Files.move(snapshotFolder.toPath().resolve(FILES_FOLDER).resolve(path), tempFile,
+                        StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                moved = true;
+            } finally {
+                if (!moved) {
+                    Files.deleteIfExists(tempFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes a directory and all directories within it if they contain no files.
+     *
+     * @param folder the directory, may not exist
+     * @return true, if the directory could be checked
+     */
+    private static boolean deleteEmptyFolders(Path folder) {
+        boolean success = true;
+        if (Files.isDirectory(folder)) {
+            List<Path> folders;
+            try (Stream<Path> paths = Files.walk(folder)) {
+                folders = paths.filter(Files::isDirectory).sorted(Comparator.reverseOrder())
+                        .collect(Collectors.toList());
+                for (Path subFolder : folders) {
+                    try {
+                        Files.delete(subFolder);
+                    } catch (DirectoryNotEmptyException exc) {
+                        // Contains files that were not added by the merge
+                    }
+                }
+            } catch (IOException exc) {
+                success = false;
+                LOGGER.logException("Could not delete directory created by merge " + folder, exc);
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Deletes the snapshot.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void discard() throws IOException {
+        // Delete the manifest first so that a partially deleted snapshot is never used
+        Files.deleteIfExists(snapshotFolder.toPath().resolve(MANIFEST_FILE));
+        if (snapshotFolder.exists()) {
+            FolderUtil.deleteFolderContents(snapshotFolder);
+        }
+    }
+
+    /**
+     * Gets the character representing a type of change in the manifest.
+     *
+     * @param type the type
+     * @return the character
+     */
+    private static char toManifestType(FileChange type) {
+        char manifestType;
+        switch (type) {
+        case ADDITION:
+            manifestType = 'A';
+            break;
+        case DELETION:
+            manifestType = 'D';
+            break;
+        default:
+            manifestType = 'M';
+            break;
+        }
+        return manifestType;
+    }
+
+}
@@ -39,6 +39,9 @@ public class DiffFileParser {
     /** The Constant GIT_BINARY_PATCH_START_PATTERN. */
     private static final String GIT_BINARY_PATCH_START_PATTERN = "GIT binary patch";
 
+    /** Pattern for the index line containing the object ids of the file before and after the change. */
+    private static final Pattern INDEX_PATTERN = Pattern.compile("index\\s+(\\w+)\\.\\.(\\w+).*");
+
     /** The Constant LOGGER. */
     private static final Logger LOGGER = Logger.get();
 
@@ -138,6 +141,7 @@ public class DiffFileParser {
                     }
 
                     List<Lines> lines = parseChangeBlock(changeBlock.toString());
+                    Matcher indexMatcher = findIndexLine(changeBlock.toString());
 
                     FileEntry previousEntry = null;
 
@@ -150,12 +154,18 @@ public class DiffFileParser {
                         previousEntry.setType(FileChange.MODIFICATION);
                         previousEntry.setPermissions(permissions);
                         previousEntry.addLines(lines);
+                        if (indexMatcher != null) {
+                            previousEntry.setImageHashes(previousEntry.getPreImageHash(), indexMatcher.group(2));
+                        }
                         previousEntry.setNoNewLineAtEndOfFile(
                                 changeBlock.toString().endsWith("\\ No newline at end of file"));
                     } else {
                         FileEntry entry =
                                 new FileEntry(filePath, type, VariabilityChange.NOT_ANALYZED, lines, permissions);
                         entry.setNoNewLineAtEndOfFile(changeBlock.toString().endsWith("\\ No newline at end of file"));
+                        if (indexMatcher != null) {
+                            entry.setImageHashes(indexMatcher.group(1), indexMatcher.group(2));
+                        }
                         fileEntries.add(entry);
                     }
                 }
@@ -172,6 +182,24 @@ public class DiffFileParser {
         return diffFile;
     }
 
+    /**
+     * Finds the index line within the header of an entry.
+     *
+     * @param changeBlock the lines of the entry
+     * @return the matcher for the index line or null if the header contains none
+     */
+    private static Matcher findIndexLine(String changeBlock) {
+        Matcher indexMatcher = null;
+        String[] headerLines = changeBlock.split("\n", 5);
+        for (int i = 1; indexMatcher == null && i < headerLines.length && !headerLines[i].startsWith("@@"); i++) {
+            Matcher matcher = INDEX_PATTERN.matcher(headerLines[i]);
+            if (matcher.matches()) {
+                indexMatcher = matcher;
+            }
+        }
+        return indexMatcher;
+    }
+
     /**
      * Parses the change block.
      *
@@ -79,6 +79,15 @@ public class FileEntry {
     /** The no new line at end of file. */
     private boolean noNewLineAtEndOfFile;
 
+    /** Whether the lines omit parts of the file between chunks. */
+    private boolean omittedLines;
+
+    /** The (abbreviated) git object id of the file before the change. */
+    private String preImageHash;
+
+    /** The (abbreviated) git object id of the file after the change. */
+    private String postImageHash;
+
     /**
      * Instantiates a new file entry.
      *
@@ -95,6 +104,7 @@ public class FileEntry {
         this.variabilityChange = variabilityChange;
         this.lines = lines;
         this.permissions = permissions;
+        this.omittedLines = containsOmittedLines(lines);
     }
 
     /**
@@ -376,6 +386,68 @@ public class FileEntry {
      */
     public void addLines(List<Lines> lines2add) {
         this.lines.addAll(lines2add);
+        this.omittedLines |= containsOmittedLines(lines2add);
+    }
+
+    /**
+     * Checks whether the given lines contain a gap between chunks.
+     *
+     * @param lines the lines, may be null
+     * @return true, if lines between chunks are omitted
+     */
+    private static boolean containsOmittedLines(List<Lines> lines) {
+        boolean omitted = false;
+        if (lines != null) {
+            for (Lines line : lines) {
+                if (line.getType().equals(Lines.LineType.BETWEEN_CHUNKS) && line.getCount() > 0) {
+                    omitted = true;
+                    break;
+                }
+            }
+        }
+        return omitted;
+    }
+
+    /**
+     * Checks whether the entry omits lines of the file between its chunks. This is
+     * the case if the diff was not generated with enough context lines to
+     * describe the whole file. The information is recorded when lines are added to
+     * the entry.
+     *
+     * @return true, if lines are omitted
+     */
+    public boolean hasOmittedLines() {
+        return omittedLines;
+    }
+
+    /**
+     * Sets the (abbreviated) git object ids of the file before and after the
+     * change as given by the index line of the git diff.
+     *
+     * @param preImageHash  the object id before the change
+     * @param postImageHash the object id after the change
+     */
+    public void setImageHashes(String preImageHash, String postImageHash) {
+        this.preImageHash = preImageHash;
+        this.postImageHash = postImageHash;
+    }
+
+    /**
+     * Gets the (abbreviated) git object id of the file before the change.
+     *
+     * @return the object id or null if it is unknown
+     */
+    public String getPreImageHash() {
+        return preImageHash;
+    }
+
+    /**
+     * Gets the (abbreviated) git object id of the file after the change.
+     *
+     * @return the object id or null if it is unknown
+     */
+    public String getPostImageHash() {
+        return postImageHash;
     }
 
     /**
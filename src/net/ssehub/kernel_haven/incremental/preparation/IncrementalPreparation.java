@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -15,13 +16,24 @@ import net.ssehub.kernel_haven.SetUpException;
 import net.ssehub.kernel_haven.config.Configuration;
 import net.ssehub.kernel_haven.config.DefaultSettings;
 import net.ssehub.kernel_haven.incremental.diff.analyzer.VariabilityChangeAnalyzer;
+import net.ssehub.kernel_haven.incremental.diff.applier.ByteExactDiffApplier;
 import net.ssehub.kernel_haven.incremental.diff.applier.DiffApplier;
 import net.ssehub.kernel_haven.incremental.diff.applier.FileReplacingDiffApplier;
+import net.ssehub.kernel_haven.incremental.diff.applier.InitialImportDiffApplier;
+import net.ssehub.kernel_haven.incremental.diff.applier.SourceTreeSnapshot;
 import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
 import net.ssehub.kernel_haven.incremental.diff.parser.DiffFileParser;
 import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
 import net.ssehub.kernel_haven.incremental.preparation.filter.AdditionFilter;
+import net.ssehub.kernel_haven.incremental.preparation.filter.CombinedFilter;
+import net.ssehub.kernel_haven.incremental.preparation.filter.HeaderImpactFilter;
 import net.ssehub.kernel_haven.incremental.preparation.filter.InputFilter;
+import net.ssehub.kernel_haven.incremental.preparation.filter.KconfigSymbolImpactFilter;
+import net.ssehub.kernel_haven.incremental.preparation.filter.PathCategoryMatcher;
+import net.ssehub.kernel_haven.incremental.preparation.index.IncludeGraph;
+import net.ssehub.kernel_haven.incremental.preparation.index.PersistentIndex;
+import net.ssehub.kernel_haven.incremental.preparation.index.SourceTreeIndex;
+import net.ssehub.kernel_haven.incremental.preparation.index.SymbolIndex;
 import net.ssehub.kernel_haven.incremental.settings.IncrementalAnalysisSettings;
 import net.ssehub.kernel_haven.incremental.storage.HybridCache;
 import net.ssehub.kernel_haven.incremental.util.FileUtil;
@@ -41,6 +53,18 @@ public class IncrementalPreparation implements IPreparation {
     /** Logger instance. */
     private static final Logger LOGGER = Logger.get();
 
+    /** Name of the folder within the hybrid cache directory holding the snapshot of the source tree. */
+    private static final String SNAPSHOT_FOLDER = "source-snapshot";
+
+    /** Name of the file within the hybrid cache directory holding the index of the source tree. */
+    private static final String SOURCE_TREE_INDEX_FILE = "source-tree-index.txt";
+
+    /** Name of the file within the hybrid cache directory holding the include graph of the source tree. */
+    private static final String INCLUDE_GRAPH_FILE = "include-graph.txt";
+
+    /** The file name of the {@link SymbolIndex} within the hybrid cache directory. */
+    private static final String SYMBOL_INDEX_FILE = "symbol-index.txt";
+
     /*
      * (non-Javadoc)
      * 
@@ -55,27 +79,33 @@ public class IncrementalPreparation implements IPreparation {
 
         File inputDiff = config.getValue(IncrementalAnalysisSettings.SOURCE_TREE_DIFF_FILE);
         File inputSourceDir = config.getValue(DefaultSettings.SOURCE_TREE);
+        boolean rollback = config.getValue(IncrementalAnalysisSettings.ROLLBACK);
+        SourceTreeSnapshot snapshot = createSnapshot(config, inputSourceDir, inputDiff, rollback);
 
-        LOGGER.logInfo("Parsing diff file - this may take a few minutes ...");
-        DiffFile diffFile = readDiffFile(inputDiff);
-
-        // First check if the diff file was read successfully
-        if (diffFile == null) {
-            LOGGER.logError("Diff file " + inputDiff.getPath()
-                    + " could not be read! Perhaps file is not a valid git-diff file.");
-            throw new SetUpException("Diff file could not be read! Perhaps file is not a valid git-diff file.");
+        DiffFile diffFile = null;
+        // A rollback from a snapshot does not require the diff file
+        if (!rollback || snapshot == null || !snapshot.exists()) {
+            LOGGER.logInfo("Parsing diff file - this may take a few minutes ...");
+            diffFile = readDiffFile(inputDiff);
+
+            // First check if the diff file was read successfully
+            if (diffFile == null) {
+                LOGGER.logError("Diff file " + inputDiff.getPath()
+                        + " could not be read! Perhaps file is not a valid git-diff file.");
+                throw new SetUpException("Diff file could not be read! Perhaps file is not a valid git-diff file.");
+            }
         }
 
         // If this is a rollback execution, only a rollback and nothing more
         // will be done
-        if (config.getValue(IncrementalAnalysisSettings.ROLLBACK)) {
+        if (rollback) {
             // Execution will stop after rollback is complete
-            handleRollback(config, inputSourceDir, diffFile);
+            handleRollback(config, inputSourceDir, diffFile, snapshot);
 
         } else {
             // merge the changes described by the diff file to the codebase
             // and define targets for extraction
-            handleMergeAndPrepareExtraction(config, inputSourceDir, diffFile);
+            handleMergeAndPrepareExtraction(config, inputSourceDir, diffFile, snapshot);
         }
 
         long totalTime = System.nanoTime() - start;
@@ -89,11 +119,14 @@ public class IncrementalPreparation implements IPreparation {
      *
      * @param config         the config
      * @param inputSourceDir the input source dir
-     * @param diffFile       the diff file
+     * @param diffFile       the diff file, may be null if the snapshot exists
+     * @param snapshot       the snapshot of the source tree, null if not used
      */
-    private void handleRollback(Configuration config, File inputSourceDir, DiffFile diffFile) {
-        DiffApplier diffApplier = new FileReplacingDiffApplier(inputSourceDir, diffFile);
+    private void handleRollback(Configuration config, File inputSourceDir, DiffFile diffFile,
+            SourceTreeSnapshot snapshot) {
         // Handle rollback
+        // The applier restores the snapshot if it exists and uses the diff file otherwise
+        DiffApplier diffApplier = createDiffApplier(config, inputSourceDir, diffFile, snapshot);
         boolean revertSuccessful = diffApplier.revertChanges();
         HybridCache hybridCache =
                 new HybridCache(config.getValue(IncrementalAnalysisSettings.HYBRID_CACHE_DIRECTORY));
@@ -103,6 +136,10 @@ public class IncrementalPreparation implements IPreparation {
             revertSuccessful = false;
             LOGGER.logException("Could not revert changes in " + HybridCache.class.getSimpleName(), e);
         }
+        // The indices describe the merged source tree and need to be rebuilt for the reverted one
+        for (PersistentIndex index : createIndices(config, inputSourceDir)) {
+            revertSuccessful = index.invalidate() && revertSuccessful;
+        }
 
         // Stop execution after rollback
         if (revertSuccessful) {
@@ -116,11 +153,23 @@ public class IncrementalPreparation implements IPreparation {
      * @param config         the config
      * @param inputSourceDir the input source dir
      * @param diffFile       the diff file
+     * @param snapshot       the snapshot of the source tree, null if not used
      * @throws SetUpException the set up exception
      */
-    private void handleMergeAndPrepareExtraction(Configuration config, File inputSourceDir, DiffFile diffFile)
-            throws SetUpException {
-        DiffApplier diffApplier = new FileReplacingDiffApplier(inputSourceDir, diffFile);
+    private void handleMergeAndPrepareExtraction(Configuration config, File inputSourceDir, DiffFile diffFile,
+            SourceTreeSnapshot snapshot) throws SetUpException {
+        boolean initialImport = isInitialImport(config, inputSourceDir, diffFile);
+        config.setValue(IncrementalAnalysisSettings.INITIAL_IMPORT, initialImport);
+
+        DiffApplier diffApplier;
+        if (initialImport) {
+            LOGGER.logInfo("Source tree and " + HybridCache.class.getSimpleName()
+                    + " are empty - treating the diff file as initial import.");
+            diffApplier = new InitialImportDiffApplier(inputSourceDir, diffFile);
+            discardSnapshot(snapshot);
+        } else {
+            diffApplier = createDiffApplier(config, inputSourceDir, diffFile, snapshot);
+        }
         // Merge changes
         boolean mergeSuccessful = diffApplier.mergeChanges();
         // only continue if merge was successful
@@ -129,6 +178,10 @@ public class IncrementalPreparation implements IPreparation {
                     + "The diff-file must describe changes that can"
                     + " be applied to the set of input-files that are to be analyzed. \n"
                     + "Stopping execution of KernelHaven.");
+            // The source tree may be partially merged
+            for (PersistentIndex index : createIndices(config, inputSourceDir)) {
+                index.invalidate();
+            }
             throw new SetUpException("Could not merge provided diff with existing input files!");
         } else {
             // Only analyze for variability changes if required by the configuration
@@ -139,7 +192,29 @@ public class IncrementalPreparation implements IPreparation {
             }
 
             // Define targets for extraction.
-            defineTargetsForExtraction(config, inputSourceDir, diffFile);
+            List<PersistentIndex> indices = new ArrayList<>();
+            for (PersistentIndex index : createIndices(config, inputSourceDir)) {
+                if (isUsed(config, index)) {
+                    index.update(diffFile);
+                    index.register();
+                    indices.add(index);
+                } else {
+                    // An index not updated with this merge would be outdated once it is used again
+                    index.invalidate();
+                }
+            }
+            // All filters of this execution match paths against the extractor regular expressions through one matcher
+            new PathCategoryMatcher(Arrays.asList(config.getValue(DefaultSettings.CODE_EXTRACTOR_FILE_REGEX),
+                    config.getValue(DefaultSettings.VARIABILITY_EXTRACTOR_FILE_REGEX),
+                    config.getValue(DefaultSettings.BUILD_EXTRACTOR_FILE_REGEX))).register(inputSourceDir);
+            try {
+                defineTargetsForExtraction(config, inputSourceDir, diffFile);
+            } finally {
+                PathCategoryMatcher.unregister(inputSourceDir);
+                for (PersistentIndex index : indices) {
+                    PersistentIndex.unregister(index.getClass(), inputSourceDir);
+                }
+            }
 
             /*
              * Tell IncrementalPostExtraction which files got deleted. This is required so
@@ -161,6 +236,176 @@ public class IncrementalPreparation implements IPreparation {
         }
     }
 
+    /**
+     * Creates the {@link DiffApplier} used for merging and reverting the changes
+     * described by the diff file.
+     *
+     * @param config         the config
+     * @param inputSourceDir the input source dir
+     * @param diffFile       the diff file
+     * @param snapshot       the snapshot keeping the pre-images of merged files,
+     *                       null if not used
+     * @return the diff applier
+     */
+    private DiffApplier createDiffApplier(Configuration config, File inputSourceDir, DiffFile diffFile,
+            SourceTreeSnapshot snapshot) {
+        FileReplacingDiffApplier diffApplier;
+        if (config.getValue(IncrementalAnalysisSettings.BYTE_EXACT_DIFF_APPLIER)) {
+            diffApplier = new ByteExactDiffApplier(inputSourceDir, diffFile,
+                    config.getValue(IncrementalAnalysisSettings.SOURCE_TREE_DIFF_FILE));
+        } else {
+            diffApplier = new FileReplacingDiffApplier(inputSourceDir, diffFile);
+        }
+        diffApplier.setSnapshot(snapshot);
+        return diffApplier;
+    }
+
+    /**
+     * Creates the snapshot of the source tree if snapshots are enabled. The
+     * snapshot is located next to the folders of the {@link HybridCache} as
+     * clearing the change history of the cache must not delete it.
+     *
+     * If snapshots are disabled, a snapshot left by an earlier merge is discarded
+     * before merging as it does not describe the merged source tree anymore.
+     *
+     * @param config         the config
+     * @param inputSourceDir the input source dir
+     * @param inputDiff      the git diff file of the merge
+     * @param rollback       defines whether the merge gets reverted
+     * @return the snapshot or null if snapshots are disabled
+     */
+    private SourceTreeSnapshot createSnapshot(Configuration config, File inputSourceDir, File inputDiff,
+            boolean rollback) {
+        SourceTreeSnapshot snapshot = new SourceTreeSnapshot(inputSourceDir,
+                new File(config.getValue(IncrementalAnalysisSettings.HYBRID_CACHE_DIRECTORY), SNAPSHOT_FOLDER),
+                inputDiff);
+        if (!config.getValue(IncrementalAnalysisSettings.SOURCE_TREE_SNAPSHOT)) {
+            if (!rollback) {
+                discardSnapshot(snapshot);
+            }
+            snapshot = null;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Creates the {@link PersistentIndex}es describing the source tree. The index
+     * files are located next to the folders of the {@link HybridCache} as clearing
+     * the change history of the cache must not delete them. The
+     * {@link SourceTreeIndex} is created first as the other indices use it for
+     * listing the files of the source tree.
+     *
+     * Every merge needs to either update or invalidate each index as the index
+     * files would otherwise describe an outdated source tree once the indices
+     * are used again.
+     *
+     * @param config         the config
+     * @param inputSourceDir the input source dir
+     * @return the indices, not loaded yet
+     */
+    private List<PersistentIndex> createIndices(Configuration config, File inputSourceDir) {
+        File cacheDir = config.getValue(IncrementalAnalysisSettings.HYBRID_CACHE_DIRECTORY);
+        List<PersistentIndex> indices = new ArrayList<>();
+        indices.add(new SourceTreeIndex(inputSourceDir, new File(cacheDir, SOURCE_TREE_INDEX_FILE)));
+        IncludeGraph graph = new IncludeGraph(inputSourceDir, new File(cacheDir, INCLUDE_GRAPH_FILE));
+        graph.setMaxExpansion(config.getValue(IncrementalAnalysisSettings.INCLUDE_GRAPH_MAX_EXPANSION));
+        indices.add(graph);
+        indices.add(new SymbolIndex(inputSourceDir, new File(cacheDir, SYMBOL_INDEX_FILE)));
+        return indices;
+    }
+
+    /**
+     * Checks whether an index is used by the current configuration.
+     *
+     * @param config the config
+     * @param index  the index
+     * @return true, if the index is used
+     */
+    private boolean isUsed(Configuration config, PersistentIndex index) {
+        boolean used;
+        if (index instanceof IncludeGraph) {
+            used = usesFilter(config, HeaderImpactFilter.class);
+        } else if (index instanceof SymbolIndex) {
+            used = usesFilter(config, KconfigSymbolImpactFilter.class);
+        } else {
+            used = config.getValue(IncrementalAnalysisSettings.SOURCE_TREE_INDEX);
+        }
+        return used;
+    }
+
+    /**
+     * Checks whether one of the filters for the code, variability or build model
+     * is a given filter or a subclass of it.
+     *
+     * @param config      the config
+     * @param filterClass the filter class
+     * @return true, if the filter is used
+     */
+    private boolean usesFilter(Configuration config, Class<? extends InputFilter> filterClass) {
+        boolean used = false;
+        for (String filterClassName : new String[] {
+            config.getValue(IncrementalAnalysisSettings.CODE_MODEL_FILTER_CLASS),
+            config.getValue(IncrementalAnalysisSettings.VARIABILITY_MODEL_FILTER_CLASS),
+            config.getValue(IncrementalAnalysisSettings.BUILD_MODEL_FILTER_CLASS)}) {
+            used = used || isFilter(filterClassName, filterClass);
+        }
+        return used;
+    }
+
+    /**
+     * Checks whether a filter class name denotes a given filter or a subclass of
+     * it.
+     *
+     * @param filterClassName the filter class name
+     * @param filterClass     the filter class
+     * @return true, if the class name denotes the filter
+     */
+    private static boolean isFilter(String filterClassName, Class<? extends InputFilter> filterClass) {
+        boolean isFilter = false;
+        try {
+            isFilter = filterClass.isAssignableFrom(Class.forName(filterClassName));
+        } catch (ClassNotFoundException e) {
+            // Reported when the filter is used
+        }
+        return isFilter;
+    }
+
+    /**
+     * Discards a snapshot that does not describe the current merge so that it can
+     * not be used for a later rollback.
+     *
+     * @param snapshot the snapshot, may be null
+     */
+    private void discardSnapshot(SourceTreeSnapshot snapshot) {
+        if (snapshot != null) {
+            try {
+                snapshot.discard();
+            } catch (IOException exc) {
+                LOGGER.logException("Could not discard outdated snapshot of source tree", exc);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the diff file describes the initial import of the source tree.
+     * This requires the fast path for initial imports to be enabled, an empty
+     * source tree, an empty {@link HybridCache} and a diff file that only consists
+     * of additions.
+     *
+     * @param config         the config
+     * @param inputSourceDir the input source dir
+     * @param diffFile       the diff file
+     * @return true, if the diff file can be handled as initial import
+     */
+    private boolean isInitialImport(Configuration config, File inputSourceDir, DiffFile diffFile) {
+        boolean initialImport = config.getValue(IncrementalAnalysisSettings.INITIAL_IMPORT_FAST_PATH)
+                && InitialImportDiffApplier.isInitialImport(inputSourceDir, diffFile);
+        if (initialImport) {
+            initialImport = HybridCache.isEmpty(config.getValue(IncrementalAnalysisSettings.HYBRID_CACHE_DIRECTORY));
+        }
+        return initialImport;
+    }
+
     /**
      * Read diff file.
      *
@@ -194,7 +439,9 @@ public class IncrementalPreparation implements IPreparation {
 
     /**
      * Define targets for extraction. This modifies the configuration to include
-     * only the relevant files for extraction through the extractors of KernelHaven
+     * only the relevant files for extraction through the extractors of KernelHaven.
+     * All filters are evaluated by one {@link CombinedFilter} so that the entries
+     * of the diff file only need to be processed once.
      *
      * @param config               the config
      * @param inputSourceDir       the input source dir
@@ -203,10 +450,22 @@ public class IncrementalPreparation implements IPreparation {
      */
     private void defineTargetsForExtraction(Configuration config, File inputSourceDir, DiffFile diffFileForFiltering)
             throws SetUpException {
+        CombinedFilter filter = new CombinedFilter(inputSourceDir, diffFileForFiltering,
+                config.getValue(IncrementalAnalysisSettings.PARALLEL_FILTERING));
+        CombinedFilter.Target codeModelTarget =
+                filter.addTarget(config.getValue(IncrementalAnalysisSettings.CODE_MODEL_FILTER_CLASS),
+                        config.getValue(DefaultSettings.CODE_EXTRACTOR_FILE_REGEX), false);
+        CombinedFilter.Target variabilityModelTarget =
+                filter.addTarget(config.getValue(IncrementalAnalysisSettings.VARIABILITY_MODEL_FILTER_CLASS),
+                        config.getValue(DefaultSettings.VARIABILITY_EXTRACTOR_FILE_REGEX), true);
+        CombinedFilter.Target buildModelTarget =
+                filter.addTarget(config.getValue(IncrementalAnalysisSettings.BUILD_MODEL_FILTER_CLASS),
+                        config.getValue(DefaultSettings.BUILD_EXTRACTOR_FILE_REGEX), true);
+        CombinedFilter.Target addedCodeFilesTarget = filter.addTarget(AdditionFilter.class.getName(),
+                config.getValue(DefaultSettings.CODE_EXTRACTOR_FILE_REGEX), false);
+
         // Filter code model files
-        Collection<Path> filteredPaths =
-                filterInput(config.getValue(IncrementalAnalysisSettings.CODE_MODEL_FILTER_CLASS), inputSourceDir,
-                        diffFileForFiltering, config.getValue(DefaultSettings.CODE_EXTRACTOR_FILE_REGEX), false);
+        Collection<Path> filteredPaths = codeModelTarget.getFilteredResult();
 
         boolean extractCm = false;
         if (!filteredPaths.isEmpty()) {
@@ -221,23 +480,21 @@ public class IncrementalPreparation implements IPreparation {
         config.setValue(IncrementalAnalysisSettings.EXTRACT_CODE_MODEL, extractCm);
 
         // Filter variability model files
-        filteredPaths =
-                filterInput(config.getValue(IncrementalAnalysisSettings.VARIABILITY_MODEL_FILTER_CLASS), inputSourceDir,
-                        diffFileForFiltering, config.getValue(DefaultSettings.VARIABILITY_EXTRACTOR_FILE_REGEX), true);
+        filteredPaths = variabilityModelTarget.getFilteredResult();
         boolean extractVm = !filteredPaths.isEmpty();
 
         config.setValue(IncrementalAnalysisSettings.EXTRACT_VARIABILITY_MODEL, extractVm);
         config.setValue(IncrementalAnalysisSettings.AUXILLARY_BUILD_MODEL_EXTRACTION, false);
 
         // Determine build model extraction
-        if (extractVm) {
-            // if vm was updated, always extract bm aswell as it depends on the vm
+        if (extractVm && !isFilter(config.getValue(IncrementalAnalysisSettings.BUILD_MODEL_FILTER_CLASS),
+                KconfigSymbolImpactFilter.class)) {
+            // if vm was updated, always extract bm aswell as it depends on the vm. A KconfigSymbolImpactFilter
+            // already includes the build files referencing a changed configuration option.
             config.setValue(IncrementalAnalysisSettings.EXTRACT_BUILD_MODEL, true);
         } else {
             // Filter build model files
-            filteredPaths =
-                    filterInput(config.getValue(IncrementalAnalysisSettings.BUILD_MODEL_FILTER_CLASS), inputSourceDir,
-                            diffFileForFiltering, config.getValue(DefaultSettings.BUILD_EXTRACTOR_FILE_REGEX), true);
+            filteredPaths = buildModelTarget.getFilteredResult();
             boolean extractBm = !filteredPaths.isEmpty();
 
             // We further check if the build model needs to be extracted due to changes in
@@ -249,8 +506,7 @@ public class IncrementalPreparation implements IPreparation {
                  * incremental analysis can treat it accordingly (e.g. consider the build model
                  * to be unchanged).
                  */
-                Collection<Path> addedCodeFiles = filterInput(AdditionFilter.class.getName(), inputSourceDir,
-                        diffFileForFiltering, config.getValue(DefaultSettings.CODE_EXTRACTOR_FILE_REGEX), false);
+                Collection<Path> addedCodeFiles = addedCodeFilesTarget.getFilteredResult();
                 if (!extractBm && !addedCodeFiles.isEmpty()) {
                     extractBm = true;
                     LOGGER.logInfo(
@@ -280,22 +536,8 @@ public class IncrementalPreparation implements IPreparation {
      */
     protected Collection<Path> filterInput(String filterClassName, File inputSourceDir, DiffFile inputDiff,
             Pattern regex, boolean includeDeletions) throws SetUpException {
-        Collection<Path> paths = null;
-        // Call the method getFilteredResult for filterClassName via
-        // reflection-api
-        try {
-            Object filterObject = Class.forName(filterClassName)
-                    .getConstructor(File.class, DiffFile.class, Pattern.class, boolean.class)
-                    .newInstance(inputSourceDir, inputDiff, regex, includeDeletions);
-            InputFilter filter = InputFilter.class.cast(filterObject);
-            paths = filter.getFilteredResult();
-        } catch (ClassNotFoundException | IllegalAccessException | InstantiationException | NoSuchMethodException
-                | InvocationTargetException e) {
-            LOGGER.logException("The specified filter class could not be used", e);
-            throw new SetUpException("The specified filter could not be used: " + e.getMessage());
-        }
-        return paths;
-
+        return new CombinedFilter(inputSourceDir, inputDiff, false).addTarget(filterClassName, regex, includeDeletions)
+                .getFilteredResult();
     }
 
     /**
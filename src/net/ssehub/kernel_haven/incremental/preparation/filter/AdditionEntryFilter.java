@@ -0,0 +1,24 @@
+package net.ssehub.kernel_haven.incremental.preparation.filter;
+
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+
+/**
+ * {@link EntryFilter} of the {@link AdditionFilter} including added files only.
+ * Never includes deletions, regardless of the boolean value passed to it.
+ *
+ * @author moritz
+ */
+public class AdditionEntryFilter implements EntryFilter {
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see net.ssehub.kernel_haven.incremental.preparation.filter.EntryFilter#
+     * includes(net.ssehub.kernel_haven.incremental.diff.parser.FileEntry, boolean)
+     */
+    @Override
+    public boolean includes(FileEntry entry, boolean includeDeletions) {
+        return entry.getType().equals(FileEntry.FileChange.ADDITION);
+    }
+
+}
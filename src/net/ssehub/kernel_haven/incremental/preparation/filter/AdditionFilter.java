@@ -3,12 +3,10 @@ package net.ssehub.kernel_haven.incremental.preparation.filter;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.regex.Pattern;
 
 import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
-import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
 
 /**
  * This is an {@link InputFilter} that can be used to generate a collection
@@ -19,6 +17,9 @@ import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
  */
 public class AdditionFilter extends InputFilter {
 
+    /** The criterion deciding about each entry of the diff file. */
+    public static final EntryFilter ENTRY_FILTER = new AdditionEntryFilter();
+
     /**
      * Instantiates a new change filter.
      *
@@ -43,14 +44,7 @@ public class AdditionFilter extends InputFilter {
     @Override
     protected Collection<Path> doFilter(File sourceDirectory, DiffFile diffFile, Pattern fileRegex,
             boolean includeDeletions) throws IOException {
-
-        Collection<Path> paths = new ArrayList<>();
-        for (FileEntry entry : diffFile.getEntries()) {
-            if (entry.getType().equals(FileEntry.FileChange.ADDITION)) {
-                paths.add(entry.getPath());
-            }
-        }
-        return filterPathsByRegex(paths, fileRegex);
+        return filterPathsByRegex(ENTRY_FILTER.filterEntries(diffFile, includeDeletions), fileRegex);
     }
 
 }
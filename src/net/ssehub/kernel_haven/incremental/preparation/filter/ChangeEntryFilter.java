@@ -0,0 +1,25 @@
+package net.ssehub.kernel_haven.incremental.preparation.filter;
+
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+
+/**
+ * {@link EntryFilter} of the {@link ChangeFilter} including added and modified
+ * files as well as deleted files if deletions are included.
+ *
+ * @author moritz
+ */
+public class ChangeEntryFilter implements EntryFilter {
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see net.ssehub.kernel_haven.incremental.preparation.filter.EntryFilter#
+     * includes(net.ssehub.kernel_haven.incremental.diff.parser.FileEntry, boolean)
+     */
+    @Override
+    public boolean includes(FileEntry entry, boolean includeDeletions) {
+        return includeDeletions || entry.getType().equals(FileEntry.FileChange.ADDITION)
+                || entry.getType().equals(FileEntry.FileChange.MODIFICATION);
+    }
+
+}
@@ -3,12 +3,10 @@ package net.ssehub.kernel_haven.incremental.preparation.filter;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.regex.Pattern;
 
 import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
-import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
 
 /**
  * This is an {@link InputFilter} that can be used to generate a collection
@@ -18,6 +16,9 @@ import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
  */
 public class ChangeFilter extends InputFilter {
 
+    /** The criterion deciding about each entry of the diff file. */
+    public static final EntryFilter ENTRY_FILTER = new ChangeEntryFilter();
+
     /**
      * Instantiates a new change filter.
      *
@@ -48,16 +49,8 @@ public class ChangeFilter extends InputFilter {
     @Override
     protected Collection<Path> doFilter(File sourceDirectory, DiffFile diffFile,
         Pattern fileRegex, boolean includeDeletions) throws IOException {
-
-        Collection<Path> paths = new ArrayList<>();
-        for (FileEntry entry : diffFile.getEntries()) {
-            if (includeDeletions
-                || entry.getType().equals(FileEntry.FileChange.ADDITION)
-                || entry.getType().equals(FileEntry.FileChange.MODIFICATION)) {
-                paths.add(entry.getPath());
-            }
-        }
-        return filterPathsByRegex(paths, fileRegex);
+        return filterPathsByRegex(ENTRY_FILTER.filterEntries(diffFile, includeDeletions),
+            fileRegex);
     }
 
 }
@@ -0,0 +1,301 @@
+package net.ssehub.kernel_haven.incremental.preparation.filter;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import net.ssehub.kernel_haven.SetUpException;
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+import net.ssehub.kernel_haven.util.Logger;
+
+/**
+ * Evaluates several {@link InputFilter}s for the same {@link DiffFile}. All
+ * targets using a filter that provides an {@link EntryFilter} are evaluated
+ * together in a single pass over the entries of the diff file, optionally in
+ * parallel. Each path is converted to a string once per entry and matched
+ * against all distinct regular expressions at once by a
+ * {@link PathCategoryMatcher}. Targets using other filters are evaluated on
+ * their own when their result is requested.
+ *
+ * @author moritz
+ */
+public class CombinedFilter {
+
+    /** The Constant LOGGER. */
+    private static final Logger LOGGER = Logger.get();
+
+    /**
+     * A filter and regular expression evaluated by a {@link CombinedFilter}.
+     */
+    public final class Target {
+
+        /** The filter class name. */
+        private final String filterClassName;
+
+        /** The entry filter, null if the filter needs to be evaluated on its own. */
+        private final EntryFilter entryFilter;
+
+        /** The regular expression for files to include. */
+        private final Pattern regex;
+
+        /** The index of the regular expression within {@link CombinedFilter#patterns}. */
+        private final int patternIndex;
+
+        /** Defines whether deletions are included. */
+        private final boolean includeDeletions;
+
+        /** The result, null if not evaluated yet. */
+        private Collection<Path> result;
+
+        /**
+         * Instantiates a new {@link Target}.
+         *
+         * @param filterClassName  the filter class name
+         * @param entryFilter      the entry filter, null if not available
+         * @param regex            the regular expression for files to include
+         * @param patternIndex     the index of the regular expression
+         * @param includeDeletions defines whether deletions are included
+         */
+        private Target(String filterClassName, EntryFilter entryFilter, Pattern regex, int patternIndex,
+                boolean includeDeletions) {
+            this.filterClassName = filterClassName;
+            this.entryFilter = entryFilter;
+            this.regex = regex;
+            this.patternIndex = patternIndex;
+            this.includeDeletions = includeDeletions;
+        }
+
+        /**
+         * Gets the filtered result. Evaluates all targets using an
+         * {@link EntryFilter} if this was not done yet.
+         *
+         * @return the filtered result
+         * @throws SetUpException if the filter could not be used
+         */
+        public Collection<Path> getFilteredResult() throws SetUpException {
+            synchronized (CombinedFilter.this) {
+                if (result == null) {
+                    if (entryFilter != null) {
+                        evaluateEntryFilters();
+                    } else {
+                        result = evaluateInputFilter(filterClassName, regex, includeDeletions);
+                    }
+                }
+                return result;
+            }
+        }
+
+        /**
+         * Checks whether the target is evaluated in the single pass over the
+         * entries of the diff file.
+         *
+         * @return true, if the filter provides an {@link EntryFilter}
+         */
+        boolean isEvaluatedPerEntry() {
+            return entryFilter != null;
+        }
+    }
+
+    /** The source directory. */
+    private final File sourceDirectory;
+
+    /** The diff file. */
+    private final DiffFile diffFile;
+
+    /** Defines whether the entries are evaluated in parallel. */
+    private final boolean parallel;
+
+    /** The targets using an {@link EntryFilter}. */
+    private final List<Target> entryTargets = new ArrayList<>();
+
+    /** The distinct regular expressions of all targets using an {@link EntryFilter}. */
+    private final List<Pattern> patterns = new ArrayList<>();
+
+    /** The indices of the regular expressions by their pattern and flags. */
+    private final Map<String, Integer> patternIndices = new HashMap<>();
+
+    /** The matcher for {@link #patterns}, null until the targets are evaluated. */
+    private PathCategoryMatcher matcher;
+
+    /** The indices of {@link #patterns} within {@link #matcher}. */
+    private int[] matcherIndices;
+
+    /**
+     * Instantiates a new {@link CombinedFilter}.
+     *
+     * @param sourceDirectory the source directory
+     * @param diffFile        the diff file
+     * @param parallel        defines whether the entries are evaluated in
+     *                        parallel
+     */
+    public CombinedFilter(File sourceDirectory, DiffFile diffFile, boolean parallel) {
+        this.sourceDirectory = sourceDirectory;
+        this.diffFile = diffFile;
+        this.parallel = parallel;
+    }
+
+    /**
+     * Adds a target to the filter. The filter class should be a class available
+     * in the classpath and extending {@link InputFilter}. Targets must be added
+     * before the first result is requested.
+     *
+     * @param filterClassName  the filter class name
+     * @param regex            the regular expression describing which files to
+     *                         include
+     * @param includeDeletions defines whether deletions are included
+     * @return the target providing the result
+     * @throws SetUpException if the filter class could not be found
+     */
+    public synchronized Target addTarget(String filterClassName, Pattern regex, boolean includeDeletions)
+            throws SetUpException {
+        if (matcher != null) {
+            throw new IllegalStateException("Targets must be added before results are requested");
+        }
+        EntryFilter entryFilter = createEntryFilter(filterClassName);
+        Target target;
+        if (entryFilter != null) {
+            String patternKey = regex.flags() + ":" + regex.pattern();
+            Integer patternIndex = patternIndices.get(patternKey);
+            if (patternIndex == null) {
+                if (patterns.size() == PathCategoryMatcher.MAX_PATTERNS) {
+                    throw new SetUpException("At most " + PathCategoryMatcher.MAX_PATTERNS
+                            + " different regular expressions can be filtered at once");
+                }
+                patternIndex = patterns.size();
+                patterns.add(regex);
+                patternIndices.put(patternKey, patternIndex);
+            }
+            target = new Target(filterClassName, entryFilter, regex, patternIndex, includeDeletions);
+            entryTargets.add(target);
+        } else {
+            target = new Target(filterClassName, null, regex, -1, includeDeletions);
+        }
+        return target;
+    }
+
+    /**
+     * Gets the {@link EntryFilter} provided by a filter class through its field
+     * {@value EntryFilter#FIELD_NAME}. Only a field declared by the filter class
+     * itself is used: a subclass may override the filtering, so the field it
+     * inherits does not necessarily describe it.
+     *
+     * @param filterClassName the filter class name
+     * @return the entry filter or null if the class does not provide one
+     * @throws SetUpException if the filter class could not be found
+     */
+    private static EntryFilter createEntryFilter(String filterClassName) throws SetUpException {
+        EntryFilter entryFilter = null;
+        try {
+            Field field = Class.forName(filterClassName).getDeclaredField(EntryFilter.FIELD_NAME);
+            if (Modifier.isStatic(field.getModifiers()) && EntryFilter.class.isAssignableFrom(field.getType())) {
+                entryFilter = EntryFilter.class.cast(field.get(null));
+            }
+        } catch (ClassNotFoundException e) {
+            LOGGER.logException("The specified filter class could not be used", e);
+            throw new SetUpException("The specified filter could not be used: " + e.getMessage());
+        } catch (IllegalAccessException | NoSuchFieldException e) {
+            // The filter can still be used on its own
+            LOGGER.logDebug(filterClassName + " can not be evaluated per entry: " + e.getMessage());
+        }
+        return entryFilter;
+    }
+
+    /**
+     * Evaluates all targets using an {@link EntryFilter} in a single pass over
+     * the entries of the diff file.
+     */
+    private void evaluateEntryFilters() {
+        // Prefer the matcher of the current execution, which already knows the paths matched by other filters
+        PathCategoryMatcher registered = PathCategoryMatcher.getRegistered(sourceDirectory);
+        int[] registeredIndices = new int[patterns.size()];
+        for (int i = 0; i < patterns.size(); i++) {
+            registeredIndices[i] = registered == null ? -1 : registered.indexOf(patterns.get(i));
+        }
+        if (IntStream.of(registeredIndices).allMatch(index -> index >= 0)) {
+            matcher = registered;
+            matcherIndices = registeredIndices;
+        } else {
+            matcher = new PathCategoryMatcher(patterns);
+            matcherIndices = IntStream.range(0, patterns.size()).toArray();
+        }
+        List<FileEntry> entries = new ArrayList<>(diffFile.getEntries());
+        boolean[][] included = new boolean[entries.size()][];
+        IntStream indices = IntStream.range(0, entries.size());
+        if (parallel) {
+            indices = indices.parallel();
+        }
+        indices.forEach(i -> included[i] = evaluate(entries.get(i)));
+
+        // Collect sequentially so that the results keep the order of the entries
+        for (Target target : entryTargets) {
+            target.result = new ArrayList<>();
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            for (int t = 0; t < entryTargets.size(); t++) {
+                if (included[i][t]) {
+                    entryTargets.get(t).result.add(entries.get(i).getPath());
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates all targets using an {@link EntryFilter} for a single entry.
+     *
+     * @param entry the entry
+     * @return whether the entry is included, indexed like
+     *         {@link #entryTargets}
+     */
+    private boolean[] evaluate(FileEntry entry) {
+        boolean[] included = new boolean[entryTargets.size()];
+        Integer matches = null;
+        for (int t = 0; t < included.length; t++) {
+            Target target = entryTargets.get(t);
+            if (target.entryFilter.includes(entry, target.includeDeletions)) {
+                if (matches == null) {
+                    matches = matcher.match(entry.getPath().toString());
+                }
+                included[t] = (matches & (1 << matcherIndices[target.patternIndex])) != 0;
+            }
+        }
+        return included;
+    }
+
+    /**
+     * Evaluates a filter that does not provide an {@link EntryFilter} by
+     * instantiating it via reflection.
+     *
+     * @param filterClassName  the filter class name
+     * @param regex            the regular expression for files to include
+     * @param includeDeletions defines whether deletions are included
+     * @return the filtered result
+     * @throws SetUpException if the filter could not be used
+     */
+    private Collection<Path> evaluateInputFilter(String filterClassName, Pattern regex, boolean includeDeletions)
+            throws SetUpException {
+        Collection<Path> paths = null;
+        try {
+            Object filterObject = Class.forName(filterClassName)
+                    .getConstructor(File.class, DiffFile.class, Pattern.class, boolean.class)
+                    .newInstance(sourceDirectory, diffFile, regex, includeDeletions);
+            InputFilter filter = InputFilter.class.cast(filterObject);
+            paths = filter.getFilteredResult();
+        } catch (ClassNotFoundException | IllegalAccessException | InstantiationException | NoSuchMethodException
+                | InvocationTargetException e) {
+            LOGGER.logException("The specified filter class could not be used", e);
+            throw new SetUpException("The specified filter could not be used: " + e.getMessage());
+        }
+        return paths;
+    }
+
+}
@@ -9,11 +9,13 @@ import java.util.regex.Pattern;
 
 import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
 import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
-import net.ssehub.kernel_haven.incremental.util.FolderUtil;
+import net.ssehub.kernel_haven.incremental.preparation.index.SourceTreeIndex;
 
 /**
  * An implementation of {@link InputFilter} that can be used to generate a
- * collection of all files matching the regular expression.
+ * collection of all files matching the regular expression. If a
+ * {@link SourceTreeIndex} is registered for the source directory, the files
+ * are taken from the index instead of listing the source directory.
  * 
  * @author moritz
  */
@@ -50,12 +52,10 @@ public class DefaultFilter extends InputFilter {
     protected Collection<Path> doFilter(File sourceDirectory, DiffFile diffFile,
         Pattern fileRegex, boolean includeDeletions) throws IOException {
 
-        Collection<File> files =
-            FolderUtil.listRelativeFiles(sourceDirectory, true);
         Collection<Path> paths = new ArrayList<>();
-        for (File file : files) {
-            paths.add(file.toPath());
-        }
+        // Use the index shared by all filters of the current execution instead
+        // of listing the files of the whole source tree again
+        SourceTreeIndex.listFiles(sourceDirectory).forEach(paths::add);
 
         /*
          * including deletions for the {@link DefaultFilter} is currently not
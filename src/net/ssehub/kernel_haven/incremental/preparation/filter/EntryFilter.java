@@ -0,0 +1,52 @@
+package net.ssehub.kernel_haven.incremental.preparation.filter;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+
+/**
+ * Criterion of an {@link InputFilter} that decides about each {@link FileEntry}
+ * of a {@link DiffFile} on its own. An {@link InputFilter} provides its
+ * criterion through a public static field named {@value #FIELD_NAME} so that
+ * it can be evaluated by a {@link CombinedFilter} together with other filters
+ * in a single pass over the entries without instantiating the filter.
+ *
+ * @author moritz
+ */
+public interface EntryFilter {
+
+    /** The name of the field of an {@link InputFilter} class providing its criterion. */
+    String FIELD_NAME = "ENTRY_FILTER";
+
+    /**
+     * Checks whether an entry is included by the filter. The regular expression
+     * for the file paths is not considered by this method.
+     *
+     * @param entry            the entry
+     * @param includeDeletions defines whether deletion entries are included
+     * @return true, if the entry is included
+     */
+    boolean includes(FileEntry entry, boolean includeDeletions);
+
+    /**
+     * Collects the paths of all entries of a diff file that are included by the
+     * filter.
+     *
+     * @param diffFile         the diff file
+     * @param includeDeletions defines whether deletion entries are included
+     * @return the paths of the included entries
+     */
+    default Collection<Path> filterEntries(DiffFile diffFile, boolean includeDeletions) {
+        Collection<Path> paths = new ArrayList<>();
+        for (FileEntry entry : diffFile.getEntries()) {
+            if (includes(entry, includeDeletions)) {
+                paths.add(entry.getPath());
+            }
+        }
+        return paths;
+    }
+
+}
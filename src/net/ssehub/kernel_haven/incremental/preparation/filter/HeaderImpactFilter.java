@@ -0,0 +1,87 @@
+package net.ssehub.kernel_haven.incremental.preparation.filter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+import net.ssehub.kernel_haven.incremental.preparation.index.IncludeGraph;
+import net.ssehub.kernel_haven.incremental.preparation.index.SourceTreeIndex;
+import net.ssehub.kernel_haven.util.Logger;
+
+/**
+ * An {@link InputFilter} that includes changed files like the
+ * {@link ChangeFilter} and additionally all files that directly or transitively
+ * include a changed or deleted file according to the {@link IncludeGraph}. If
+ * the number of dependent files exceeds the maximum expansion of the graph,
+ * all files of the source tree are included like for the {@link DefaultFilter}.
+ *
+ * The graph registered for the source directory by the preparation is used.
+ * If no graph is registered, the graph is built for this filter alone.
+ *
+ * @author moritz
+ */
+public class HeaderImpactFilter extends InputFilter {
+
+    /** The Constant LOGGER. */
+    private static final Logger LOGGER = Logger.get();
+
+    /**
+     * Instantiates a new header impact filter.
+     *
+     * @param sourceDirectory  the source directory
+     * @param diffFile         the diff file
+     * @param fileRegex        the regular expressions for files to include
+     * @param includeDeletions defines whether or not to include deletions
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public HeaderImpactFilter(File sourceDirectory, DiffFile diffFile, Pattern fileRegex, boolean includeDeletions)
+            throws IOException {
+        super(sourceDirectory, diffFile, fileRegex, includeDeletions);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see net.ssehub.kernel_haven.incremental.preparation.filter.InputFilter#
+     * doFilter( java.io.File, net.ssehub.kernel_haven.incremental.diff.DiffFile,
+     * java.util.regex.Pattern, boolean)
+     */
+    @Override
+    protected Collection<Path> doFilter(File sourceDirectory, DiffFile diffFile, Pattern fileRegex,
+            boolean includeDeletions) throws IOException {
+        IncludeGraph graph = IncludeGraph.getRegistered(sourceDirectory);
+        if (graph == null) {
+            graph = new IncludeGraph(sourceDirectory, null);
+            graph.rebuild();
+        }
+
+        Set<Path> paths = new LinkedHashSet<>();
+        Collection<Path> changedFiles = new ArrayList<>();
+        for (FileEntry entry : diffFile.getEntries()) {
+            // Files including a deleted file are affected as well
+            changedFiles.add(entry.getPath());
+            if (includeDeletions || !entry.getType().equals(FileEntry.FileChange.DELETION)) {
+                paths.add(entry.getPath());
+            }
+        }
+
+        Set<Path> dependents = graph.getDependents(changedFiles);
+        if (dependents != null) {
+            paths.addAll(dependents);
+        } else {
+            LOGGER.logWarning("Including all files of the source tree as too many files depend on the changes.");
+            for (Path file : SourceTreeIndex.listFiles(sourceDirectory)) {
+                paths.add(file);
+            }
+        }
+        return filterPathsByRegex(paths, fileRegex);
+    }
+
+}
@@ -5,7 +5,6 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
@@ -22,6 +21,9 @@ public abstract class InputFilter {
     /** The result. */
     protected Collection<Path> result = null;
 
+    /** The matcher registered for the source directory, null if none is registered. */
+    private PathCategoryMatcher pathMatcher;
+
     /**
      * Instantiates a new input filter.
      *
@@ -38,13 +40,16 @@ public abstract class InputFilter {
      */
     public InputFilter(File sourceDirectory, DiffFile diffFile,
         Pattern fileRegex, boolean includeDeletions) throws IOException {
+        this.pathMatcher = sourceDirectory == null ? null : PathCategoryMatcher.getRegistered(sourceDirectory);
         this.result = this.doFilter(sourceDirectory, diffFile, fileRegex,
             includeDeletions);
     }
 
     /**
      * Filter paths to input files using a regular expression matching the
-     * file-path.
+     * file-path. If the {@link PathCategoryMatcher} registered for the source
+     * directory contains the regular expression, the paths are matched through
+     * it so that each path is only matched once per execution.
      *
      * @param unfilteredPaths
      *            the unfiltered paths
@@ -54,10 +59,12 @@ public abstract class InputFilter {
      */
     protected Collection<Path> filterPathsByRegex(
         Collection<Path> unfilteredPaths, Pattern regex) {
+        int index = pathMatcher == null ? -1 : pathMatcher.indexOf(regex);
         Collection<Path> filteredPaths = new ArrayList<>();
         for (Path path : unfilteredPaths) {
-            Matcher m = regex.matcher(path.toString());
-            if (m.matches()) {
+            boolean matches = index >= 0 ? pathMatcher.matches(path.toString(), index)
+                : regex.matcher(path.toString()).matches();
+            if (matches) {
                 filteredPaths.add(path);
             }
         }
@@ -0,0 +1,97 @@
+package net.ssehub.kernel_haven.incremental.preparation.filter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import net.ssehub.kernel_haven.incremental.diff.analyzer.ArtifactClassifier;
+import net.ssehub.kernel_haven.incremental.diff.analyzer.ChangedSymbolExtractor;
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+import net.ssehub.kernel_haven.incremental.preparation.index.SymbolIndex;
+import net.ssehub.kernel_haven.util.Logger;
+
+/**
+ * An {@link InputFilter} that includes changed files like the
+ * {@link ChangeFilter} and additionally all code and build files that
+ * reference a configuration option whose definition is changed in a Kconfig
+ * file according to the {@link SymbolIndex}. If the changed options can not be
+ * determined for a Kconfig file, all files referencing any option are
+ * included.
+ *
+ * Used as filter for the build model, a change of the variability model only
+ * causes the extraction of the build model if a build file references a
+ * changed option.
+ *
+ * The index registered for the source directory by the preparation is used.
+ * If no index is registered, the index is built for this filter alone.
+ *
+ * @author moritz
+ */
+public class KconfigSymbolImpactFilter extends InputFilter {
+
+    /** The Constant LOGGER. */
+    private static final Logger LOGGER = Logger.get();
+
+    /**
+     * Instantiates a new Kconfig symbol impact filter.
+     *
+     * @param sourceDirectory  the source directory
+     * @param diffFile         the diff file
+     * @param fileRegex        the regular expressions for files to include
+     * @param includeDeletions defines whether or not to include deletions
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public KconfigSymbolImpactFilter(File sourceDirectory, DiffFile diffFile, Pattern fileRegex,
+            boolean includeDeletions) throws IOException {
+        super(sourceDirectory, diffFile, fileRegex, includeDeletions);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see net.ssehub.kernel_haven.incremental.preparation.filter.InputFilter#
+     * doFilter( java.io.File, net.ssehub.kernel_haven.incremental.diff.DiffFile,
+     * java.util.regex.Pattern, boolean)
+     */
+    @Override
+    protected Collection<Path> doFilter(File sourceDirectory, DiffFile diffFile, Pattern fileRegex,
+            boolean includeDeletions) throws IOException {
+        SymbolIndex index = SymbolIndex.getRegistered(sourceDirectory);
+        if (index == null) {
+            index = new SymbolIndex(sourceDirectory, null);
+            index.rebuild();
+        }
+
+        Set<Path> paths = new LinkedHashSet<>();
+        Set<String> changedSymbols = new TreeSet<>();
+        for (FileEntry entry : diffFile.getEntries()) {
+            if (includeDeletions || !entry.getType().equals(FileEntry.FileChange.DELETION)) {
+                paths.add(entry.getPath());
+            }
+            if (changedSymbols != null
+                    && ArtifactClassifier.classify(entry.getPath()) == ArtifactClassifier.Category.VARIABILITY_MODEL) {
+                Set<String> entrySymbols = ChangedSymbolExtractor.extract(entry);
+                if (entrySymbols != null) {
+                    changedSymbols.addAll(entrySymbols);
+                } else {
+                    LOGGER.logInfo("Changed configuration options of " + entry.getPath() + " are unknown.");
+                    changedSymbols = null;
+                }
+            }
+        }
+
+        if (changedSymbols != null) {
+            paths.addAll(index.getReferencingFiles(changedSymbols));
+        } else {
+            paths.addAll(index.getReferencingFiles());
+        }
+        return filterPathsByRegex(paths, fileRegex);
+    }
+
+}
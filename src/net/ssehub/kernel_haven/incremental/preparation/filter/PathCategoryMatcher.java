@@ -0,0 +1,759 @@
+package net.ssehub.kernel_haven.incremental.preparation.filter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
+/**
+ * Matches paths against several regular expressions at once. Each path is
+ * matched by a single deterministic automaton that is built lazily from all
+ * regular expressions and reports every matching regular expression in one
+ * linear pass over the path. The results are memoized per path for the
+ * lifetime of the matcher.
+ *
+ * The automaton supports the constructs commonly used for file paths: literals,
+ * escapes, character classes, the dot, groups, alternations and the
+ * quantifiers {@code *}, {@code +} and {@code ?}. Regular expressions using
+ * other constructs or flags and paths containing supplementary characters are
+ * matched with {@link java.util.regex.Matcher#matches()} instead.
+ *
+ * @author moritz
+ */
+public final class PathCategoryMatcher {
+
+    /** The maximum number of regular expressions as results are reported as bit mask. */
+    public static final int MAX_PATTERNS = Integer.SIZE;
+
+    /** The number of characters for which transitions are stored in arrays. */
+    private static final int ASCII = 128;
+
+    /** The matchers registered for the current execution by their source directory. */
+    private static final Map<File, PathCategoryMatcher> REGISTERED = new ConcurrentHashMap<>();
+
+    /** The regular expressions. */
+    private final List<Pattern> patterns;
+
+    /** The regular expressions that are not part of the automaton as bit mask. */
+    private final int fallbackMask;
+
+    /** The nodes of the nondeterministic automaton by their id. */
+    private final List<Node> nodes = new ArrayList<>();
+
+    /** The states of the deterministic automaton by the nodes they consist of. */
+    private final Map<BitSet, State> states = new ConcurrentHashMap<>();
+
+    /** The start state of the deterministic automaton. */
+    private final State start;
+
+    /** The memoized results by path. */
+    private final Map<String, Integer> results = new ConcurrentHashMap<>();
+
+    /**
+     * A node of the nondeterministic automaton.
+     */
+    private static final class Node {
+
+        /** The id of the node. */
+        private final int id;
+
+        /** The nodes reachable without consuming a character. */
+        private final List<Node> epsilon = new ArrayList<>(2);
+
+        /** The characters leading to {@link #next}, null if the node has no such transition. */
+        private CharSet chars;
+
+        /** The node reached by consuming a character of {@link #chars}. */
+        private Node next;
+
+        /** The regular expressions accepting in this node as bit mask. */
+        private int acceptMask;
+
+        /**
+         * Instantiates a new {@link Node}.
+         *
+         * @param id the id
+         */
+        private Node(int id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * A part of the nondeterministic automaton with a single start and end node.
+     */
+    private static final class Fragment {
+
+        /** The start node. */
+        private final Node start;
+
+        /** The end node. */
+        private final Node end;
+
+        /**
+         * Instantiates a new {@link Fragment}.
+         *
+         * @param start the start node
+         * @param end   the end node
+         */
+        private Fragment(Node start, Node end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * A state of the deterministic automaton. Transitions are computed on first
+     * use.
+     */
+    private static final class State {
+
+        /** The nodes of the nondeterministic automaton this state consists of. */
+        private final BitSet nodes;
+
+        /** The regular expressions accepting in this state as bit mask. */
+        private final int acceptMask;
+
+        /** The transitions for ASCII characters. */
+        private final AtomicReferenceArray<State> asciiTransitions = new AtomicReferenceArray<>(ASCII);
+
+        /** The transitions for all other characters. */
+        private final Map<Character, State> otherTransitions = new ConcurrentHashMap<>();
+
+        /**
+         * Instantiates a new {@link State}.
+         *
+         * @param nodes      the nodes
+         * @param acceptMask the regular expressions accepting in this state
+         */
+        private State(BitSet nodes, int acceptMask) {
+            this.nodes = nodes;
+            this.acceptMask = acceptMask;
+        }
+    }
+
+    /**
+     * Set of characters described by sorted and disjoint ranges.
+     */
+    private static final class CharSet {
+
+        /** The inclusive bounds of the ranges, two entries per range. */
+        private final int[] ranges;
+
+        /**
+         * Instantiates a new {@link CharSet}.
+         *
+         * @param ranges the sorted and disjoint ranges
+         */
+        private CharSet(int[] ranges) {
+            this.ranges = ranges;
+        }
+
+        /**
+         * Creates a set of a single range.
+         *
+         * @param from the first character
+         * @param to   the last character
+         * @return the set
+         */
+        private static CharSet range(int from, int to) {
+            return new CharSet(new int[] {from, to});
+        }
+
+        /**
+         * Creates the union of this and another set.
+         *
+         * @param other the other set
+         * @return the union
+         */
+        private CharSet union(CharSet other) {
+            List<int[]> all = new ArrayList<>();
+            for (int i = 0; i < ranges.length; i += 2) {
+                all.add(new int[] {ranges[i], ranges[i + 1]});
+            }
+            for (int i = 0; i < other.ranges.length; i += 2) {
+                all.add(new int[] {other.ranges[i], other.ranges[i + 1]});
+            }
+            all.sort((a, b) -> Integer.compare(a[0], b[0]));
+            List<int[]> merged = new ArrayList<>();
+            for (int[] range : all) {
+                int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+                if (last != null && range[0] <= last[1] + 1) {
+                    last[1] = Math.max(last[1], range[1]);
+                } else {
+                    merged.add(range);
+                }
+            }
+            int[] result = new int[merged.size() * 2];
+            for (int i = 0; i < merged.size(); i++) {
+                result[2 * i] = merged.get(i)[0];
+                result[2 * i + 1] = merged.get(i)[1];
+            }
+            return new CharSet(result);
+        }
+
+        /**
+         * Creates the complement of this set within all characters.
+         *
+         * @return the complement
+         */
+        private CharSet complement() {
+            List<Integer> result = new ArrayList<>();
+            int from = Character.MIN_VALUE;
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (ranges[i] > from) {
+                    result.add(from);
+                    result.add(ranges[i] - 1);
+                }
+                from = ranges[i + 1] + 1;
+            }
+            if (from <= Character.MAX_VALUE) {
+                result.add(from);
+                result.add((int) Character.MAX_VALUE);
+            }
+            return new CharSet(result.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        /**
+         * Checks whether the set contains a character.
+         *
+         * @param character the character
+         * @return true, if the character is contained
+         */
+        private boolean contains(char character) {
+            boolean contained = false;
+            for (int i = 0; !contained && i < ranges.length && ranges[i] <= character; i += 2) {
+                contained = character <= ranges[i + 1];
+            }
+            return contained;
+        }
+    }
+
+    /**
+     * Signals that a regular expression uses constructs not supported by the
+     * automaton.
+     */
+    private static final class UnsupportedPatternException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Instantiates a new {@link PathCategoryMatcher}.
+     *
+     * @param patterns the regular expressions, at most {@link #MAX_PATTERNS}
+     */
+    public PathCategoryMatcher(List<Pattern> patterns) {
+        if (patterns.size() > MAX_PATTERNS) {
+            throw new IllegalArgumentException("At most " + MAX_PATTERNS + " regular expressions are supported");
+        }
+        this.patterns = new ArrayList<>(patterns);
+        Node root = newNode();
+        int unsupported = 0;
+        for (int i = 0; i < patterns.size(); i++) {
+            Pattern pattern = patterns.get(i);
+            try {
+                if (pattern.flags() != 0) {
+                    throw new UnsupportedPatternException();
+                }
+                Fragment fragment = new Parser(pattern.pattern()).parse();
+                fragment.end.acceptMask |= 1 << i;
+                root.epsilon.add(fragment.start);
+            } catch (UnsupportedPatternException exc) {
+                // The nodes created for the pattern are not reachable from the root
+                unsupported |= 1 << i;
+            }
+        }
+        this.fallbackMask = unsupported;
+        BitSet startNodes = new BitSet();
+        addClosure(root, startNodes);
+        this.start = getState(startNodes);
+    }
+
+    /**
+     * Matches a path against all regular expressions.
+     *
+     * @param path the path
+     * @return the matching regular expressions as bit mask, bit i is set if
+     *         the regular expression at index i matches
+     */
+    public int match(String path) {
+        return results.computeIfAbsent(path, this::evaluate);
+    }
+
+    /**
+     * Checks whether a path matches a single regular expression.
+     *
+     * @param path  the path
+     * @param index the index of the regular expression
+     * @return true, if the regular expression matches the entire path
+     */
+    public boolean matches(String path, int index) {
+        return (match(path) & (1 << index)) != 0;
+    }
+
+    /**
+     * Gets the index of a regular expression.
+     *
+     * @param regex the regular expression
+     * @return the index or -1 if the matcher does not contain the regular
+     *         expression
+     */
+    public int indexOf(Pattern regex) {
+        int index = -1;
+        for (int i = 0; index < 0 && i < patterns.size(); i++) {
+            if (patterns.get(i).pattern().equals(regex.pattern()) && patterns.get(i).flags() == regex.flags()) {
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Gets the number of paths whose results are memoized.
+     *
+     * @return the number of matched paths
+     */
+    int getMatchedPathCount() {
+        return results.size();
+    }
+
+    /**
+     * Registers the matcher for a source directory so that all filters of the
+     * current execution match the paths of the directory through it.
+     *
+     * @param sourceDirectory the source directory
+     */
+    public void register(File sourceDirectory) {
+        REGISTERED.put(sourceDirectory.getAbsoluteFile(), this);
+    }
+
+    /**
+     * Removes the matcher registered for a source directory.
+     *
+     * @param sourceDirectory the source directory
+     */
+    public static void unregister(File sourceDirectory) {
+        REGISTERED.remove(sourceDirectory.getAbsoluteFile());
+    }
+
+    /**
+     * Gets the matcher registered for a source directory.
+     *
+     * @param sourceDirectory the source directory
+     * @return the matcher or null if no matcher is registered for the directory
+     */
+    public static PathCategoryMatcher getRegistered(File sourceDirectory) {
+        return REGISTERED.get(sourceDirectory.getAbsoluteFile());
+    }
+
+    /**
+     * Matches a path against all regular expressions without memoization.
+     *
+     * @param path the path
+     * @return the matching regular expressions as bit mask
+     */
+    private int evaluate(String path) {
+        int mask = 0;
+        boolean supplementary = false;
+        State state = start;
+        for (int i = 0; !supplementary && !state.nodes.isEmpty() && i < path.length(); i++) {
+            char character = path.charAt(i);
+            // The automaton works on chars while regular expressions work on code points
+            supplementary = Character.isSurrogate(character);
+            state = step(state, character);
+        }
+        if (!supplementary) {
+            mask = state.nodes.isEmpty() ? 0 : state.acceptMask;
+        }
+        int regexMask = supplementary ? -1 : fallbackMask;
+        for (int i = 0; i < patterns.size(); i++) {
+            if ((regexMask & (1 << i)) != 0 && patterns.get(i).matcher(path).matches()) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Gets the state reached by consuming a character. Transitions are computed
+     * on first use and may be computed concurrently as equal states are shared.
+     *
+     * @param state     the state
+     * @param character the character
+     * @return the next state
+     */
+    private State step(State state, char character) {
+        State next = character < ASCII ? state.asciiTransitions.get(character)
+                : state.otherTransitions.get(character);
+        if (next == null) {
+            BitSet nextNodes = new BitSet();
+            for (int id = state.nodes.nextSetBit(0); id >= 0; id = state.nodes.nextSetBit(id + 1)) {
+                Node node = nodes.get(id);
+                if (node.chars != null && node.chars.contains(character)) {
+                    addClosure(node.next, nextNodes);
+                }
+            }
+            next = getState(nextNodes);
+            if (character < ASCII) {
+                state.asciiTransitions.set(character, next);
+            } else {
+                state.otherTransitions.put(character, next);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Gets the shared state for a set of nodes.
+     *
+     * @param stateNodes the nodes
+     * @return the state
+     */
+    private State getState(BitSet stateNodes) {
+        return states.computeIfAbsent(stateNodes, key -> {
+            int acceptMask = 0;
+            for (int id = key.nextSetBit(0); id >= 0; id = key.nextSetBit(id + 1)) {
+                acceptMask |= nodes.get(id).acceptMask;
+            }
+            return new State(key, acceptMask);
+        });
+    }
+
+    /**
+     * Adds a node and all nodes reachable from it without consuming a character.
+     *
+     * @param node       the node
+     * @param stateNodes the set to which the nodes are added
+     */
+    private void addClosure(Node node, BitSet stateNodes) {
+        if (!stateNodes.get(node.id)) {
+            stateNodes.set(node.id);
+            for (Node target : node.epsilon) {
+                addClosure(target, stateNodes);
+            }
+        }
+    }
+
+    /**
+     * Creates a new node of the nondeterministic automaton.
+     *
+     * @return the node
+     */
+    private Node newNode() {
+        Node node = new Node(nodes.size());
+        nodes.add(node);
+        return node;
+    }
+
+    /**
+     * Creates a fragment consuming a single character of a set.
+     *
+     * @param chars the set
+     * @return the fragment
+     */
+    private Fragment charFragment(CharSet chars) {
+        Node startNode = newNode();
+        Node endNode = newNode();
+        startNode.chars = chars;
+        startNode.next = endNode;
+        return new Fragment(startNode, endNode);
+    }
+
+    /**
+     * Recursive descent parser translating a regular expression into a fragment
+     * of the nondeterministic automaton.
+     */
+    private final class Parser {
+
+        /** The line terminators not matched by the dot. */
+        private final CharSet lineTerminators = CharSet.range('\n', '\n').union(CharSet.range('\r', '\r'))
+                .union(CharSet.range(0x85, 0x85)).union(CharSet.range(0x2028, 0x2029));
+
+        /** The regular expression. */
+        private final String regex;
+
+        /** The current position. */
+        private int pos;
+
+        /**
+         * Instantiates a new {@link Parser}.
+         *
+         * @param regex the regular expression
+         */
+        private Parser(String regex) {
+            this.regex = regex;
+        }
+
+        /**
+         * Parses the whole regular expression.
+         *
+         * @return the fragment
+         * @throws UnsupportedPatternException if unsupported constructs are used
+         */
+        private Fragment parse() throws UnsupportedPatternException {
+            if (regex.startsWith("^")) {
+                pos++;
+            }
+            Fragment fragment = parseAlternation();
+            if (pos < regex.length()) {
+                throw new UnsupportedPatternException();
+            }
+            return fragment;
+        }
+
+        /**
+         * Parses alternatives separated by {@code |}.
+         *
+         * @return the fragment
+         * @throws UnsupportedPatternException if unsupported constructs are used
+         */
+        private Fragment parseAlternation() throws UnsupportedPatternException {
+            Fragment fragment = parseConcatenation();
+            if (peek() == '|') {
+                Node startNode = newNode();
+                Node endNode = newNode();
+                startNode.epsilon.add(fragment.start);
+                fragment.end.epsilon.add(endNode);
+                while (peek() == '|') {
+                    pos++;
+                    Fragment alternative = parseConcatenation();
+                    startNode.epsilon.add(alternative.start);
+                    alternative.end.epsilon.add(endNode);
+                }
+                fragment = new Fragment(startNode, endNode);
+            }
+            return fragment;
+        }
+
+        /**
+         * Parses a sequence of quantified atoms.
+         *
+         * @return the fragment
+         * @throws UnsupportedPatternException if unsupported constructs are used
+         */
+        private Fragment parseConcatenation() throws UnsupportedPatternException {
+            Node startNode = newNode();
+            Node endNode = startNode;
+            while (pos < regex.length() && peek() != '|' && peek() != ')') {
+                if (peek() == '$' && pos == regex.length() - 1) {
+                    // An anchor at the end does not change the result of matching entire paths
+                    pos++;
+                } else {
+                    Fragment atom = parseQuantified();
+                    endNode.epsilon.add(atom.start);
+                    endNode = atom.end;
+                }
+            }
+            return new Fragment(startNode, endNode);
+        }
+
+        /**
+         * Parses an atom with an optional quantifier.
+         *
+         * @return the fragment
+         * @throws UnsupportedPatternException if unsupported constructs are used
+         */
+        private Fragment parseQuantified() throws UnsupportedPatternException {
+            Fragment atom = parseAtom();
+            char quantifier = peek();
+            Fragment fragment = atom;
+            if (quantifier == '*' || quantifier == '+' || quantifier == '?') {
+                pos++;
+                if (peek() == '?') {
+                    // Reluctant quantifiers accept the same entire inputs
+                    pos++;
+                } else if (peek() == '+' || peek() == '{') {
+                    throw new UnsupportedPatternException();
+                }
+                Node endNode = newNode();
+                atom.end.epsilon.add(endNode);
+                if (quantifier == '+') {
+                    atom.end.epsilon.add(atom.start);
+                    fragment = new Fragment(atom.start, endNode);
+                } else {
+                    Node startNode = newNode();
+                    startNode.epsilon.add(atom.start);
+                    startNode.epsilon.add(endNode);
+                    if (quantifier == '*') {
+                        atom.end.epsilon.add(atom.start);
+                    }
+                    fragment = new Fragment(startNode, endNode);
+                }
+            } else if (quantifier == '{') {
+                throw new UnsupportedPatternException();
+            }
+            return fragment;
+        }
+
+        /**
+         * Parses a single atom.
+         *
+         * @return the fragment
+         * @throws UnsupportedPatternException if unsupported constructs are used
+         */
+        private Fragment parseAtom() throws UnsupportedPatternException {
+            char character = regex.charAt(pos++);
+            Fragment fragment;
+            if (character == '(') {
+                if (peek() == '?') {
+                    if (pos + 1 < regex.length() && regex.charAt(pos + 1) == ':') {
+                        pos += 2;
+                    } else {
+                        throw new UnsupportedPatternException();
+                    }
+                }
+                fragment = parseAlternation();
+                if (peek() != ')') {
+                    throw new UnsupportedPatternException();
+                }
+                pos++;
+            } else if (character == '[') {
+                fragment = charFragment(parseClass());
+            } else if (character == '.') {
+                fragment = charFragment(lineTerminators.complement());
+            } else if (character == '\\') {
+                fragment = charFragment(parseEscape());
+            } else if ("^$*+?{)|".indexOf(character) >= 0 || Character.isSurrogate(character)) {
+                throw new UnsupportedPatternException();
+            } else {
+                fragment = charFragment(CharSet.range(character, character));
+            }
+            return fragment;
+        }
+
+        /**
+         * Parses a character class after the opening bracket.
+         *
+         * @return the characters of the class
+         * @throws UnsupportedPatternException if unsupported constructs are used
+         */
+        private CharSet parseClass() throws UnsupportedPatternException {
+            boolean negated = peek() == '^';
+            if (negated) {
+                pos++;
+            }
+            if (peek() == ']') {
+                throw new UnsupportedPatternException();
+            }
+            CharSet chars = new CharSet(new int[0]);
+            while (peek() != ']') {
+                if (pos >= regex.length() || peek() == '[' || regex.startsWith("&&", pos)) {
+                    throw new UnsupportedPatternException();
+                }
+                CharSet item = parseClassCharacter();
+                if (peek() == '-' && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                    pos++;
+                    CharSet to = parseClassCharacter();
+                    if (!isSingle(item) || !isSingle(to) || item.ranges[0] > to.ranges[0]) {
+                        throw new UnsupportedPatternException();
+                    }
+                    item = CharSet.range(item.ranges[0], to.ranges[0]);
+                }
+                chars = chars.union(item);
+            }
+            pos++;
+            return negated ? chars.complement() : chars;
+        }
+
+        /**
+         * Parses a single character or escape within a character class.
+         *
+         * @return the characters
+         * @throws UnsupportedPatternException if unsupported constructs are used
+         */
+        private CharSet parseClassCharacter() throws UnsupportedPatternException {
+            char character = regex.charAt(pos++);
+            CharSet chars;
+            if (character == '\\') {
+                chars = parseEscape();
+            } else if (Character.isSurrogate(character)) {
+                throw new UnsupportedPatternException();
+            } else {
+                chars = CharSet.range(character, character);
+            }
+            return chars;
+        }
+
+        /**
+         * Parses an escape after the backslash.
+         *
+         * @return the characters
+         * @throws UnsupportedPatternException if unsupported constructs are used
+         */
+        private CharSet parseEscape() throws UnsupportedPatternException {
+            if (pos >= regex.length()) {
+                throw new UnsupportedPatternException();
+            }
+            char character = regex.charAt(pos++);
+            CharSet digits = CharSet.range('0', '9');
+            CharSet word = digits.union(CharSet.range('a', 'z')).union(CharSet.range('A', 'Z'))
+                    .union(CharSet.range('_', '_'));
+            CharSet space = CharSet.range('\t', '\r').union(CharSet.range(' ', ' '));
+            CharSet chars;
+            switch (character) {
+            case 'd':
+                chars = digits;
+                break;
+            case 'D':
+                chars = digits.complement();
+                break;
+            case 'w':
+                chars = word;
+                break;
+            case 'W':
+                chars = word.complement();
+                break;
+            case 's':
+                chars = space;
+                break;
+            case 'S':
+                chars = space.complement();
+                break;
+            case 't':
+                chars = CharSet.range('\t', '\t');
+                break;
+            case 'n':
+                chars = CharSet.range('\n', '\n');
+                break;
+            case 'r':
+                chars = CharSet.range('\r', '\r');
+                break;
+            case 'f':
+                chars = CharSet.range('\f', '\f');
+                break;
+            default:
+                if (Character.isLetterOrDigit(character) || Character.isSurrogate(character)) {
+                    throw new UnsupportedPatternException();
+                }
+                chars = CharSet.range(character, character);
+                break;
+            }
+            return chars;
+        }
+
+        /**
+         * Checks whether a set consists of a single character.
+         *
+         * @param chars the set
+         * @return true, if the set consists of a single character
+         */
+        private boolean isSingle(CharSet chars) {
+            return chars.ranges.length == 2 && chars.ranges[0] == chars.ranges[1];
+        }
+
+        /**
+         * Gets the character at the current position.
+         *
+         * @return the character or 0 at the end of the regular expression
+         */
+        private char peek() {
+            return pos < regex.length() ? regex.charAt(pos) : 0;
+        }
+    }
+
+}
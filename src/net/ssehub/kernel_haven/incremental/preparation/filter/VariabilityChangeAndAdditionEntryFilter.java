@@ -0,0 +1,30 @@
+package net.ssehub.kernel_haven.incremental.preparation.filter;
+
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+
+/**
+ * {@link EntryFilter} of the {@link VariabilityChangeAndAdditionFilter}
+ * including added files and files with variability changes.
+ *
+ * @author moritz
+ */
+public class VariabilityChangeAndAdditionEntryFilter implements EntryFilter {
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see net.ssehub.kernel_haven.incremental.preparation.filter.EntryFilter#
+     * includes(net.ssehub.kernel_haven.incremental.diff.parser.FileEntry, boolean)
+     */
+    @Override
+    public boolean includes(FileEntry entry, boolean includeDeletions) {
+        boolean included = false;
+        if (entry.getType().equals(FileEntry.FileChange.ADDITION)) {
+            included = true;
+        } else if (includeDeletions || entry.getType().equals(FileEntry.FileChange.MODIFICATION)) {
+            included = VariabilityChangeEntryFilter.hasVariabilityChange(entry);
+        }
+        return included;
+    }
+
+}
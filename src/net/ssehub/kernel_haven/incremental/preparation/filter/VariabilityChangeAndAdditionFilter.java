@@ -3,14 +3,10 @@ package net.ssehub.kernel_haven.incremental.preparation.filter;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.regex.Pattern;
 
-import net.ssehub.kernel_haven.incremental.diff.analyzer.VariabilityChangeAnalyzer;
 import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
-import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
-import net.ssehub.kernel_haven.util.Logger;
 
 /**
  * This is an {@link InputFilter} that can be used to generate a collection
@@ -20,8 +16,8 @@ import net.ssehub.kernel_haven.util.Logger;
  */
 public class VariabilityChangeAndAdditionFilter extends InputFilter {
 
-    /** The Constant LOGGER. */
-    private static final Logger LOGGER = Logger.get();
+    /** The criterion deciding about each entry of the diff file. */
+    public static final EntryFilter ENTRY_FILTER = new VariabilityChangeAndAdditionEntryFilter();
 
     /**
      * Instantiates a new variability change filter.
@@ -47,30 +43,7 @@ public class VariabilityChangeAndAdditionFilter extends InputFilter {
     @Override
     protected Collection<Path> doFilter(File sourceDirectory, DiffFile diffFile, Pattern fileRegex,
             boolean includeDeletions) throws IOException {
-        Collection<Path> paths = new ArrayList<>();
-        for (FileEntry entry : diffFile.getEntries()) {
-            if (entry.getType().equals(FileEntry.FileChange.ADDITION)) {
-                paths.add(entry.getPath());
-            } else if (includeDeletions || entry.getType().equals(FileEntry.FileChange.MODIFICATION)) {
-                
-                // include entries marked as change
-                if (entry.getVariabilityChange().equals(FileEntry.VariabilityChange.CHANGE)) {
-                    paths.add(entry.getPath());
-                    // as a fallback for entries that were not analyzed also
-                    // include those.
-                } else if (entry.getVariabilityChange().equals(FileEntry.VariabilityChange.NOT_ANALYZED)) {
-                    // This should only happen when the diff-file was analyzed
-                    // incorrectly or an
-                    // analyzer was used
-                    // that did not analyze for variability
-                    LOGGER.logError("The following FileEntry was not analyzed for variability-changes.\nPerhaps the "
-                            + VariabilityChangeAnalyzer.class.getSimpleName() + " you used does not analyze for "
-                            + "variability-changes.\nFallback: " + "including file for extraction.\n" + entry);
-                    paths.add(entry.getPath());
-                }
-            }
-        }
-        return filterPathsByRegex(paths, fileRegex);
+        return filterPathsByRegex(ENTRY_FILTER.filterEntries(diffFile, includeDeletions), fileRegex);
     }
 
 }
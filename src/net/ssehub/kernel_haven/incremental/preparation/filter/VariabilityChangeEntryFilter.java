@@ -0,0 +1,63 @@
+package net.ssehub.kernel_haven.incremental.preparation.filter;
+
+import net.ssehub.kernel_haven.incremental.diff.analyzer.VariabilityChangeAnalyzer;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+import net.ssehub.kernel_haven.util.Logger;
+
+/**
+ * {@link EntryFilter} of the {@link VariabilityChangeFilter} including files
+ * with variability changes. Files that were not analyzed for variability
+ * changes are included as a fallback.
+ *
+ * @author moritz
+ */
+public class VariabilityChangeEntryFilter implements EntryFilter {
+
+    /** The Constant LOGGER. */
+    private static final Logger LOGGER = Logger.get();
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see net.ssehub.kernel_haven.incremental.preparation.filter.EntryFilter#
+     * includes(net.ssehub.kernel_haven.incremental.diff.parser.FileEntry, boolean)
+     */
+    @Override
+    public boolean includes(FileEntry entry, boolean includeDeletions) {
+        boolean included = false;
+        if (includeDeletions || entry.getType().equals(FileEntry.FileChange.ADDITION)
+                || entry.getType().equals(FileEntry.FileChange.MODIFICATION)) {
+            included = hasVariabilityChange(entry);
+        }
+        return included;
+    }
+
+    /**
+     * Checks whether an entry is marked as variability change. Entries that were
+     * not analyzed are considered as changed.
+     *
+     * @param entry the entry
+     * @return true, if the entry is marked as variability change or was not
+     *         analyzed
+     */
+    static boolean hasVariabilityChange(FileEntry entry) {
+        boolean changed = false;
+        // include entries marked as change
+        if (entry.getVariabilityChange().equals(FileEntry.VariabilityChange.CHANGE)) {
+            changed = true;
+            // as a fallback for entries that were not analyzed also
+            // include those.
+        } else if (entry.getVariabilityChange().equals(FileEntry.VariabilityChange.NOT_ANALYZED)) {
+            // This should only happen when the diff-file was analyzed
+            // incorrectly or an
+            // analyzer was used
+            // that did not analyze for variability
+            LOGGER.logError("The following FileEntry was not analyzed for variability-changes.\nPerhaps the "
+                    + VariabilityChangeAnalyzer.class.getSimpleName() + " you used does not analyze for "
+                    + "variability-changes.\nFallback: " + "including file for extraction.\n" + entry);
+            changed = true;
+        }
+        return changed;
+    }
+
+}
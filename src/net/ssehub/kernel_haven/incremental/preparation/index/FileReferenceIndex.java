@@ -0,0 +1,238 @@
+package net.ssehub.kernel_haven.incremental.preparation.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+import net.ssehub.kernel_haven.util.Logger;
+
+/**
+ * Base class for indices of references found in the files of a source tree,
+ * e.g. include directives or configuration options. The index maps each file to
+ * its references and each key of a reference to the files containing such a
+ * reference. Only the files changed by a {@link DiffFile} are parsed again
+ * when the index is updated.
+ *
+ * @author moritz
+ */
+public abstract class FileReferenceIndex extends PersistentIndex {
+
+    /** The Constant LOGGER. */
+    private static final Logger LOGGER = Logger.get();
+
+    /** The separator between the file and its references in the index file. */
+    private static final char SEPARATOR = '\t';
+
+    /** The references of each file containing at least one reference. */
+    private final Map<Path, List<String>> references = new TreeMap<>();
+
+    /** The files containing a reference by the key of the reference. */
+    private final Map<String, Set<Path>> filesByKey = new HashMap<>();
+
+    /**
+     * Instantiates a new {@link FileReferenceIndex}. The index is empty until it
+     * is either loaded or rebuilt.
+     *
+     * @param sourceDirectory the source directory
+     * @param indexFile       the index file
+     */
+    protected FileReferenceIndex(File sourceDirectory, File indexFile) {
+        super(sourceDirectory, indexFile);
+    }
+
+    /**
+     * Checks whether a file is parsed for references.
+     *
+     * @param file the relative path of the file
+     * @return true, if the file is parsed
+     */
+    protected abstract boolean isIndexed(Path file);
+
+    /**
+     * Parses the references of a file. References must not contain tabs or line
+     * breaks.
+     *
+     * @param content the content of the file
+     * @return the references
+     */
+    protected abstract List<String> parseReferences(String content);
+
+    /**
+     * Gets the key under which files containing a reference are found.
+     *
+     * @param reference the reference
+     * @return the key
+     */
+    protected abstract String getKey(String reference);
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see net.ssehub.kernel_haven.incremental.preparation.index.PersistentIndex#read(java.util.List)
+     */
+    @Override
+    protected void read(List<String> lines) throws IOException {
+        clear();
+        try {
+            for (String line : lines) {
+                String[] parts = line.split(String.valueOf(SEPARATOR));
+                if (parts.length > 1) {
+                    List<String> fileReferences = new ArrayList<>(parts.length - 1);
+                    for (int i = 1; i < parts.length; i++) {
+                        fileReferences.add(parts[i]);
+                    }
+                    setReferences(Paths.get(parts[0]), fileReferences);
+                }
+            }
+        } catch (InvalidPathException exc) {
+            throw new IOException(exc);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see net.ssehub.kernel_haven.incremental.preparation.index.PersistentIndex#write(java.lang.StringBuilder)
+     */
+    @Override
+    protected void write(StringBuilder content) {
+        for (Map.Entry<Path, List<String>> entry : references.entrySet()) {
+            content.append(entry.getKey().toString());
+            for (String reference : entry.getValue()) {
+                content.append(SEPARATOR).append(reference);
+            }
+            content.append('\n');
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see net.ssehub.kernel_haven.incremental.preparation.index.PersistentIndex#clear()
+     */
+    @Override
+    protected void clear() {
+        references.clear();
+        filesByKey.clear();
+    }
+
+    /**
+     * Rebuilds the index by parsing all indexed files of the source directory.
+     */
+    @Override
+    public void rebuild() {
+        clear();
+        for (Path file : SourceTreeIndex.listFiles(getSourceDirectory())) {
+            parse(file);
+        }
+    }
+
+    /**
+     * Parses the files added or modified by a diff file again and removes
+     * deleted files from the index.
+     *
+     * @param diffFile the diff file
+     * @return always true as the changes can always be applied
+     */
+    @Override
+    public boolean apply(DiffFile diffFile) {
+        for (FileEntry entry : diffFile.getEntries()) {
+            setReferences(entry.getPath(), null);
+            if (entry.getType() != FileEntry.FileChange.DELETION) {
+                parse(entry.getPath());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the references of a file.
+     *
+     * @param file the file
+     * @return the unmodifiable references, empty if the file does not contain
+     *         references
+     */
+    protected List<String> getReferences(Path file) {
+        List<String> fileReferences = references.get(file);
+        return fileReferences == null ? Collections.emptyList() : Collections.unmodifiableList(fileReferences);
+    }
+
+    /**
+     * Gets the files containing a reference with a given key.
+     *
+     * @param key the key
+     * @return the unmodifiable files, empty if no file contains such a reference
+     */
+    protected Set<Path> getFiles(String key) {
+        Set<Path> files = filesByKey.get(key);
+        return files == null ? Collections.emptySet() : Collections.unmodifiableSet(files);
+    }
+
+    /**
+     * Gets all files containing at least one reference.
+     *
+     * @return the unmodifiable files
+     */
+    public Set<Path> getReferencingFiles() {
+        return Collections.unmodifiableSet(references.keySet());
+    }
+
+    /**
+     * Parses the references of an indexed file.
+     *
+     * @param file the relative path of the file
+     */
+    private void parse(Path file) {
+        if (isIndexed(file)) {
+            try {
+                // References only consist of ASCII characters
+                String content = new String(Files.readAllBytes(getSourceDirectory().toPath().resolve(file)),
+                        StandardCharsets.ISO_8859_1);
+                List<String> fileReferences = parseReferences(content);
+                setReferences(file, fileReferences.isEmpty() ? null : fileReferences);
+            } catch (IOException exc) {
+                LOGGER.logException("Could not parse references of " + file, exc);
+            }
+        }
+    }
+
+    /**
+     * Replaces the references of a file.
+     *
+     * @param file           the file
+     * @param fileReferences the references, null to remove the file from the
+     *                       index
+     */
+    private void setReferences(Path file, List<String> fileReferences) {
+        List<String> previous =
+                fileReferences == null ? references.remove(file) : references.put(file, fileReferences);
+        if (previous != null) {
+            for (String reference : previous) {
+                Set<Path> files = filesByKey.get(getKey(reference));
+                if (files != null) {
+                    files.remove(file);
+                }
+            }
+        }
+        if (fileReferences != null) {
+            for (String reference : fileReferences) {
+                filesByKey.computeIfAbsent(getKey(reference), key -> new HashSet<>()).add(file);
+            }
+        }
+    }
+
+}
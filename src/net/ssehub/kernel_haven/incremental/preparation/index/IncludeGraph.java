@@ -0,0 +1,189 @@
+package net.ssehub.kernel_haven.incremental.preparation.index;
+
+import java.io.File;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.ssehub.kernel_haven.incremental.diff.analyzer.ArtifactClassifier;
+import net.ssehub.kernel_haven.util.Logger;
+
+/**
+ * Graph of the <code>#include</code> directives of all code files within a
+ * source tree. The references of a file are its includes including their
+ * opening delimiter, e.g. <code>&lt;linux/types.h</code>.
+ *
+ * Include directives are resolved conservatively as the include paths of the
+ * compiler are unknown. A quoted include resolves to the file relative to the
+ * including file and, like an include with angle brackets, to every file whose
+ * path ends with the included path. <code>#include_next</code> directives are
+ * resolved like <code>#include</code> directives. Computed includes, e.g.
+ * <code>#include MACRO</code>, can not be resolved without preprocessing and are
+ * therefore treated as including every file.
+ *
+ * @author moritz
+ */
+public class IncludeGraph extends FileReferenceIndex {
+
+    /** The default maximum number of dependent files determined for a change. */
+    public static final int DEFAULT_MAX_EXPANSION = 10000;
+
+    /** The Constant LOGGER. */
+    private static final Logger LOGGER = Logger.get();
+
+    /** The pattern for include directives with a quoted path, a path in angle brackets or a macro. */
+    private static final Pattern INCLUDE_PATTERN = Pattern.compile(
+            "^[ \\t]*#[ \\t]*include(?:_next)?(?:[ \\t]*([<\"])([^>\"\\n]+)[>\"]|[ \\t]+([A-Za-z_]\\w*))",
+            Pattern.MULTILINE);
+
+    /** The opening delimiter of computed includes, which is followed by the name of the macro. */
+    private static final char COMPUTED_INCLUDE = '*';
+
+    /** The key of computed includes. */
+    private static final String COMPUTED_INCLUDE_KEY = String.valueOf(COMPUTED_INCLUDE);
+
+    /** The maximum number of dependent files determined for a change. */
+    private int maxExpansion = DEFAULT_MAX_EXPANSION;
+
+    /**
+     * Instantiates a new {@link IncludeGraph}. The graph is empty until it is
+     * either loaded or rebuilt.
+     *
+     * @param sourceDirectory the source directory
+     * @param indexFile       the index file
+     */
+    public IncludeGraph(File sourceDirectory, File indexFile) {
+        super(sourceDirectory, indexFile);
+    }
+
+    /**
+     * Sets the maximum number of dependent files determined by
+     * {@link #getDependents(Collection)}.
+     *
+     * @param maxExpansion the maximum number of dependent files
+     */
+    public void setMaxExpansion(int maxExpansion) {
+        this.maxExpansion = maxExpansion;
+    }
+
+    /**
+     * Determines all files that directly or transitively include one of the
+     * given files.
+     *
+     * @param files the files
+     * @return the dependent files not contained in files or null if there are
+     *         more dependent files than the maximum expansion
+     */
+    public Set<Path> getDependents(Collection<Path> files) {
+        Set<Path> visited = new HashSet<>(files);
+        Set<Path> dependents = new LinkedHashSet<>();
+        Deque<Path> queue = new ArrayDeque<>(files);
+        while (dependents != null && !queue.isEmpty()) {
+            Path file = queue.poll();
+            Path fileName = file.getFileName();
+            Set<Path> includers = new HashSet<>(getFiles(COMPUTED_INCLUDE_KEY));
+            if (fileName != null) {
+                includers.addAll(getFiles(fileName.toString()));
+            }
+            for (Path includer : includers) {
+                if (dependents != null && !visited.contains(includer) && includes(includer, file)) {
+                    visited.add(includer);
+                    dependents.add(includer);
+                    queue.add(includer);
+                    if (dependents.size() > maxExpansion) {
+                        LOGGER.logWarning("More than " + maxExpansion + " files depend on the changed files.");
+                        dependents = null;
+                    }
+                }
+            }
+        }
+        return dependents;
+    }
+
+    /**
+     * Checks whether one of the include directives of a file resolves to
+     * another file.
+     *
+     * @param includer the including file
+     * @param file     the possibly included file
+     * @return true, if an include directive resolves to file
+     */
+    private boolean includes(Path includer, Path file) {
+        boolean resolves = false;
+        for (String include : getReferences(includer)) {
+            String includedPath = include.substring(1);
+            resolves = resolves || include.charAt(0) == COMPUTED_INCLUDE;
+            try {
+                Path parent = includer.getParent();
+                resolves = resolves || file.endsWith(Paths.get(includedPath))
+                        || include.charAt(0) == '"' && (parent == null ? Paths.get(includedPath)
+                                : parent.resolve(includedPath)).normalize().equals(file);
+            } catch (InvalidPathException exc) {
+                // Such a file can not exist within the source tree
+            }
+        }
+        return resolves;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see net.ssehub.kernel_haven.incremental.preparation.index.FileReferenceIndex#isIndexed(java.nio.file.Path)
+     */
+    @Override
+    protected boolean isIndexed(Path file) {
+        return ArtifactClassifier.classify(file) == ArtifactClassifier.Category.CODE;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see net.ssehub.kernel_haven.incremental.preparation.index.FileReferenceIndex#parseReferences(java.lang.String)
+     */
+    @Override
+    protected List<String> parseReferences(String content) {
+        List<String> fileIncludes = new ArrayList<>();
+        Matcher matcher = INCLUDE_PATTERN.matcher(content);
+        while (matcher.find()) {
+            if (matcher.group(1) != null) {
+                fileIncludes.add(matcher.group(1) + matcher.group(2).trim());
+            } else {
+                fileIncludes.add(COMPUTED_INCLUDE + matcher.group(3));
+            }
+        }
+        return fileIncludes;
+    }
+
+    /**
+     * Gets the name of the file referenced by an include.
+     *
+     * @param include the include including its opening delimiter
+     * @return the file name or the key of all computed includes
+     */
+    @Override
+    protected String getKey(String include) {
+        return include.charAt(0) == COMPUTED_INCLUDE ? COMPUTED_INCLUDE_KEY
+                : include.substring(Math.max(include.lastIndexOf('/'), 0) + 1);
+    }
+
+    /**
+     * Gets the graph registered for a source directory.
+     *
+     * @param sourceDirectory the source directory
+     * @return the graph or null if no graph is registered for the directory
+     */
+    public static IncludeGraph getRegistered(File sourceDirectory) {
+        return getRegistered(IncludeGraph.class, sourceDirectory);
+    }
+
+}
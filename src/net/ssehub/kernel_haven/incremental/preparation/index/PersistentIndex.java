@@ -0,0 +1,210 @@
+package net.ssehub.kernel_haven.incremental.preparation.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.ssehub.kernel_haven.incremental.diff.applier.FileContentWriter;
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
+import net.ssehub.kernel_haven.util.Logger;
+
+/**
+ * Base class for information about a source tree that is stored in an index
+ * file and kept up to date by applying the changes described by a
+ * {@link DiffFile} so that the source tree only needs to be scanned if no
+ * valid index exists.
+ *
+ * The index used for the current execution is registered for its source
+ * directory so that all filters of one run share the same index.
+ *
+ * @author moritz
+ */
+public abstract class PersistentIndex {
+
+    /** The Constant LOGGER. */
+    private static final Logger LOGGER = Logger.get();
+
+    /** The indices registered for the current execution by their type and source directory. */
+    private static final Map<Class<?>, Map<File, PersistentIndex>> REGISTERED = new ConcurrentHashMap<>();
+
+    /** The source directory. */
+    private final File sourceDirectory;
+
+    /** The index file. */
+    private final File indexFile;
+
+    /**
+     * Instantiates a new {@link PersistentIndex}. The index is empty until it is
+     * either loaded or rebuilt.
+     *
+     * @param sourceDirectory the source directory
+     * @param indexFile       the index file
+     */
+    protected PersistentIndex(File sourceDirectory, File indexFile) {
+        this.sourceDirectory = sourceDirectory;
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Clears the index and reads it from the lines of the index file.
+     *
+     * @param lines the lines
+     * @throws IOException if the lines do not describe a valid index
+     */
+    protected abstract void read(List<String> lines) throws IOException;
+
+    /**
+     * Writes the index in the format expected by {@link #read(List)}.
+     *
+     * @param content the content to which the index is appended
+     */
+    protected abstract void write(StringBuilder content);
+
+    /**
+     * Clears the index.
+     */
+    protected abstract void clear();
+
+    /**
+     * Rebuilds the index by scanning the source directory.
+     */
+    public abstract void rebuild();
+
+    /**
+     * Applies the changes described by a diff file that was merged into the
+     * source directory.
+     *
+     * @param diffFile the diff file
+     * @return true, if the changes were applied and the index did not need to be
+     *         rebuilt
+     */
+    public abstract boolean apply(DiffFile diffFile);
+
+    /**
+     * Gets the source directory.
+     *
+     * @return the source directory
+     */
+    public File getSourceDirectory() {
+        return sourceDirectory;
+    }
+
+    /**
+     * Loads the index from the index file.
+     *
+     * @return true, if the index file exists and was read successfully
+     */
+    public boolean load() {
+        boolean success = false;
+        clear();
+        if (indexFile.isFile()) {
+            try {
+                read(Files.readAllLines(indexFile.toPath(), Charset.defaultCharset()));
+                success = true;
+            } catch (IOException exc) {
+                LOGGER.logException("Could not read index " + indexFile, exc);
+                clear();
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Brings the index up to date with a source directory into which a diff
+     * file was merged. An existing index file is updated with the changes of the
+     * diff file, otherwise the index is rebuilt. The updated index is written to
+     * the index file.
+     *
+     * @param diffFile the merged diff file
+     */
+    public void update(DiffFile diffFile) {
+        if (load()) {
+            apply(diffFile);
+        } else {
+            rebuild();
+        }
+        if (!save()) {
+            // A stale index file must not be used by later executions
+            invalidate();
+        }
+    }
+
+    /**
+     * Writes the index to the index file.
+     *
+     * @return true, if successful
+     */
+    public boolean save() {
+        boolean success = true;
+        StringBuilder content = new StringBuilder();
+        write(content);
+        try {
+            Files.createDirectories(indexFile.getAbsoluteFile().toPath().getParent());
+            FileContentWriter.writeAtomically(indexFile.getAbsoluteFile().toPath(), content,
+                    PosixFilePermissions.fromString("rw-r--r--"));
+        } catch (IOException exc) {
+            success = false;
+            LOGGER.logException("Could not write index " + indexFile, exc);
+        }
+        return success;
+    }
+
+    /**
+     * Deletes the index file so that the index gets rebuilt the next time it is
+     * used. This is required whenever the source directory is changed without
+     * updating the index.
+     *
+     * @return true, if the index file does not exist anymore
+     */
+    public boolean invalidate() {
+        boolean success = true;
+        try {
+            Files.deleteIfExists(indexFile.toPath());
+        } catch (IOException exc) {
+            success = false;
+            LOGGER.logException("Could not delete index " + indexFile, exc);
+        }
+        return success;
+    }
+
+    /**
+     * Registers the index for its source directory so that it is used by all
+     * filters of the current execution.
+     */
+    public void register() {
+        REGISTERED.computeIfAbsent(getClass(), type -> new ConcurrentHashMap<>())
+                .put(sourceDirectory.getAbsoluteFile(), this);
+    }
+
+    /**
+     * Removes the index of a type registered for a source directory.
+     *
+     * @param type            the type of the index
+     * @param sourceDirectory the source directory
+     */
+    public static void unregister(Class<? extends PersistentIndex> type, File sourceDirectory) {
+        Map<File, PersistentIndex> indices = REGISTERED.get(type);
+        if (indices != null) {
+            indices.remove(sourceDirectory.getAbsoluteFile());
+        }
+    }
+
+    /**
+     * Gets the index of a type registered for a source directory.
+     *
+     * @param <T>             the type of the index
+     * @param type            the type of the index
+     * @param sourceDirectory the source directory
+     * @return the index or null if no index is registered for the directory
+     */
+    public static <T extends PersistentIndex> T getRegistered(Class<T> type, File sourceDirectory) {
+        Map<File, PersistentIndex> indices = REGISTERED.get(type);
+        return indices == null ? null : type.cast(indices.get(sourceDirectory.getAbsoluteFile()));
+    }
+
+}
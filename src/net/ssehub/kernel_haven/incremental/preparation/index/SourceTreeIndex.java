@@ -0,0 +1,175 @@
+package net.ssehub.kernel_haven.incremental.preparation.index;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+import net.ssehub.kernel_haven.incremental.util.FolderUtil;
+import net.ssehub.kernel_haven.util.Logger;
+
+/**
+ * Index of all files within a source tree. The index is kept up to date by
+ * applying the additions and deletions described by a {@link DiffFile} so
+ * that filters do not need to list the files of the source tree on their own.
+ *
+ * @author moritz
+ */
+public class SourceTreeIndex extends PersistentIndex {
+
+    /** The Constant LOGGER. */
+    private static final Logger LOGGER = Logger.get();
+
+    /** The relative paths of all files within the source directory. */
+    private final NavigableSet<Path> files = new TreeSet<>();
+
+    /**
+     * Instantiates a new {@link SourceTreeIndex}. The index is empty until it is
+     * either loaded or rebuilt.
+     *
+     * @param sourceDirectory the source directory
+     * @param indexFile       the index file
+     */
+    public SourceTreeIndex(File sourceDirectory, File indexFile) {
+        super(sourceDirectory, indexFile);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see net.ssehub.kernel_haven.incremental.preparation.index.PersistentIndex#read(java.util.List)
+     */
+    @Override
+    protected void read(List<String> lines) {
+        files.clear();
+        for (String line : lines) {
+            if (!line.isEmpty()) {
+                files.add(Paths.get(line));
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see net.ssehub.kernel_haven.incremental.preparation.index.PersistentIndex#write(java.lang.StringBuilder)
+     */
+    @Override
+    protected void write(StringBuilder content) {
+        for (Path file : files) {
+            content.append(file.toString()).append('\n');
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see net.ssehub.kernel_haven.incremental.preparation.index.PersistentIndex#clear()
+     */
+    @Override
+    protected void clear() {
+        files.clear();
+    }
+
+    /**
+     * Rebuilds the index by listing all files within the source directory.
+     */
+    @Override
+    public void rebuild() {
+        files.clear();
+        for (File file : FolderUtil.listRelativeFiles(getSourceDirectory(), true)) {
+            files.add(file.toPath());
+        }
+    }
+
+    /**
+     * Applies the additions and deletions described by a diff file that was
+     * merged into the source directory. Modifications do not change the index.
+     * If the source directory does not match the index after the changes were
+     * applied, the index is rebuilt.
+     *
+     * @param diffFile the diff file
+     * @return true, if the changes were applied and the index did not need to be
+     *         rebuilt
+     */
+    @Override
+    public boolean apply(DiffFile diffFile) {
+        boolean consistent = true;
+        for (FileEntry entry : diffFile.getEntries()) {
+            if (entry.getType() == FileEntry.FileChange.DELETION) {
+                files.remove(entry.getPath());
+            }
+        }
+        // Additions are applied after deletions as a renamed file may be described by a deletion and an addition
+        for (FileEntry entry : diffFile.getEntries()) {
+            if (entry.getType() == FileEntry.FileChange.ADDITION) {
+                files.add(entry.getPath());
+            }
+        }
+        for (FileEntry entry : diffFile.getEntries()) {
+            consistent = consistent && files.contains(entry.getPath()) == getSourceDirectory().toPath()
+                    .resolve(entry.getPath()).toFile().isFile();
+        }
+        if (!consistent) {
+            LOGGER.logWarning("Source tree index of " + getSourceDirectory()
+                    + " does not match the source tree and gets rebuilt.");
+            rebuild();
+        }
+        return consistent;
+    }
+
+    /**
+     * Gets the relative paths of all files within the source directory.
+     *
+     * @return the sorted and unmodifiable paths
+     */
+    public NavigableSet<Path> getFiles() {
+        return Collections.unmodifiableNavigableSet(files);
+    }
+
+    /**
+     * Removes the index registered for a source directory.
+     *
+     * @param sourceDirectory the source directory
+     */
+    public static void unregister(File sourceDirectory) {
+        unregister(SourceTreeIndex.class, sourceDirectory);
+    }
+
+    /**
+     * Gets the index registered for a source directory.
+     *
+     * @param sourceDirectory the source directory
+     * @return the index or null if no index is registered for the directory
+     */
+    public static SourceTreeIndex getRegistered(File sourceDirectory) {
+        return getRegistered(SourceTreeIndex.class, sourceDirectory);
+    }
+
+    /**
+     * Gets the relative paths of all files within a source directory. The
+     * registered index is used if available, otherwise the files of the source
+     * directory are listed.
+     *
+     * @param sourceDirectory the source directory
+     * @return the relative paths
+     */
+    public static Iterable<Path> listFiles(File sourceDirectory) {
+        SourceTreeIndex index = getRegistered(sourceDirectory);
+        Iterable<Path> result;
+        if (index != null) {
+            result = index.getFiles();
+        } else {
+            SourceTreeIndex transientIndex = new SourceTreeIndex(sourceDirectory, null);
+            transientIndex.rebuild();
+            result = transientIndex.files;
+        }
+        return result;
+    }
+
+}
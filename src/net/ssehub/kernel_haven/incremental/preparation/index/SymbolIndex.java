@@ -0,0 +1,107 @@
+package net.ssehub.kernel_haven.incremental.preparation.index;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.ssehub.kernel_haven.incremental.diff.analyzer.ArtifactClassifier;
+
+/**
+ * Inverted index from configuration options to the code files and build files
+ * of a source tree referencing them, e.g. by <code>#ifdef CONFIG_X</code> or
+ * <code>obj-$(CONFIG_X)</code>. The references of a file are the names of the
+ * referenced options without the <code>CONFIG_</code> prefix.
+ *
+ * @author moritz
+ */
+public class SymbolIndex extends FileReferenceIndex {
+
+    /** The suffix of the macro defined for tristate options selected as module. */
+    private static final String MODULE_SUFFIX = "_MODULE";
+
+    /** The pattern for references to configuration options. */
+    private static final Pattern SYMBOL_PATTERN = Pattern.compile("CONFIG_(\\w+)");
+
+    /**
+     * Instantiates a new {@link SymbolIndex}. The index is empty until it is
+     * either loaded or rebuilt.
+     *
+     * @param sourceDirectory the source directory
+     * @param indexFile       the index file
+     */
+    public SymbolIndex(File sourceDirectory, File indexFile) {
+        super(sourceDirectory, indexFile);
+    }
+
+    /**
+     * Determines all files referencing one of the given configuration options.
+     * A reference to the macro defined for a tristate option selected as module
+     * is a reference to the option as well.
+     *
+     * @param symbols the names of the options without the <code>CONFIG_</code>
+     *                prefix
+     * @return the sorted referencing files
+     */
+    public Set<Path> getReferencingFiles(Collection<String> symbols) {
+        Set<Path> files = new TreeSet<>();
+        for (String symbol : symbols) {
+            files.addAll(getFiles(symbol));
+            files.addAll(getFiles(symbol + MODULE_SUFFIX));
+        }
+        return files;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see net.ssehub.kernel_haven.incremental.preparation.index.FileReferenceIndex#isIndexed(java.nio.file.Path)
+     */
+    @Override
+    protected boolean isIndexed(Path file) {
+        ArtifactClassifier.Category category = ArtifactClassifier.classify(file);
+        return category == ArtifactClassifier.Category.CODE || category == ArtifactClassifier.Category.BUILD;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see net.ssehub.kernel_haven.incremental.preparation.index.FileReferenceIndex#parseReferences(java.lang.String)
+     */
+    @Override
+    protected List<String> parseReferences(String content) {
+        Set<String> symbols = new LinkedHashSet<>();
+        Matcher matcher = SYMBOL_PATTERN.matcher(content);
+        while (matcher.find()) {
+            symbols.add(matcher.group(1));
+        }
+        return new ArrayList<>(symbols);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see net.ssehub.kernel_haven.incremental.preparation.index.FileReferenceIndex#getKey(java.lang.String)
+     */
+    @Override
+    protected String getKey(String symbol) {
+        return symbol;
+    }
+
+    /**
+     * Gets the index registered for a source directory.
+     *
+     * @param sourceDirectory the source directory
+     * @return the index or null if no index is registered for the directory
+     */
+    public static SymbolIndex getRegistered(File sourceDirectory) {
+        return getRegistered(SymbolIndex.class, sourceDirectory);
+    }
+
+}
@@ -0,0 +1,9 @@
+/**
+ *
+ * This package contains indices describing the source tree that are kept up to
+ * date across executions and shared by the filters of the preparation.
+ *
+ * @author moritz
+ *
+ */
+package net.ssehub.kernel_haven.incremental.preparation.index;
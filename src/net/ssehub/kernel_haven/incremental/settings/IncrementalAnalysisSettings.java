@@ -3,6 +3,7 @@ package net.ssehub.kernel_haven.incremental.settings;
 import static net.ssehub.kernel_haven.config.Setting.Type.BOOLEAN;
 import static net.ssehub.kernel_haven.config.Setting.Type.DIRECTORY;
 import static net.ssehub.kernel_haven.config.Setting.Type.FILE;
+import static net.ssehub.kernel_haven.config.Setting.Type.INTEGER;
 import static net.ssehub.kernel_haven.config.Setting.Type.STRING;
 
 import java.io.File;
@@ -77,6 +78,62 @@ public class IncrementalAnalysisSettings {
             new Setting<>("incremental.build.auxillary_extraction", BOOLEAN, true, "FALSE",
                     "This setting automatically gets set by IncrementalPreparation.");
 
+    public static final Setting<Boolean> INITIAL_IMPORT_FAST_PATH = new Setting<>(
+            "incremental.initial_import.fast_path", BOOLEAN, true, "TRUE",
+            "Defines whether a diff that only contains additions is imported in bulk if the source tree is empty.");
+
+    public static final Setting<Boolean> INITIAL_IMPORT = new Setting<>("incremental.initial_import", BOOLEAN, true,
+            "FALSE", "This setting automatically gets set by IncrementalPreparation.");
+
+    public static final Setting<Boolean> BYTE_EXACT_DIFF_APPLIER = new Setting<>(
+            "incremental.diff_applier.byte_exact", BOOLEAN, true, "FALSE",
+            "Defines whether files are reconstructed by copying the bytes of the git-diff file instead of decoding and"
+                    + " encoding its lines. This preserves the exact content of files that are not encoded in the"
+                    + " default charset.");
+
+    public static final Setting<Boolean> SOURCE_TREE_SNAPSHOT = new Setting<>("incremental.diff_applier.snapshot",
+            BOOLEAN, true, "FALSE",
+            "Defines whether the previous versions of all files changed by a diff are kept as snapshot within the"
+                    + " hybrid cache directory so that a rollback can be done without the diff file.");
+
+    public static final Setting<Boolean> VARIABILITY_CHANGE_CACHE = new Setting<>(
+            "incremental.variability_change_analyzer.cache", BOOLEAN, true, "FALSE",
+            "Defines whether the results of analyzing single files for variability changes are kept within the hybrid"
+                    + " cache directory so that the same change of a file is not analyzed again. Only used by the"
+                    + " ParallelVariabilityChangeAnalyzer and its subclasses.");
+
+    public static final Setting<Integer> VARIABILITY_CHANGE_CACHE_SIZE = new Setting<>(
+            "incremental.variability_change_analyzer.cache_size", INTEGER, true, "100000",
+            "Maximum number of results kept in the cache for variability changes. The least recently used results are"
+                    + " evicted first.");
+
+    public static final Setting<Boolean> SOURCE_TREE_INDEX = new Setting<>("incremental.source_tree_index", BOOLEAN,
+            true, "FALSE",
+            "Defines whether the files of the source tree are kept in an index within the hybrid cache directory that"
+                    + " is updated with the additions and deletions of each diff file instead of listing the whole"
+                    + " source tree for filtering. The source tree must only be changed through the pipeline.");
+
+    public static final Setting<Boolean> PARALLEL_FILTERING = new Setting<>("incremental.filter.parallel", BOOLEAN,
+            true, "FALSE",
+            "Defines whether the entries of the diff file are evaluated in parallel by the filters of the code,"
+                    + " variability and build model. Only used for filters that decide about each entry on its own.");
+
+    public static final Setting<Integer> INCLUDE_GRAPH_MAX_EXPANSION = new Setting<>(
+            "incremental.header_impact_filter.max_expansion", INTEGER, true, "10000",
+            "Maximum number of files that the HeaderImpactFilter includes because they directly or transitively"
+                    + " include a changed file. If more files are affected, all files are included.");
+
+    public static final Setting<String> CHANGE_CONSIDERATION = new Setting<>(
+            "incremental.adapter.change_consideration", STRING, true, "ANY_CHANGE_EXCEPT_LINECHANGE",
+            "Consideration of SourceFileDifferenceDetector used by the HybridCacheAdapter to determine the changed"
+                    + " code model for CodeModelProcessing.CHANGED_SINCE_PREVIOUS unless a consideration is passed"
+                    + " to the adapter. One of ANY_CHANGE, ANY_CHANGE_EXCEPT_LINECHANGE and ONLY_VARIABILITY_CHANGE.");
+
+    public static final Setting<Boolean> PRELOAD_VARIABILITY_MODEL = new Setting<>("incremental.loader.preload_vm",
+            BOOLEAN, true, "FALSE",
+            "Defines whether the HybridCacheLoader starts reading the variability model of the reused hybrid cache"
+                    + " in the background so that it is available once the analysis requests it.");
+
     // CHECKSTYLE:ON
     /**
      * Holds all declared setting constants.
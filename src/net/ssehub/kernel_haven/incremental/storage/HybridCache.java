@@ -2,22 +2,33 @@ package net.ssehub.kernel_haven.incremental.storage;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import net.ssehub.kernel_haven.build_model.BuildModel;
 import net.ssehub.kernel_haven.build_model.JsonBuildModelCache;
 import net.ssehub.kernel_haven.code_model.JsonCodeModelCache;
 import net.ssehub.kernel_haven.code_model.SourceFile;
 import net.ssehub.kernel_haven.incremental.util.FolderUtil;
+import net.ssehub.kernel_haven.incremental.util.SourceFileDifferenceDetector;
+import net.ssehub.kernel_haven.incremental.util.StructuralHash;
+import net.ssehub.kernel_haven.incremental.util.VariableNameSet;
 import net.ssehub.kernel_haven.util.FormatException;
 import net.ssehub.kernel_haven.util.Logger;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
@@ -70,6 +81,12 @@ public class HybridCache {
      */
     private static final String CM_CACHE_SUFFIX = ".json";
 
+    /**
+     * The suffix appended to the name of a code model cache file for the file
+     * storing the {@link StructuralHash} of the model.
+     */
+    private static final String CM_HASH_SUFFIX = ".hash";
+
     /**
      * The folder represented by this path stores cache-files that replaced files in
      * the current model. Those files can be used to access the previous model.
@@ -191,6 +208,27 @@ public class HybridCache {
      */
     private JsonBuildModelCache replacedBmCache;
 
+    /** The variables of the current variability model or null if not yet read. */
+    private VariableNameSet currentVmVariableNames;
+
+    /** The variables of the previous variability model or null if not yet read. */
+    private VariableNameSet previousVmVariableNames;
+
+    /** The manifest file. */
+    private File manifestFile;
+
+    /**
+     * The manifest answering lookups of the cache files or null if the file
+     * system is used.
+     */
+    private volatile HybridCacheManifest manifest;
+
+    /** Defines whether the manifest file was already discarded for modifications. */
+    private volatile boolean manifestInvalidated;
+
+    /** The variability model read ahead through {@link #preloadVm()} or null. */
+    private volatile Future<VariabilityModel> preloadedVm;
+
     /**
      * Instantiates a new hybrid cache.
      */
@@ -204,12 +242,24 @@ public class HybridCache {
      * @param cacheFolder the cache folder
      */
     public HybridCache(File cacheFolder) {
+        this(cacheFolder, true);
+    }
+
+    /**
+     * Instantiates a new hybrid cache.
+     *
+     * @param cacheFolder   the cache folder
+     * @param createFolders defines whether the folders of the cache are created
+     *                      immediately instead of before the first modification
+     */
+    private HybridCache(File cacheFolder, boolean createFolders) {
         this.currentFolder = cacheFolder.toPath().resolve(CURRENT_CACHE_FOLDER).toFile();
         this.replacedFolder = cacheFolder.toPath().resolve(REPLACED_FOLDER).toFile();
         this.changeInformationFolder = cacheFolder.toPath().resolve(CHANGE_INFORMATION_FOLDER).toFile();
-        this.currentFolder.mkdirs();
-        this.replacedFolder.mkdirs();
-        this.changeInformationFolder.mkdir();
+        this.manifestFile = cacheFolder.toPath().resolve(HybridCacheManifest.FILE_NAME).toFile();
+        if (createFolders) {
+            createFolders();
+        }
         this.currentBmCache = new JsonBuildModelCache(currentFolder);
         this.currentVmCache = new JsonVariabilityModelCache(currentFolder);
         this.currentCmCache = new JsonCodeModelCache(currentFolder);
@@ -218,6 +268,159 @@ public class HybridCache {
         this.replacedBmCache = new JsonBuildModelCache(replacedFolder);
     }
 
+    /**
+     * Opens an existing hybrid cache for reuse. If the cache folder contains a
+     * manifest written through {@link #writeManifest()}, the manifest is read
+     * instead of listing the folders of the cache and lookups of cache files and
+     * flags are answered from memory until the cache is modified. Otherwise, or if
+     * a folder of the cache was modified after the manifest was written, the
+     * folders are listed once and the manifest is written for the next time.
+     *
+     * @param cacheFolder the cache folder
+     * @return the hybrid cache
+     */
+    public static HybridCache open(File cacheFolder) {
+        long start = System.currentTimeMillis();
+        File manifestFile = cacheFolder.toPath().resolve(HybridCacheManifest.FILE_NAME).toFile();
+        boolean manifestExists = manifestFile.exists();
+        HybridCache cache = new HybridCache(cacheFolder, !manifestExists);
+        if (manifestExists) {
+            try {
+                HybridCacheManifest read = HybridCacheManifest.read(manifestFile);
+                if (read.matches(cache.currentFolder, cache.replacedFolder, cache.changeInformationFolder)) {
+                    cache.manifest = read;
+                } else {
+                    LOGGER.logInfo("Manifest of hybrid cache " + manifestFile + " is outdated, listing folders");
+                    cache.createFolders();
+                }
+            } catch (IOException | FormatException exc) {
+                LOGGER.logException("Could not read manifest of hybrid cache " + manifestFile, exc);
+                cache.createFolders();
+            }
+        }
+        boolean usedManifest = cache.manifest != null;
+        if (!usedManifest) {
+            try {
+                cache.writeManifest();
+            } catch (IOException exc) {
+                LOGGER.logException("Could not write manifest of hybrid cache " + manifestFile, exc);
+            }
+        }
+        LOGGER.logInfo("Opened hybrid cache " + cacheFolder + (usedManifest ? " from its manifest" : "") + " in "
+                + (System.currentTimeMillis() - start) + " ms");
+        return cache;
+    }
+
+    /**
+     * Writes the manifest of the cache in its current state. The manifest is used
+     * by {@link #open(File)} and deleted when the cache is modified.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public synchronized void writeManifest() throws IOException {
+        HybridCacheManifest scanned = HybridCacheManifest.scan(currentFolder, replacedFolder, changeInformationFolder);
+        scanned.write(manifestFile);
+        this.manifest = scanned;
+        this.manifestInvalidated = false;
+    }
+
+    /**
+     * Discards the manifest before the cache is modified so that it can not get
+     * out of date. This also creates the folders of the cache if they were not
+     * created yet.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private synchronized void invalidateManifest() throws IOException {
+        if (!manifestInvalidated && manifestFile != null) {
+            manifest = null;
+            Files.deleteIfExists(manifestFile.toPath());
+            createFolders();
+            manifestInvalidated = true;
+        }
+    }
+
+    /**
+     * Creates the folders of the cache.
+     */
+    private void createFolders() {
+        this.currentFolder.mkdirs();
+        this.replacedFolder.mkdirs();
+        this.changeInformationFolder.mkdir();
+    }
+
+    /**
+     * Checks whether a cache file exists in the current version.
+     *
+     * @param fileNameInCache the name of the cache file
+     * @return true, if the file exists
+     */
+    private boolean existsInCurrent(String fileNameInCache) {
+        HybridCacheManifest index = manifest;
+        return index != null ? index.getCurrentFiles().contains(fileNameInCache)
+                : currentFolder.toPath().resolve(fileNameInCache).toFile().exists();
+    }
+
+    /**
+     * Checks whether a cache file was replaced by the current version.
+     *
+     * @param fileNameInCache the name of the cache file
+     * @return true, if the replaced file exists
+     */
+    private boolean existsInReplacedFolder(String fileNameInCache) {
+        HybridCacheManifest index = manifest;
+        return index != null ? index.getReplacedFiles().contains(fileNameInCache)
+                : replacedFolder.toPath().resolve(fileNameInCache).toFile().exists();
+    }
+
+    /**
+     * Lists the cache files of the current version.
+     *
+     * @return the names of the cache files as relative files
+     */
+    private Collection<File> listCurrentFiles() {
+        return listFiles(manifest == null ? null : manifest.getCurrentFiles(), currentFolder);
+    }
+
+    /**
+     * Lists the cache files replaced by the current version.
+     *
+     * @return the names of the cache files as relative files
+     */
+    private Collection<File> listReplacedFiles() {
+        return listFiles(manifest == null ? null : manifest.getReplacedFiles(), replacedFolder);
+    }
+
+    /**
+     * Lists the cache files carrying a flag.
+     *
+     * @param flag the flag
+     * @return the names of the cache files as relative files
+     */
+    private Collection<File> listFlaggedFiles(ChangeFlag flag) {
+        return listFiles(manifest == null ? null : manifest.getFlaggedFiles(flag),
+                changeInformationFolder.toPath().resolve(flag.toString()).toFile());
+    }
+
+    /**
+     * Lists files from the manifest or, if no manifest is used, from a folder.
+     *
+     * @param names  the names from the manifest or null
+     * @param folder the folder
+     * @return the names of the files as relative files
+     */
+    private static Collection<File> listFiles(Set<String> names, File folder) {
+        Collection<File> files = new ArrayList<>();
+        if (names != null) {
+            for (String name : names) {
+                files.add(new File(name));
+            }
+        } else if (folder.exists()) {
+            files = FolderUtil.listRelativeFiles(folder, false);
+        }
+        return files;
+    }
+
     /**
      * Gets the cache file name.
      *
@@ -235,8 +438,10 @@ public class HybridCache {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     public void clearChangeHistory() throws IOException {
+        invalidateManifest();
         FolderUtil.deleteFolderContents(replacedFolder);
         FolderUtil.deleteFolderContents(changeInformationFolder);
+        resetVmVariableNames();
     }
 
     /**
@@ -249,16 +454,201 @@ public class HybridCache {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     public void write(SourceFile<?> sourceFile) throws IOException {
+        invalidateManifest();
         String fileNameInCache = getCacheFileName(sourceFile.getPath());
         File newFile = currentFolder.toPath().resolve(fileNameInCache).toFile();
         if (newFile.exists()) {
             Files.move(newFile.toPath(), replacedFolder.toPath().resolve(fileNameInCache),
                     StandardCopyOption.REPLACE_EXISTING);
+            Path hashFile = currentFolder.toPath().resolve(fileNameInCache + CM_HASH_SUFFIX);
+            Path replacedHashFile = replacedFolder.toPath().resolve(fileNameInCache + CM_HASH_SUFFIX);
+            if (hashFile.toFile().exists()) {
+                Files.move(hashFile, replacedHashFile, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.deleteIfExists(replacedHashFile);
+            }
             flag(sourceFile, ChangeFlag.MODIFICATION);
         } else {
             flag(sourceFile, ChangeFlag.ADDITION);
         }
         currentCmCache.write(sourceFile);
+        writeHashes(sourceFile, fileNameInCache);
+    }
+
+    /**
+     * Write a {@link SourceFile} to a cache that is known to be empty (e.g. for the
+     * initial import of a source tree). In contrast to
+     * {@link HybridCache#write(SourceFile)} this neither checks for a previous
+     * model nor flags the file. The flags for all written files should be created
+     * afterwards through {@link HybridCache#flag(Collection, ChangeFlag)}.
+     *
+     * @param sourceFile the source file
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void writeToEmptyCache(SourceFile<?> sourceFile) throws IOException {
+        invalidateManifest();
+        currentCmCache.write(sourceFile);
+        writeHashes(sourceFile, getCacheFileName(sourceFile.getPath()));
+    }
+
+    /**
+     * Writes the {@link StructuralHash} of a {@link SourceFile} next to its
+     * current cache file so that unchanged models can be detected without
+     * reading them.
+     *
+     * @param sourceFile      the source file
+     * @param fileNameInCache the name of the cache file
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void writeHashes(SourceFile<?> sourceFile, String fileNameInCache) throws IOException {
+        StructuralHash hash = new StructuralHash(sourceFile);
+        String content = Long.toHexString(hash.getHash(false)) + " " + Long.toHexString(hash.getHash(true)) + "\n";
+        Files.write(currentFolder.toPath().resolve(fileNameInCache + CM_HASH_SUFFIX),
+                content.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Reads the hashes stored next to a cache file.
+     *
+     * @param folder          the folder containing the cache file
+     * @param fileNameInCache the name of the cache file
+     * @return the hashes without and with lines or null if no valid hashes are
+     *         stored
+     */
+    private long[] readHashes(File folder, String fileNameInCache) {
+        long[] hashes = null;
+        Path hashFile = folder.toPath().resolve(fileNameInCache + CM_HASH_SUFFIX);
+        if (hashFile.toFile().exists()) {
+            try {
+                String[] parts = new String(Files.readAllBytes(hashFile), StandardCharsets.US_ASCII).trim().split(" ");
+                if (parts.length == 2) {
+                    hashes = new long[] {Long.parseUnsignedLong(parts[0], 16), Long.parseUnsignedLong(parts[1], 16)};
+                }
+            } catch (IOException | NumberFormatException exc) {
+                LOGGER.logException("Could not read hashes of " + fileNameInCache, exc);
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Reads the {@link StructuralHash} of the current code model for a single
+     * file within the source-tree. A file without model has the hash of an empty
+     * model.
+     *
+     * @param file relative file within the source-tree
+     * @return the hashes of the model without and with lines or null if no
+     *         hashes are stored for the model
+     */
+    public long[] readCmHashes(File file) {
+        String fileNameInCache = getCacheFileName(file);
+        long[] hashes;
+        if (existsInCurrent(fileNameInCache)) {
+            hashes = readHashes(currentFolder, fileNameInCache);
+        } else {
+            hashes = getEmptyHashes();
+        }
+        return hashes;
+    }
+
+    /**
+     * Reads the {@link StructuralHash} of the previous code model for a single
+     * file within the source-tree. A file without model has the hash of an empty
+     * model.
+     *
+     * @param file relative file within the source-tree
+     * @return the hashes of the model without and with lines or null if no
+     *         hashes are stored for the model
+     */
+    public long[] readPreviousCmHashes(File file) {
+        String fileNameInCache = getCacheFileName(file);
+        File previousCacheFile = getPreviousCmCacheFile(fileNameInCache);
+        long[] hashes;
+        if (previousCacheFile != null) {
+            hashes = readHashes(previousCacheFile.getParentFile(), fileNameInCache);
+        } else {
+            hashes = getEmptyHashes();
+        }
+        return hashes;
+    }
+
+    /**
+     * Gets the cache file holding the previous code model. This is the same
+     * lookup as for reading the previous model through
+     * {@link #readPreviousCmCacheFile(File)}.
+     *
+     * @param fileNameInCache the name of the cache file
+     * @return the cache file or null if no previous model exists
+     */
+    private File getPreviousCmCacheFile(String fileNameInCache) {
+        File previousFile = null;
+        if (existsInReplacedFolder(fileNameInCache)) {
+            previousFile = replacedFolder.toPath().resolve(fileNameInCache).toFile();
+        } else if (existsInCurrent(fileNameInCache)
+                && !(cacheFileHasFlag(new File(fileNameInCache), ChangeFlag.ADDITION))) {
+            previousFile = currentFolder.toPath().resolve(fileNameInCache).toFile();
+        }
+        return previousFile;
+    }
+
+    /**
+     * Checks whether the previous and the current code model for a single file
+     * within the source-tree are serialized identically. This is the case if
+     * neither model exists.
+     *
+     * @param file relative file within the source-tree
+     * @return true, if the cache files have the same content
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public boolean hasIdenticalCmCacheFiles(File file) throws IOException {
+        String fileNameInCache = getCacheFileName(file);
+        File previousFile = getPreviousCmCacheFile(fileNameInCache);
+        File currentFile = existsInCurrent(fileNameInCache) ? currentFolder.toPath().resolve(fileNameInCache).toFile()
+                : null;
+        boolean identical;
+        if (previousFile == null || currentFile == null) {
+            identical = previousFile == currentFile;
+        } else if (previousFile.equals(currentFile)) {
+            identical = true;
+        } else {
+            // Comparing the sizes avoids reading files of different length
+            identical = previousFile.length() == currentFile.length() && Arrays
+                    .equals(Files.readAllBytes(previousFile.toPath()), Files.readAllBytes(currentFile.toPath()));
+        }
+        return identical;
+    }
+
+    /**
+     * Gets the hashes of an empty code model.
+     *
+     * @return the hashes without and with lines
+     */
+    private static long[] getEmptyHashes() {
+        StructuralHash hash = new StructuralHash(null);
+        return new long[] {hash.getHash(false), hash.getHash(true)};
+    }
+
+    /**
+     * Checks whether the cache does not contain any model in its current version.
+     *
+     * @return true, if the cache is empty
+     */
+    public boolean isEmpty() {
+        String[] files = currentFolder.list();
+        return files == null || files.length == 0;
+    }
+
+    /**
+     * Checks whether the cache within a folder does not contain any model in its
+     * current version. Other than instantiating a {@link HybridCache}, this does
+     * not create any folders.
+     *
+     * @param cacheFolder the cache folder
+     * @return true, if the cache is empty or does not exist
+     */
+    public static boolean isEmpty(File cacheFolder) {
+        String[] files = cacheFolder.toPath().resolve(CURRENT_CACHE_FOLDER).toFile().list();
+        return files == null || files.length == 0;
     }
 
     /**
@@ -273,6 +663,34 @@ public class HybridCache {
         flag(new File(fileNameInCache), flag);
     }
 
+    /**
+     * Flags the models of multiple files within the source-tree at once. The
+     * folder for the flag is only created once and the flag records are created in
+     * parallel.
+     *
+     * @param codeFilesWithinSourceTree the files within the source-tree
+     * @param flag                      the flag
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void flag(Collection<File> codeFilesWithinSourceTree, ChangeFlag flag) throws IOException {
+        invalidateManifest();
+        Path flagFolder = changeInformationFolder.toPath().resolve(flag.toString());
+        Files.createDirectories(flagFolder);
+        try {
+            codeFilesWithinSourceTree.parallelStream().forEach(file -> {
+                try {
+                    Files.createFile(flagFolder.resolve(getCacheFileName(file)));
+                } catch (FileAlreadyExistsException exc) {
+                    // Flag was already set
+                } catch (IOException exc) {
+                    throw new UncheckedIOException(exc);
+                }
+            });
+        } catch (UncheckedIOException exc) {
+            throw exc.getCause();
+        }
+    }
+
     /**
      * Adds a flag to the SourceFile within the HybridCache. This flag is part of
      * the file-history and should describe changes made to the file in the current
@@ -283,6 +701,7 @@ public class HybridCache {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     private void flag(File cacheFile, ChangeFlag flag) throws IOException {
+        invalidateManifest();
         File flagFile = this.getFlagFile(cacheFile, flag);
         flagFile.getParentFile().mkdirs();
         if (!flagFile.exists()) {
@@ -311,6 +730,8 @@ public class HybridCache {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     public void write(VariabilityModel vmModel) throws IOException {
+        invalidateManifest();
+        preloadedVm = null;
 
         File fileToAdd = currentFolder.toPath().resolve(VM_CACHE_FILE).toFile();
         if (fileToAdd.exists()) {
@@ -322,6 +743,7 @@ public class HybridCache {
         }
 
         currentVmCache.write(vmModel);
+        resetVmVariableNames();
     }
 
     /**
@@ -345,7 +767,7 @@ public class HybridCache {
     public void flagVariabilityModel(ChangeFlag flag) throws IOException {
 
         flag(VM_CACHE_FILE.toFile(), flag);
-
+        resetVmVariableNames();
     }
 
     /**
@@ -357,6 +779,7 @@ public class HybridCache {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     public void write(BuildModel buildModel) throws IOException {
+        invalidateManifest();
         File fileToAdd = currentFolder.toPath().resolve(BM_CACHE_FILE).toFile();
         if (fileToAdd.exists()) {
             flag(BM_CACHE_FILE.toFile(), ChangeFlag.MODIFICATION);
@@ -380,15 +803,33 @@ public class HybridCache {
      * @throws FormatException the format exception
      */
     protected SourceFile<?> readCmCacheFile(File cacheFile) throws IOException, FormatException {
-        File originalFile = getOriginalCodeModelFile(cacheFile);
+        File cacheTarget = getCacheTarget(cacheFile);
 
         SourceFile<?> srcFile = null;
-        if (originalFile != null) {
-            srcFile = currentCmCache.read(originalFile);
+        if (cacheTarget != null) {
+            srcFile = currentCmCache.read(cacheTarget);
         }
         return srcFile;
     }
 
+    /**
+     * Gets the file for which a {@link JsonCodeModelCache} reads a cache file. In
+     * contrast to {@link #getOriginalCodeModelFile(File)} this does not restore
+     * the path within the source-tree, so it works for all names of cache files
+     * including names with whitespace or without file extension.
+     *
+     * @param cacheFile the cache file
+     * @return the file or null if the file is no cache file of a code model
+     */
+    private static File getCacheTarget(File cacheFile) {
+        String cacheFileName = cacheFile.getPath();
+        File cacheTarget = null;
+        if (cacheFileName.endsWith(CM_CACHE_SUFFIX) && cacheFileName.length() > CM_CACHE_SUFFIX.length()) {
+            cacheTarget = new File(cacheFileName.substring(0, cacheFileName.length() - CM_CACHE_SUFFIX.length()));
+        }
+        return cacheTarget;
+    }
+
     /**
      * Gets the original file object (File within the source-tree) corresponding to
      * the cached file.
@@ -433,8 +874,43 @@ public class HybridCache {
      * @throws IOException     Signals that an I/O exception has occurred.
      */
     public VariabilityModel readVm() throws FormatException, IOException {
-        return currentVmCache.read(VM_CACHE_FILE.toFile());
+        Future<VariabilityModel> preloaded = preloadedVm;
+        VariabilityModel result = null;
+        boolean read = false;
+        if (preloaded != null) {
+            try {
+                result = preloaded.get();
+                read = true;
+            } catch (ExecutionException exc) {
+                if (exc.getCause() instanceof IOException) {
+                    throw (IOException) exc.getCause();
+                } else if (exc.getCause() instanceof FormatException) {
+                    throw (FormatException) exc.getCause();
+                }
+                LOGGER.logException("Could not preload variability model", exc.getCause());
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+                LOGGER.logException("Interrupted while waiting for preloaded variability model", exc);
+            }
+        }
+        if (!read) {
+            result = currentVmCache.read(VM_CACHE_FILE.toFile());
+        }
+        return result;
+    }
 
+    /**
+     * Starts reading the variability model in its current version in the
+     * background. Later calls of {@link #readVm()} wait for and return the
+     * preloaded model, which is shared between all callers, until the variability
+     * model is modified.
+     */
+    public void preloadVm() {
+        FutureTask<VariabilityModel> task = new FutureTask<>(() -> currentVmCache.read(VM_CACHE_FILE.toFile()));
+        preloadedVm = task;
+        Thread thread = new Thread(task, "HybridCache-preloadVm");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     /**
@@ -450,16 +926,17 @@ public class HybridCache {
         // read from replaced folder if file was deleted or got replaced through
         // the
         // current version
-        if (replacedFolder.toPath().resolve(target.toPath()).toFile().exists()) {
-            result = replacedCmCache.read(getOriginalCodeModelFile(target));
+        File cacheTarget = getCacheTarget(target);
+        if (cacheTarget != null && existsInReplacedFolder(target.getPath())) {
+            result = replacedCmCache.read(cacheTarget);
 
             /*
              * read from current folder if file was not newly added as the file was not
              * touched and remains the same in both the current and previous version
              */
-        } else if (currentFolder.toPath().resolve(target.toPath()).toFile().exists()
+        } else if (cacheTarget != null && existsInCurrent(target.getPath())
                 && !(cacheFileHasFlag(target, ChangeFlag.ADDITION))) {
-            result = currentCmCache.read(getOriginalCodeModelFile(target));
+            result = currentCmCache.read(cacheTarget);
         }
         return result;
 
@@ -473,7 +950,9 @@ public class HybridCache {
      * @return true, if successful
      */
     private boolean cacheFileHasFlag(File target, ChangeFlag flag) {
-        return changeInformationFolder.toPath().resolve(flag + "/" + target.getPath()).toFile().exists();
+        HybridCacheManifest index = manifest;
+        return index != null ? index.getFlaggedFiles(flag).contains(target.getPath())
+                : changeInformationFolder.toPath().resolve(flag + "/" + target.getPath()).toFile().exists();
     }
 
     /**
@@ -519,6 +998,46 @@ public class HybridCache {
         return result;
     }
 
+    /**
+     * Gets the names of the variables defined in the current variability model.
+     * The names are only read and built once per version of the model, so the
+     * returned set can be shared by many {@link SourceFileDifferenceDetector}s.
+     *
+     * @return the variable names, empty if no model exists
+     * @throws FormatException the format exception
+     * @throws IOException     Signals that an I/O exception has occurred.
+     */
+    public synchronized VariableNameSet readVmVariableNames() throws FormatException, IOException {
+        if (currentVmVariableNames == null) {
+            currentVmVariableNames = VariableNameSet.of(readVm());
+        }
+        return currentVmVariableNames;
+    }
+
+    /**
+     * Gets the names of the variables defined in the previous variability model.
+     * The names are only read and built once per version of the model.
+     *
+     * @return the variable names, empty if no previous model exists
+     * @throws FormatException the format exception
+     * @throws IOException     Signals that an I/O exception has occurred.
+     */
+    public synchronized VariableNameSet readPreviousVmVariableNames() throws FormatException, IOException {
+        if (previousVmVariableNames == null) {
+            previousVmVariableNames = VariableNameSet.of(readPreviousVm());
+        }
+        return previousVmVariableNames;
+    }
+
+    /**
+     * Discards the variable names read for the variability models after the
+     * models or their history changed.
+     */
+    private synchronized void resetVmVariableNames() {
+        currentVmVariableNames = null;
+        previousVmVariableNames = null;
+    }
+
     /**
      * Checks if the paths exist as subpaths within the replaced-folder.
      *
@@ -537,8 +1056,10 @@ public class HybridCache {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     public boolean deleteCodeModel(File codeFileWithinSourceTree) throws IOException {
+        invalidateManifest();
         File fileToDelete = currentFolder.toPath().resolve(getCacheFileName(codeFileWithinSourceTree)).toFile();
         boolean deleted = false;
+        Files.deleteIfExists(currentFolder.toPath().resolve(fileToDelete.getName() + CM_HASH_SUFFIX));
         if (fileToDelete.exists()) {
             fileToDelete.delete();
             deleted = true;
@@ -554,36 +1075,73 @@ public class HybridCache {
      * @throws FormatException the format exception
      */
     public Collection<SourceFile<?>> readPreviousCm() throws IOException, FormatException {
+        Collection<SourceFile<?>> sourceFiles = new ArrayList<SourceFile<?>>();
+        for (File file : getPreviousCmFiles()) {
+            SourceFile<?> srcFile = readPreviousCm(file);
+            if (srcFile != null) {
+                sourceFiles.add(srcFile);
+            } else {
+                LOGGER.logWarning("Could not read code model for file in cache: " + file.getPath());
+            }
+        }
+        return sourceFiles;
+    }
+
+    /**
+     * Gets the files within the source-tree that have a code model in the previous
+     * version. In contrast to {@link #readPreviousCm()} the models are not read, so
+     * they can be read one after another through {@link #readPreviousCm(File)}.
+     *
+     * @return the files within the source-tree
+     */
+    public Collection<File> getPreviousCmFiles() {
+        Collection<File> paths = new ArrayList<>();
+        for (File file : getPreviousCmCacheFiles()) {
+            File originalFile = getOriginalCodeModelFile(file);
+            if (originalFile != null) {
+                paths.add(originalFile);
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Gets the names of the cache files of the code model in the previous
+     * version. The models can be read one after another through
+     * {@link #readPreviousCmCacheFile(File)}.
+     *
+     * @return the names of the cache files as relative files
+     */
+    Collection<File> getPreviousCmCacheFiles() {
         // list all files in the current folder
-        Collection<File> files = FolderUtil.listRelativeFiles(currentFolder, false);
+        Set<File> files = new HashSet<>(listCurrentFiles());
 
         // add all files in the replaced folder as the replaced folder also
-        // contains
-        // files that were deleted in the current model
-        files.addAll(FolderUtil.listRelativeFiles(replacedFolder, false));
-
-        File addedFilesFolder = changeInformationFolder.toPath().resolve(ChangeFlag.ADDITION + "/").toFile();
+        // contains files that were deleted in the current model
+        files.addAll(listReplacedFiles());
 
         // remove all files that were newly added in the current model
-        files.removeAll(FolderUtil.listRelativeFiles(addedFilesFolder, false));
+        files.removeAll(listFlaggedFiles(ChangeFlag.ADDITION));
 
-        // read models for the files
-        Collection<SourceFile<?>> sourceFiles = new ArrayList<SourceFile<?>>();
+        return filterCmCacheFiles(files);
+    }
+
+    /**
+     * Filters the cache files of code models from a collection of cache files.
+     *
+     * @param files the names of the cache files
+     * @return the names of the cache files of code models
+     */
+    private static Collection<File> filterCmCacheFiles(Collection<File> files) {
+        Collection<File> cmFiles = new ArrayList<>();
         for (File file : files) {
             String fileName = file.getName();
             if (fileName.endsWith(CM_CACHE_SUFFIX) && !fileName.equals(BM_CACHE_FILE_NAME)
                     && !fileName.equals(VM_CACHE_FILE_NAME)) {
-
-                SourceFile<?> srcFile = readPreviousCmCacheFile(file);
-                if (srcFile != null) {
-                    sourceFiles.add(srcFile);
-                } else {
-                    LOGGER.logWarning("Could not read code model for file in cache: " + file.getAbsolutePath());
-                }
-
+                cmFiles.add(file);
             }
         }
-        return sourceFiles;
+        return cmFiles;
     }
 
     /**
@@ -594,7 +1152,7 @@ public class HybridCache {
      * @throws FormatException the format exception
      */
     public Collection<SourceFile<?>> readCm() throws IOException, FormatException {
-        Collection<File> files = FolderUtil.listRelativeFiles(currentFolder, false);
+        Collection<File> files = listCurrentFiles();
         Set<@NonNull SourceFile<?>> sourceFiles = new HashSet<>();
         for (File file : files) {
             String fileName = file.getName();
@@ -637,12 +1195,179 @@ public class HybridCache {
         return readPreviousCmCacheFile(new File(getCacheFileName(file)));
     }
 
+    /**
+     * Streams the files within the source-tree whose code model changed between
+     * the previous and the current version with respect to the
+     * {@link SourceFileDifferenceDetector.Consideration} of the given detector.
+     * Only files whose models were added, modified, deleted or replaced are
+     * candidates. Previous and current models are paired by their path and
+     * compared through {@link SourceFileDifferenceDetector#isDifferent(File,
+     * HybridCache)}, so pairs with equal hashes or identical cache files are not
+     * read.
+     *
+     * <p>
+     * The candidates are compared in parallel on the fork-join pool consuming the
+     * returned stream, its order is unspecified. Files whose models
+     * can not be read are considered changed.
+     * </p>
+     *
+     * @param detector the detector
+     * @return the changed files
+     */
+    public Stream<File> streamChangedCm(SourceFileDifferenceDetector detector) {
+        Set<File> candidates = new HashSet<>();
+        for (ChangeFlag flag : new ChangeFlag[] {ChangeFlag.ADDITION, ChangeFlag.MODIFICATION,
+                ChangeFlag.DELETION}) {
+            candidates.addAll(getCmPathsForFlag(flag));
+        }
+        for (File file : listReplacedFiles()) {
+            String fileName = file.getName();
+            if (fileName.endsWith(CM_CACHE_SUFFIX) && !fileName.equals(BM_CACHE_FILE_NAME)
+                    && !fileName.equals(VM_CACHE_FILE_NAME)) {
+                candidates.add(getOriginalCodeModelFile(file));
+            }
+        }
+        candidates.remove(null);
+        // An ArrayList splits evenly so that idle workers can steal the remaining comparisons
+        return new ArrayList<>(candidates).parallelStream().filter(file -> isCmDifferent(file, detector));
+    }
+
+    /**
+     * Streams the previous and the current code models of the files whose code
+     * model changed as determined by
+     * {@link #streamChangedCm(SourceFileDifferenceDetector)}. The pairs are read in
+     * parallel while the returned stream is consumed, so neither the previous nor
+     * the current model is held completely. Pairs that can not be read are
+     * skipped.
+     *
+     * @param detector the detector
+     * @return the pairs of changed files
+     */
+    public Stream<SourceFilePair> streamChangedCmPairs(SourceFileDifferenceDetector detector) {
+        return streamChangedCm(detector).map(this::readCmPairOrNull).filter(pair -> pair != null);
+    }
+
+    /**
+     * Streams the current code models of the given files. The models are read in
+     * parallel while the returned stream is consumed. Files without current model
+     * or whose model can not be read are skipped.
+     *
+     * @param files relative files within the source-tree
+     * @return the current models
+     */
+    public Stream<SourceFile<?>> streamCm(Collection<File> files) {
+        return new ArrayList<>(files).parallelStream().<SourceFile<?>>map(file -> readCmOrNull(file, false))
+                .filter(srcFile -> srcFile != null);
+    }
+
+    /**
+     * Streams the previous code models of the given files. The models are read in
+     * parallel while the returned stream is consumed. Files without previous
+     * model or whose model can not be read are skipped.
+     *
+     * @param files relative files within the source-tree
+     * @return the previous models
+     */
+    public Stream<SourceFile<?>> streamPreviousCm(Collection<File> files) {
+        return new ArrayList<>(files).parallelStream().<SourceFile<?>>map(file -> readCmOrNull(file, true))
+                .filter(srcFile -> srcFile != null);
+    }
+
+    /**
+     * Streams the previous and the current code models of the given files. The
+     * pairs are read in parallel while the returned stream is consumed. Pairs that
+     * can not be read are skipped.
+     *
+     * @param files relative files within the source-tree
+     * @return the pairs of models
+     */
+    public Stream<SourceFilePair> streamCmPairs(Collection<File> files) {
+        return new ArrayList<>(files).parallelStream().map(this::readCmPairOrNull).filter(pair -> pair != null);
+    }
+
+    /**
+     * Reads the previous or the current code model for a single file. Failures
+     * are logged.
+     *
+     * @param file     relative file within the source-tree
+     * @param previous defines whether the previous model is read
+     * @return the model or null if there is no model or it could not be read
+     */
+    private SourceFile<?> readCmOrNull(File file, boolean previous) {
+        SourceFile<?> srcFile = null;
+        try {
+            srcFile = previous ? readPreviousCm(file) : readCm(file);
+        } catch (IOException | FormatException exc) {
+            LOGGER.logException("Could not read code model for file " + file.getPath(), exc);
+        }
+        return srcFile;
+    }
+
+    /**
+     * Reads the previous and the current code model for a single file within the
+     * source-tree. The path of the pair is taken from the models as the given file
+     * may be restored from the name of a cache file, which does not preserve dots
+     * within the path.
+     *
+     * @param file relative file within the source-tree
+     * @return the pair of models
+     * @throws IOException     Signals that an I/O exception has occurred.
+     * @throws FormatException the format exception
+     */
+    public SourceFilePair readCmPair(File file) throws IOException, FormatException {
+        SourceFile<?> previous = readPreviousCm(file);
+        SourceFile<?> current = readCm(file);
+        File path = file;
+        if (current != null) {
+            path = current.getPath();
+        } else if (previous != null) {
+            path = previous.getPath();
+        }
+        return new SourceFilePair(path, previous, current);
+    }
+
+    /**
+     * Reads the previous and the current code model for a single file. Failures
+     * are logged.
+     *
+     * @param file relative file within the source-tree
+     * @return the pair of models or null if the models could not be read
+     */
+    private SourceFilePair readCmPairOrNull(File file) {
+        SourceFilePair pair = null;
+        try {
+            pair = readCmPair(file);
+        } catch (IOException | FormatException exc) {
+            LOGGER.logException("Could not read code models for file " + file.getPath(), exc);
+        }
+        return pair;
+    }
+
+    /**
+     * Checks whether the code model of a file changed. Failures are logged and
+     * the model is considered changed.
+     *
+     * @param file     relative file within the source-tree
+     * @param detector the detector
+     * @return true, if the model changed or could not be compared
+     */
+    private boolean isCmDifferent(File file, SourceFileDifferenceDetector detector) {
+        boolean different = true;
+        try {
+            different = detector.isDifferent(file, this);
+        } catch (IOException | FormatException exc) {
+            LOGGER.logException("Could not compare code models for file " + file.getPath(), exc);
+        }
+        return different;
+    }
+
     /**
      * Delete build model.
      *
      * @throws IOException Signals that an I/O exception has occurred.
      */
     public void deleteBuildModel() throws IOException {
+        invalidateManifest();
 
         File fileToDelete = currentFolder.toPath().resolve(BM_CACHE_FILE).toFile();
 
@@ -661,21 +1386,64 @@ public class HybridCache {
      * @return the cache files for flag
      */
     private Collection<File> getCmPathsForFlag(ChangeFlag flag) {
-        File flagFolder = this.changeInformationFolder.toPath().resolve(flag.toString() + "/").toFile();
         Set<File> paths = new HashSet<>();
-        if (flagFolder.exists()) {
-            for (File file : FolderUtil.listRelativeFiles(flagFolder, false)) {
-                String fileName = file.getName();
-                if (fileName.endsWith(CM_CACHE_SUFFIX) && !fileName.equals(BM_CACHE_FILE_NAME)
-                        && !fileName.equals(VM_CACHE_FILE_NAME)) {
-                    paths.add(this.getOriginalCodeModelFile(file));
+        for (File file : listFlaggedFiles(flag)) {
+            String fileName = file.getName();
+            if (fileName.endsWith(CM_CACHE_SUFFIX) && !fileName.equals(BM_CACHE_FILE_NAME)
+                    && !fileName.equals(VM_CACHE_FILE_NAME)) {
+                paths.add(this.getOriginalCodeModelFile(file));
 
-                }
             }
         }
         return paths;
     }
 
+    /**
+     * Gets the files within the source-tree whose code model carries any of the
+     * given flags. In contrast to {@link #readCmForFlags(ChangeFlag...)} the
+     * models are not read, so they can be read one after another.
+     *
+     * @param flags the flags
+     * @return the files within the source-tree
+     */
+    public Collection<File> getCmFilesForFlags(ChangeFlag... flags) {
+        Set<File> paths = new HashSet<File>();
+        for (ChangeFlag flag : flags) {
+            paths.addAll(getCmPathsForFlag(flag));
+        }
+        return paths;
+    }
+
+    /**
+     * Gets the files within the source-tree that have a code model in the current
+     * version. In contrast to {@link #readCm()} the models are not read, so they
+     * can be read one after another through {@link #readCm(File)}.
+     *
+     * @return the files within the source-tree
+     */
+    public Collection<File> getCmFiles() {
+        Collection<File> paths = new ArrayList<>();
+        for (File file : getCmCacheFiles()) {
+            File originalFile = getOriginalCodeModelFile(file);
+            if (originalFile != null) {
+                paths.add(originalFile);
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Gets the names of the cache files of the code model in the current version.
+     * In contrast to {@link #getCmFiles()} no file is lost by restoring its path
+     * within the source-tree. The models can be read one after another through
+     * {@link #readCmCacheFile(File)}.
+     *
+     * @return the names of the cache files as relative files
+     */
+    Collection<File> getCmCacheFiles() {
+        return filterCmCacheFiles(listCurrentFiles());
+    }
+
     /**
      * Reads the codemodel for a given set of flags. This includes all code model
      * items that carry any of the flags passed to this method.
@@ -686,13 +1454,8 @@ public class HybridCache {
      * @throws FormatException the format exception
      */
     public Collection<SourceFile<?>> readCmForFlags(ChangeFlag... flags) throws IOException, FormatException {
-        Set<File> paths = new HashSet<File>();
-        for (ChangeFlag flag : flags) {
-            paths.addAll(getCmPathsForFlag(flag));
-        }
-
         Collection<SourceFile<?>> sourceFiles = new ArrayList<>();
-        for (File file : paths) {
+        for (File file : getCmFilesForFlags(flags)) {
             SourceFile<?> srcFile = readCm(file);
             if (srcFile != null) {
                 sourceFiles.add(srcFile);
@@ -710,11 +1473,14 @@ public class HybridCache {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     public void deleteVariabilityModel() throws IOException {
+        invalidateManifest();
+        preloadedVm = null;
         File fileToDelete = currentFolder.toPath().resolve(VM_CACHE_FILE).toFile();
         if (fileToDelete.exists()) {
             Files.move(currentFolder.toPath().resolve(VM_CACHE_FILE), replacedFolder.toPath().resolve(VM_CACHE_FILE),
                     StandardCopyOption.REPLACE_EXISTING);
             flag(fileToDelete, ChangeFlag.DELETION);
+            resetVmVariableNames();
         }
 
     }
@@ -727,10 +1493,21 @@ public class HybridCache {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     public void rollback() throws IOException {
+        invalidateManifest();
+        preloadedVm = null;
 
         // Delete newly added files
         for (File file : getCmPathsForFlag(ChangeFlag.ADDITION)) {
             currentFolder.toPath().resolve(file.toPath()).toFile().delete();
+            Files.deleteIfExists(currentFolder.toPath().resolve(getCacheFileName(file) + CM_HASH_SUFFIX));
+        }
+
+        // The hash of a modified model belongs to the new model and must not remain next to the restored one.
+        // If the replaced model had a hash, it is moved back below.
+        for (File file : listFlaggedFiles(ChangeFlag.MODIFICATION)) {
+            if (file.getName().endsWith(CM_CACHE_SUFFIX)) {
+                Files.deleteIfExists(currentFolder.toPath().resolve(file.getName() + CM_HASH_SUFFIX));
+            }
         }
 
         // Move files that got replaced or deleted in current version
@@ -738,6 +1515,7 @@ public class HybridCache {
             Files.move(replacedFolder.toPath().resolve(file.toPath()), currentFolder.toPath().resolve(file.toPath()),
                     StandardCopyOption.REPLACE_EXISTING);
         }
+        resetVmVariableNames();
 
         this.clearChangeHistory();
 
@@ -751,7 +1529,7 @@ public class HybridCache {
     public Collection<ChangeFlag> getVmFlags() {
         Set<ChangeFlag> flags = new HashSet<>();
         for (ChangeFlag flag : ChangeFlag.values()) {
-            if (this.getFlagFile(VM_CACHE_FILE.toFile(), flag).exists()) {
+            if (cacheFileHasFlag(VM_CACHE_FILE.toFile(), flag)) {
                 flags.add(flag);
             }
         }
@@ -766,7 +1544,7 @@ public class HybridCache {
     public Collection<ChangeFlag> getBmFlags() {
         Set<ChangeFlag> flags = new HashSet<>();
         for (ChangeFlag flag : ChangeFlag.values()) {
-            if (this.getFlagFile(BM_CACHE_FILE.toFile(), flag).exists()) {
+            if (cacheFileHasFlag(BM_CACHE_FILE.toFile(), flag)) {
                 flags.add(flag);
             }
         }
@@ -783,7 +1561,7 @@ public class HybridCache {
         Set<ChangeFlag> changeFlags = new HashSet<>();
         File cacheFile = new File(getCacheFileName(sourceFile.getPath()));
         for (ChangeFlag flag : ChangeFlag.values()) {
-            if (this.getFlagFile(cacheFile, flag).exists()) {
+            if (cacheFileHasFlag(cacheFile, flag)) {
                 changeFlags.add(flag);
             }
         }
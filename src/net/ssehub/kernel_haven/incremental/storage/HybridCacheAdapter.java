@@ -1,15 +1,31 @@
 package net.ssehub.kernel_haven.incremental.storage;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import net.ssehub.kernel_haven.SetUpException;
 import net.ssehub.kernel_haven.analysis.AnalysisComponent;
 import net.ssehub.kernel_haven.build_model.BuildModel;
 import net.ssehub.kernel_haven.code_model.SourceFile;
 import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.incremental.settings.IncrementalAnalysisSettings;
 import net.ssehub.kernel_haven.incremental.storage.HybridCache.ChangeFlag;
+import net.ssehub.kernel_haven.incremental.util.SourceFileDifferenceDetector;
+import net.ssehub.kernel_haven.incremental.util.SourceFileDifferenceDetector.Consideration;
 import net.ssehub.kernel_haven.util.FormatException;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
 import net.ssehub.kernel_haven.variability_model.VariabilityModel;
 
 /**
@@ -31,10 +47,53 @@ import net.ssehub.kernel_haven.variability_model.VariabilityModel;
  * </blockquote>
  * <p>
  * 
+ * <p>
+ * The build, variability and code model are read concurrently and each model
+ * is handed to its output component as soon as it is read. Every output
+ * component takes its models from a bounded queue and adds them as results
+ * once it is started by the next component. Reading the models for an output
+ * component that is never started stops once its queue is full.
+ * </p>
+ * 
+ * <p>
+ * The models are published only through
+ * {@link AnalysisComponent#addResult(Object)}, as
+ * {@link AnalysisComponent#getNextResult()} may be final and handles the
+ * results of the infrastructure. The infrastructure queues the results without
+ * bound and does not report when the next component takes them, so once an
+ * output component is started, the back-pressure of the bounded queue only
+ * limits the models read ahead of forwarding them. A bound on the models not
+ * yet taken by the next component, e.g. through permits released on
+ * consumption, can not be kept without such a report and would block the
+ * adapter forever.
+ * </p>
+ * 
+ * <p>
+ * For differential analyses, the adapter optionally also provides the previous
+ * models and the pairs of previous and current models of all files whose code
+ * model changed with respect to a {@link Consideration}.
+ * </p>
+ * 
+ * <p>
+ * The changed files are determined once. The cm component for
+ * {@link CodeModelProcessing#CHANGED_SINCE_PREVIOUS}, the previous cm component
+ * and the changed cm component each read their own models of these files, so
+ * the components can be consumed in any order.
+ * </p>
+ * 
  * @author Moritz
  */
 public final class HybridCacheAdapter extends AnalysisComponent<Void> {
 
+    /** The number of models that may wait in the queue of an output component. */
+    static final int QUEUE_CAPACITY = 64;
+
+    /** The suffix of the names of the threads that publish the models of an output component. */
+    static final String PUBLISHER_SUFFIX = "-Publisher";
+
+    /** The marker for the end of the models in the queue of an output component. */
+    private static final Object END_OF_MODELS = new Object();
+
     /**
      * The Enum CodeModelProcessing.
      */
@@ -55,6 +114,16 @@ public final class HybridCacheAdapter extends AnalysisComponent<Void> {
          */
         NEWLY_WRITTEN,
 
+        /**
+         * Provides a partial codemodel to the next component containing only the
+         * models that the {@link SourceFileDifferenceDetector} considers different
+         * from the previous version. The files are compared in parallel. The
+         * {@link Consideration} passed to the adapter is used or, if none is
+         * passed, the one configured through
+         * {@link IncrementalAnalysisSettings#CHANGE_CONSIDERATION}.
+         */
+        CHANGED_SINCE_PREVIOUS,
+
     }
 
     /** The config. */
@@ -77,6 +146,38 @@ public final class HybridCacheAdapter extends AnalysisComponent<Void> {
     /** The change set only for cm. */
     private CodeModelProcessing cmProcessing;
 
+    /** The consideration for changed files or null if no previous models are provided. */
+    @Nullable
+    private Consideration changeConsideration;
+
+    /**
+     * The consideration used to determine the changed files. This is the passed
+     * consideration or, if none was passed, the configured one. Null if no changed
+     * files are determined.
+     */
+    @Nullable
+    private Consideration detectorConsideration;
+
+    /** The files whose code model changed, determined once by {@link #getChangedFiles(HybridCache)}. */
+    @Nullable
+    private List<File> changedFiles;
+
+    /** The previous bm component or null if no previous models are provided. */
+    @Nullable
+    private OutputComponent<BuildModel> previousBmComponent;
+
+    /** The previous vm component or null if no previous models are provided. */
+    @Nullable
+    private OutputComponent<VariabilityModel> previousVmComponent;
+
+    /** The previous cm component or null if no previous models are provided. */
+    @Nullable
+    private OutputComponent<SourceFile<?>> previousCmComponent;
+
+    /** The component for pairs of changed files or null if no previous models are provided. */
+    @Nullable
+    private OutputComponent<SourceFilePair> changedCmComponent;
+
     /**
      * Creates this double analysis component with the given input component.
      *
@@ -84,16 +185,50 @@ public final class HybridCacheAdapter extends AnalysisComponent<Void> {
      * @param inputComponent The component to get the results to pass to both other
      *                       components.
      * @param cmProcessing   the processing strategy for the codemodel
+     * @throws SetUpException thrown if the configured consideration is invalid
      */
     public HybridCacheAdapter(@NonNull Configuration config, @NonNull AnalysisComponent<HybridCache> inputComponent,
-            CodeModelProcessing cmProcessing) {
+            CodeModelProcessing cmProcessing) throws SetUpException {
+        this(config, inputComponent, cmProcessing, null);
+    }
+
+    /**
+     * Creates this double analysis component with the given input component that
+     * additionally provides the previous models if a consideration is given. The
+     * previous code model is provided for the same files as the current code
+     * model. The pairs of changed files contain all files whose code model
+     * changed with respect to the consideration.
+     *
+     * @param config              The global configuration.
+     * @param inputComponent      The component to get the results to pass to both
+     *                            other components.
+     * @param cmProcessing        the processing strategy for the codemodel
+     * @param changeConsideration the consideration for changed files or null if
+     *                            no previous models should be provided. Also used
+     *                            for {@link CodeModelProcessing#CHANGED_SINCE_PREVIOUS}.
+     * @throws SetUpException thrown if the configured consideration is invalid
+     */
+    public HybridCacheAdapter(@NonNull Configuration config, @NonNull AnalysisComponent<HybridCache> inputComponent,
+            CodeModelProcessing cmProcessing, @Nullable Consideration changeConsideration) throws SetUpException {
         super(config);
         this.config = config;
+        IncrementalAnalysisSettings.registerAllSettings(config);
         bmComponent = new OutputComponent<BuildModel>(config, "HybridCacheAdapter-bmComponent");
         vmComponent = new OutputComponent<VariabilityModel>(config, "HybridCacheAdapter-vmComponent");
         cmComponent = new OutputComponent<SourceFile<?>>(config, "HybridCacheAdapter-cmComponent");
+        if (changeConsideration != null) {
+            previousBmComponent = new OutputComponent<BuildModel>(config, "HybridCacheAdapter-previousBmComponent");
+            previousVmComponent =
+                    new OutputComponent<VariabilityModel>(config, "HybridCacheAdapter-previousVmComponent");
+            previousCmComponent = new OutputComponent<SourceFile<?>>(config, "HybridCacheAdapter-previousCmComponent");
+            changedCmComponent = new OutputComponent<SourceFilePair>(config, "HybridCacheAdapter-changedCmComponent");
+        }
         this.inputComponent = inputComponent;
         this.cmProcessing = cmProcessing;
+        this.changeConsideration = changeConsideration;
+        if (changeConsideration != null || cmProcessing.equals(CodeModelProcessing.CHANGED_SINCE_PREVIOUS)) {
+            this.detectorConsideration = getChangeConsideration();
+        }
     }
 
     /**
@@ -104,32 +239,376 @@ public final class HybridCacheAdapter extends AnalysisComponent<Void> {
      * @param config         The global configuration.
      * @param inputComponent The component to get the results to pass to both other
      *                       components.
+     * @throws SetUpException thrown if the settings could not be registered
      */
-    public HybridCacheAdapter(@NonNull Configuration config, @NonNull AnalysisComponent<HybridCache> inputComponent) {
+    public HybridCacheAdapter(@NonNull Configuration config, @NonNull AnalysisComponent<HybridCache> inputComponent)
+            throws SetUpException {
         this(config, inputComponent, CodeModelProcessing.COMPLETE);
     }
 
     /**
-     * Handle code model.
+     * Gets the files whose code model is provided according to the
+     * {@link CodeModelProcessing#NEWLY_EXTRACTED} or
+     * {@link CodeModelProcessing#NEWLY_WRITTEN}.
      *
      * @param data the data
-     * @return the collection
-     * @throws IOException     Signals that an I/O exception has occurred.
-     * @throws FormatException the format exception
+     * @return the files within the source-tree
      */
-    private Collection<SourceFile<?>> handleCodeModel(HybridCache data) throws IOException, FormatException {
-        Collection<SourceFile<?>> codeModel;
-        if (this.cmProcessing.equals(CodeModelProcessing.COMPLETE)) {
-            codeModel = data.readCm();
-        } else if (this.cmProcessing.equals(CodeModelProcessing.NEWLY_EXTRACTED)) {
+    private Collection<File> getCodeModelFiles(HybridCache data) {
+        Collection<File> codeModelFiles;
+        if (this.cmProcessing.equals(CodeModelProcessing.NEWLY_EXTRACTED)) {
             // Only read models for the files that were defined as target
             // for extraction within {@link IncrementalPreparation}
-            codeModel = data.readCmForFlags(ChangeFlag.EXTRACTION_CHANGE);
+            codeModelFiles = data.getCmFilesForFlags(ChangeFlag.EXTRACTION_CHANGE);
         } else {
-            codeModel = data.readCmForFlags(ChangeFlag.MODIFICATION, ChangeFlag.EXTRACTION_CHANGE,
+            codeModelFiles = data.getCmFilesForFlags(ChangeFlag.MODIFICATION, ChangeFlag.EXTRACTION_CHANGE,
                     ChangeFlag.AUXILLARY_CHANGE);
         }
-        return codeModel;
+        return codeModelFiles;
+    }
+
+    /**
+     * Gets the consideration for changed files. This is the consideration passed
+     * to the adapter or, if none was passed, the configured one.
+     *
+     * @return the consideration
+     * @throws SetUpException thrown if the configured consideration is invalid
+     */
+    private Consideration getChangeConsideration() throws SetUpException {
+        Consideration consideration = changeConsideration;
+        if (consideration == null) {
+            String configured = config.getValue(IncrementalAnalysisSettings.CHANGE_CONSIDERATION);
+            try {
+                consideration = Consideration.valueOf(configured.trim());
+            } catch (IllegalArgumentException e) {
+                throw new SetUpException("Invalid value \"" + configured + "\" for "
+                        + IncrementalAnalysisSettings.CHANGE_CONSIDERATION.getKey() + ", must be one of "
+                        + Arrays.toString(Consideration.values()));
+            }
+        }
+        return consideration;
+    }
+
+    /**
+     * Creates the detector for changed files.
+     *
+     * @param data the data
+     * @return the detector
+     * @throws IOException     Signals that an I/O exception has occurred.
+     * @throws FormatException the format exception
+     */
+    private SourceFileDifferenceDetector createDetector(HybridCache data) throws IOException, FormatException {
+        SourceFileDifferenceDetector detector;
+        if (detectorConsideration == Consideration.ONLY_VARIABILITY_CHANGE) {
+            detector = SourceFileDifferenceDetector.forVariableNames(detectorConsideration,
+                    data.readPreviousVmVariableNames(), data.readVmVariableNames());
+        } else {
+            detector = SourceFileDifferenceDetector.forVariableNames(detectorConsideration, null, null);
+        }
+        return detector;
+    }
+
+    /**
+     * Gets the files whose code model changed with respect to the consideration.
+     * The files are determined by the first caller and shared by all output
+     * components.
+     *
+     * @param data the data
+     * @return the changed files
+     * @throws IOException     Signals that an I/O exception has occurred.
+     * @throws FormatException the format exception
+     */
+    private synchronized List<File> getChangedFiles(HybridCache data) throws IOException, FormatException {
+        if (changedFiles == null) {
+            changedFiles = data.streamChangedCm(createDetector(data)).collect(Collectors.toList());
+        }
+        return changedFiles;
+    }
+
+    /**
+     * Hands the elements of a parallel stream to an output component. The workers
+     * of the stream block while the queue of the output component is full, so
+     * only few elements are held at once. The stream is consumed on a dedicated
+     * fork-join pool as blocked workers of the common pool would stall unrelated
+     * parallel work.
+     *
+     * @param <T>    the generic type
+     * @param stream the stream
+     * @param output the output component
+     * @return the number of elements
+     * @throws InterruptedException if interrupted while waiting for the output
+     *                              component
+     */
+    private static <T> long publishInParallel(Stream<T> stream, OutputComponent<T> output)
+            throws InterruptedException {
+        String name = output.getResultName();
+        long count;
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try (Stream<T> elements = stream) {
+            // Parallel streams run on the pool of the task consuming them
+            count = pool.submit(() -> elements.mapToLong(element -> {
+                try {
+                    output.publish(element);
+                } catch (InterruptedException e) {
+                    throw new CancellationException("Interrupted while providing models for " + name);
+                }
+                return 1;
+            }).sum()).get();
+        } catch (CancellationException e) {
+            throw new InterruptedException(e.getMessage());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CancellationException) {
+                throw new InterruptedException(e.getCause().getMessage());
+            }
+            throw new IllegalStateException("Could not provide models for " + name, e.getCause());
+        } finally {
+            // Interrupts workers that still wait for the output component
+            pool.shutdownNow();
+        }
+        return count;
+    }
+
+    /**
+     * Reads the build model and hands it to the bm component.
+     *
+     * @param data the data
+     * @throws IOException          Signals that an I/O exception has occurred.
+     * @throws FormatException      the format exception
+     * @throws InterruptedException if interrupted while waiting for the output
+     *                              component
+     */
+    private void publishBuildModel(HybridCache data) throws IOException, FormatException, InterruptedException {
+        BuildModel buildModel = data.readBm();
+        if (buildModel == null || buildModel.getSize() == 0) {
+            LOGGER.logWarning(HybridCacheAdapter.class.getSimpleName()
+                    + " contains none or empty build model after execute()");
+        }
+        if (buildModel != null) {
+            bmComponent.publish(buildModel);
+        }
+    }
+
+    /**
+     * Reads the variability model and hands it to the vm component.
+     *
+     * @param data the data
+     * @throws IOException          Signals that an I/O exception has occurred.
+     * @throws FormatException      the format exception
+     * @throws InterruptedException if interrupted while waiting for the output
+     *                              component
+     */
+    private void publishVariabilityModel(HybridCache data) throws IOException, FormatException, InterruptedException {
+        VariabilityModel varModel = data.readVm();
+        if (varModel == null || varModel.getVariables().size() == 0) {
+            LOGGER.logWarning(HybridCacheAdapter.class.getSimpleName()
+                    + " contains none or empty variability model after execute()");
+        }
+        if (varModel != null) {
+            vmComponent.publish(varModel);
+        }
+    }
+
+    /**
+     * Reads the code model file by file and hands each file to the cm component.
+     *
+     * @param data the data
+     * @throws IOException          Signals that an I/O exception has occurred.
+     * @throws FormatException      the format exception
+     * @throws InterruptedException if interrupted while waiting for the output
+     *                              component
+     */
+    private void publishCodeModel(HybridCache data) throws IOException, FormatException, InterruptedException {
+        long codeModelSize = 0;
+        if (this.cmProcessing.equals(CodeModelProcessing.CHANGED_SINCE_PREVIOUS)) {
+            // Deleted files have no current model
+            codeModelSize = publishInParallel(data.streamCm(getChangedFiles(data)), cmComponent);
+        } else if (this.cmProcessing.equals(CodeModelProcessing.COMPLETE)) {
+            // Read the cache files directly as not every name of a cache file maps back to a path
+            for (File cacheFile : data.getCmCacheFiles()) {
+                SourceFile<?> srcFile = data.readCmCacheFile(cacheFile);
+                if (srcFile == null) {
+                    LOGGER.logWarning("Could not read code model for file in cache: " + cacheFile.getPath());
+                } else {
+                    cmComponent.publish(srcFile);
+                    codeModelSize++;
+                }
+            }
+        } else {
+            for (File file : getCodeModelFiles(data)) {
+                SourceFile<?> srcFile = data.readCm(file);
+                if (srcFile == null) {
+                    LOGGER.logWarning("Could not read code model for file in cache: " + file.getPath());
+                } else {
+                    cmComponent.publish(srcFile);
+                    codeModelSize++;
+                }
+            }
+        }
+        if (codeModelSize == 0) {
+            LOGGER.logWarning(HybridCacheAdapter.class.getSimpleName() + " contains empty code model after execute()");
+        }
+    }
+
+    /**
+     * Reads the previous build model and hands it to the previous bm component.
+     *
+     * @param data the data
+     * @throws IOException          Signals that an I/O exception has occurred.
+     * @throws FormatException      the format exception
+     * @throws InterruptedException if interrupted while waiting for the output
+     *                              component
+     */
+    private void publishPreviousBuildModel(HybridCache data) throws IOException, FormatException, InterruptedException {
+        BuildModel buildModel = data.readPreviousBm();
+        if (buildModel != null) {
+            previousBmComponent.publish(buildModel);
+        }
+    }
+
+    /**
+     * Reads the previous variability model and hands it to the previous vm
+     * component.
+     *
+     * @param data the data
+     * @throws IOException          Signals that an I/O exception has occurred.
+     * @throws FormatException      the format exception
+     * @throws InterruptedException if interrupted while waiting for the output
+     *                              component
+     */
+    private void publishPreviousVariabilityModel(HybridCache data)
+            throws IOException, FormatException, InterruptedException {
+        VariabilityModel varModel = data.readPreviousVm();
+        if (varModel != null) {
+            previousVmComponent.publish(varModel);
+        }
+    }
+
+    /**
+     * Reads the previous code model file by file and hands each file to the
+     * previous cm component. Files without previous model are skipped.
+     *
+     * @param data the data
+     * @throws IOException          Signals that an I/O exception has occurred.
+     * @throws FormatException      the format exception
+     * @throws InterruptedException if interrupted while waiting for the output
+     *                              component
+     */
+    private void publishPreviousCodeModel(HybridCache data) throws IOException, FormatException, InterruptedException {
+        if (this.cmProcessing.equals(CodeModelProcessing.CHANGED_SINCE_PREVIOUS)) {
+            // Added files have no previous model
+            publishInParallel(data.streamPreviousCm(getChangedFiles(data)), previousCmComponent);
+        } else if (this.cmProcessing.equals(CodeModelProcessing.COMPLETE)) {
+            for (File cacheFile : data.getPreviousCmCacheFiles()) {
+                SourceFile<?> srcFile = data.readPreviousCmCacheFile(cacheFile);
+                if (srcFile != null) {
+                    previousCmComponent.publish(srcFile);
+                }
+            }
+        } else {
+            for (File file : getCodeModelFiles(data)) {
+                SourceFile<?> srcFile = data.readPreviousCm(file);
+                if (srcFile != null) {
+                    previousCmComponent.publish(srcFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the previous and current models of all changed files in parallel and
+     * hands the pairs to the changed cm component.
+     *
+     * @param data the data
+     * @throws IOException          Signals that an I/O exception has occurred.
+     * @throws FormatException      the format exception
+     * @throws InterruptedException if interrupted while waiting for the output
+     *                              component
+     */
+    private void publishChangedCodeModel(HybridCache data) throws IOException, FormatException, InterruptedException {
+        publishInParallel(data.streamCmPairs(getChangedFiles(data)), changedCmComponent);
+    }
+
+    /**
+     * Reads a model and hands it to an output component.
+     */
+    @FunctionalInterface
+    private interface ModelPublisher {
+
+        /**
+         * Reads the model and hands it to the output component.
+         *
+         * @throws IOException          Signals that an I/O exception has occurred.
+         * @throws FormatException      the format exception
+         * @throws InterruptedException if interrupted while waiting for the
+         *                              output component
+         */
+        void publish() throws IOException, FormatException, InterruptedException;
+    }
+
+    /**
+     * Starts a thread that runs a publisher and finishes the output components
+     * afterwards, so the output components finish independently of the other
+     * models. If the publisher fails, the output components are finished as
+     * aborted. The thread is named after the first output component followed by
+     * {@link #PUBLISHER_SUFFIX}.
+     *
+     * @param publisher the publisher
+     * @param outputs   the output components the publisher hands models to,
+     *                  null entries are ignored
+     * @return the started thread
+     */
+    private Thread startPublishing(ModelPublisher publisher, OutputComponent<?>... outputs) {
+        String name = outputs[0].getResultName();
+        Thread thread = new Thread(name + PUBLISHER_SUFFIX) {
+            @Override
+            public void run() {
+                boolean aborted = false;
+                try {
+                    publisher.publish();
+                } catch (IOException | FormatException e) {
+                    LOGGER.logException("Could not get models from " + HybridCache.class.getSimpleName(), e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    LOGGER.logException("Interrupted while providing models for " + name, e);
+                    aborted = true;
+                } catch (Throwable e) {
+                    LOGGER.logException("Failed to provide models for " + name, e);
+                    aborted = true;
+                } finally {
+                    // Consumers wait for the end of the models, so it is signaled in any case
+                    for (OutputComponent<?> output : outputs) {
+                        if (output != null) {
+                            output.finish(aborted);
+                        }
+                    }
+                }
+            }
+        };
+        // A thread blocked by an output component that is never consumed must not keep the JVM alive
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Joins the publisher threads. If interrupted while waiting, the publisher
+     * threads are interrupted as well so that they abort and finish their output
+     * components.
+     *
+     * @param threads the publisher threads
+     */
+    private void tryJoinThreads(List<Thread> threads) {
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.logException("Thread interrupted", e);
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+        }
     }
 
     /**
@@ -146,58 +625,31 @@ public final class HybridCacheAdapter extends AnalysisComponent<Void> {
         // CHECKSTYLE:OFF
         if ((data = inputComponent.getNextResult()) != null) {
             // CHECKSTYLE:ON
-            try {
-
-                // Extract models
-                Collection<SourceFile<?>> codeModel = handleCodeModel(data);
-                BuildModel buildModel = data.readBm();
-                VariabilityModel varModel = data.readVm();
-
-                // add Models to components
-                for (SourceFile<?> srcFile : codeModel) {
-                    if (srcFile == null) {
-                        throw new NullPointerException(
-                                SourceFile.class.getSimpleName() + " was null - this should never happen");
-                    } else {
-                        cmComponent.myAddResult(srcFile);
-                    }
-                }
-
-                if (codeModel.isEmpty()) {
-                    LOGGER.logWarning(
-                            HybridCacheAdapter.class.getSimpleName() + " contains empty code model after execute()");
-                }
-                if (buildModel == null || buildModel.getSize() == 0) {
-                    LOGGER.logWarning(HybridCacheAdapter.class.getSimpleName()
-                            + " contains none or empty build model after execute()");
-                }
-                if (varModel == null || varModel.getVariables().size() == 0) {
-                    LOGGER.logWarning(HybridCacheAdapter.class.getSimpleName()
-                            + " contains none or empty variability model after execute()");
-                }
+            // start threads for each model-type so that each model is provided as soon as it is read
+            List<Thread> threads = new ArrayList<>();
+            threads.add(startPublishing(() -> publishVariabilityModel(data), vmComponent));
+            threads.add(startPublishing(() -> publishBuildModel(data), bmComponent));
+            threads.add(startPublishing(() -> publishCodeModel(data), cmComponent));
+            if (changeConsideration != null) {
+                threads.add(startPublishing(() -> publishPreviousVariabilityModel(data), previousVmComponent));
+                threads.add(startPublishing(() -> publishPreviousBuildModel(data), previousBmComponent));
+                threads.add(startPublishing(() -> publishPreviousCodeModel(data), previousCmComponent));
+                threads.add(startPublishing(() -> publishChangedCodeModel(data), changedCmComponent));
+            }
 
-                if (buildModel != null) {
-                    bmComponent.myAddResult(buildModel);
-                }
-                if (varModel != null) {
-                    vmComponent.myAddResult(varModel);
-                }
-            } catch (IOException | FormatException e) {
-                LOGGER.logException("Could not get models from " + HybridCache.class.getSimpleName(), e);
+            // The threads finish their output components themselves
+            tryJoinThreads(threads);
+        } else {
+            bmComponent.finish(false);
+            vmComponent.finish(false);
+            cmComponent.finish(false);
+            if (changeConsideration != null) {
+                previousBmComponent.finish(false);
+                previousVmComponent.finish(false);
+                previousCmComponent.finish(false);
+                changedCmComponent.finish(false);
             }
         }
-        vmComponent.done = true;
-        synchronized (vmComponent) {
-            vmComponent.notifyAll();
-        }
-        bmComponent.done = true;
-        synchronized (bmComponent) {
-            bmComponent.notifyAll();
-        }
-        cmComponent.done = true;
-        synchronized (cmComponent) {
-            cmComponent.notifyAll();
-        }
     }
 
     /**
@@ -217,14 +669,20 @@ public final class HybridCacheAdapter extends AnalysisComponent<Void> {
     }
 
     /**
-     * The pseudo component that the next components will get as the input.
+     * The pseudo component that the next components will get as the input. It
+     * adds the models handed to it by the {@link HybridCacheAdapter} through a
+     * bounded queue as its results, so the {@link HybridCacheAdapter} blocks while
+     * the component is not started.
      *
      * @param <T> the generic type
      */
     private class OutputComponent<T> extends AnalysisComponent<T> {
 
-        /** The done. */
-        private volatile boolean done;
+        /** The models handed to this component followed by {@link #END_OF_MODELS}. */
+        private BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        /** Defines whether the end of the models was already signaled. */
+        private volatile boolean finished;
 
         /** The name. */
         private String name;
@@ -241,7 +699,9 @@ public final class HybridCacheAdapter extends AnalysisComponent<Void> {
         }
 
         /**
-         * Execute.
+         * Adds the models handed to this component as results until the end of
+         * the models is signaled. If interrupted, the remaining models are
+         * discarded so that the {@link HybridCacheAdapter} does not block.
          */
         /*
          * (non-Javadoc)
@@ -249,30 +709,77 @@ public final class HybridCacheAdapter extends AnalysisComponent<Void> {
          * @see net.ssehub.kernel_haven.analysis.AnalysisComponent#execute()
          */
         @Override
+        @SuppressWarnings("unchecked")
         protected void execute() {
             // make sure that SplitComponent is started; multiple calls to
             // start() will do
             // no harm
             HybridCacheAdapter.this.start();
 
-            while (!done) {
-                synchronized (this) {
-                    try {
-                        wait();
-                    } catch (InterruptedException e) {
+            boolean interrupted = false;
+            Object next = null;
+            while (next != END_OF_MODELS) {
+                try {
+                    next = queue.take();
+                    if (next != END_OF_MODELS && !interrupted) {
+                        addResult((T) next);
                     }
+                } catch (InterruptedException e) {
+                    LOGGER.logException("Interrupted while adding models in " + name, e);
+                    interrupted = true;
                 }
             }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Hands a model to this component. Blocks while the queue of this component
+         * is full.
+         *
+         * @param model the model
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public void publish(T model) throws InterruptedException {
+            queue.put(model);
+        }
+
+        /**
+         * Signals that all models were handed to this component.
+         *
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public void finish() throws InterruptedException {
+            if (!finished) {
+                queue.put(END_OF_MODELS);
+                finished = true;
+            }
         }
 
         /**
-         * Method to allow for access to {@link AnalysisComponent#addResult} from within
-         * {@link HybridCacheAdapter}.
+         * Signals the end of the models if this was not done before. If aborted,
+         * models that were not yet forwarded are discarded so that the end can be
+         * signaled without waiting.
          *
-         * @param result the result
+         * @param aborted defines whether the adapter was aborted
          */
-        public void myAddResult(T result) {
-            this.addResult(result);
+        public void finish(boolean aborted) {
+            if (!finished) {
+                if (aborted) {
+                    // Only the publishing thread adds to the queue, so the marker fits after clearing it
+                    queue.clear();
+                    queue.offer(END_OF_MODELS);
+                    finished = true;
+                } else {
+                    try {
+                        finish();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        finish(true);
+                    }
+                }
+            }
         }
 
         /**
@@ -323,4 +830,49 @@ public final class HybridCacheAdapter extends AnalysisComponent<Void> {
         return this.cmComponent;
     }
 
+    /**
+     * Gets the previous vm component.
+     *
+     * @return the previous vm component or null if no previous models are
+     *         provided
+     */
+    @Nullable
+    public AnalysisComponent<VariabilityModel> getPreviousVmComponent() {
+        return this.previousVmComponent;
+    }
+
+    /**
+     * Gets the previous bm component.
+     *
+     * @return the previous bm component or null if no previous models are
+     *         provided
+     */
+    @Nullable
+    public AnalysisComponent<BuildModel> getPreviousBmComponent() {
+        return this.previousBmComponent;
+    }
+
+    /**
+     * Gets the previous cm component.
+     *
+     * @return the previous cm component or null if no previous models are
+     *         provided
+     */
+    @Nullable
+    public AnalysisComponent<SourceFile<?>> getPreviousCmComponent() {
+        return this.previousCmComponent;
+    }
+
+    /**
+     * Gets the component providing the previous and current code models of all
+     * files whose code model changed.
+     *
+     * @return the changed cm component or null if no previous models are
+     *         provided
+     */
+    @Nullable
+    public AnalysisComponent<SourceFilePair> getChangedCmComponent() {
+        return this.changedCmComponent;
+    }
+
 }
@@ -55,7 +55,10 @@ public class HybridCacheLoader extends AnalysisComponent<HybridCache> {
     protected void execute() {
         File cacheDir = config.getValue(IncrementalAnalysisSettings.HYBRID_CACHE_DIRECTORY);
         LOGGER.logDebug("Reusing existing hybrid Cache from directory " + cacheDir);
-        HybridCache hybridCache = new HybridCache(cacheDir);
+        HybridCache hybridCache = HybridCache.open(cacheDir);
+        if (config.getValue(IncrementalAnalysisSettings.PRELOAD_VARIABILITY_MODEL)) {
+            hybridCache.preloadVm();
+        }
 
         this.addResult(hybridCache);
     }
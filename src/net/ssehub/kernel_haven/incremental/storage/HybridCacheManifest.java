@@ -0,0 +1,271 @@
+package net.ssehub.kernel_haven.incremental.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.ssehub.kernel_haven.incremental.storage.HybridCache.ChangeFlag;
+import net.ssehub.kernel_haven.incremental.util.FolderUtil;
+import net.ssehub.kernel_haven.util.FormatException;
+
+/**
+ * Snapshot of the files of a {@link HybridCache}: the cache files of the
+ * current version, the cache files replaced by the current version and the
+ * flagged cache files. A {@link HybridCache} opened through a manifest answers
+ * lookups of its files from memory instead of the file system.
+ *
+ * The manifest is stored as a text file with a header line followed by one
+ * line per file consisting of its section and its name, separated by a space.
+ * The header also records the modification time of the folder of each section
+ * when it was listed, so that a manifest that no longer matches the folders can
+ * be detected.
+ *
+ * @author moritz
+ */
+class HybridCacheManifest {
+
+    /** The name of the manifest file within the cache folder. */
+    static final String FILE_NAME = "manifest.txt";
+
+    /** The header identifying the format of the manifest. */
+    private static final String HEADER = "hybrid-cache-manifest 2";
+
+    /** The separator between the section and the modification time of its folder within the header. */
+    private static final char MODIFICATION_SEPARATOR = '=';
+
+    /** The section for files of the current version. */
+    private static final String CURRENT_SECTION = "current";
+
+    /** The section for replaced files. */
+    private static final String REPLACED_SECTION = "backup";
+
+    /** The names of the cache files of the current version. */
+    private Set<String> currentFiles = new HashSet<>();
+
+    /** The names of the replaced cache files. */
+    private Set<String> replacedFiles = new HashSet<>();
+
+    /** The names of the flagged cache files for each flag. */
+    private Map<ChangeFlag, Set<String>> flaggedFiles = new EnumMap<>(ChangeFlag.class);
+
+    /** The modification times of the folders of the sections when they were listed. */
+    private Map<String, Long> folderModifications = new LinkedHashMap<>();
+
+    /**
+     * Instantiates a new empty manifest.
+     */
+    private HybridCacheManifest() {
+        for (ChangeFlag flag : ChangeFlag.values()) {
+            flaggedFiles.put(flag, new HashSet<>());
+        }
+    }
+
+    /**
+     * Creates the manifest for the folders of a cache by listing them.
+     *
+     * @param currentFolder           the folder of the current version
+     * @param replacedFolder          the folder of the replaced files
+     * @param changeInformationFolder the folder of the flags
+     * @return the manifest
+     */
+    static HybridCacheManifest scan(File currentFolder, File replacedFolder, File changeInformationFolder) {
+        HybridCacheManifest manifest = new HybridCacheManifest();
+        // Taken before listing, so that modifications while listing are detected later on
+        manifest.folderModifications = getFolderModifications(currentFolder, replacedFolder, changeInformationFolder);
+        addNames(manifest.currentFiles, currentFolder);
+        addNames(manifest.replacedFiles, replacedFolder);
+        for (ChangeFlag flag : ChangeFlag.values()) {
+            File flagFolder = changeInformationFolder.toPath().resolve(flag.toString()).toFile();
+            addNames(manifest.flaggedFiles.get(flag), flagFolder);
+        }
+        return manifest;
+    }
+
+    /**
+     * Gets the modification times of the folders of all sections. Folders that
+     * do not exist have the modification time 0.
+     *
+     * @param currentFolder           the folder of the current version
+     * @param replacedFolder          the folder of the replaced files
+     * @param changeInformationFolder the folder of the flags
+     * @return the modification times by section
+     */
+    private static Map<String, Long> getFolderModifications(File currentFolder, File replacedFolder,
+            File changeInformationFolder) {
+        Map<String, Long> modifications = new LinkedHashMap<>();
+        modifications.put(CURRENT_SECTION, currentFolder.lastModified());
+        modifications.put(REPLACED_SECTION, replacedFolder.lastModified());
+        for (ChangeFlag flag : ChangeFlag.values()) {
+            modifications.put(flag.toString(),
+                    changeInformationFolder.toPath().resolve(flag.toString()).toFile().lastModified());
+        }
+        return modifications;
+    }
+
+    /**
+     * Checks whether the folders are unmodified since they were listed for this
+     * manifest.
+     *
+     * @param currentFolder           the folder of the current version
+     * @param replacedFolder          the folder of the replaced files
+     * @param changeInformationFolder the folder of the flags
+     * @return true, if the manifest matches the folders
+     */
+    boolean matches(File currentFolder, File replacedFolder, File changeInformationFolder) {
+        return folderModifications
+                .equals(getFolderModifications(currentFolder, replacedFolder, changeInformationFolder));
+    }
+
+    /**
+     * Adds the names of the files within a folder.
+     *
+     * @param names  the names
+     * @param folder the folder, may not exist
+     */
+    private static void addNames(Set<String> names, File folder) {
+        if (folder.exists()) {
+            for (File file : FolderUtil.listRelativeFiles(folder, false)) {
+                names.add(file.getPath());
+            }
+        }
+    }
+
+    /**
+     * Reads a manifest file.
+     *
+     * @param manifestFile the manifest file
+     * @return the manifest
+     * @throws IOException     Signals that an I/O exception has occurred.
+     * @throws FormatException if the file is no valid manifest
+     */
+    static HybridCacheManifest read(File manifestFile) throws IOException, FormatException {
+        List<String> lines = Files.readAllLines(manifestFile.toPath(), StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).startsWith(HEADER + " ")) {
+            throw new FormatException("Invalid manifest header in " + manifestFile);
+        }
+        HybridCacheManifest manifest = new HybridCacheManifest();
+        for (String modification : lines.get(0).substring(HEADER.length()).trim().split(" ")) {
+            int separator = modification.indexOf(MODIFICATION_SEPARATOR);
+            try {
+                manifest.folderModifications.put(modification.substring(0, separator),
+                        Long.parseLong(modification.substring(separator + 1)));
+            } catch (IndexOutOfBoundsException | NumberFormatException exc) {
+                throw new FormatException("Invalid manifest header in " + manifestFile);
+            }
+        }
+        for (int i = 1; i < lines.size(); i++) {
+            String line = lines.get(i);
+            int separator = line.indexOf(' ');
+            if (separator <= 0) {
+                throw new FormatException("Invalid manifest line " + (i + 1) + " in " + manifestFile);
+            }
+            manifest.getSection(line.substring(0, separator), manifestFile).add(line.substring(separator + 1));
+        }
+        return manifest;
+    }
+
+    /**
+     * Gets the names of a section.
+     *
+     * @param section      the section
+     * @param manifestFile the manifest file
+     * @return the names of the section
+     * @throws FormatException if the section is unknown
+     */
+    private Set<String> getSection(String section, File manifestFile) throws FormatException {
+        Set<String> names = null;
+        if (section.equals(CURRENT_SECTION)) {
+            names = currentFiles;
+        } else if (section.equals(REPLACED_SECTION)) {
+            names = replacedFiles;
+        } else {
+            for (ChangeFlag flag : ChangeFlag.values()) {
+                if (flag.toString().equals(section)) {
+                    names = flaggedFiles.get(flag);
+                }
+            }
+        }
+        if (names == null) {
+            throw new FormatException("Unknown manifest section " + section + " in " + manifestFile);
+        }
+        return names;
+    }
+
+    /**
+     * Writes the manifest. The file is replaced atomically so that readers never
+     * see a partial manifest.
+     *
+     * @param manifestFile the manifest file
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    void write(File manifestFile) throws IOException {
+        List<String> lines = new ArrayList<>();
+        StringBuilder header = new StringBuilder(HEADER);
+        for (Map.Entry<String, Long> modification : folderModifications.entrySet()) {
+            header.append(' ').append(modification.getKey()).append(MODIFICATION_SEPARATOR)
+                    .append(modification.getValue());
+        }
+        lines.add(header.toString());
+        addLines(lines, CURRENT_SECTION, currentFiles);
+        addLines(lines, REPLACED_SECTION, replacedFiles);
+        for (ChangeFlag flag : ChangeFlag.values()) {
+            addLines(lines, flag.toString(), flaggedFiles.get(flag));
+        }
+        File tempFile = new File(manifestFile.getPath() + ".tmp");
+        Files.write(tempFile.toPath(), lines, StandardCharsets.UTF_8);
+        Files.move(tempFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Adds the lines for a section.
+     *
+     * @param lines   the lines
+     * @param section the section
+     * @param names   the names of the section
+     */
+    private static void addLines(List<String> lines, String section, Set<String> names) {
+        for (String name : names) {
+            lines.add(section + " " + name);
+        }
+    }
+
+    /**
+     * Gets the names of the cache files of the current version.
+     *
+     * @return the names
+     */
+    Set<String> getCurrentFiles() {
+        return Collections.unmodifiableSet(currentFiles);
+    }
+
+    /**
+     * Gets the names of the replaced cache files.
+     *
+     * @return the names
+     */
+    Set<String> getReplacedFiles() {
+        return Collections.unmodifiableSet(replacedFiles);
+    }
+
+    /**
+     * Gets the names of the cache files carrying a flag.
+     *
+     * @param flag the flag
+     * @return the names
+     */
+    Set<String> getFlaggedFiles(ChangeFlag flag) {
+        return Collections.unmodifiableSet(flaggedFiles.get(flag));
+    }
+
+}
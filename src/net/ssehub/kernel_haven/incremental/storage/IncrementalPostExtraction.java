@@ -113,7 +113,8 @@ public class IncrementalPostExtraction extends AnalysisComponent<HybridCache> {
                 @Override
                 public void run() {
                     codeModelExtraction(hybridCache, config.getValue(IncrementalAnalysisSettings.DELETED_FILES),
-                            config.getValue(DefaultSettings.CODE_EXTRACTOR_FILES));
+                            config.getValue(DefaultSettings.CODE_EXTRACTOR_FILES),
+                            config.getValue(IncrementalAnalysisSettings.INITIAL_IMPORT));
                 }
             };
             cmThread.start();
@@ -161,6 +162,13 @@ public class IncrementalPostExtraction extends AnalysisComponent<HybridCache> {
             }
         }
 
+        // Enables HybridCacheLoader to open the cache without listing its folders
+        try {
+            hybridCache.writeManifest();
+        } catch (IOException exc) {
+            LOGGER.logException("Could not write manifest of hybrid cache", exc);
+        }
+
         this.addResult(hybridCache);
     }
 
@@ -312,9 +320,12 @@ public class IncrementalPostExtraction extends AnalysisComponent<HybridCache> {
      * @param hybridCache  the hybrid cache to write the extracted results to.
      * @param deletedFiles the deleted files
      * @param extractionTargets The list of extraction targets (file paths).
+     * @param initialImport Whether the extraction belongs to the initial import into an empty
+     *        {@link HybridCache}. In this case models are written without looking for previous models and
+     *        flagged in bulk after the extraction finished.
      */
     private void codeModelExtraction(HybridCache hybridCache, List<String> deletedFiles,
-            List<String> extractionTargets) {
+            List<String> extractionTargets, boolean initialImport) {
         SourceFile<?> file;
 
         // delete all models corresponding to deleted files
@@ -333,12 +344,18 @@ public class IncrementalPostExtraction extends AnalysisComponent<HybridCache> {
         }
 
         Set<String> extractionFailures = new HashSet<String>(extractionTargets);
+        List<File> importedFiles = new ArrayList<>();
 
         // Add new models to hybridCache
         while ((file = cmComponent.getNextResult()) != null) {
             try {
-                hybridCache.write(file);
-                hybridCache.flag(file, ChangeFlag.EXTRACTION_CHANGE);
+                if (initialImport) {
+                    hybridCache.writeToEmptyCache(file);
+                    importedFiles.add(file.getPath());
+                } else {
+                    hybridCache.write(file);
+                    hybridCache.flag(file, ChangeFlag.EXTRACTION_CHANGE);
+                }
                 extractionFailures.remove(file.getPath().toString());
             } catch (IOException e) {
                 LOGGER.logException("Could not write code model for file " + file.getPath().getPath() + " to "
@@ -346,6 +363,17 @@ public class IncrementalPostExtraction extends AnalysisComponent<HybridCache> {
             }
         }
 
+        // Flag all models of the initial import at once
+        if (initialImport) {
+            try {
+                hybridCache.flag(importedFiles, ChangeFlag.ADDITION);
+                hybridCache.flag(importedFiles, ChangeFlag.EXTRACTION_CHANGE);
+            } catch (IOException e) {
+                LOGGER.logException("Could not flag imported code models in " + HybridCache.class.getSimpleName(),
+                        e);
+            }
+        }
+
         // delete all models corresponding to extraction failures
         for (String entry : extractionFailures) {
             try {
@@ -0,0 +1,82 @@
+package net.ssehub.kernel_haven.incremental.storage;
+
+import java.io.File;
+
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * The previous and the current code model of a single file within the
+ * source-tree as read from the {@link HybridCache}.
+ *
+ * @author moritz
+ */
+public class SourceFilePair {
+
+    /** The file within the source-tree. */
+    @NonNull
+    private File path;
+
+    /** The previous model. */
+    @Nullable
+    private SourceFile<?> previous;
+
+    /** The current model. */
+    @Nullable
+    private SourceFile<?> current;
+
+    /**
+     * Instantiates a new source file pair.
+     *
+     * @param path     the file within the source-tree
+     * @param previous the previous model, null if the file was added
+     * @param current  the current model, null if the file was deleted
+     */
+    public SourceFilePair(@NonNull File path, @Nullable SourceFile<?> previous, @Nullable SourceFile<?> current) {
+        this.path = path;
+        this.previous = previous;
+        this.current = current;
+    }
+
+    /**
+     * Gets the file within the source-tree.
+     *
+     * @return the path
+     */
+    @NonNull
+    public File getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the previous model.
+     *
+     * @return the previous model or null if the file was added
+     */
+    @Nullable
+    public SourceFile<?> getPrevious() {
+        return previous;
+    }
+
+    /**
+     * Gets the current model.
+     *
+     * @return the current model or null if the file was deleted
+     */
+    @Nullable
+    public SourceFile<?> getCurrent() {
+        return current;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "SourceFilePair [path=" + path + "]";
+    }
+
+}
@@ -1,11 +1,12 @@
 package net.ssehub.kernel_haven.incremental.util;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.ssehub.kernel_haven.util.logic.Conjunction;
 import net.ssehub.kernel_haven.util.logic.Disjunction;
 import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
 import net.ssehub.kernel_haven.util.logic.IFormulaVisitor;
 import net.ssehub.kernel_haven.util.logic.Negation;
 import net.ssehub.kernel_haven.util.logic.True;
@@ -18,14 +19,110 @@ import net.ssehub.kernel_haven.variability_model.VariabilityModel;
  * {@link VariabilityModel}. Alternatively the formula may contain a variable
  * starting with CONFIG_ or ending with _MODULE to be considered relevant.
  * 
+ * <p>
+ * The relevance of every checked formula and sub-formula is memorized, so each
+ * distinct formula is only evaluated once per checker. Formulas are compared
+ * structurally through hashes that are computed bottom-up once per checked
+ * formula, as {@link Formula#hashCode()} traverses the whole formula on every
+ * call. No formula instances are tracked by identity, so the memorized results
+ * do not grow with the number of checked instances and a checker may be used
+ * by multiple threads concurrently without a global lock.
+ * </p>
+ * 
  * @author El-Sharkawy, Moritz
  *
  */
 public class LinuxFormulaRelevancyChecker implements IFormulaVisitor<Boolean> {
 
-    private Set<String> definedVariables;
+    private VariableNameSet definedVariables;
     private boolean considerVmVarsOnly;
 
+    /** The relevance of already checked formulas, compared structurally. */
+    private Map<FormulaKey, Boolean> formulaRelevance = new ConcurrentHashMap<>();
+
+    /**
+     * Key of a formula with its structural hash and the keys of its operands.
+     */
+    private static final class FormulaKey {
+
+        /** The formula. */
+        private final Formula formula;
+
+        /** The keys of the operands, empty for variables, constants and unknown formulas. */
+        private final FormulaKey[] operands;
+
+        /** The structural hash of the formula. */
+        private final int hash;
+
+        /**
+         * Instantiates a new key. The hash is computed from the hashes of the
+         * operands, so the formula is only traversed once.
+         *
+         * @param formula  the formula
+         * @param operands the keys of the operands
+         * @param kind     distinguishes the kinds of formulas with operands
+         */
+        private FormulaKey(Formula formula, FormulaKey[] operands, int kind) {
+            this.formula = formula;
+            this.operands = operands;
+            int operandHash = 0;
+            for (FormulaKey operand : operands) {
+                operandHash = 31 * operandHash + operand.hash;
+            }
+            this.hash = operands.length == 0 ? formula.hashCode() : 31 * operandHash + kind;
+        }
+
+        /**
+         * Creates the keys of a formula and all of its sub-formulas.
+         *
+         * @param formula the formula
+         * @return the key of the formula
+         */
+        private static FormulaKey of(Formula formula) {
+            FormulaKey key;
+            if (formula instanceof Negation) {
+                key = new FormulaKey(formula, new FormulaKey[] {of(((Negation) formula).getFormula())}, 1);
+            } else if (formula instanceof Conjunction) {
+                Conjunction conjunction = (Conjunction) formula;
+                key = new FormulaKey(formula,
+                        new FormulaKey[] {of(conjunction.getLeft()), of(conjunction.getRight())}, 2);
+            } else if (formula instanceof Disjunction) {
+                Disjunction disjunction = (Disjunction) formula;
+                key = new FormulaKey(formula,
+                        new FormulaKey[] {of(disjunction.getLeft()), of(disjunction.getRight())}, 3);
+            } else {
+                // Variables, constants and unknown formulas
+                key = new FormulaKey(formula, new FormulaKey[0], 0);
+            }
+            return key;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object obj) {
+            boolean equal = this == obj;
+            if (!equal && obj instanceof FormulaKey) {
+                FormulaKey other = (FormulaKey) obj;
+                equal = hash == other.hash && formula.equals(other.formula);
+            }
+            return equal;
+        }
+    }
+
     /**
      * Sole constructor of this class.
      * 
@@ -49,12 +146,23 @@ public class LinuxFormulaRelevancyChecker implements IFormulaVisitor<Boolean> {
      * 
      */
     public LinuxFormulaRelevancyChecker(VariabilityModel varModel, boolean considerVmVarsOnly) {
+        this(considerVmVarsOnly ? VariableNameSet.of(varModel) : null, considerVmVarsOnly);
+    }
 
+    /**
+     * Instantiates a new checker for a prebuilt set of the variables defined in
+     * the variability model. The set is shared and not copied.
+     * 
+     * @param definedVariables   the names of the variables defined in the
+     *                           variability model, must be not <tt>null</tt> if
+     *                           considerVmVarsOnly is <tt>true</tt>
+     * @param considerVmVarsOnly Specification whether a formula should only be
+     *                           considered relevant if it contains variables known
+     *                           by the variability model
+     */
+    public LinuxFormulaRelevancyChecker(VariableNameSet definedVariables, boolean considerVmVarsOnly) {
         this.considerVmVarsOnly = considerVmVarsOnly;
-
-        if (varModel != null && considerVmVarsOnly) {
-            definedVariables = new HashSet<>(varModel.getVariableMap().keySet());
-        }
+        this.definedVariables = definedVariables;
     }
 
     /**
@@ -64,18 +172,45 @@ public class LinuxFormulaRelevancyChecker implements IFormulaVisitor<Boolean> {
      * @return <tt>true</tt> if the variable is relevant, <tt>false</tt> otherwise.
      */
     private boolean isRelevant(@NonNull String variable) {
-        boolean isRelevant;
-        if (considerVmVarsOnly) {
-            isRelevant = definedVariables.contains(variable);
+        boolean isRelevant = !considerVmVarsOnly || definedVariables.contains(variable)
+                // Consider MODULE-variables heuristically
+                || variable.endsWith("_MODULE") || variable.startsWith("CONFIG_");
+        return isRelevant;
+    }
 
-            // Consider MODULE-variables heuristically
-            if (!isRelevant && (variable.endsWith("_MODULE") || (variable.startsWith("CONFIG_")))) {
-                isRelevant = true;
+    /**
+     * Checks whether a formula is relevant. The result is taken from the
+     * memorized results if the formula was checked before.
+     * 
+     * @param formula the formula
+     * @return <tt>true</tt> if the formula is relevant, <tt>false</tt> otherwise.
+     */
+    @Override
+    public Boolean visit(@NonNull Formula formula) {
+        return isRelevant(FormulaKey.of(formula));
+    }
+
+    /**
+     * Checks whether a formula is relevant. The result is taken from the
+     * memorized results if an equal formula was checked before. Sub-formulas are
+     * checked through their keys, so their hashes are not computed again.
+     *
+     * @param key the key of the formula
+     * @return <tt>true</tt> if the formula is relevant, <tt>false</tt> otherwise.
+     */
+    private boolean isRelevant(FormulaKey key) {
+        // Not computeIfAbsent as the check recursively updates the map
+        Boolean isRelevant = formulaRelevance.get(key);
+        if (isRelevant == null) {
+            if (key.operands.length == 0) {
+                isRelevant = key.formula.accept(this);
+            } else {
+                // Same as visitNegation, visitConjunction and visitDisjunction
+                isRelevant = !considerVmVarsOnly || isRelevant(key.operands[0])
+                        || key.operands.length > 1 && isRelevant(key.operands[1]);
             }
-        } else {
-            isRelevant = true;
+            formulaRelevance.put(key, isRelevant);
         }
-
         return isRelevant;
     }
 
@@ -1,14 +1,20 @@
 package net.ssehub.kernel_haven.incremental.util;
 
 import java.io.File;
-import java.util.Collections;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
 import net.ssehub.kernel_haven.code_model.CodeElement;
 import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.incremental.storage.HybridCache;
+import net.ssehub.kernel_haven.util.FormatException;
 import net.ssehub.kernel_haven.util.null_checks.Nullable;
 import net.ssehub.kernel_haven.variability_model.VariabilityModel;
 
@@ -55,6 +61,12 @@ public class SourceFileDifferenceDetector {
     /** The consideration. */
     private Consideration consideration;
 
+    /**
+     * Defines whether both files are checked against the same variability model
+     * so that elements with the same structure are equally relevant.
+     */
+    private boolean sameVarModels;
+
     /**
      * Instantiates a new code file comparator.
      *
@@ -64,10 +76,50 @@ public class SourceFileDifferenceDetector {
      */
     public SourceFileDifferenceDetector(Consideration consideration, @Nullable VariabilityModel varModelA,
             @Nullable VariabilityModel varModelB) {
+        if (consideration == Consideration.ONLY_VARIABILITY_CHANGE) {
+            init(consideration, VariableNameSet.of(varModelA), VariableNameSet.of(varModelB));
+        } else {
+            init(consideration, null, null);
+        }
+    }
+
+    /**
+     * Creates a new code file comparator for prebuilt sets of the variables
+     * defined in the variability models, e.g. as provided by
+     * {@link HybridCache#readVmVariableNames()}. The sets are shared and not
+     * copied, so detectors can be created cheaply.
+     *
+     * @param consideration      the consideration
+     * @param varModelAVariables the variables of var model A, only required for
+     *                           {@link Consideration#ONLY_VARIABILITY_CHANGE}
+     * @param varModelBVariables the variables of var model B, only required for
+     *                           {@link Consideration#ONLY_VARIABILITY_CHANGE}
+     * @return the source file difference detector
+     */
+    public static SourceFileDifferenceDetector forVariableNames(Consideration consideration,
+            @Nullable VariableNameSet varModelAVariables, @Nullable VariableNameSet varModelBVariables) {
+        SourceFileDifferenceDetector detector = new SourceFileDifferenceDetector();
+        detector.init(consideration, varModelAVariables, varModelBVariables);
+        return detector;
+    }
+
+    /**
+     * Initializes the consideration and the relevancy checkers.
+     *
+     * @param consideration      the consideration
+     * @param varModelAVariables the variables of var model A
+     * @param varModelBVariables the variables of var model B
+     */
+    private void init(Consideration consideration, @Nullable VariableNameSet varModelAVariables,
+            @Nullable VariableNameSet varModelBVariables) {
         this.consideration = consideration;
+        this.sameVarModels = varModelAVariables == varModelBVariables
+                || varModelAVariables != null && varModelAVariables.equals(varModelBVariables);
         if (consideration == Consideration.ONLY_VARIABILITY_CHANGE) {
-            this.varModelAChecker = new LinuxFormulaRelevancyChecker(varModelA, true);
-            this.varModelBChecker = new LinuxFormulaRelevancyChecker(varModelB, true);
+            this.varModelAChecker = new LinuxFormulaRelevancyChecker(varModelAVariables, true);
+            // A shared checker reuses the memorized relevance of formulas for both files
+            this.varModelBChecker = sameVarModels ? varModelAChecker
+                    : new LinuxFormulaRelevancyChecker(varModelBVariables, true);
         }
     }
 
@@ -84,32 +136,90 @@ public class SourceFileDifferenceDetector {
      * up with. If fileA or fileB is set to null, the other file will be compared
      * against an empty {@link SourceFile} object.
      * 
+     * <p>
+     * The files are first compared by their {@link StructuralHash}. Files with
+     * different hashes are different. Files with the same structure and lines
+     * are considered unchanged for
+     * {@link SourceFileDifferenceDetector.Consideration#ONLY_VARIABILITY_CHANGE}.
+     * </p>
+     * 
      * @param fileA the file A
      * @param fileB the file B
      * @return true, if different
      */
     public boolean isDifferent(@Nullable SourceFile<?> fileA, @Nullable SourceFile<?> fileB) {
-        boolean different = false;
-        if (fileA == null) {
-            fileA = new SourceFile<CodeElement<?>>(new File("null"));
-        }
-        if (fileB == null) {
-            fileB = new SourceFile<CodeElement<?>>(new File("null"));
-        }
-
-        if (!fileA.equals(fileB)) {
+        StructuralHash hashA = new StructuralHash(fileA);
+        StructuralHash hashB = new StructuralHash(fileB);
+        Boolean different = isDifferent(hashA.getHash(false), hashA.getHash(true), hashB.getHash(false),
+                hashB.getHash(true));
+        if (different == null) {
+            if (fileA == null) {
+                fileA = new SourceFile<CodeElement<?>>(new File("null"));
+            }
+            if (fileB == null) {
+                fileB = new SourceFile<CodeElement<?>>(new File("null"));
+            }
             if (this.consideration == Consideration.ANY_CHANGE) {
-                different = true;
+                different = !fileA.equals(fileB);
             } else {
-                if (this.consideration == Consideration.ONLY_VARIABILITY_CHANGE) {
-                    Set<CodeElement<?>> relevancyA = collectRelevantElements(fileA, varModelAChecker);
-                    Set<CodeElement<?>> relevancyB = collectRelevantElements(fileB, varModelBChecker);
-                    different = !isStructureSame(fileA, fileB, relevancyA, relevancyB);
-                } else {
-                    different = !isStructureSame(fileA, fileB, null, null);
-                }
+                Relevance relevanceA = collectRelevance(fileA, varModelAChecker);
+                Relevance relevanceB = collectRelevance(fileB, varModelBChecker);
+                different = !isStructureSame(new Side(fileA, relevanceA, sameVarModels ? hashA : null),
+                        new Side(fileB, relevanceB, sameVarModels ? hashB : null), null, 0, null, 0);
             }
+        }
+        return different;
+    }
 
+    /**
+     * Checks if the code model of a file changed in the {@link HybridCache}. The
+     * hashes stored along with the code models are compared first so that
+     * unchanged files do not need to be read. If the hashes do not suffice, models
+     * with identical serialized representations are unchanged. Otherwise the
+     * models are read and compared through
+     * {@link #isDifferent(SourceFile, SourceFile)}.
+     *
+     * @param codeFile relative file within the source-tree
+     * @param cache    the cache
+     * @return true, if the previous and the current model are different
+     * @throws IOException     Signals that an I/O exception has occurred.
+     * @throws FormatException the format exception
+     */
+    public boolean isDifferent(File codeFile, HybridCache cache) throws IOException, FormatException {
+        long[] hashesA = cache.readPreviousCmHashes(codeFile);
+        long[] hashesB = cache.readCmHashes(codeFile);
+        Boolean different = null;
+        if (hashesA != null && hashesB != null) {
+            different = isDifferent(hashesA[0], hashesA[1], hashesB[0], hashesB[1]);
+        }
+        if (different == null && cache.hasIdenticalCmCacheFiles(codeFile)) {
+            different = false;
+        }
+        if (different == null) {
+            different = isDifferent(cache.readPreviousCm(codeFile), cache.readCm(codeFile));
+        }
+        return different;
+    }
+
+    /**
+     * Checks if two files are different based on their {@link StructuralHash}.
+     *
+     * @param hashA     the hash of file A without lines
+     * @param lineHashA the hash of file A with lines
+     * @param hashB     the hash of file B without lines
+     * @param lineHashB the hash of file B with lines
+     * @return true, if different, false, if unchanged, null if the hashes do not
+     *         suffice to decide
+     */
+    private Boolean isDifferent(long hashA, long lineHashA, long hashB, long lineHashB) {
+        Boolean different = null;
+        if (this.consideration == Consideration.ANY_CHANGE_EXCEPT_LINECHANGE) {
+            different = hashA != hashB;
+        } else if (lineHashA != lineHashB) {
+            // Structural differences are differences for any consideration
+            different = this.consideration == Consideration.ANY_CHANGE ? Boolean.TRUE : null;
+        } else if (this.consideration == Consideration.ONLY_VARIABILITY_CHANGE) {
+            different = false;
         }
         return different;
     }
@@ -125,145 +235,228 @@ public class SourceFileDifferenceDetector {
      * @return the sets the
      */
     protected Set<CodeElement<?>> collectRelevantElements(SourceFile<?> file, LinuxFormulaRelevancyChecker checker) {
+        Relevance relevance = collectRelevance(file, checker);
         Set<CodeElement<?>> relevantElements = new HashSet<CodeElement<?>>();
-        for (CodeElement<?> element : file) {
-            collectRelevantElements(element, checker, new HashSet<CodeElement<?>>(), new HashSet<CodeElement<?>>(),
-                    relevantElements);
+        Deque<CodeElement<?>> elements = new ArrayDeque<>();
+        for (int i = file.getTopElementCount() - 1; i >= 0; i--) {
+            elements.push(file.getElement(i));
+        }
+        // Same pre-order as for collecting the relevance
+        for (int id = 0; !elements.isEmpty(); id++) {
+            CodeElement<?> element = elements.pop();
+            if (relevance.isRelevant(id)) {
+                relevantElements.add(element);
+            }
+            for (int i = element.getNestedElementCount() - 1; i >= 0; i--) {
+                elements.push(element.getNestedElement(i));
+            }
         }
         return relevantElements;
     }
 
     /**
-     * Collects {@link CodeElement}s that are considered relevant from a given
-     * {@link CodeElement}. If the {@link LinuxFormulaRelevancyChecker} checker
-     * considers an element to be relevant, all of its parents as well as children
-     * will be considered relevant as well.
+     * Determines the relevance of all {@link CodeElement}s of a given
+     * {@link SourceFile}. An element is directly relevant if the
+     * {@link LinuxFormulaRelevancyChecker} considers its presence condition
+     * relevant and none of its parents is directly relevant. All parents and
+     * children of a directly relevant element are relevant as well.
+     * 
+     * <p>
+     * The elements are traversed in pre-order using an explicit stack. Instead of
+     * sets of parents, only the depth of the directly relevant parent is tracked.
+     * </p>
      *
-     * @param currentElement           the current element
-     * @param checker                  the checker
-     * @param parents                  the parents
-     * @param directlyRelevantElements the directly relevant elements
-     * @param relevantElements         the relevant elements
+     * @param file    the file
+     * @param checker the checker
+     * @return the relevance of the elements by their pre-order position
      */
-    protected void collectRelevantElements(CodeElement<?> currentElement, LinuxFormulaRelevancyChecker checker,
-            Set<CodeElement<?>> parents, Set<CodeElement<?>> directlyRelevantElements,
-            Set<CodeElement<?>> relevantElements) {
-        // if the path contains an element that is directly relevant,
-        // currentElement is relevant as well.
-        if (!Collections.disjoint(directlyRelevantElements, parents)) {
-            relevantElements.add(currentElement);
-            // Otherwise check if the element is relevant on its own (=directly relevant)
-        } else if (checker.visit(currentElement.getPresenceCondition())) {
-            relevantElements.add(currentElement);
-            directlyRelevantElements.add(currentElement);
-            // if the element is element on its own, it also makes all of its parents
-            // relevant
-            relevantElements.addAll(parents);
-        }
-
-        // After the current element itself was handled, take care of its nested
-        // elements
-        int nestedCount = currentElement.getNestedElementCount();
-        if (nestedCount > 0) {
-            // Create a copy of the parent list and add currentElement as a parent
-            Set<CodeElement<?>> newParents = new HashSet<CodeElement<?>>(parents);
-            newParents.add(currentElement);
-            for (int i = 0; i < nestedCount; i++) {
-                CodeElement<?> nestedElement = currentElement.getNestedElement(i);
-                collectRelevantElements(nestedElement, checker, newParents, directlyRelevantElements, relevantElements);
+    protected Relevance collectRelevance(SourceFile<?> file, LinuxFormulaRelevancyChecker checker) {
+        Relevance relevance = new Relevance();
+        // The current path from the top element to the current element
+        List<CodeElement<?>> pathElements = new ArrayList<>();
+        int[] pathIds = new int[16];
+        int[] pathNextChild = new int[16];
+        int nextId = 0;
+        for (CodeElement<?> topElement : file) {
+            pathElements.clear();
+            pathElements.add(topElement);
+            int depth = 0;
+            int directlyRelevantDepth = Integer.MAX_VALUE;
+            boolean entered = false;
+            while (depth >= 0) {
+                CodeElement<?> element = pathElements.get(depth);
+                if (!entered) {
+                    int id = nextId++;
+                    pathIds[depth] = id;
+                    pathNextChild[depth] = 0;
+                    if (directlyRelevantDepth < depth) {
+                        relevance.relevant.set(id);
+                    } else if (checker.visit(element.getPresenceCondition())) {
+                        relevance.relevant.set(id);
+                        directlyRelevantDepth = depth;
+                        // Parents of a relevant parent are already relevant
+                        for (int i = depth - 1; i >= 0 && !relevance.relevant.get(pathIds[i]); i--) {
+                            relevance.relevant.set(pathIds[i]);
+                        }
+                    }
+                }
+                if (pathNextChild[depth] < element.getNestedElementCount()) {
+                    CodeElement<?> child = element.getNestedElement(pathNextChild[depth]++);
+                    depth++;
+                    if (depth == pathIds.length) {
+                        pathIds = Arrays.copyOf(pathIds, depth * 2);
+                        pathNextChild = Arrays.copyOf(pathNextChild, depth * 2);
+                    }
+                    if (depth < pathElements.size()) {
+                        pathElements.set(depth, child);
+                    } else {
+                        pathElements.add(child);
+                    }
+                    entered = false;
+                } else {
+                    relevance.setSubtreeSize(pathIds[depth], nextId - pathIds[depth]);
+                    if (directlyRelevantDepth == depth) {
+                        directlyRelevantDepth = Integer.MAX_VALUE;
+                    }
+                    depth--;
+                    entered = true;
+                }
             }
         }
-
+        return relevance;
     }
 
     /**
-     * Checks for changes within the structure of two given source files.
+     * Checks for changes within the structure of the relevant nested elements of
+     * two parents and their respective nested elements. Nested elements with the
+     * same {@link StructuralHash} are not descended if hashes are given for both
+     * files.
      *
-     * @param fileA                   the file A
-     * @param fileB                   the file B
-     * @param relevantElementsInFileA list of relevant elements within file A
-     * @param relevantElementsInFileB list of relevant elements within file B
+     * @param sideA   file A
+     * @param sideB   file B
+     * @param parentA the parent from file A or null for the top elements
+     * @param idA     the pre-order position of the first nested element of
+     *                parentA
+     * @param parentB the parent from file B or null for the top elements
+     * @param idB     the pre-order position of the first nested element of
+     *                parentB
      * @return true, if unchanged
      */
-    @SuppressWarnings("unchecked")
-    protected boolean isStructureSame(SourceFile<?> fileA, SourceFile<?> fileB,
-            @Nullable Set<CodeElement<?>> relevantElementsInFileA,
-            @Nullable Set<CodeElement<?>> relevantElementsInFileB) {
-
-        List<CodeElement<?>> fileAelements =
-                getListOfRelevantNestedElements((Iterable<CodeElement<?>>) fileA, relevantElementsInFileA);
-        List<CodeElement<?>> fileBelements =
-                getListOfRelevantNestedElements((Iterable<CodeElement<?>>) fileB, relevantElementsInFileB);
-
-        boolean same = fileAelements.size() == fileBelements.size();
-
-        if (same) {
-            for (int i = 0; same && i < fileAelements.size(); i++) {
-                CodeElement<?> fileAelement = fileAelements.get(i);
-                CodeElement<?> fileBelement = fileBelements.get(i);
-                same = isStructureSame(fileAelement, fileBelement, relevantElementsInFileA, relevantElementsInFileB);
+    private boolean isStructureSame(Side sideA, Side sideB, @Nullable CodeElement<?> parentA, int idA,
+            @Nullable CodeElement<?> parentB, int idB) {
+        int countA = parentA == null ? sideA.file.getTopElementCount() : parentA.getNestedElementCount();
+        int countB = parentB == null ? sideB.file.getTopElementCount() : parentB.getNestedElementCount();
+        int indexA = 0;
+        int indexB = 0;
+        int childIdA = idA;
+        int childIdB = idB;
+        boolean same = true;
+        boolean done = false;
+        while (same && !done) {
+            // Skip irrelevant elements
+            while (indexA < countA && !sideA.relevance.isRelevant(childIdA)) {
+                childIdA += sideA.relevance.getSubtreeSize(childIdA);
+                indexA++;
+            }
+            while (indexB < countB && !sideB.relevance.isRelevant(childIdB)) {
+                childIdB += sideB.relevance.getSubtreeSize(childIdB);
+                indexB++;
+            }
+            if (indexA == countA || indexB == countB) {
+                same = indexA == countA && indexB == countB;
+                done = true;
+            } else {
+                CodeElement<?> elementA = parentA == null ? sideA.file.getElement(indexA)
+                        : parentA.getNestedElement(indexA);
+                CodeElement<?> elementB = parentB == null ? sideB.file.getElement(indexB)
+                        : parentB.getNestedElement(indexB);
+                same = elementA.getPresenceCondition().equals(elementB.getPresenceCondition())
+                        && (sideA.hash != null && sideB.hash != null
+                                && sideA.hash.getHash(elementA, false) == sideB.hash.getHash(elementB, false)
+                                || isStructureSame(sideA, sideB, elementA, childIdA + 1, elementB, childIdB + 1));
+                childIdA += sideA.relevance.getSubtreeSize(childIdA);
+                childIdB += sideB.relevance.getSubtreeSize(childIdB);
+                indexA++;
+                indexB++;
             }
         }
-
         return same;
     }
 
     /**
-     * Checks for changes within the structure of both elements and their respective
-     * nested elements. It considers only the elements listed in
-     * relevantELementsInFileA and relevantElementsInFileB as relevant for this
-     * comparision. If one of the relevancy lists is null, all elements for the
-     * corresponding file will be considered relevant.
-     *
-     * @param fileAElement            the element from file A
-     * @param fileBElement            the element from file B
-     * @param relevantElementsInFileA set of all relevant elements from file A
-     * @param relevantElementsInFileB set of all relevant elements from file B
-     * @return true, if unchanged
+     * Relevance of the {@link CodeElement}s of a {@link SourceFile} indexed by the
+     * pre-order position of the elements within the file.
      */
-    @SuppressWarnings("unchecked")
-    protected boolean isStructureSame(CodeElement<?> fileAElement, CodeElement<?> fileBElement,
-            Set<CodeElement<?>> relevantElementsInFileA, Set<CodeElement<?>> relevantElementsInFileB) {
-
-        boolean same = fileAElement.getPresenceCondition().equals(fileBElement.getPresenceCondition());
-        if (same) {
-
-            List<CodeElement<?>> fileAelements =
-                    getListOfRelevantNestedElements((Iterable<CodeElement<?>>) fileAElement, relevantElementsInFileA);
-            List<CodeElement<?>> fileBelements =
-                    getListOfRelevantNestedElements((Iterable<CodeElement<?>>) fileBElement, relevantElementsInFileB);
-            same = fileAelements.size() == fileBelements.size();
-            if (same) {
-                for (int i = 0; same && i < fileAelements.size(); i++) {
-                    CodeElement<?> fileAelement = fileAelements.get(i);
-                    CodeElement<?> fileBelement = fileBelements.get(i);
-                    same = fileAelement.getPresenceCondition().equals(fileBelement.getPresenceCondition())
-                            && isStructureSame(fileAelement, fileBelement, relevantElementsInFileA,
-                                    relevantElementsInFileB);
-                }
+    protected static final class Relevance {
+
+        /** The relevant elements. */
+        private final BitSet relevant = new BitSet();
+
+        /** The number of elements of the subtree of each element including itself. */
+        private int[] subtreeSizes = new int[64];
+
+        /**
+         * Checks whether an element is relevant.
+         *
+         * @param id the pre-order position of the element
+         * @return true, if relevant
+         */
+        boolean isRelevant(int id) {
+            return relevant.get(id);
+        }
+
+        /**
+         * Gets the number of elements of the subtree of an element.
+         *
+         * @param id the pre-order position of the element
+         * @return the number of elements including the element itself
+         */
+        int getSubtreeSize(int id) {
+            return subtreeSizes[id];
+        }
+
+        /**
+         * Sets the number of elements of the subtree of an element.
+         *
+         * @param id   the pre-order position of the element
+         * @param size the number of elements including the element itself
+         */
+        private void setSubtreeSize(int id, int size) {
+            if (id >= subtreeSizes.length) {
+                subtreeSizes = Arrays.copyOf(subtreeSizes, Math.max(id + 1, subtreeSizes.length * 2));
             }
+            subtreeSizes[id] = size;
         }
 
-        return same;
     }
 
     /**
-     * Gets the relevant blocks.
-     *
-     * @param parent                 the parent
-     * @param relevantElementsInFile list of relevant elements in file. If this is
-     *                               null, all elements will be considered relevant.
-     * @return the relevant blocks
+     * One of the compared files along with the information about its elements.
      */
-    protected List<CodeElement<?>> getListOfRelevantNestedElements(Iterable<CodeElement<?>> parent,
-            @Nullable Set<CodeElement<?>> relevantElementsInFile) {
-        List<CodeElement<?>> reduced = new LinkedList<CodeElement<?>>();
-        for (CodeElement<?> element : parent) {
-            if (relevantElementsInFile == null || relevantElementsInFile.contains(element)) {
-                reduced.add(element);
-            }
+    private static final class Side {
+
+        /** The file. */
+        private final SourceFile<?> file;
+
+        /** The relevance of the elements. */
+        private final Relevance relevance;
+
+        /** The hashes of the elements or null if elements are not compared by their hashes. */
+        private final StructuralHash hash;
+
+        /**
+         * Instantiates a new side.
+         *
+         * @param file      the file
+         * @param relevance the relevance of the elements
+         * @param hash      the hashes of the elements, may be null
+         */
+        private Side(SourceFile<?> file, Relevance relevance, @Nullable StructuralHash hash) {
+            this.file = file;
+            this.relevance = relevance;
+            this.hash = hash;
         }
-        return reduced;
+
     }
 
 }
@@ -0,0 +1,158 @@
+package net.ssehub.kernel_haven.incremental.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * Merkle-style hashes of the structure of a {@link SourceFile}. The hash of a
+ * {@link CodeElement} covers the presence condition of the element and the
+ * hashes of its nested elements in their order. Each element has two hashes:
+ * one that additionally covers the type and the lines of the element and all
+ * nested elements and one that does not.
+ *
+ * Two elements with different hashes are structurally different. Equal hashes
+ * are considered to denote the same structure, the probability of a collision
+ * of the 64 bit hashes is negligible.
+ *
+ * @author moritz
+ */
+public final class StructuralHash {
+
+    /** The offset basis of the FNV-1a hash. */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    /** The prime of the FNV-1a hash. */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** The hashes of each element without and with lines. */
+    private final Map<CodeElement<?>, long[]> elementHashes = new IdentityHashMap<>();
+
+    /** The hash of the file without lines. */
+    private final long hash;
+
+    /** The hash of the file with lines. */
+    private final long lineHash;
+
+    /**
+     * Computes the hashes of all elements of a source file.
+     *
+     * @param file the source file, null is treated like a file without elements
+     */
+    public StructuralHash(@Nullable SourceFile<?> file) {
+        long fileHash = FNV_OFFSET_BASIS;
+        long fileLineHash = FNV_OFFSET_BASIS;
+        if (file != null) {
+            for (CodeElement<?> element : file) {
+                long[] hashes = computeHashes(element);
+                fileHash = combine(fileHash, hashes[0]);
+                fileLineHash = combine(fileLineHash, hashes[1]);
+            }
+        }
+        this.hash = finish(fileHash);
+        this.lineHash = finish(fileLineHash);
+    }
+
+    /**
+     * Gets the hash of the file.
+     *
+     * @param includeLines defines whether the hash covers the lines of the
+     *                     elements
+     * @return the hash
+     */
+    public long getHash(boolean includeLines) {
+        return includeLines ? lineHash : hash;
+    }
+
+    /**
+     * Gets the hash of an element of the file.
+     *
+     * @param element      the element
+     * @param includeLines defines whether the hash covers the lines of the
+     *                     elements
+     * @return the hash
+     * @throws IllegalArgumentException if the element is not part of the file
+     */
+    public long getHash(CodeElement<?> element, boolean includeLines) {
+        long[] hashes = elementHashes.get(element);
+        if (hashes == null) {
+            throw new IllegalArgumentException("Element is not part of the hashed file: " + element);
+        }
+        return hashes[includeLines ? 1 : 0];
+    }
+
+    /**
+     * Computes the hashes of an element and its nested elements.
+     *
+     * @param element the element
+     * @return the hashes of the element without and with lines
+     */
+    private long[] computeHashes(CodeElement<?> element) {
+        Formula presenceCondition = element.getPresenceCondition();
+        String condition = presenceCondition == null ? "" : presenceCondition.toString();
+        long elementHash = hash(FNV_OFFSET_BASIS, condition);
+        long elementLineHash = hash(hash(FNV_OFFSET_BASIS, element.getClass().getName()), condition);
+        elementLineHash = combine(combine(elementLineHash, element.getLineStart()), element.getLineEnd());
+        int nestedCount = element.getNestedElementCount();
+        elementHash = combine(elementHash, nestedCount);
+        elementLineHash = combine(elementLineHash, nestedCount);
+        for (int i = 0; i < nestedCount; i++) {
+            long[] nestedHashes = computeHashes(element.getNestedElement(i));
+            elementHash = combine(elementHash, nestedHashes[0]);
+            elementLineHash = combine(elementLineHash, nestedHashes[1]);
+        }
+        long[] hashes = {finish(elementHash), finish(elementLineHash)};
+        elementHashes.put(element, hashes);
+        return hashes;
+    }
+
+    /**
+     * Adds a string to a FNV-1a hash.
+     *
+     * @param current the hash
+     * @param value   the string
+     * @return the new hash
+     */
+    private static long hash(long current, String value) {
+        long result = current;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            result = (result ^ (b & 0xff)) * FNV_PRIME;
+        }
+        // Separates consecutive strings
+        return (result ^ 0xff) * FNV_PRIME;
+    }
+
+    /**
+     * Adds a number to a FNV-1a hash.
+     *
+     * @param current the hash
+     * @param value   the number
+     * @return the new hash
+     */
+    private static long combine(long current, long value) {
+        long result = current;
+        for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+            result = (result ^ ((value >>> shift) & 0xff)) * FNV_PRIME;
+        }
+        return result;
+    }
+
+    /**
+     * Mixes the bits of a hash so that nested hashes are well distributed.
+     *
+     * @param current the hash
+     * @return the mixed hash
+     */
+    private static long finish(long current) {
+        long result = current;
+        result = (result ^ (result >>> 33)) * 0xff51afd7ed558ccdL;
+        result = (result ^ (result >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return result ^ (result >>> 33);
+    }
+
+}
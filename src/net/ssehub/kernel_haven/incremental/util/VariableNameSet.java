@@ -0,0 +1,113 @@
+package net.ssehub.kernel_haven.incremental.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+import net.ssehub.kernel_haven.variability_model.VariabilityModel;
+
+/**
+ * Immutable set of the names of the variables defined in a
+ * {@link VariabilityModel}. The names are stored in a sorted array without
+ * duplicates and looked up by binary search. As the set can not be modified,
+ * a single instance can be shared by any number of
+ * {@link LinuxFormulaRelevancyChecker}s in parallel.
+ *
+ * @author moritz
+ */
+public final class VariableNameSet {
+
+    /** The sets already built for variability models. */
+    private static final Map<VariabilityModel, VariableNameSet> SETS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    /** The sorted names. */
+    private final String[] names;
+
+    /** The hash code of the names. */
+    private final int hashCode;
+
+    /**
+     * Instantiates a new variable name set.
+     *
+     * @param names the names
+     */
+    public VariableNameSet(Collection<String> names) {
+        String[] sortedNames = names.toArray(new String[names.size()]);
+        Arrays.sort(sortedNames);
+        int count = 0;
+        for (int i = 0; i < sortedNames.length; i++) {
+            if (count == 0 || !sortedNames[count - 1].equals(sortedNames[i])) {
+                sortedNames[count++] = sortedNames[i];
+            }
+        }
+        this.names = Arrays.copyOf(sortedNames, count);
+        this.hashCode = Arrays.hashCode(this.names);
+    }
+
+    /**
+     * Gets the set of the variables defined in a variability model. The set is
+     * only built once for a model instance.
+     *
+     * @param varModel the variability model, null is treated like a model without
+     *                 variables
+     * @return the variable name set
+     */
+    public static VariableNameSet of(@Nullable VariabilityModel varModel) {
+        VariableNameSet set;
+        if (varModel == null) {
+            set = new VariableNameSet(Collections.emptySet());
+        } else {
+            set = SETS.get(varModel);
+            if (set == null) {
+                // Concurrent callers may both build the set, either result is equal
+                set = new VariableNameSet(varModel.getVariableMap().keySet());
+                SETS.put(varModel, set);
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Checks whether the set contains a name.
+     *
+     * @param name the name
+     * @return true, if the name is contained
+     */
+    public boolean contains(String name) {
+        return Arrays.binarySearch(names, name) >= 0;
+    }
+
+    /**
+     * Gets the number of names.
+     *
+     * @return the size
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return obj == this || obj instanceof VariableNameSet && Arrays.equals(names, ((VariableNameSet) obj).names);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+}
@@ -4,17 +4,37 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
+import net.ssehub.kernel_haven.incremental.diff.analyzer.ArtifactClassifierTest;
+import net.ssehub.kernel_haven.incremental.diff.analyzer.ChangedSymbolExtractorTest;
 import net.ssehub.kernel_haven.incremental.diff.analyzer.ComAnAnalyzerTest;
+import net.ssehub.kernel_haven.incremental.diff.analyzer.ParallelVariabilityChangeAnalyzerTest;
+import net.ssehub.kernel_haven.incremental.diff.analyzer.PreprocessorSkeletonAnalyzerTest;
+import net.ssehub.kernel_haven.incremental.diff.analyzer.VariabilityChangeCacheTest;
+import net.ssehub.kernel_haven.incremental.diff.applier.ByteExactDiffApplierTest;
+import net.ssehub.kernel_haven.incremental.diff.applier.FileContentWriterTest;
 import net.ssehub.kernel_haven.incremental.diff.applier.FileReplacingDiffApplierTest;
+import net.ssehub.kernel_haven.incremental.diff.applier.FileWriterPoolTest;
 import net.ssehub.kernel_haven.incremental.diff.applier.GitDiffApplierTest;
+import net.ssehub.kernel_haven.incremental.diff.applier.InitialImportDiffApplierTest;
+import net.ssehub.kernel_haven.incremental.diff.applier.SourceTreeSnapshotTest;
 import net.ssehub.kernel_haven.incremental.diff.linecount.LineCounterTest;
 import net.ssehub.kernel_haven.incremental.diff.parser.DiffFileParserTest;
 import net.ssehub.kernel_haven.incremental.diff.parser.DiffFileTest;
 import net.ssehub.kernel_haven.incremental.preparation.IncrementalPreparationTest;
 import net.ssehub.kernel_haven.incremental.preparation.filter.ChangeFilterTest;
+import net.ssehub.kernel_haven.incremental.preparation.filter.CombinedFilterTest;
+import net.ssehub.kernel_haven.incremental.preparation.filter.KconfigSymbolImpactFilterTest;
+import net.ssehub.kernel_haven.incremental.preparation.filter.PathCategoryMatcherTest;
 import net.ssehub.kernel_haven.incremental.preparation.filter.VariabilityChangeFilterTest;
+import net.ssehub.kernel_haven.incremental.preparation.index.IncludeGraphTest;
+import net.ssehub.kernel_haven.incremental.preparation.index.SourceTreeIndexTest;
+import net.ssehub.kernel_haven.incremental.preparation.index.SymbolIndexTest;
+import net.ssehub.kernel_haven.incremental.storage.HybridCacheAdapterTest;
 import net.ssehub.kernel_haven.incremental.storage.HybridCacheTest;
+import net.ssehub.kernel_haven.incremental.util.LinuxFormulaRelevancyCheckerTest;
 import net.ssehub.kernel_haven.incremental.util.SourceFileDifferenceDetectorTest;
+import net.ssehub.kernel_haven.incremental.util.StructuralHashTest;
+import net.ssehub.kernel_haven.incremental.util.VariableNameSetTest;
 
 /**
  * The Class AllTests. Contains all unit-tests of for incremental analyses.
@@ -26,7 +46,16 @@ import net.ssehub.kernel_haven.incremental.util.SourceFileDifferenceDetectorTest
 @SuiteClasses({ ChangeFilterTest.class, DiffFileTest.class, IncrementalPreparationTest.class, GitDiffApplierTest.class,
         FileReplacingDiffApplierTest.class, ComAnAnalyzerTest.class, VariabilityChangeFilterTest.class,
         HybridCacheTest.class, LineCounterTest.class, DiffFileParserTest.class,
-        SourceFileDifferenceDetectorTest.class })
+        SourceFileDifferenceDetectorTest.class, InitialImportDiffApplierTest.class,
+        FileContentWriterTest.class, ByteExactDiffApplierTest.class,
+        SourceTreeSnapshotTest.class, ParallelVariabilityChangeAnalyzerTest.class,
+        ArtifactClassifierTest.class, PreprocessorSkeletonAnalyzerTest.class,
+        VariabilityChangeCacheTest.class, SourceTreeIndexTest.class, CombinedFilterTest.class,
+        PathCategoryMatcherTest.class, IncludeGraphTest.class, ChangedSymbolExtractorTest.class,
+        SymbolIndexTest.class, StructuralHashTest.class,
+        LinuxFormulaRelevancyCheckerTest.class, VariableNameSetTest.class,
+        KconfigSymbolImpactFilterTest.class,
+        HybridCacheAdapterTest.class, FileWriterPoolTest.class })
 public class AllTests {
 
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package net.ssehub.kernel_haven.incremental.diff.analyzer;
+
+import java.nio.file.Paths;
+import java.util.regex.Pattern;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.incremental.diff.analyzer.ArtifactClassifier.Category;
+
+/**
+ * Tests for {@link ArtifactClassifier}.
+ *
+ * @author moritz
+ */
+public class ArtifactClassifierTest {
+
+    /** The code file pattern used for ComAn. */
+    private static final Pattern CODE_PATTERN = Pattern.compile(".*/.*\\.[hcS]((\\.|\\-|\\_|\\+|\\~).*)?");
+
+    /** The build file pattern used for ComAn. */
+    private static final Pattern BUILD_PATTERN =
+            Pattern.compile(".*/(Makefile|Kbuild)((\\.|\\-|\\_|\\+|\\~).*)?");
+
+    /** The Kconfig file pattern used for ComAn. */
+    private static final Pattern KCONFIG_PATTERN = Pattern.compile(".*/Kconfig((\\.|\\-|\\_|\\+|\\~).*)?");
+
+    /** Paths covering all categories. */
+    private static final String[] PATHS = {"drivers/misc/misc.c", "include/linux/compat.h", "arch/x86/boot/head.S",
+            "arch/x86/boot/head.s", "drivers/a.c.orig", "drivers/a.h~", "drivers/a.cc", "drivers/a.cpp", "Kconfig",
+            "drivers/Kconfig", "lib/Kconfig.debug", "drivers/Kconfigs", "Makefile", "drivers/Makefile",
+            "arch/x86/Makefile_32.cpu", "drivers/Kbuild", "drivers/Kbuild-x", "drivers/Makefiles", ".mailmap",
+            "scripts/kconfig/Makefile", "Documentation/Kconfig.txt", "drivers/Kconfig.c", "drivers/.c", "drivers/a."};
+
+    // CHECKSTYLE:OFF
+    /**
+     * Tests whether the classification is equivalent to the patterns used for
+     * ComAn.
+     */
+    @Test
+    public void testClassify_equalsComAnPatterns() {
+        for (String path : PATHS) {
+            String artifactPath = "/" + path;
+            Category expected;
+            if (CODE_PATTERN.matcher(artifactPath).matches()) {
+                expected = Category.CODE;
+            } else if (BUILD_PATTERN.matcher(artifactPath).matches()) {
+                expected = Category.BUILD;
+            } else if (KCONFIG_PATTERN.matcher(artifactPath).matches()) {
+                expected = Category.VARIABILITY_MODEL;
+            } else {
+                expected = Category.OTHER;
+            }
+            Assert.assertThat(path, ArtifactClassifier.classify(Paths.get(path)), CoreMatchers.equalTo(expected));
+        }
+    }
+
+    /**
+     * Tests whether documentation, scripts and text files are excluded.
+     */
+    @Test
+    public void testIsExcluded() {
+        Assert.assertTrue(ArtifactClassifier.isExcluded(Paths.get("Documentation/Kconfig")));
+        Assert.assertTrue(ArtifactClassifier.isExcluded(Paths.get("tools/scripts/Makefile")));
+        Assert.assertTrue(ArtifactClassifier.isExcluded(Paths.get("drivers/readme.txt")));
+        Assert.assertFalse(ArtifactClassifier.isExcluded(Paths.get("scripts")));
+        Assert.assertFalse(ArtifactClassifier.isExcluded(Paths.get("drivers/documentation.c")));
+        Assert.assertFalse(ArtifactClassifier.isExcluded(Paths.get("scripts/kconfig/Makefile").getFileName()));
+    }
+    // CHECKSTYLE:ON
+
+}
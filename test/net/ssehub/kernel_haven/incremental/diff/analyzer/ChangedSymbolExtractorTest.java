@@ -0,0 +1,100 @@
+package net.ssehub.kernel_haven.incremental.diff.analyzer;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry.Lines;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry.Lines.LineType;
+
+/**
+ * Tests for {@link ChangedSymbolExtractor}.
+ *
+ * @author moritz
+ */
+public class ChangedSymbolExtractorTest {
+
+    // CHECKSTYLE:OFF
+    /**
+     * Creates the entry of a Kconfig file from diff lines. Lines starting with
+     * <code>@@</code> separate chunks.
+     *
+     * @param diffLines the diff lines including their markers
+     * @return the entry
+     */
+    private static FileEntry entry(String... diffLines) {
+        List<Lines> lines = new ArrayList<>();
+        for (String diffLine : diffLines) {
+            if (diffLine.startsWith("@@")) {
+                lines.add(new Lines(LineType.BETWEEN_CHUNKS, 0, ""));
+            } else {
+                LineType type = diffLine.startsWith("+") ? LineType.ADDED
+                        : diffLine.startsWith("-") ? LineType.DELETED : LineType.UNMODIFIED;
+                lines.add(new Lines(type, 1, diffLine.substring(1)));
+            }
+        }
+        return new FileEntry(Paths.get("drivers/Kconfig"), FileEntry.FileChange.MODIFICATION,
+                FileEntry.VariabilityChange.NOT_ANALYZED, lines, null);
+    }
+
+    /**
+     * Tests whether changed attributes are assigned to the surrounding option
+     * while help texts and comments are ignored.
+     */
+    @Test
+    public void testExtract() {
+        FileEntry entry = entry(
+                " config A",
+                "-\tbool \"A\"",
+                "+\ttristate \"A\"",
+                "+\tselect B if C",
+                " \thelp",
+                "-\t  Old help text mentioning default y",
+                "+\t  New help text",
+                "@@",
+                " config D",
+                " \tbool",
+                "+\t# comment",
+                " comment \"Options\"",
+                "+\tdepends on E",
+                "+config F",
+                "+\tdef_bool y");
+        Assert.assertThat(ChangedSymbolExtractor.extract(entry),
+                CoreMatchers.equalTo(new HashSet<>(Arrays.asList("A", "B", "F"))));
+    }
+
+    /**
+     * Tests whether changes that can not be assigned to single options lead to
+     * unknown options.
+     */
+    @Test
+    public void testExtractUnknown() {
+        // The option of the changed attribute is not part of the diff
+        Assert.assertThat(ChangedSymbolExtractor.extract(entry(" \tbool", "+\tdefault y")),
+                CoreMatchers.nullValue());
+        // A changed menu affects all contained options
+        Assert.assertThat(ChangedSymbolExtractor.extract(entry("+menu \"Drivers\"", "+config A", "+\tbool")),
+                CoreMatchers.nullValue());
+        // Changed help texts whose start is not part of the diff can not be classified
+        Assert.assertThat(ChangedSymbolExtractor.extract(entry(" \t  text", "+\t  more text")),
+                CoreMatchers.nullValue());
+        // Help texts indented at the level of the help keyword can not be told apart from unknown elements
+        Assert.assertThat(ChangedSymbolExtractor.extract(entry(" config A", " \thelp", "+\ttext")),
+                CoreMatchers.nullValue());
+        // Unknown elements and options with a global effect
+        for (String line : new String[] {"+\toptional", "+\toption defconfig_list", "+\toption env=\"ARCH\"",
+                "+\toption modules", "+\tmodules"}) {
+            Assert.assertThat(line, ChangedSymbolExtractor.extract(entry(" config A", " \tbool", line)),
+                    CoreMatchers.nullValue());
+        }
+    }
+    // CHECKSTYLE:ON
+
+}
@@ -2,12 +2,21 @@ package net.ssehub.kernel_haven.incremental.diff.analyzer;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Map;
 
 import org.hamcrest.CoreMatchers;
 import org.junit.Assert;
 import org.junit.Test;
 
+import net.ssehub.comani.analysis.deadcodechange.core.DeadCodeChangeAnalyzer;
+import net.ssehub.comani.analysis.deadcodechange.diff.AnalysisResult;
+import net.ssehub.comani.data.CommitQueue;
+import net.ssehub.comani.data.CommitQueue.QueueState;
+import net.ssehub.comani.extraction.git.GitCommitExtractor;
 import net.ssehub.kernel_haven.SetUpException;
 import net.ssehub.kernel_haven.config.Configuration;
 import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
@@ -88,4 +97,89 @@ public class ComAnAnalyzerTest {
 
     }
 
+    /**
+     * Tests whether the results of ComAn for the commit created from the parsed
+     * diff file are the same as for the commit extracted by ComAn from the raw
+     * diff file. The diff files contain additions, deletions and modifications of
+     * code, build and variability model files.
+     *
+     * @throws Exception unwanted exception
+     */
+    @Test
+    // CHECKSTYLE:OFF
+    public void testGetComAnResults_sameAsExtractedCommit() throws Exception {
+        // CHECKSTYLE:ON
+        String[] prefixes = {"mixed", "some", "no"};
+        String[] diffs = {"mixed-changes", "some-variability-changes", "no-variability-changes"};
+        for (int i = 0; i < diffs.length; i++) {
+            File diff = new File("testdata/variability-changes/" + diffs[i] + ".diff");
+            Configuration config = new Configuration(
+                    new File("testdata/variability-changes/" + prefixes[i] + "-configuration.properties"));
+            config.registerSetting(IncrementalAnalysisSettings.SOURCE_TREE_DIFF_FILE);
+
+            AnalysisResult expected = getExtractedCommitResults(diff);
+            AnalysisResult actual = new ComAnAnalyzer().getComAnResults(DiffFileParser.parse(diff), config);
+
+            Assert.assertThat(actual.getRelevantBuildChanges(),
+                    CoreMatchers.equalTo(expected.getRelevantBuildChanges()));
+            Assert.assertThat(actual.getRelevantVariabilityModelChanges(),
+                    CoreMatchers.equalTo(expected.getRelevantVariabilityModelChanges()));
+            Assert.assertThat(new HashSet<>(actual.getRelevantCodeChanges()),
+                    CoreMatchers.equalTo(new HashSet<>(expected.getRelevantCodeChanges())));
+        }
+    }
+
+    /**
+     * Tests the variability changes for a diff file with added, deleted and
+     * modified files.
+     *
+     * @throws Exception unwanted exception
+     */
+    @Test
+    // CHECKSTYLE:OFF
+    public void testParse_additions_and_deletions() throws Exception {
+        // CHECKSTYLE:ON
+        DiffFile diffFile = DiffFileParser.parse(new File("testdata/variability-changes/mixed-changes.diff"));
+        Configuration config =
+                new Configuration(new File("testdata/variability-changes/mixed-configuration.properties"));
+        config.registerSetting(IncrementalAnalysisSettings.SOURCE_TREE_DIFF_FILE);
+        new ComAnAnalyzer().analyzeDiffFile(diffFile, config);
+
+        Assert.assertThat(diffFile.getEntry(Paths.get("drivers/new/added.c")).getVariabilityChange(),
+                CoreMatchers.equalTo(FileEntry.VariabilityChange.CHANGE));
+        Assert.assertThat(diffFile.getEntry(Paths.get("drivers/mod/changed.c")).getVariabilityChange(),
+                CoreMatchers.equalTo(FileEntry.VariabilityChange.CHANGE));
+        Assert.assertThat(diffFile.getEntry(Paths.get("drivers/mod/plain.c")).getVariabilityChange(),
+                CoreMatchers.equalTo(FileEntry.VariabilityChange.NO_CHANGE));
+        Assert.assertThat(diffFile.getEntry(Paths.get("drivers/new/Kconfig")).getVariabilityChange(),
+                CoreMatchers.equalTo(FileEntry.VariabilityChange.CHANGE));
+        Assert.assertThat(diffFile.getEntry(Paths.get("drivers/old/Makefile")).getVariabilityChange(),
+                CoreMatchers.equalTo(FileEntry.VariabilityChange.CHANGE));
+    }
+
+    /**
+     * Gets the results of ComAn for the commit extracted by ComAn from the raw
+     * diff file, i.e. the way the diff file was analyzed before the commit was
+     * created from the parsed diff file.
+     *
+     * @param diff the diff file
+     * @return the results
+     * @throws Exception unwanted exception
+     */
+    private static AnalysisResult getExtractedCommitResults(File diff) throws Exception {
+        CommitQueue commitQueue = new CommitQueue(1);
+        GitCommitExtractor commitExtractor =
+                new GitCommitExtractor(ComAnAnalyzer.createPluginProperties(), commitQueue);
+        DeadCodeChangeAnalyzer commitAnalyzer =
+                new DeadCodeChangeAnalyzer(ComAnAnalyzer.createPluginProperties(), commitQueue);
+        commitQueue.setState(QueueState.OPEN);
+        commitExtractor.extract("commit " + diff.getName() + "\n"
+                + String.join("\n", Files.readAllLines(diff.toPath(), Charset.defaultCharset())));
+        commitQueue.setState(QueueState.CLOSED);
+        Assert.assertTrue(commitAnalyzer.analyze());
+        Map<String, AnalysisResult> results = commitAnalyzer.getResults();
+        Assert.assertThat(results.size(), CoreMatchers.equalTo(1));
+        return results.values().iterator().next();
+    }
+
 }
@@ -0,0 +1,142 @@
+package net.ssehub.kernel_haven.incremental.diff.analyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.SetUpException;
+import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFileParser;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+import net.ssehub.kernel_haven.incremental.settings.IncrementalAnalysisSettings;
+
+/**
+ * Tests for {@link ParallelVariabilityChangeAnalyzer}.
+ *
+ * @author moritz
+ */
+public class ParallelVariabilityChangeAnalyzerTest {
+
+    // CHECKSTYLE:OFF
+    /**
+     * Tests whether no variability change is detected if variability did not
+     * change.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testAnalyze_no_variability_change() throws IOException {
+        DiffFile diffFile = DiffFileParser.parse(new File("testdata/variability-changes/no-variability-changes.diff"));
+        new ParallelVariabilityChangeAnalyzer().analyzeDiffFile(diffFile, null);
+
+        Assert.assertThat(diffFile.getEntry(Paths.get("modify/Kbuild")).getVariabilityChange(),
+                CoreMatchers.equalTo(FileEntry.VariabilityChange.NO_CHANGE));
+        Assert.assertThat(diffFile.getEntry(Paths.get("modify/Kconfig")).getVariabilityChange(),
+                CoreMatchers.equalTo(FileEntry.VariabilityChange.NO_CHANGE));
+        Assert.assertThat(diffFile.getEntry(Paths.get("modify/a-code-file.c")).getVariabilityChange(),
+                CoreMatchers.equalTo(FileEntry.VariabilityChange.NO_CHANGE));
+    }
+
+    /**
+     * Tests whether the results are equal to the ones of the
+     * {@link ComAnAnalyzer} if variability did change.
+     *
+     * @throws IOException    Signals that an I/O exception has occurred.
+     * @throws SetUpException the set up exception
+     */
+    @Test
+    public void testAnalyze_variability_change_equalsComAn() throws IOException, SetUpException {
+        File diff = new File("testdata/variability-changes/some-variability-changes.diff");
+        DiffFile comAnDiffFile = DiffFileParser.parse(diff);
+        Configuration config =
+                new Configuration(new File("testdata/variability-changes/some-configuration.properties"));
+        IncrementalAnalysisSettings.registerAllSettings(config);
+        new ComAnAnalyzer().analyzeDiffFile(comAnDiffFile, config);
+
+        DiffFile diffFile = DiffFileParser.parse(diff);
+        new ParallelVariabilityChangeAnalyzer().analyzeDiffFile(diffFile, config);
+
+        Assert.assertThat(diffFile.getEntry(Paths.get("drivers/crypto/caam/ctrl.c")).getVariabilityChange(),
+                CoreMatchers.equalTo(FileEntry.VariabilityChange.CHANGE));
+        for (FileEntry comAnEntry : comAnDiffFile.getEntries()) {
+            Assert.assertThat(comAnEntry.getPath().toString(),
+                    diffFile.getEntry(comAnEntry.getPath()).getVariabilityChange(),
+                    CoreMatchers.equalTo(comAnEntry.getVariabilityChange()));
+        }
+    }
+
+    /**
+     * Tests whether the results are equal to the ones of the
+     * {@link ComAnAnalyzer} for added, deleted and modified files.
+     *
+     * @throws IOException    Signals that an I/O exception has occurred.
+     * @throws SetUpException the set up exception
+     */
+    @Test
+    public void testAnalyze_additions_and_deletions_equalsComAn() throws IOException, SetUpException {
+        File diff = new File("testdata/variability-changes/mixed-changes.diff");
+        DiffFile comAnDiffFile = DiffFileParser.parse(diff);
+        Configuration config =
+                new Configuration(new File("testdata/variability-changes/mixed-configuration.properties"));
+        IncrementalAnalysisSettings.registerAllSettings(config);
+        new ComAnAnalyzer().analyzeDiffFile(comAnDiffFile, config);
+
+        DiffFile diffFile = DiffFileParser.parse(diff);
+        new ParallelVariabilityChangeAnalyzer().analyzeDiffFile(diffFile, config);
+
+        Assert.assertThat(diffFile.getEntry(Paths.get("drivers/old/Makefile")).getVariabilityChange(),
+                CoreMatchers.equalTo(FileEntry.VariabilityChange.CHANGE));
+        for (FileEntry comAnEntry : comAnDiffFile.getEntries()) {
+            Assert.assertThat(comAnEntry.getPath().toString(),
+                    diffFile.getEntry(comAnEntry.getPath()).getVariabilityChange(),
+                    CoreMatchers.equalTo(comAnEntry.getVariabilityChange()));
+        }
+    }
+
+    /**
+     * Tests whether changes of preprocessor conditions are detected in code files
+     * but changes within comments are ignored.
+     */
+    @Test
+    public void testCodeFileDiffCheck() {
+        Assert.assertTrue(new CodeFileDiffCheck(new String[] {" int a;", "+#ifdef CONFIG_A", " int b;"})
+                .isRelevant());
+        Assert.assertTrue(new CodeFileDiffCheck(new String[] {" #if defined(CONFIG_A) \\", "+ || defined(CONFIG_B)"})
+                .isRelevant());
+        Assert.assertFalse(new CodeFileDiffCheck(new String[] {" /*", "+ #ifdef CONFIG_A", " */"}).isRelevant());
+        Assert.assertFalse(new CodeFileDiffCheck(new String[] {"+int c; // #ifdef CONFIG_A"}).isRelevant());
+    }
+
+    /**
+     * Tests whether references to configuration options are detected in build
+     * files.
+     */
+    @Test
+    public void testBuildFileDiffCheck() {
+        Assert.assertTrue(new BuildFileDiffCheck(new String[] {"+obj-$(CONFIG_A) += a.o"}).isRelevant());
+        Assert.assertTrue(new BuildFileDiffCheck(new String[] {" ifdef CONFIG_A", " obj-y += a.o", "-endif"})
+                .isRelevant());
+        Assert.assertFalse(new BuildFileDiffCheck(new String[] {"+obj-y += a.o # $(CONFIG_A)"}).isRelevant());
+    }
+
+    /**
+     * Tests whether changes of Kconfig definitions are detected but changes of
+     * help texts are ignored.
+     */
+    @Test
+    public void testVariabilityModelFileDiffCheck() {
+        Assert.assertTrue(new VariabilityModelFileDiffCheck(new String[] {" config A", "+\tdepends on B"})
+                .isRelevant());
+        Assert.assertTrue(new VariabilityModelFileDiffCheck(new String[] {"+config B", "+\tbool \"B\""})
+                .isRelevant());
+        Assert.assertFalse(new VariabilityModelFileDiffCheck(new String[] {" config A", " \thelp",
+                "+\t  default behaviour changed"}).isRelevant());
+    }
+    // CHECKSTYLE:ON
+
+}
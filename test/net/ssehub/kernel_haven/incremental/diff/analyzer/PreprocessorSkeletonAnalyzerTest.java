@@ -0,0 +1,76 @@
+package net.ssehub.kernel_haven.incremental.diff.analyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFileParser;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+
+/**
+ * Tests for {@link PreprocessorSkeletonAnalyzer} and
+ * {@link PreprocessorSkeleton}.
+ *
+ * @author moritz
+ */
+public class PreprocessorSkeletonAnalyzerTest {
+
+    // CHECKSTYLE:OFF
+    /**
+     * Tests whether changes of conditions are detected while changes that only
+     * shift lines are not.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testAnalyze_variability_change() throws IOException {
+        DiffFile diffFile =
+                DiffFileParser.parse(new File("testdata/variability-changes/some-variability-changes.diff"));
+        new PreprocessorSkeletonAnalyzer().analyzeDiffFile(diffFile, null);
+
+        Assert.assertThat(diffFile.getEntry(Paths.get("drivers/crypto/caam/ctrl.c")).getVariabilityChange(),
+                CoreMatchers.equalTo(FileEntry.VariabilityChange.CHANGE));
+        Assert.assertThat(diffFile.getEntry(Paths.get("include/linux/compat.h")).getVariabilityChange(),
+                CoreMatchers.equalTo(FileEntry.VariabilityChange.NO_CHANGE));
+        Assert.assertThat(diffFile.getEntry(Paths.get(".mailmap")).getVariabilityChange(),
+                CoreMatchers.equalTo(FileEntry.VariabilityChange.NOT_A_VARIABILITY_FILE));
+    }
+
+    /**
+     * Tests whether code moved between blocks and reformatted directives do not
+     * change the skeleton.
+     */
+    @Test
+    public void testHasChanged_unchangedSkeleton() {
+        Assert.assertFalse(new PreprocessorSkeleton(new String[] {"-int a;", " #ifdef CONFIG_A", "+int a;",
+                " int b;", " #endif"}).hasChanged());
+        Assert.assertFalse(new PreprocessorSkeleton(new String[] {" int a;", "-#if defined(A)  &&  B",
+                "+# if defined(A) && B /* comment */", " int b;", " #endif"}).hasChanged());
+        Assert.assertFalse(new PreprocessorSkeleton(new String[] {" int a;", " int b;", "+/* new comment */",
+                "+int c;"}).hasChanged());
+    }
+
+    /**
+     * Tests whether changed directives, changed continuations and changed
+     * comment boundaries are detected.
+     */
+    @Test
+    public void testHasChanged_changedSkeleton() {
+        Assert.assertTrue(new PreprocessorSkeleton(new String[] {" int a;", "-#ifdef CONFIG_A", "+#ifdef CONFIG_B",
+                " int b;"}).hasChanged());
+        Assert.assertTrue(new PreprocessorSkeleton(new String[] {" int a;", " #if defined(A) \\", "-  || defined(B)",
+                "+  || defined(C)", " int b;"}).hasChanged());
+        Assert.assertTrue(new PreprocessorSkeleton(new String[] {" int a;", "+/*", " #ifdef CONFIG_A", "+*/",
+                " int b;"}).hasChanged());
+        // The changed line may continue a directive located before the chunk
+        Assert.assertTrue(new PreprocessorSkeleton(new String[] {FileDiffCheck.CHUNK_HEADER, " foo(void)",
+                " \tdefined(A) \\", "-\t|| defined(B)", "+\t|| defined(C)"}).hasChanged());
+    }
+    // CHECKSTYLE:ON
+
+}
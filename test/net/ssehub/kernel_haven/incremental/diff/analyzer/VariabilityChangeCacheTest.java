@@ -0,0 +1,131 @@
+package net.ssehub.kernel_haven.incremental.diff.analyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.SetUpException;
+import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFileParser;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry.Lines;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry.Lines.LineType;
+import net.ssehub.kernel_haven.incremental.settings.IncrementalAnalysisSettings;
+
+/**
+ * Tests for {@link VariabilityChangeCache}.
+ *
+ * @author moritz
+ */
+public class VariabilityChangeCacheTest {
+
+    /** The Constant DIFF_FILE. */
+    private static final File DIFF_FILE = new File("testdata/variability-changes/some-variability-changes.diff");
+
+    // CHECKSTYLE:OFF
+    /**
+     * Tests whether results are stored and loaded again and whether the least
+     * recently used results are evicted.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testSaveAndLoad_evictsLeastRecentlyUsed() throws IOException {
+        File cacheFile = Files.createTempDirectory("variability-change-cache-test").resolve("cache.txt").toFile();
+        VariabilityChangeCache cache = new VariabilityChangeCache(cacheFile, 2);
+        cache.put("a", true);
+        cache.put("b", false);
+        Assert.assertThat(cache.get("a"), CoreMatchers.equalTo(true));
+        cache.put("c", true);
+        Assert.assertTrue(cache.save());
+
+        VariabilityChangeCache loadedCache = new VariabilityChangeCache(cacheFile, 2);
+        Assert.assertThat(loadedCache.size(), CoreMatchers.equalTo(2));
+        Assert.assertThat(loadedCache.get("a"), CoreMatchers.equalTo(true));
+        Assert.assertThat(loadedCache.get("b"), CoreMatchers.nullValue());
+        Assert.assertThat(loadedCache.get("c"), CoreMatchers.equalTo(true));
+    }
+
+    /**
+     * Tests whether the analyzer stores its results and uses cached results
+     * instead of analyzing files again.
+     *
+     * @throws IOException    Signals that an I/O exception has occurred.
+     * @throws SetUpException the set up exception
+     */
+    @Test
+    public void testAnalyze_usesCachedResults() throws IOException, SetUpException {
+        Path cacheDir = Files.createTempDirectory("variability-change-cache-test");
+        Properties properties = new Properties();
+        properties.setProperty(IncrementalAnalysisSettings.HYBRID_CACHE_DIRECTORY.getKey(), cacheDir.toString());
+        properties.setProperty(IncrementalAnalysisSettings.VARIABILITY_CHANGE_CACHE.getKey(), "true");
+        Configuration config = new Configuration(properties);
+        IncrementalAnalysisSettings.registerAllSettings(config);
+
+        DiffFile diffFile = DiffFileParser.parse(DIFF_FILE);
+        new ParallelVariabilityChangeAnalyzer().analyzeDiffFile(diffFile, config);
+        FileEntry entry = diffFile.getEntry(Paths.get("drivers/crypto/caam/ctrl.c"));
+        Assert.assertThat(entry.getVariabilityChange(), CoreMatchers.equalTo(FileEntry.VariabilityChange.CHANGE));
+
+        // Invert the cached result to see that it is used instead of analyzing the file again
+        File cacheFile = cacheDir.resolve(ParallelVariabilityChangeAnalyzer.CACHE_FILE).toFile();
+        VariabilityChangeCache cache = new VariabilityChangeCache(cacheFile, 100);
+        String key = VariabilityChangeCache.getKey(entry, ParallelVariabilityChangeAnalyzer.class.getSimpleName()
+                + "/" + ArtifactClassifier.Category.CODE);
+        Assert.assertThat(cache.get(key), CoreMatchers.equalTo(true));
+        cache.put(key, false);
+        Assert.assertTrue(cache.save());
+
+        diffFile = DiffFileParser.parse(DIFF_FILE);
+        new ParallelVariabilityChangeAnalyzer().analyzeDiffFile(diffFile, config);
+        Assert.assertThat(diffFile.getEntry(Paths.get("drivers/crypto/caam/ctrl.c")).getVariabilityChange(),
+                CoreMatchers.equalTo(FileEntry.VariabilityChange.NO_CHANGE));
+    }
+    /**
+     * Tests whether entries with colliding abbreviated object ids but different
+     * changes get different keys while equal changes get equal keys.
+     */
+    @Test
+    public void testGetKey_ignoresAbbreviatedObjectIds() {
+        FileEntry entry = createEntry("#ifdef CONFIG_A");
+        FileEntry otherChange = createEntry("int a;");
+        FileEntry sameChange = createEntry("#ifdef CONFIG_A");
+
+        String key = VariabilityChangeCache.getKey(entry, "check");
+        Assert.assertThat(key, CoreMatchers.notNullValue());
+        Assert.assertThat(VariabilityChangeCache.getKey(otherChange, "check"),
+                CoreMatchers.not(CoreMatchers.equalTo(key)));
+        Assert.assertThat(VariabilityChangeCache.getKey(sameChange, "check"), CoreMatchers.equalTo(key));
+        Assert.assertThat(VariabilityChangeCache.getKey(sameChange, "other-check"),
+                CoreMatchers.not(CoreMatchers.equalTo(key)));
+    }
+    // CHECKSTYLE:ON
+
+    /**
+     * Creates an entry adding a single line with the same abbreviated object ids
+     * for every entry.
+     *
+     * @param addedLine the added line
+     * @return the entry
+     */
+    private static FileEntry createEntry(String addedLine) {
+        List<Lines> lines = new ArrayList<>();
+        lines.add(new Lines(LineType.UNMODIFIED, 1, "int b;"));
+        lines.add(new Lines(LineType.ADDED, 1, addedLine));
+        FileEntry entry = new FileEntry(Paths.get("file.c"), FileEntry.FileChange.MODIFICATION,
+                FileEntry.VariabilityChange.NOT_ANALYZED, lines, null);
+        entry.setImageHashes("6970e79", "16c3027");
+        return entry;
+    }
+
+}
@@ -0,0 +1,178 @@
+package net.ssehub.kernel_haven.incremental.diff.applier;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFileParser;
+import net.ssehub.kernel_haven.incremental.util.FolderUtil;
+import net.ssehub.kernel_haven.util.Logger;
+
+/**
+ * Tests for {@link ByteExactDiffApplier}.
+ *
+ * @author moritz
+ */
+public class ByteExactDiffApplierTest {
+
+    /** The Constant ORIGINAL_FOLDER. */
+    private static final File ORIGINAL_FOLDER = new File("testdata/byte-exact/original");
+
+    /** The Constant MODIFIED_FOLDER. */
+    private static final File MODIFIED_FOLDER = new File("testdata/byte-exact/modified");
+
+    /**
+     * The Constant DIFF_FILE. Contains Latin-1 encoded lines, lines ending with
+     * carriage returns and files without new line at the end.
+     */
+    private static final File DIFF_FILE = new File("testdata/byte-exact/git.diff");
+
+    /** The logger. */
+    private static final Logger LOGGER = Logger.get();
+
+    // CHECKSTYLE:OFF
+    /**
+     * Tests whether merging produces byte-identical files.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testMerge_positive() throws IOException {
+        Path tempFolder = Files.createTempDirectory("byte-exact-apply-test");
+        LOGGER.logInfo("Temp-Folder for testMerge: " + tempFolder);
+        FolderUtil.copyFolderContent(ORIGINAL_FOLDER, tempFolder.toFile());
+
+        ByteExactDiffApplier applier =
+                new ByteExactDiffApplier(tempFolder.toFile(), DiffFileParser.parse(DIFF_FILE), DIFF_FILE, 2);
+        Assert.assertTrue(applier.mergeChanges());
+
+        assertBytesEqual(tempFolder.toFile(), MODIFIED_FOLDER);
+    }
+
+    /**
+     * Tests whether reverting produces byte-identical files.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testRevert_positive() throws IOException {
+        Path tempFolder = Files.createTempDirectory("byte-exact-apply-test");
+        LOGGER.logInfo("Temp-Folder for testRevert: " + tempFolder);
+        FolderUtil.copyFolderContent(MODIFIED_FOLDER, tempFolder.toFile());
+
+        ByteExactDiffApplier applier =
+                new ByteExactDiffApplier(tempFolder.toFile(), DiffFileParser.parse(DIFF_FILE), DIFF_FILE, 2);
+        Assert.assertTrue(applier.revertChanges());
+
+        assertBytesEqual(tempFolder.toFile(), ORIGINAL_FOLDER);
+    }
+
+    /**
+     * Tests whether merging fails on a folder where the diff has already been
+     * applied.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testMerge_negative_alreadyMerged() throws IOException {
+        Path tempFolder = Files.createTempDirectory("byte-exact-apply-test");
+        LOGGER.logInfo("Temp-Folder for testMerge: " + tempFolder);
+        FolderUtil.copyFolderContent(MODIFIED_FOLDER, tempFolder.toFile());
+
+        ByteExactDiffApplier applier =
+                new ByteExactDiffApplier(tempFolder.toFile(), DiffFileParser.parse(DIFF_FILE), DIFF_FILE);
+        Assert.assertFalse(applier.mergeChanges());
+
+        assertBytesEqual(tempFolder.toFile(), MODIFIED_FOLDER);
+    }
+    /**
+     * Tests whether merging produces byte-identical files if the diff file is
+     * mapped in multiple windows.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testMerge_multipleWindows() throws IOException {
+        Path tempFolder = Files.createTempDirectory("byte-exact-apply-test");
+        LOGGER.logInfo("Temp-Folder for testMerge: " + tempFolder);
+        FolderUtil.copyFolderContent(ORIGINAL_FOLDER, tempFolder.toFile());
+
+        // Each entry of the diff file is smaller than 200 bytes
+        ByteExactDiffApplier applier =
+                new ByteExactDiffApplier(tempFolder.toFile(), DiffFileParser.parse(DIFF_FILE), DIFF_FILE, 2, 200);
+        Assert.assertTrue(applier.mergeChanges());
+
+        assertBytesEqual(tempFolder.toFile(), MODIFIED_FOLDER);
+    }
+
+    /**
+     * Tests whether reverting produces byte-identical files if the diff file is
+     * mapped in multiple windows.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testRevert_multipleWindows() throws IOException {
+        Path tempFolder = Files.createTempDirectory("byte-exact-apply-test");
+        LOGGER.logInfo("Temp-Folder for testRevert: " + tempFolder);
+        FolderUtil.copyFolderContent(MODIFIED_FOLDER, tempFolder.toFile());
+
+        ByteExactDiffApplier applier =
+                new ByteExactDiffApplier(tempFolder.toFile(), DiffFileParser.parse(DIFF_FILE), DIFF_FILE, 2, 200);
+        Assert.assertTrue(applier.revertChanges());
+
+        assertBytesEqual(tempFolder.toFile(), ORIGINAL_FOLDER);
+    }
+
+    /**
+     * Tests whether entries that do not fit into a window are written from the
+     * parsed diff file while the other entries are still copied byte by byte.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testMerge_entriesLargerThanWindow() throws IOException {
+        Path tempFolder = Files.createTempDirectory("byte-exact-apply-test");
+        LOGGER.logInfo("Temp-Folder for testMerge: " + tempFolder);
+        FolderUtil.copyFolderContent(ORIGINAL_FOLDER, tempFolder.toFile());
+
+        // The entries of added.c and latin1.c are larger than 150 bytes
+        ByteExactDiffApplier applier =
+                new ByteExactDiffApplier(tempFolder.toFile(), DiffFileParser.parse(DIFF_FILE), DIFF_FILE, 2, 150);
+        Assert.assertTrue(applier.mergeChanges());
+
+        Assert.assertTrue(new File(tempFolder.toFile(), "added.c").isFile());
+        Assert.assertTrue(new File(tempFolder.toFile(), "latin1.c").isFile());
+        Assert.assertFalse(new File(tempFolder.toFile(), "deleted.c").exists());
+        for (String name : new String[] {"crlf.c", "eof.c"}) {
+            Assert.assertArrayEquals("Content differs for " + name,
+                    Files.readAllBytes(new File(MODIFIED_FOLDER, name).toPath()),
+                    Files.readAllBytes(tempFolder.resolve(name)));
+        }
+    }
+    // CHECKSTYLE:ON
+
+    /**
+     * Asserts that both folders contain the same files with identical bytes.
+     *
+     * @param actual   the actual folder
+     * @param expected the expected folder
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void assertBytesEqual(File actual, File expected) throws IOException {
+        Assert.assertThat(new HashSet<>(FolderUtil.listRelativeFiles(actual, true)),
+                CoreMatchers.equalTo(new HashSet<>(FolderUtil.listRelativeFiles(expected, true))));
+        for (File file : FolderUtil.listRelativeFiles(expected, true)) {
+            Assert.assertArrayEquals("Content differs for " + file,
+                    Files.readAllBytes(expected.toPath().resolve(file.toPath())),
+                    Files.readAllBytes(actual.toPath().resolve(file.toPath())));
+        }
+    }
+
+}
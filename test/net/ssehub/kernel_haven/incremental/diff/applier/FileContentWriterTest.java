@@ -0,0 +1,82 @@
+package net.ssehub.kernel_haven.incremental.diff.applier;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collection;
+import java.util.Set;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.incremental.util.FileUtil;
+import net.ssehub.kernel_haven.incremental.util.FolderUtil;
+
+/**
+ * Tests for {@link FileContentWriter}.
+ *
+ * @author moritz
+ */
+public class FileContentWriterTest {
+
+    /** The permissions used for written files. */
+    private static final Set<PosixFilePermission> PERMISSIONS = PosixFilePermissions.fromString("rwxr-x---");
+
+    // CHECKSTYLE:OFF
+    /**
+     * Tests whether an existing file gets replaced with the new content and
+     * permissions.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testWriteAtomically_replacesFile() throws IOException {
+        Path tempFolder = Files.createTempDirectory("file-content-writer-test");
+        Path target = tempFolder.resolve("file.c");
+        Files.write(target, "old content\n".getBytes());
+
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            content.append("#ifdef CONFIG_").append(i).append('\n');
+        }
+        FileContentWriter.writeAtomically(target, content, PERMISSIONS);
+
+        Assert.assertThat(FileUtil.readFile(target.toFile()), CoreMatchers.equalTo(content.toString()));
+        Assert.assertThat(Files.getPosixFilePermissions(target), CoreMatchers.equalTo(PERMISSIONS));
+        Collection<File> files = FolderUtil.listRelativeFiles(tempFolder.toFile(), true);
+        Assert.assertThat(files.size(), CoreMatchers.equalTo(1));
+    }
+
+    /**
+     * Tests whether a failing write keeps the previous file and removes the
+     * temporary file.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testWriteAtomically_failureKeepsFile() throws IOException {
+        Path tempFolder = Files.createTempDirectory("file-content-writer-test");
+        Path target = tempFolder.resolve("file.c");
+        Files.write(target, "old content\n".getBytes());
+
+        try {
+            FileContentWriter.writeAtomically(target, PERMISSIONS, channel -> {
+                FileContentWriter.write(channel, "partial content");
+                throw new IOException("simulated failure");
+            });
+            Assert.fail("IOException expected");
+        } catch (IOException exc) {
+            Assert.assertThat(exc.getMessage(), CoreMatchers.equalTo("simulated failure"));
+        }
+
+        Assert.assertThat(FileUtil.readFile(target.toFile()), CoreMatchers.equalTo("old content\n"));
+        Collection<File> files = FolderUtil.listRelativeFiles(tempFolder.toFile(), true);
+        Assert.assertThat(files.size(), CoreMatchers.equalTo(1));
+    }
+    // CHECKSTYLE:ON
+
+}
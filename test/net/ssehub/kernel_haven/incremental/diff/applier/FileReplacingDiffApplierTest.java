@@ -4,13 +4,16 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 import org.hamcrest.CoreMatchers;
 import org.junit.Assert;
 import org.junit.Test;
 
+import net.ssehub.kernel_haven.incremental.diff.applier.PreconditionViolation.Reason;
 import net.ssehub.kernel_haven.incremental.diff.parser.DiffFileParser;
 import net.ssehub.kernel_haven.incremental.util.FileUtil;
 import net.ssehub.kernel_haven.incremental.util.FolderUtil;
@@ -170,4 +173,55 @@ public class FileReplacingDiffApplierTest {
 
     }
     // CHECKSTYLE:ON
+
+    // CHECKSTYLE:OFF
+    /**
+     * Tests whether merging with multiple threads produces the modified folder and
+     * leaves no temporary files behind.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testMerge_positive_multipleThreads() throws IOException {
+        Path tempFolder = Files.createTempDirectory("git-diff-apply-test");
+        LOGGER.logInfo("Temp-Folder for testMerge: " + tempFolder);
+        FolderUtil.copyFolderContent(ORIGINAL_FOLDER, tempFolder.toFile());
+
+        FileReplacingDiffApplier diffIntegration = new FileReplacingDiffApplier(tempFolder.toFile(),
+                DiffFileParser.parse(DIFF_FILE), 4);
+        Assert.assertTrue(diffIntegration.mergeChanges());
+
+        Collection<File> filesInTemp = FolderUtil.listRelativeFiles(tempFolder.toFile(), true);
+        Collection<File> filesInRef = FolderUtil.listRelativeFiles(MODIFIED_FOLDER, true);
+        Assert.assertTrue("Collections were expected to contain the same items but did not: \nfilesInTemp:"
+                + Arrays.toString(filesInTemp.toArray()) + "\nfilesInRef:" + Arrays.toString(filesInRef.toArray()),
+                filesInTemp.containsAll(filesInRef) && filesInRef.containsAll(filesInTemp));
+        Assert.assertTrue(FolderUtil.folderContentEquals(tempFolder.toFile(), MODIFIED_FOLDER));
+    }
+    // CHECKSTYLE:ON
+
+    // CHECKSTYLE:OFF
+    /**
+     * Tests whether the violated preconditions are reported for each file.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testCheckMergePreconditions_violations() throws IOException {
+        Path tempFolder = Files.createTempDirectory("git-diff-apply-test");
+        FolderUtil.copyFolderContent(MODIFIED_FOLDER, tempFolder.toFile());
+
+        FileReplacingDiffApplier diffIntegration = new FileReplacingDiffApplier(tempFolder.toFile(),
+                DiffFileParser.parse(DIFF_FILE));
+        List<PreconditionViolation> violations = diffIntegration.checkMergePreconditions();
+
+        Assert.assertThat(violations.size(), CoreMatchers.equalTo(2));
+        Assert.assertThat(violations.get(0).getPath(), CoreMatchers.equalTo(Paths.get("file-that-was-added.txt")));
+        Assert.assertThat(violations.get(0).getReason(), CoreMatchers.equalTo(Reason.UNEXPECTED_FILE));
+        Assert.assertThat(violations.get(1).getPath(),
+                CoreMatchers.equalTo(Paths.get("file-that-will-be-deleted.txt")));
+        Assert.assertThat(violations.get(1).getReason(), CoreMatchers.equalTo(Reason.MISSING_FILE));
+        Assert.assertTrue(diffIntegration.checkRevertPreconditions().isEmpty());
+    }
+    // CHECKSTYLE:ON
 }
@@ -0,0 +1,88 @@
+package net.ssehub.kernel_haven.incremental.diff.applier;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link FileWriterPool}.
+ *
+ * @author moritz
+ */
+public class FileWriterPoolTest {
+
+    /** The number of items written per call. */
+    private static final int ITEM_COUNT = 100;
+
+    /**
+     * Creates the items.
+     *
+     * @return the items
+     */
+    private static List<Integer> createItems() {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            items.add(i);
+        }
+        return items;
+    }
+
+    // CHECKSTYLE:OFF
+    /**
+     * Tests whether all items are written by at most the given number of threads
+     * at once and whether the threads are kept between calls.
+     *
+     * @throws InterruptedException unwanted exception
+     */
+    @Test
+    public void testWriteAll_limitsAndKeepsThreads() throws InterruptedException {
+        int threadCount = 2;
+        int calls = 10;
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Set<Integer> written = Collections.synchronizedSet(new HashSet<>());
+        Set<Thread> threads = Collections.synchronizedSet(new HashSet<>());
+        for (int call = 0; call < calls; call++) {
+            written.clear();
+            List<Throwable> failures = FileWriterPool.writeAll(createItems(), threadCount, item -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                threads.add(Thread.currentThread());
+                written.add(item);
+                running.decrementAndGet();
+            });
+            Assert.assertThat(failures.isEmpty(), CoreMatchers.equalTo(true));
+            Assert.assertThat(written.size(), CoreMatchers.equalTo(ITEM_COUNT));
+        }
+        Assert.assertThat(maxRunning.get() <= threadCount, CoreMatchers.equalTo(true));
+        Assert.assertThat(threads.size() < calls * threadCount, CoreMatchers.equalTo(true));
+    }
+
+    /**
+     * Tests whether failures of single items are returned while the other items
+     * are still written.
+     *
+     * @throws InterruptedException unwanted exception
+     */
+    @Test
+    public void testWriteAll_collectsFailures() throws InterruptedException {
+        Set<Integer> written = Collections.synchronizedSet(new HashSet<>());
+        List<Throwable> failures = FileWriterPool.writeAll(createItems(), 4, item -> {
+            if (item % 10 == 0) {
+                throw new IOException("Failed " + item);
+            }
+            written.add(item);
+        });
+        Assert.assertThat(failures.size(), CoreMatchers.equalTo(ITEM_COUNT / 10));
+        Assert.assertThat(written.size(), CoreMatchers.equalTo(ITEM_COUNT - ITEM_COUNT / 10));
+    }
+    // CHECKSTYLE:ON
+
+}
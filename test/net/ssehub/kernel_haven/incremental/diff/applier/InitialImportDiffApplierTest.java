@@ -0,0 +1,144 @@
+package net.ssehub.kernel_haven.incremental.diff.applier;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFileParser;
+import net.ssehub.kernel_haven.incremental.util.FileUtil;
+import net.ssehub.kernel_haven.incremental.util.FolderUtil;
+import net.ssehub.kernel_haven.util.Logger;
+
+/**
+ * Tests for {@link InitialImportDiffApplier}.
+ *
+ * @author moritz
+ */
+public class InitialImportDiffApplierTest {
+
+    /** The Constant MODIFIED_FOLDER. */
+    private static final File MODIFIED_FOLDER = new File("testdata/initial-import/modified");
+
+    /** The Constant DIFF_FILE. */
+    private static final File DIFF_FILE = new File("testdata/initial-import/git.diff");
+
+    /** The logger. */
+    private static final Logger LOGGER = Logger.get();
+
+    // CHECKSTYLE:OFF
+    /**
+     * Tests whether all files are imported into an empty folder.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testMerge_positive() throws IOException {
+        Path tempFolder = Files.createTempDirectory("initial-import-test");
+        LOGGER.logInfo("Temp-Folder for testMerge: " + tempFolder);
+
+        DiffFile diffFile = DiffFileParser.parse(DIFF_FILE);
+        Assert.assertTrue(InitialImportDiffApplier.isInitialImport(tempFolder.toFile(), diffFile));
+
+        InitialImportDiffApplier applier = new InitialImportDiffApplier(tempFolder.toFile(), diffFile, 2);
+        Assert.assertTrue(applier.mergeChanges());
+
+        assertContentEquals(tempFolder.toFile(), MODIFIED_FOLDER);
+        Path fileWithoutNewLine = Paths.get("drivers/misc/misc.c");
+        Assert.assertThat(new String(Files.readAllBytes(tempFolder.resolve(fileWithoutNewLine))),
+                CoreMatchers.equalTo(new String(Files.readAllBytes(MODIFIED_FOLDER.toPath().resolve(fileWithoutNewLine)))));
+        Assert.assertTrue(Files.getPosixFilePermissions(tempFolder.resolve(fileWithoutNewLine))
+                .contains(PosixFilePermission.OWNER_EXECUTE));
+    }
+
+    /**
+     * Tests whether the import fails for a folder that is not empty.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testMerge_negative_folderNotEmpty() throws IOException {
+        Path tempFolder = Files.createTempDirectory("initial-import-test");
+        LOGGER.logInfo("Temp-Folder for testMerge: " + tempFolder);
+        FolderUtil.copyFolderContent(MODIFIED_FOLDER, tempFolder.toFile());
+
+        DiffFile diffFile = DiffFileParser.parse(DIFF_FILE);
+        Assert.assertFalse(InitialImportDiffApplier.isInitialImport(tempFolder.toFile(), diffFile));
+
+        InitialImportDiffApplier applier = new InitialImportDiffApplier(tempFolder.toFile(), diffFile);
+        Assert.assertFalse(applier.mergeChanges());
+        assertContentEquals(tempFolder.toFile(), MODIFIED_FOLDER);
+    }
+
+    /**
+     * Tests whether reverting an import removes the imported files.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testRevert_positive() throws IOException {
+        Path tempFolder = Files.createTempDirectory("initial-import-test");
+        LOGGER.logInfo("Temp-Folder for testRevert: " + tempFolder);
+        FolderUtil.copyFolderContent(MODIFIED_FOLDER, tempFolder.toFile());
+
+        InitialImportDiffApplier applier =
+                new InitialImportDiffApplier(tempFolder.toFile(), DiffFileParser.parse(DIFF_FILE));
+        Assert.assertTrue(applier.revertChanges());
+        Assert.assertTrue(FolderUtil.listRelativeFiles(tempFolder.toFile(), true).isEmpty());
+    }
+
+    /**
+     * Tests whether reverting an import also removes the directories created by
+     * the import, so that the folder is considered for an initial import again,
+     * while directories containing other files are kept.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testRevert_deletesCreatedDirectories() throws IOException {
+        Path tempFolder = Files.createTempDirectory("initial-import-test");
+        LOGGER.logInfo("Temp-Folder for testRevert: " + tempFolder);
+
+        DiffFile diffFile = DiffFileParser.parse(DIFF_FILE);
+        InitialImportDiffApplier applier = new InitialImportDiffApplier(tempFolder.toFile(), diffFile, 2);
+        Assert.assertTrue(applier.mergeChanges());
+        Assert.assertTrue(applier.revertChanges());
+        Assert.assertThat(tempFolder.toFile().list().length, CoreMatchers.equalTo(0));
+        Assert.assertTrue(InitialImportDiffApplier.isInitialImport(tempFolder.toFile(), diffFile));
+
+        Assert.assertTrue(applier.mergeChanges());
+        Files.write(tempFolder.resolve("drivers/other.c"), "int a;".getBytes());
+        Assert.assertTrue(applier.revertChanges());
+        Assert.assertThat(FolderUtil.listRelativeFiles(tempFolder.toFile(), true),
+                CoreMatchers.equalTo(Arrays.asList(new File("drivers/other.c"))));
+        Assert.assertFalse(tempFolder.resolve("drivers/misc").toFile().exists());
+    }
+    // CHECKSTYLE:ON
+
+    /**
+     * Asserts that both folders contain the same files with the same content
+     * including files in subdirectories.
+     *
+     * @param actual   the actual folder
+     * @param expected the expected folder
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void assertContentEquals(File actual, File expected) throws IOException {
+        Assert.assertThat(new HashSet<>(FolderUtil.listRelativeFiles(actual, true)),
+                CoreMatchers.equalTo(new HashSet<>(FolderUtil.listRelativeFiles(expected, true))));
+        for (File file : FolderUtil.listRelativeFiles(expected, true)) {
+            Assert.assertTrue("Content differs for " + file, FileUtil.textContentIsEqual(
+                    actual.toPath().resolve(file.toPath()).toFile(), expected.toPath().resolve(file.toPath()).toFile()));
+        }
+    }
+
+}
@@ -0,0 +1,172 @@
+package net.ssehub.kernel_haven.incremental.diff.applier;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFileParser;
+import net.ssehub.kernel_haven.incremental.util.FolderUtil;
+import net.ssehub.kernel_haven.util.Logger;
+
+/**
+ * Tests for {@link SourceTreeSnapshot}.
+ *
+ * @author moritz
+ */
+public class SourceTreeSnapshotTest {
+
+    /** The Constant ORIGINAL_FOLDER. */
+    private static final File ORIGINAL_FOLDER = new File("testdata/diff-integration/original");
+
+    /** The Constant MODIFIED_FOLDER. */
+    private static final File MODIFIED_FOLDER = new File("testdata/diff-integration/modified");
+
+    /** The Constant DIFF_FILE. */
+    private static final File DIFF_FILE = new File("testdata/diff-integration/git.diff");
+
+    /** The logger. */
+    private static final Logger LOGGER = Logger.get();
+
+    // CHECKSTYLE:OFF
+    /**
+     * Tests whether a merge with snapshot can be reverted from the snapshot.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testRestore_afterMerge() throws IOException {
+        Path tempFolder = Files.createTempDirectory("snapshot-test");
+        Path snapshotFolder = Files.createTempDirectory("snapshot-test-snapshot");
+        LOGGER.logInfo("Temp-Folder for testRestore: " + tempFolder);
+        FolderUtil.copyFolderContent(ORIGINAL_FOLDER, tempFolder.toFile());
+
+        SourceTreeSnapshot snapshot = new SourceTreeSnapshot(tempFolder.toFile(), snapshotFolder.toFile());
+        FileReplacingDiffApplier applier =
+                new FileReplacingDiffApplier(tempFolder.toFile(), DiffFileParser.parse(DIFF_FILE));
+        applier.setSnapshot(snapshot);
+        Assert.assertTrue(applier.mergeChanges());
+        Assert.assertTrue(snapshot.exists());
+        Assert.assertTrue(FolderUtil.folderContentEquals(tempFolder.toFile(), MODIFIED_FOLDER));
+
+        // Reverting from the snapshot does not need the diff file
+        Assert.assertTrue(new SourceTreeSnapshot(tempFolder.toFile(), snapshotFolder.toFile()).restore());
+        Assert.assertTrue(FolderUtil.folderContentEquals(tempFolder.toFile(), ORIGINAL_FOLDER));
+        Assert.assertFalse(snapshot.exists());
+    }
+
+    /**
+     * Tests whether the applier reverts from the snapshot if one exists.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testRevertChanges_usesSnapshot() throws IOException {
+        Path tempFolder = Files.createTempDirectory("snapshot-test");
+        Path snapshotFolder = Files.createTempDirectory("snapshot-test-snapshot");
+        LOGGER.logInfo("Temp-Folder for testRevert: " + tempFolder);
+        FolderUtil.copyFolderContent(ORIGINAL_FOLDER, tempFolder.toFile());
+
+        DiffFile diffFile = DiffFileParser.parse(DIFF_FILE);
+        FileReplacingDiffApplier applier = new FileReplacingDiffApplier(tempFolder.toFile(), diffFile);
+        applier.setSnapshot(new SourceTreeSnapshot(tempFolder.toFile(), snapshotFolder.toFile()));
+        Assert.assertTrue(applier.mergeChanges());
+        Assert.assertTrue(applier.revertChanges());
+        Assert.assertTrue(FolderUtil.folderContentEquals(tempFolder.toFile(), ORIGINAL_FOLDER));
+
+        // Without snapshot the applier falls back to the diff file
+        Assert.assertTrue(applier.mergeChanges());
+        applier.setSnapshot(null);
+        Assert.assertTrue(applier.revertChanges());
+        Assert.assertTrue(FolderUtil.folderContentEquals(tempFolder.toFile(), ORIGINAL_FOLDER));
+    }
+
+    /**
+     * Tests whether a snapshot is only used for the diff file it was captured
+     * for.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testExists_otherDiffFile() throws IOException {
+        Path tempFolder = Files.createTempDirectory("snapshot-test");
+        Path snapshotFolder = Files.createTempDirectory("snapshot-test-snapshot");
+        FolderUtil.copyFolderContent(ORIGINAL_FOLDER, tempFolder.toFile());
+
+        FileReplacingDiffApplier applier =
+                new FileReplacingDiffApplier(tempFolder.toFile(), DiffFileParser.parse(DIFF_FILE));
+        applier.setSnapshot(new SourceTreeSnapshot(tempFolder.toFile(), snapshotFolder.toFile(), DIFF_FILE));
+        Assert.assertTrue(applier.mergeChanges());
+
+        Path otherDiff = Files.createTempFile("snapshot-test", ".diff");
+        Files.write(otherDiff, "other".getBytes());
+        Assert.assertTrue(new SourceTreeSnapshot(tempFolder.toFile(), snapshotFolder.toFile(), DIFF_FILE).exists());
+        Assert.assertFalse(
+                new SourceTreeSnapshot(tempFolder.toFile(), snapshotFolder.toFile(), otherDiff.toFile()).exists());
+        // Without the diff file, the snapshot can not be checked
+        Assert.assertTrue(new SourceTreeSnapshot(tempFolder.toFile(), snapshotFolder.toFile()).exists());
+
+        // Reverting with another diff file does not use the snapshot
+        FileReplacingDiffApplier otherApplier =
+                new FileReplacingDiffApplier(tempFolder.toFile(), DiffFileParser.parse(DIFF_FILE));
+        otherApplier.setSnapshot(
+                new SourceTreeSnapshot(tempFolder.toFile(), snapshotFolder.toFile(), otherDiff.toFile()));
+        Assert.assertTrue(otherApplier.revertChanges());
+        Assert.assertTrue(FolderUtil.folderContentEquals(tempFolder.toFile(), ORIGINAL_FOLDER));
+        Assert.assertTrue(new SourceTreeSnapshot(tempFolder.toFile(), snapshotFolder.toFile(), DIFF_FILE).exists());
+    }
+
+    /**
+     * Tests whether restoring deletes the directories created for added files
+     * while keeping directories that existed before the merge.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testRestore_deletesCreatedFolders() throws IOException {
+        Path tempFolder = Files.createTempDirectory("snapshot-test");
+        Path snapshotFolder = Files.createTempDirectory("snapshot-test-snapshot");
+        Files.createDirectories(tempFolder.resolve("existing"));
+        Files.write(tempFolder.resolve("existing/file.txt"), "file".getBytes());
+        Path diff = Files.createTempFile("snapshot-test", ".diff");
+        Files.write(diff, ("diff --git a/new/sub/added.txt b/new/sub/added.txt\n" + "new file mode 100644\n"
+                + "index 0000000..f8a9e9d\n" + "--- /dev/null\n" + "+++ b/new/sub/added.txt\n" + "@@ -0,0 +1 @@\n"
+                + "+added\n" + "diff --git a/existing/added.txt b/existing/added.txt\n" + "new file mode 100644\n"
+                + "index 0000000..f8a9e9d\n" + "--- /dev/null\n" + "+++ b/existing/added.txt\n" + "@@ -0,0 +1 @@\n"
+                + "+added\n").getBytes());
+
+        FileReplacingDiffApplier applier =
+                new FileReplacingDiffApplier(tempFolder.toFile(), DiffFileParser.parse(diff.toFile()));
+        applier.setSnapshot(new SourceTreeSnapshot(tempFolder.toFile(), snapshotFolder.toFile(), diff.toFile()));
+        Assert.assertTrue(applier.mergeChanges());
+        Assert.assertTrue(Files.isRegularFile(tempFolder.resolve("new/sub/added.txt")));
+
+        Assert.assertTrue(applier.revertChanges());
+        Assert.assertFalse(Files.exists(tempFolder.resolve("new")));
+        Assert.assertFalse(Files.exists(tempFolder.resolve("existing/added.txt")));
+        Assert.assertTrue(Files.isRegularFile(tempFolder.resolve("existing/file.txt")));
+    }
+
+    /**
+     * Tests whether restoring fails if no snapshot was captured.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testRestore_noSnapshot() throws IOException {
+        Path tempFolder = Files.createTempDirectory("snapshot-test");
+        Path snapshotFolder = Files.createTempDirectory("snapshot-test-snapshot");
+        FolderUtil.copyFolderContent(MODIFIED_FOLDER, tempFolder.toFile());
+
+        SourceTreeSnapshot snapshot = new SourceTreeSnapshot(tempFolder.toFile(), snapshotFolder.toFile());
+        Assert.assertFalse(snapshot.exists());
+        Assert.assertFalse(snapshot.restore());
+        Assert.assertTrue(FolderUtil.folderContentEquals(tempFolder.toFile(), MODIFIED_FOLDER));
+    }
+    // CHECKSTYLE:ON
+
+}
@@ -184,4 +184,41 @@ public class DiffFileParserTest {
 
     }
 
+    /**
+     * Tests whether omitted lines between chunks are recorded on the entry.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    // CHECKSTYLE:OFF
+    public void testParse_omittedLines() throws IOException {
+        // CHECKSTYLE:ON
+        DiffFile diffFile = DiffFileParser.parse(new File("testdata/lines/ec-commit.diff"));
+        Assert.assertTrue(diffFile.getEntry(Paths.get("drivers/acpi/ec.c")).hasOmittedLines());
+
+        diffFile = DiffFileParser.parse(new File("testdata/diff-integration/git.diff"));
+        for (FileEntry entry : diffFile.getEntries()) {
+            Assert.assertFalse(entry.hasOmittedLines());
+        }
+    }
+
+    /**
+     * Tests whether the object ids of the index lines are recorded.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    // CHECKSTYLE:OFF
+    public void testParse_imageHashes() throws IOException {
+        // CHECKSTYLE:ON
+        DiffFile diffFile =
+                DiffFileParser.parse(new File("testdata/variability-changes/some-variability-changes.diff"));
+        FileEntry entry = diffFile.getEntry(Paths.get("drivers/crypto/caam/ctrl.c"));
+        Assert.assertThat(entry.getPreImageHash(), CoreMatchers.equalTo("361e750f9"));
+        Assert.assertThat(entry.getPostImageHash(), CoreMatchers.equalTo("e843cf410"));
+        entry = diffFile.getEntry(Paths.get(".mailmap"));
+        Assert.assertThat(entry.getPreImageHash(), CoreMatchers.equalTo("a2ce89a45"));
+        Assert.assertThat(entry.getPostImageHash(), CoreMatchers.equalTo("000000000"));
+    }
+
 }
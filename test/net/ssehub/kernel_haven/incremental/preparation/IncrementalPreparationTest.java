@@ -6,6 +6,8 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 import java.util.regex.Pattern;
@@ -18,6 +20,8 @@ import net.ssehub.kernel_haven.SetUpException;
 import net.ssehub.kernel_haven.config.Configuration;
 import net.ssehub.kernel_haven.config.DefaultSettings;
 import net.ssehub.kernel_haven.incremental.preparation.filter.DefaultFilter;
+import net.ssehub.kernel_haven.incremental.preparation.filter.InputFilter;
+import net.ssehub.kernel_haven.incremental.preparation.filter.KconfigSymbolImpactFilter;
 import net.ssehub.kernel_haven.incremental.settings.IncrementalAnalysisSettings;
 import net.ssehub.kernel_haven.incremental.util.FolderUtil;
 import net.ssehub.kernel_haven.util.Logger;
@@ -73,8 +77,145 @@ public class IncrementalPreparationTest extends IncrementalPreparation {
 
         FolderUtil.copyFolderContent(MODIFIED_FOLDER, tempFolder);
 
+        Configuration config = createConfig(tempFolder, new Properties());
+
+        IncrementalPreparation preparation = new IncrementalPreparation();
+        preparation.run(config);
+
+        List<String> listOfFilesForCodeModel =
+            config.getValue(DefaultSettings.CODE_EXTRACTOR_FILES);
+
+        Assert.assertThat(listOfFilesForCodeModel, CoreMatchers.anyOf(
+            CoreMatchers.hasItems("a-code-file.c", "modify/a-code-file.c"),
+            CoreMatchers.hasItems("a-code-file.c", "modify\\a-code-file.c")));
+
+        Assert.assertThat(
+            config.getValue(IncrementalAnalysisSettings.EXTRACT_BUILD_MODEL),
+            equalTo(Boolean.TRUE));
+        Assert.assertThat(
+            config.getValue(
+                IncrementalAnalysisSettings.EXTRACT_VARIABILITY_MODEL),
+            equalTo(Boolean.TRUE));
+        Assert.assertThat(
+            config.getValue(IncrementalAnalysisSettings.EXTRACT_CODE_MODEL),
+            equalTo(Boolean.TRUE));
+
+    }
+
+    /**
+     * Tests whether a run deletes the index files of indices that are not used
+     * and thus not updated, while used indices are kept up to date.
+     *
+     * @throws SetUpException
+     *             the set up exception
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testRun_invalidatesUnusedIndices() throws SetUpException, IOException {
+        File tempFolder = Files.createTempDirectory("incremental-analysis-test-run").toFile();
+        FolderUtil.copyFolderContent(MODIFIED_FOLDER, tempFolder);
+        // Left by an earlier run that used the HeaderImpactFilter
+        File includeGraph = new File(tempFolder, "include-graph.txt");
+        Files.write(includeGraph.toPath(), "stale.c\t<stale.h\n".getBytes());
+
         Properties prop = new Properties();
+        prop.setProperty(IncrementalAnalysisSettings.SOURCE_TREE_INDEX.getKey(), "true");
+        Configuration config = createConfig(tempFolder, prop);
+        new IncrementalPreparation().run(config);
+
+        Assert.assertThat(new File(tempFolder, "source-tree-index.txt").isFile(), equalTo(true));
+        Assert.assertThat(includeGraph.exists(), equalTo(false));
+    }
 
+    /**
+     * Tests whether a change of the variability model only causes the extraction
+     * of the build model if a {@link KconfigSymbolImpactFilter} used for the build
+     * model includes a build file referencing a changed configuration option.
+     *
+     * @throws SetUpException
+     *             the set up exception
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testRun_buildModelExtractionForKconfigChange() throws SetUpException, IOException {
+        // Without a KconfigSymbolImpactFilter, the build model is extracted for any change of the variability model
+        Configuration config = runKconfigChange(DefaultFilter.class, "B");
+        Assert.assertThat(config.getValue(IncrementalAnalysisSettings.EXTRACT_VARIABILITY_MODEL), equalTo(true));
+        Assert.assertThat(config.getValue(IncrementalAnalysisSettings.EXTRACT_BUILD_MODEL), equalTo(true));
+
+        // The changed option is not referenced by a build file
+        config = runKconfigChange(KconfigSymbolImpactFilter.class, "B");
+        Assert.assertThat(config.getValue(IncrementalAnalysisSettings.EXTRACT_VARIABILITY_MODEL), equalTo(true));
+        Assert.assertThat(config.getValue(IncrementalAnalysisSettings.EXTRACT_BUILD_MODEL), equalTo(false));
+
+        // The changed option is referenced by the Makefile
+        config = runKconfigChange(KconfigSymbolImpactFilter.class, "A");
+        Assert.assertThat(config.getValue(IncrementalAnalysisSettings.EXTRACT_VARIABILITY_MODEL), equalTo(true));
+        Assert.assertThat(config.getValue(IncrementalAnalysisSettings.EXTRACT_BUILD_MODEL), equalTo(true));
+    }
+
+    /**
+     * Runs the preparation for a diff changing the prompt of a configuration
+     * option in a source tree whose Makefile references the option A.
+     *
+     * @param buildModelFilter
+     *            the filter for the build model
+     * @param option
+     *            the changed option, A or B
+     * @return the configuration after the run
+     * @throws SetUpException
+     *             the set up exception
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private static Configuration runKconfigChange(Class<? extends InputFilter> buildModelFilter, String option)
+            throws SetUpException, IOException {
+        File tempFolder = Files.createTempDirectory("incremental-analysis-test-run").toFile();
+        File sourceTree = new File(tempFolder, "source");
+        sourceTree.mkdir();
+        String[] kconfig = {"config A", "\tbool \"A\"", "", "config B", "\tbool \"B\""};
+        Files.write(new File(sourceTree, "Kconfig").toPath(), Arrays.asList(kconfig));
+        Files.write(new File(sourceTree, "Makefile").toPath(), Arrays.asList("obj-$(CONFIG_A) += a.o"));
+        Files.write(new File(sourceTree, "a.c").toPath(), Arrays.asList("int a;"));
+        // The diff describes the changed file completely
+        List<String> diff = new ArrayList<>(Arrays.asList("diff --git a/Kconfig b/Kconfig",
+                "index 1111111..2222222 100644", "--- a/Kconfig", "+++ b/Kconfig", "@@ -1,5 +1,5 @@"));
+        for (String line : kconfig) {
+            if (line.equals("\tbool \"" + option + "\"")) {
+                diff.add("-" + line);
+                diff.add("+\tbool \"Option " + option + "\"");
+            } else {
+                diff.add(" " + line);
+            }
+        }
+        File diffFile = new File(tempFolder, "git.diff");
+        Files.write(diffFile.toPath(), diff);
+
+        Configuration config = createConfig(tempFolder, new Properties());
+        config.setValue(DefaultSettings.SOURCE_TREE, sourceTree);
+        config.setValue(IncrementalAnalysisSettings.SOURCE_TREE_DIFF_FILE, diffFile);
+        config.setValue(IncrementalAnalysisSettings.BUILD_MODEL_FILTER_CLASS, buildModelFilter.getName());
+        config.setValue(DefaultSettings.VARIABILITY_EXTRACTOR_FILE_REGEX, Pattern.compile(".*Kconfig"));
+        config.setValue(DefaultSettings.BUILD_EXTRACTOR_FILE_REGEX, Pattern.compile(".*Makefile"));
+        new IncrementalPreparation().run(config);
+        return config;
+    }
+
+    /**
+     * Creates the configuration for running the preparation on a folder that
+     * serves as source tree and as hybrid cache directory.
+     *
+     * @param tempFolder
+     *            the folder
+     * @param prop
+     *            additional properties
+     * @return the configuration
+     * @throws SetUpException
+     *             the set up exception
+     */
+    private static Configuration createConfig(File tempFolder, Properties prop) throws SetUpException {
         prop.setProperty(
             IncrementalAnalysisSettings.CODE_MODEL_FILTER_CLASS.getKey(),
             DefaultFilter.class.getName());
@@ -111,28 +252,6 @@ public class IncrementalPreparationTest extends IncrementalPreparation {
 
         IncrementalAnalysisSettings.registerAllSettings(config);
         DefaultSettings.registerAllSettings(config);
-
-        IncrementalPreparation preparation = new IncrementalPreparation();
-        preparation.run(config);
-
-        List<String> listOfFilesForCodeModel =
-            config.getValue(DefaultSettings.CODE_EXTRACTOR_FILES);
-
-        Assert.assertThat(listOfFilesForCodeModel, CoreMatchers.anyOf(
-            CoreMatchers.hasItems("a-code-file.c", "modify/a-code-file.c"),
-            CoreMatchers.hasItems("a-code-file.c", "modify\\a-code-file.c")));
-
-        Assert.assertThat(
-            config.getValue(IncrementalAnalysisSettings.EXTRACT_BUILD_MODEL),
-            equalTo(Boolean.TRUE));
-        Assert.assertThat(
-            config.getValue(
-                IncrementalAnalysisSettings.EXTRACT_VARIABILITY_MODEL),
-            equalTo(Boolean.TRUE));
-        Assert.assertThat(
-            config.getValue(IncrementalAnalysisSettings.EXTRACT_CODE_MODEL),
-            equalTo(Boolean.TRUE));
-
+        return config;
     }
-
 }
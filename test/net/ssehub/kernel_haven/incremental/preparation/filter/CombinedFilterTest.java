@@ -0,0 +1,203 @@
+package net.ssehub.kernel_haven.incremental.preparation.filter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.regex.Pattern;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.SetUpException;
+import net.ssehub.kernel_haven.incremental.diff.analyzer.ParallelVariabilityChangeAnalyzer;
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFileParser;
+
+/**
+ * Tests for {@link CombinedFilter}.
+ *
+ * @author moritz
+ */
+public class CombinedFilterTest {
+
+    /** The Constant MODIFIED_FOLDER. */
+    private static final File MODIFIED_FOLDER = new File("testdata/changed-only/modified");
+
+    /** The Constant DIFF_FILE. */
+    private static final File DIFF_FILE = new File("testdata/variability-changes/some-variability-changes.diff");
+
+    /** The Constant CODE_REGEX. */
+    private static final Pattern CODE_REGEX = Pattern.compile(".*\\.(c|h)");
+
+    /** The Constant BUILD_REGEX. */
+    private static final Pattern BUILD_REGEX = Pattern.compile(".*(Kbuild|Makefile).*");
+
+    // CHECKSTYLE:OFF
+    /**
+     * Tests whether the combined evaluation yields the same results as
+     * evaluating each filter on its own.
+     *
+     * @throws IOException    Signals that an I/O exception has occurred.
+     * @throws SetUpException the set up exception
+     */
+    @Test
+    public void testGetFilteredResult_equalsSingleFilters() throws IOException, SetUpException {
+        DiffFile diffFile = DiffFileParser.parse(DIFF_FILE);
+        new ParallelVariabilityChangeAnalyzer().analyzeDiffFile(diffFile, null);
+
+        for (boolean parallel : new boolean[] {false, true}) {
+            CombinedFilter filter = new CombinedFilter(MODIFIED_FOLDER, diffFile, parallel);
+            CombinedFilter.Target change = filter.addTarget(ChangeFilter.class.getName(), CODE_REGEX, false);
+            CombinedFilter.Target variability =
+                    filter.addTarget(VariabilityChangeFilter.class.getName(), CODE_REGEX, true);
+            CombinedFilter.Target addition = filter.addTarget(AdditionFilter.class.getName(), CODE_REGEX, false);
+            CombinedFilter.Target build =
+                    filter.addTarget(VariabilityChangeAndAdditionFilter.class.getName(), BUILD_REGEX, true);
+
+            Assert.assertThat(change.getFilteredResult(), CoreMatchers
+                    .equalTo(new ChangeFilter(MODIFIED_FOLDER, diffFile, CODE_REGEX, false).getFilteredResult()));
+            Assert.assertThat(variability.getFilteredResult(), CoreMatchers.equalTo(
+                    new VariabilityChangeFilter(MODIFIED_FOLDER, diffFile, CODE_REGEX, true).getFilteredResult()));
+            Assert.assertThat(addition.getFilteredResult(), CoreMatchers
+                    .equalTo(new AdditionFilter(MODIFIED_FOLDER, diffFile, CODE_REGEX, false).getFilteredResult()));
+            Assert.assertThat(build.getFilteredResult(), CoreMatchers.equalTo(
+                    new VariabilityChangeAndAdditionFilter(MODIFIED_FOLDER, diffFile, BUILD_REGEX, true)
+                            .getFilteredResult()));
+            Assert.assertFalse(change.getFilteredResult().isEmpty());
+        }
+    }
+
+    /**
+     * Tests whether filters that do not decide about single entries are
+     * evaluated on their own.
+     *
+     * @throws IOException    Signals that an I/O exception has occurred.
+     * @throws SetUpException the set up exception
+     */
+    @Test
+    public void testGetFilteredResult_inputFilter() throws IOException, SetUpException {
+        DiffFile diffFile = DiffFileParser.parse(DIFF_FILE);
+        CombinedFilter filter = new CombinedFilter(MODIFIED_FOLDER, diffFile, false);
+        CombinedFilter.Target target = filter.addTarget(DefaultFilter.class.getName(), CODE_REGEX, false);
+
+        Assert.assertThat(target.getFilteredResult(), CoreMatchers
+                .equalTo(new DefaultFilter(MODIFIED_FOLDER, diffFile, CODE_REGEX, false).getFilteredResult()));
+    }
+
+    /**
+     * Tests whether all filters match paths through the
+     * {@link PathCategoryMatcher} registered for the source directory.
+     *
+     * @throws IOException    Signals that an I/O exception has occurred.
+     * @throws SetUpException the set up exception
+     */
+    @Test
+    public void testGetFilteredResult_registeredMatcher() throws IOException, SetUpException {
+        DiffFile diffFile = DiffFileParser.parse(DIFF_FILE);
+        Collection<Path> expectedDefault = new DefaultFilter(MODIFIED_FOLDER, diffFile, CODE_REGEX, false)
+                .getFilteredResult();
+        Collection<Path> expectedChange = new ChangeFilter(MODIFIED_FOLDER, diffFile, BUILD_REGEX, true)
+                .getFilteredResult();
+
+        PathCategoryMatcher matcher = new PathCategoryMatcher(Arrays.asList(BUILD_REGEX, CODE_REGEX));
+        matcher.register(MODIFIED_FOLDER);
+        try {
+            CombinedFilter filter = new CombinedFilter(MODIFIED_FOLDER, diffFile, false);
+            CombinedFilter.Target defaultTarget = filter.addTarget(DefaultFilter.class.getName(), CODE_REGEX, false);
+            CombinedFilter.Target changeTarget = filter.addTarget(ChangeFilter.class.getName(), BUILD_REGEX, true);
+
+            Assert.assertThat(changeTarget.getFilteredResult(), CoreMatchers.equalTo(expectedChange));
+            int matchedPaths = matcher.getMatchedPathCount();
+            Assert.assertTrue(matchedPaths > 0);
+            Assert.assertThat(defaultTarget.getFilteredResult(), CoreMatchers.equalTo(expectedDefault));
+            Assert.assertTrue(matcher.getMatchedPathCount() > matchedPaths);
+        } finally {
+            PathCategoryMatcher.unregister(MODIFIED_FOLDER);
+        }
+    }
+
+    /**
+     * Tests whether the filters providing an {@link EntryFilter} are evaluated
+     * per entry without being instantiated.
+     *
+     * @throws SetUpException the set up exception
+     */
+    @Test
+    public void testAddTarget_entryFilters() throws SetUpException {
+        CombinedFilter filter = new CombinedFilter(MODIFIED_FOLDER, DiffFileParser.parse(DIFF_FILE), false);
+        for (Class<?> filterClass : new Class<?>[] {ChangeFilter.class, AdditionFilter.class,
+                VariabilityChangeFilter.class, VariabilityChangeAndAdditionFilter.class}) {
+            Assert.assertTrue(filterClass.getName(),
+                    filter.addTarget(filterClass.getName(), CODE_REGEX, false).isEvaluatedPerEntry());
+        }
+        Assert.assertFalse(filter.addTarget(DefaultFilter.class.getName(), CODE_REGEX, false).isEvaluatedPerEntry());
+    }
+
+    /**
+     * Tests whether a subclass of a filter providing an {@link EntryFilter} is
+     * evaluated on its own, so that its filtering is not bypassed.
+     *
+     * @throws IOException    Signals that an I/O exception has occurred.
+     * @throws SetUpException the set up exception
+     */
+    @Test
+    public void testAddTarget_subclassOfEntryFilter() throws IOException, SetUpException {
+        DiffFile diffFile = DiffFileParser.parse(DIFF_FILE);
+        CombinedFilter filter = new CombinedFilter(MODIFIED_FOLDER, diffFile, false);
+        CombinedFilter.Target target = filter.addTarget(NothingChangedFilter.class.getName(), CODE_REGEX, false);
+
+        Assert.assertFalse(target.isEvaluatedPerEntry());
+        Assert.assertTrue(target.getFilteredResult().isEmpty());
+        Assert.assertFalse(new ChangeFilter(MODIFIED_FOLDER, diffFile, CODE_REGEX, false).getFilteredResult()
+                .isEmpty());
+    }
+
+    /**
+     * Tests whether an unknown filter class is rejected.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testAddTarget_unknownClass() throws IOException {
+        CombinedFilter filter = new CombinedFilter(MODIFIED_FOLDER, DiffFileParser.parse(DIFF_FILE), false);
+        try {
+            filter.addTarget("no.such.Filter", CODE_REGEX, false);
+            Assert.fail("Unknown filter class was accepted");
+        } catch (SetUpException e) {
+            Assert.assertTrue(e.getMessage().contains("no.such.Filter"));
+        }
+    }
+    // CHECKSTYLE:ON
+
+    /**
+     * {@link ChangeFilter} that overrides the filtering without declaring its own
+     * {@link EntryFilter}.
+     */
+    public static class NothingChangedFilter extends ChangeFilter {
+
+        /**
+         * Instantiates a new nothing changed filter.
+         *
+         * @param sourceDirectory  the source directory
+         * @param diffFile         the diff file
+         * @param fileRegex        the file regex
+         * @param includeDeletions the include deletions
+         * @throws IOException Signals that an I/O exception has occurred.
+         */
+        public NothingChangedFilter(File sourceDirectory, DiffFile diffFile, Pattern fileRegex,
+                boolean includeDeletions) throws IOException {
+            super(sourceDirectory, diffFile, fileRegex, includeDeletions);
+        }
+
+        @Override
+        protected Collection<Path> doFilter(File sourceDirectory, DiffFile diffFile, Pattern fileRegex,
+                boolean includeDeletions) throws IOException {
+            return new ArrayList<>();
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+package net.ssehub.kernel_haven.incremental.preparation.filter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.regex.Pattern;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry.Lines;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry.Lines.LineType;
+import net.ssehub.kernel_haven.incremental.preparation.index.PersistentIndex;
+import net.ssehub.kernel_haven.incremental.preparation.index.SymbolIndex;
+
+/**
+ * Tests for {@link KconfigSymbolImpactFilter}.
+ *
+ * @author moritz
+ */
+public class KconfigSymbolImpactFilterTest {
+
+    // CHECKSTYLE:OFF
+    /**
+     * Creates a small source tree referencing configuration options.
+     *
+     * @return the source tree
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static Path createSourceTree() throws IOException {
+        Path sourceTree = Files.createTempDirectory("kconfig-symbol-impact-filter-test");
+        write(sourceTree, "drivers/Kconfig", "config A\n\ttristate \"A\"\n\nconfig B\n\tbool \"B\"\n");
+        write(sourceTree, "drivers/Makefile", "obj-$(CONFIG_A) += a.o\n");
+        write(sourceTree, "drivers/a.c", "#ifdef CONFIG_A_MODULE\nint a;\n#endif\n");
+        write(sourceTree, "drivers/b.c", "#if IS_ENABLED(CONFIG_B) && defined(CONFIG_AB)\nint b;\n#endif\n");
+        write(sourceTree, "drivers/c.c", "int c;\n");
+        return sourceTree;
+    }
+
+    /**
+     * Writes a file within the source tree.
+     *
+     * @param sourceTree the source tree
+     * @param file       the relative path of the file
+     * @param content    the content
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void write(Path sourceTree, String file, String content) throws IOException {
+        Path path = sourceTree.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes());
+    }
+
+    /**
+     * Creates the entry of a modified Kconfig file.
+     *
+     * @param lines the lines of the entry
+     * @return the entry
+     */
+    private static FileEntry kconfigEntry(Lines... lines) {
+        return new FileEntry(Paths.get("drivers/Kconfig"), FileEntry.FileChange.MODIFICATION,
+                FileEntry.VariabilityChange.NOT_ANALYZED, Arrays.asList(lines), null);
+    }
+
+    /**
+     * Filters the paths for a single entry.
+     *
+     * @param sourceTree       the source tree
+     * @param entry            the entry
+     * @param fileRegex        the regular expression for files to include
+     * @param includeDeletions defines whether or not to include deletions
+     * @return the filtered paths
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static Collection<Path> filter(Path sourceTree, FileEntry entry, String fileRegex,
+            boolean includeDeletions) throws IOException {
+        return new KconfigSymbolImpactFilter(sourceTree.toFile(), new DiffFile(Arrays.asList(entry)),
+                Pattern.compile(fileRegex), includeDeletions).getFilteredResult();
+    }
+
+    /**
+     * Tests whether the files referencing a changed option are included.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testChangedOption() throws IOException {
+        Path sourceTree = createSourceTree();
+        FileEntry entry = kconfigEntry(new Lines(LineType.UNMODIFIED, 1, "config B"),
+                new Lines(LineType.DELETED, 1, "\tbool \"B\""), new Lines(LineType.ADDED, 1, "\tbool \"Option B\""));
+
+        Assert.assertThat(filter(sourceTree, entry, ".*\\.c", false),
+                CoreMatchers.equalTo(Arrays.asList(Paths.get("drivers/b.c"))));
+        Assert.assertTrue(filter(sourceTree, entry, ".*Makefile", true).isEmpty());
+        // The changed Kconfig file itself is included like by the ChangeFilter
+        Assert.assertThat(filter(sourceTree, entry, ".*Kconfig", false),
+                CoreMatchers.equalTo(Arrays.asList(Paths.get("drivers/Kconfig"))));
+    }
+
+    /**
+     * Tests whether unknown changed options include all referencing files.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testUnknownOptions() throws IOException {
+        Path sourceTree = createSourceTree();
+        HashSet<Path> referencingFiles = new HashSet<>(
+                Arrays.asList(Paths.get("drivers/Makefile"), Paths.get("drivers/a.c"), Paths.get("drivers/b.c")));
+
+        FileEntry entry = kconfigEntry(new Lines(LineType.ADDED, 1, "source \"drivers/net/Kconfig\""));
+        Assert.assertThat(new HashSet<>(filter(sourceTree, entry, ".*\\.c|.*Makefile", true)),
+                CoreMatchers.equalTo(referencingFiles));
+
+        // A changed line matching no known element
+        entry = kconfigEntry(new Lines(LineType.UNMODIFIED, 1, "config B"),
+                new Lines(LineType.ADDED, 1, "\toptional"));
+        Assert.assertThat(new HashSet<>(filter(sourceTree, entry, ".*\\.c|.*Makefile", true)),
+                CoreMatchers.equalTo(referencingFiles));
+
+        // A deleted Kconfig file without lines
+        entry = new FileEntry(Paths.get("drivers/Kconfig"), FileEntry.FileChange.DELETION);
+        Assert.assertThat(new HashSet<>(filter(sourceTree, entry, ".*\\.c|.*Makefile", false)),
+                CoreMatchers.equalTo(referencingFiles));
+    }
+
+    /**
+     * Tests whether the index registered for the source tree is used instead of
+     * building a new one.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testRegisteredIndex() throws IOException {
+        Path sourceTree = createSourceTree();
+        SymbolIndex index = new SymbolIndex(sourceTree.toFile(), null);
+        index.rebuild();
+        index.register();
+        // Not part of the registered index
+        write(sourceTree, "drivers/c.c", "#ifdef CONFIG_B\nint c;\n#endif\n");
+        FileEntry entry = kconfigEntry(new Lines(LineType.UNMODIFIED, 1, "config B"),
+                new Lines(LineType.ADDED, 1, "\tdefault y"));
+        Collection<Path> paths;
+        try {
+            paths = filter(sourceTree, entry, ".*\\.c", false);
+        } finally {
+            PersistentIndex.unregister(SymbolIndex.class, sourceTree.toFile());
+        }
+        Assert.assertThat(paths, CoreMatchers.equalTo(Arrays.asList(Paths.get("drivers/b.c"))));
+
+        Assert.assertThat(new HashSet<>(filter(sourceTree, entry, ".*\\.c", false)), CoreMatchers
+                .equalTo(new HashSet<>(Arrays.asList(Paths.get("drivers/b.c"), Paths.get("drivers/c.c")))));
+    }
+    // CHECKSTYLE:ON
+
+}
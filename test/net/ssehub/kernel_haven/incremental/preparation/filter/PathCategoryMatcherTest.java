@@ -0,0 +1,77 @@
+package net.ssehub.kernel_haven.incremental.preparation.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PathCategoryMatcher}.
+ *
+ * @author moritz
+ */
+public class PathCategoryMatcherTest {
+
+    /** Regular expressions supported by the automaton. */
+    private static final String[] SUPPORTED = {".*", ".*\\.c", ".*\\.(c|h)", "^.*/Kconfig[^/]*$",
+            ".*(Kbuild|Makefile).*", "arch/[a-z0-9_]+/.+\\.[chS]", "(?:drivers|fs)/.*?\\.c", "[\\w./-]*\\d\\.txt",
+            "a|b|", "\\S+\\s?x"};
+
+    /** Regular expressions matched with java.util.regex. */
+    private static final String[] UNSUPPORTED = {".{2,}\\.c", "(?i).*\\.C", ".*(?<!x)\\.c", "(a)\\1", ".*+\\.c"};
+
+    /** The paths. */
+    private static final String[] PATHS = {"", "a", "b", "main.c", "include/linux/compat.h", "drivers/net/Kconfig",
+            "drivers/net/Kconfig.debug", "drivers/net/Kconfig/sub", "arch/x86/Makefile", "scripts/Kbuild.include",
+            "arch/arm64/kernel/head.S", "fs/ext4/inode.c", "docs/file1.txt", "docs/file.txt", "a b x", "a\nb.c",
+            "ä/ö.c", "😀.c", "xx.c"};
+
+    // CHECKSTYLE:OFF
+    /**
+     * Tests whether the matcher reports the same results as matching each
+     * regular expression with java.util.regex.
+     */
+    @Test
+    public void testMatch_equalsRegex() {
+        List<Pattern> patterns = new ArrayList<>();
+        for (String regex : SUPPORTED) {
+            patterns.add(Pattern.compile(regex));
+        }
+        for (String regex : UNSUPPORTED) {
+            patterns.add(Pattern.compile(regex));
+        }
+        patterns.add(Pattern.compile(".*\\.c", Pattern.CASE_INSENSITIVE));
+        PathCategoryMatcher matcher = new PathCategoryMatcher(patterns);
+
+        for (int round = 0; round < 2; round++) {
+            for (String path : PATHS) {
+                int expected = 0;
+                for (int i = 0; i < patterns.size(); i++) {
+                    if (patterns.get(i).matcher(path).matches()) {
+                        expected |= 1 << i;
+                    }
+                }
+                Assert.assertEquals(path, Integer.toBinaryString(expected),
+                        Integer.toBinaryString(matcher.match(path)));
+            }
+        }
+    }
+
+    /**
+     * Tests whether single regular expressions can be queried.
+     */
+    @Test
+    public void testMatches() {
+        PathCategoryMatcher matcher = new PathCategoryMatcher(
+                Arrays.asList(Pattern.compile(".*\\.c"), Pattern.compile(".*Kconfig"), Pattern.compile(".*")));
+        Assert.assertTrue(matcher.matches("kernel/fork.c", 0));
+        Assert.assertFalse(matcher.matches("kernel/fork.c", 1));
+        Assert.assertTrue(matcher.matches("kernel/fork.c", 2));
+        Assert.assertTrue(matcher.matches("init/Kconfig", 1));
+    }
+    // CHECKSTYLE:ON
+
+}
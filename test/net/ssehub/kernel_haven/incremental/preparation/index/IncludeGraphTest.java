@@ -0,0 +1,176 @@
+package net.ssehub.kernel_haven.incremental.preparation.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.regex.Pattern;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+import net.ssehub.kernel_haven.incremental.preparation.filter.HeaderImpactFilter;
+
+/**
+ * Tests for {@link IncludeGraph} and the {@link HeaderImpactFilter}.
+ *
+ * @author moritz
+ */
+public class IncludeGraphTest {
+
+    // CHECKSTYLE:OFF
+    /**
+     * Creates a small source tree with include directives.
+     *
+     * @return the source tree
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static Path createSourceTree() throws IOException {
+        Path sourceTree = Files.createTempDirectory("include-graph-test");
+        write(sourceTree, "include/linux/a.h", "#include \"b.h\"\nint a;\n");
+        write(sourceTree, "include/linux/b.h", "int b;\n");
+        write(sourceTree, "drivers/x.c", "  # include <linux/a.h>\nint x;\n");
+        write(sourceTree, "drivers/y.c", "#include \"local.h\"\n");
+        write(sourceTree, "drivers/local.h", "/* #include <linux/b.h> is not a directive */\n");
+        write(sourceTree, "other/z.c", "int z;\n");
+        return sourceTree;
+    }
+
+    /**
+     * Writes a file within the source tree.
+     *
+     * @param sourceTree the source tree
+     * @param file       the relative path of the file
+     * @param content    the content
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void write(Path sourceTree, String file, String content) throws IOException {
+        Path path = sourceTree.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes());
+    }
+
+    /**
+     * Tests whether the files transitively including a changed file are
+     * determined and whether the graph survives saving and loading.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testGetDependents() throws IOException {
+        Path sourceTree = createSourceTree();
+        File indexFile = Files.createTempDirectory("include-graph-test-index").resolve("graph.txt").toFile();
+        IncludeGraph graph = new IncludeGraph(sourceTree.toFile(), indexFile);
+        graph.rebuild();
+        Assert.assertTrue(graph.save());
+        IncludeGraph loadedGraph = new IncludeGraph(sourceTree.toFile(), indexFile);
+        Assert.assertTrue(loadedGraph.load());
+
+        for (IncludeGraph g : new IncludeGraph[] {graph, loadedGraph}) {
+            Assert.assertThat(g.getDependents(Arrays.asList(Paths.get("include/linux/b.h"))),
+                    CoreMatchers.equalTo(new HashSet<>(
+                            Arrays.asList(Paths.get("include/linux/a.h"), Paths.get("drivers/x.c")))));
+            Assert.assertThat(g.getDependents(Arrays.asList(Paths.get("drivers/local.h"))),
+                    CoreMatchers.equalTo(Collections.singleton(Paths.get("drivers/y.c"))));
+            Assert.assertTrue(g.getDependents(Arrays.asList(Paths.get("other/z.c"))).isEmpty());
+        }
+
+        graph.setMaxExpansion(1);
+        Assert.assertThat(graph.getDependents(Arrays.asList(Paths.get("include/linux/b.h"))),
+                CoreMatchers.nullValue());
+    }
+
+    /**
+     * Tests whether <code>#include_next</code> directives are resolved like
+     * includes and whether computed includes are considered to include every
+     * file.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testGetDependents_includeNextAndComputedIncludes() throws IOException {
+        Path sourceTree = createSourceTree();
+        write(sourceTree, "arch/x86/include/limits.h", "#include_next <limits.h>\n");
+        write(sourceTree, "include/limits.h", "int limits;\n");
+        write(sourceTree, "drivers/computed.c", "#define HEADER <linux/b.h>\n# include HEADER\n");
+        File indexFile = Files.createTempDirectory("include-graph-test-index").resolve("graph.txt").toFile();
+        IncludeGraph graph = new IncludeGraph(sourceTree.toFile(), indexFile);
+        graph.rebuild();
+        Assert.assertTrue(graph.save());
+        IncludeGraph loadedGraph = new IncludeGraph(sourceTree.toFile(), indexFile);
+        Assert.assertTrue(loadedGraph.load());
+
+        for (IncludeGraph g : new IncludeGraph[] {graph, loadedGraph}) {
+            Assert.assertThat(g.getDependents(Arrays.asList(Paths.get("include/limits.h"))),
+                    CoreMatchers.equalTo(new HashSet<>(Arrays.asList(Paths.get("arch/x86/include/limits.h"),
+                            Paths.get("drivers/computed.c")))));
+            Assert.assertThat(g.getDependents(Arrays.asList(Paths.get("other/z.c"))),
+                    CoreMatchers.equalTo(Collections.singleton(Paths.get("drivers/computed.c"))));
+        }
+    }
+
+    /**
+     * Tests whether only the changed files are parsed again.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testApply() throws IOException {
+        Path sourceTree = createSourceTree();
+        IncludeGraph graph = new IncludeGraph(sourceTree.toFile(), null);
+        graph.rebuild();
+
+        write(sourceTree, "drivers/x.c", "int x;\n");
+        write(sourceTree, "other/z.c", "#include <linux/b.h>\n");
+        Files.delete(sourceTree.resolve("include/linux/a.h"));
+        Assert.assertTrue(graph.apply(new DiffFile(Arrays.asList(
+                new FileEntry(Paths.get("drivers/x.c"), FileEntry.FileChange.MODIFICATION),
+                new FileEntry(Paths.get("other/z.c"), FileEntry.FileChange.MODIFICATION),
+                new FileEntry(Paths.get("include/linux/a.h"), FileEntry.FileChange.DELETION)))));
+
+        Assert.assertThat(graph.getDependents(Arrays.asList(Paths.get("include/linux/b.h"))),
+                CoreMatchers.equalTo(Collections.singleton(Paths.get("other/z.c"))));
+    }
+
+    /**
+     * Tests whether the {@link HeaderImpactFilter} includes the files depending
+     * on a changed header.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testHeaderImpactFilter() throws IOException {
+        Path sourceTree = createSourceTree();
+        DiffFile diffFile = new DiffFile(
+                Arrays.asList(new FileEntry(Paths.get("include/linux/b.h"), FileEntry.FileChange.MODIFICATION)));
+
+        Collection<Path> paths =
+                new HeaderImpactFilter(sourceTree.toFile(), diffFile, Pattern.compile(".*\\.c"), false)
+                        .getFilteredResult();
+        Assert.assertThat(paths, CoreMatchers.equalTo(Arrays.asList(Paths.get("drivers/x.c"))));
+
+        // Too many dependent files include all files
+        IncludeGraph graph = new IncludeGraph(sourceTree.toFile(), null);
+        graph.rebuild();
+        graph.setMaxExpansion(1);
+        graph.register();
+        try {
+            paths = new HeaderImpactFilter(sourceTree.toFile(), diffFile, Pattern.compile(".*\\.c"), false)
+                    .getFilteredResult();
+        } finally {
+            PersistentIndex.unregister(IncludeGraph.class, sourceTree.toFile());
+        }
+        Assert.assertThat(new HashSet<>(paths), CoreMatchers.equalTo(new HashSet<>(
+                Arrays.asList(Paths.get("drivers/x.c"), Paths.get("drivers/y.c"), Paths.get("other/z.c")))));
+    }
+    // CHECKSTYLE:ON
+
+}
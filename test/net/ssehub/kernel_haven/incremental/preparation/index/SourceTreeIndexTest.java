@@ -0,0 +1,125 @@
+package net.ssehub.kernel_haven.incremental.preparation.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.regex.Pattern;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.incremental.diff.applier.FileReplacingDiffApplier;
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFileParser;
+import net.ssehub.kernel_haven.incremental.preparation.filter.DefaultFilter;
+import net.ssehub.kernel_haven.incremental.util.FolderUtil;
+
+/**
+ * Tests for {@link SourceTreeIndex}.
+ *
+ * @author moritz
+ */
+public class SourceTreeIndexTest {
+
+    /** The Constant ORIGINAL_FOLDER. */
+    private static final File ORIGINAL_FOLDER = new File("testdata/diff-integration/original");
+
+    /** The Constant MODIFIED_FOLDER. */
+    private static final File MODIFIED_FOLDER = new File("testdata/diff-integration/modified");
+
+    /** The Constant DIFF_FILE. */
+    private static final File DIFF_FILE = new File("testdata/diff-integration/git.diff");
+
+    // CHECKSTYLE:OFF
+    /**
+     * Tests whether an index that is updated with a merged diff file equals an
+     * index built from the merged source tree and whether it survives saving and
+     * loading.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testApply_equalsRebuild() throws IOException {
+        Path tempFolder = Files.createTempDirectory("source-tree-index-test");
+        File indexFile = Files.createTempDirectory("source-tree-index-test-index").resolve("index.txt").toFile();
+        FolderUtil.copyFolderContent(ORIGINAL_FOLDER, tempFolder.toFile());
+
+        SourceTreeIndex index = new SourceTreeIndex(tempFolder.toFile(), indexFile);
+        Assert.assertFalse(index.load());
+        index.rebuild();
+        Assert.assertTrue(index.save());
+
+        DiffFile diffFile = DiffFileParser.parse(DIFF_FILE);
+        Assert.assertTrue(new FileReplacingDiffApplier(tempFolder.toFile(), diffFile).mergeChanges());
+        SourceTreeIndex updatedIndex = new SourceTreeIndex(tempFolder.toFile(), indexFile);
+        Assert.assertTrue(updatedIndex.load());
+        Assert.assertTrue(updatedIndex.apply(diffFile));
+        Assert.assertTrue(updatedIndex.save());
+
+        SourceTreeIndex expectedIndex = new SourceTreeIndex(MODIFIED_FOLDER, indexFile);
+        expectedIndex.rebuild();
+        Assert.assertThat(updatedIndex.getFiles(), CoreMatchers.equalTo(expectedIndex.getFiles()));
+        SourceTreeIndex loadedIndex = new SourceTreeIndex(tempFolder.toFile(), indexFile);
+        Assert.assertTrue(loadedIndex.load());
+        Assert.assertThat(loadedIndex.getFiles(), CoreMatchers.equalTo(expectedIndex.getFiles()));
+
+        Assert.assertTrue(loadedIndex.invalidate());
+        Assert.assertFalse(indexFile.exists());
+    }
+
+    /**
+     * Tests whether an index not matching the source tree is rebuilt.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testApply_rebuildsStaleIndex() throws IOException {
+        Path tempFolder = Files.createTempDirectory("source-tree-index-test");
+        File indexFile = Files.createTempDirectory("source-tree-index-test-index").resolve("index.txt").toFile();
+        FolderUtil.copyFolderContent(MODIFIED_FOLDER, tempFolder.toFile());
+
+        // The index still describes the original source tree but the diff is not applied to it
+        SourceTreeIndex index = new SourceTreeIndex(ORIGINAL_FOLDER, indexFile);
+        index.rebuild();
+        Assert.assertTrue(index.save());
+        index = new SourceTreeIndex(tempFolder.toFile(), indexFile);
+        Assert.assertTrue(index.load());
+        Files.write(tempFolder.resolve("untracked.c"), "int a;".getBytes());
+        DiffFile diffFile = DiffFileParser.parse(DIFF_FILE);
+        Files.delete(tempFolder.resolve("file-that-was-added.txt"));
+
+        Assert.assertFalse(index.apply(diffFile));
+        Assert.assertTrue(index.getFiles().contains(Paths.get("untracked.c")));
+        Assert.assertFalse(index.getFiles().contains(Paths.get("file-that-was-added.txt")));
+    }
+
+    /**
+     * Tests whether the {@link DefaultFilter} uses the registered index instead of
+     * the files in the source directory.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testDefaultFilter_usesRegisteredIndex() throws IOException {
+        File indexFile = Files.createTempDirectory("source-tree-index-test-index").resolve("index.txt").toFile();
+        Files.write(indexFile.toPath(), "indexed/only.c\n".getBytes());
+        SourceTreeIndex index = new SourceTreeIndex(ORIGINAL_FOLDER, indexFile);
+        Assert.assertTrue(index.load());
+        DiffFile diffFile = DiffFileParser.parse(DIFF_FILE);
+
+        index.register();
+        try {
+            Assert.assertThat(new DefaultFilter(ORIGINAL_FOLDER, diffFile, Pattern.compile(".*\\.c"), false)
+                    .getFilteredResult(), CoreMatchers.hasItems(Paths.get("indexed/only.c")));
+        } finally {
+            SourceTreeIndex.unregister(ORIGINAL_FOLDER);
+        }
+        Assert.assertThat(new DefaultFilter(ORIGINAL_FOLDER, diffFile, Pattern.compile(".*\\.c"), false)
+                .getFilteredResult(), CoreMatchers.not(CoreMatchers.hasItems(Paths.get("indexed/only.c"))));
+    }
+    // CHECKSTYLE:ON
+
+}
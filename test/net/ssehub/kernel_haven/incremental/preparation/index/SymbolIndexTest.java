@@ -0,0 +1,92 @@
+package net.ssehub.kernel_haven.incremental.preparation.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.incremental.diff.parser.DiffFile;
+import net.ssehub.kernel_haven.incremental.diff.parser.FileEntry;
+
+/**
+ * Tests for {@link SymbolIndex}.
+ *
+ * @author moritz
+ */
+public class SymbolIndexTest {
+
+    // CHECKSTYLE:OFF
+    /**
+     * Creates a small source tree referencing configuration options.
+     *
+     * @return the source tree
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static Path createSourceTree() throws IOException {
+        Path sourceTree = Files.createTempDirectory("symbol-index-test");
+        write(sourceTree, "drivers/Kconfig", "config A\n\ttristate \"A\"\n\nconfig B\n\tbool \"B\"\n");
+        write(sourceTree, "drivers/Makefile", "obj-$(CONFIG_A) += a.o\n");
+        write(sourceTree, "drivers/a.c", "#ifdef CONFIG_A_MODULE\nint a;\n#endif\n");
+        write(sourceTree, "drivers/b.c", "#if IS_ENABLED(CONFIG_B) && defined(CONFIG_AB)\nint b;\n#endif\n");
+        write(sourceTree, "drivers/c.c", "int c;\n");
+        write(sourceTree, "Documentation/a.txt", "CONFIG_A\n");
+        return sourceTree;
+    }
+
+    /**
+     * Writes a file within the source tree.
+     *
+     * @param sourceTree the source tree
+     * @param file       the relative path of the file
+     * @param content    the content
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void write(Path sourceTree, String file, String content) throws IOException {
+        Path path = sourceTree.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes());
+    }
+
+    /**
+     * Tests whether the files referencing an option are determined and whether
+     * the index survives saving, loading and applying changes.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testGetReferencingFiles() throws IOException {
+        Path sourceTree = createSourceTree();
+        File indexFile = Files.createTempDirectory("symbol-index-test-index").resolve("index.txt").toFile();
+        SymbolIndex index = new SymbolIndex(sourceTree.toFile(), indexFile);
+        index.rebuild();
+        Assert.assertTrue(index.save());
+        SymbolIndex loadedIndex = new SymbolIndex(sourceTree.toFile(), indexFile);
+        Assert.assertTrue(loadedIndex.load());
+
+        for (SymbolIndex i : new SymbolIndex[] {index, loadedIndex}) {
+            Assert.assertThat(i.getReferencingFiles(Arrays.asList("A")), CoreMatchers.equalTo(
+                    new HashSet<>(Arrays.asList(Paths.get("drivers/Makefile"), Paths.get("drivers/a.c")))));
+            Assert.assertThat(i.getReferencingFiles(Arrays.asList("B")),
+                    CoreMatchers.equalTo(new HashSet<>(Arrays.asList(Paths.get("drivers/b.c")))));
+            Assert.assertTrue(i.getReferencingFiles(Arrays.asList("C")).isEmpty());
+        }
+
+        write(sourceTree, "drivers/c.c", "#ifdef CONFIG_B\nint c;\n#endif\n");
+        Files.delete(sourceTree.resolve("drivers/b.c"));
+        Assert.assertTrue(index.apply(new DiffFile(Arrays.asList(
+                new FileEntry(Paths.get("drivers/c.c"), FileEntry.FileChange.MODIFICATION),
+                new FileEntry(Paths.get("drivers/b.c"), FileEntry.FileChange.DELETION)))));
+        Assert.assertThat(index.getReferencingFiles(Arrays.asList("B")),
+                CoreMatchers.equalTo(new HashSet<>(Arrays.asList(Paths.get("drivers/c.c")))));
+    }
+
+    // CHECKSTYLE:ON
+
+}
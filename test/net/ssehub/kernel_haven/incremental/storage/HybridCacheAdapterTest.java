@@ -0,0 +1,392 @@
+package net.ssehub.kernel_haven.incremental.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.SetUpException;
+import net.ssehub.kernel_haven.analysis.AnalysisComponent;
+import net.ssehub.kernel_haven.code_model.CodeBlock;
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.incremental.settings.IncrementalAnalysisSettings;
+import net.ssehub.kernel_haven.incremental.storage.HybridCacheAdapter.CodeModelProcessing;
+import net.ssehub.kernel_haven.incremental.util.SourceFileDifferenceDetector;
+import net.ssehub.kernel_haven.incremental.util.SourceFileDifferenceDetector.Consideration;
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.Negation;
+import net.ssehub.kernel_haven.util.logic.Variable;
+import net.ssehub.kernel_haven.variability_model.VariabilityModel;
+
+/**
+ * Tests for {@link HybridCacheAdapter}.
+ *
+ * @author moritz
+ */
+public class HybridCacheAdapterTest {
+
+    /** The time to wait for the adapter to read further models in milliseconds. */
+    private static final long WAIT_TIME = 500;
+
+    // CHECKSTYLE:OFF
+
+    /**
+     * Tests that the adapter stops reading code models while the code model
+     * component is not consumed.
+     *
+     * @throws Exception unwanted exception
+     */
+    @Test
+    public void testGetNextResult_backPressure() throws Exception {
+        int fileCount = HybridCacheAdapter.QUEUE_CAPACITY * 2;
+        StubHybridCache cache = createCache(fileCount, null);
+        Configuration config = new Configuration(new Properties());
+        HybridCacheAdapter adapter =
+                new HybridCacheAdapter(config, createInputComponent(config, cache), CodeModelProcessing.COMPLETE);
+        AnalysisComponent<SourceFile<?>> cmComponent = adapter.getCmComponent();
+        adapter.start();
+
+        Thread.sleep(WAIT_TIME);
+        // One model may be read while the publisher waits for space in the queue
+        int readWithoutConsumer = cache.getReadCount();
+        Assert.assertThat(readWithoutConsumer <= HybridCacheAdapter.QUEUE_CAPACITY + 1, CoreMatchers.equalTo(true));
+        Thread.sleep(WAIT_TIME);
+        Assert.assertThat(cache.getReadCount(), CoreMatchers.equalTo(readWithoutConsumer));
+
+        Assert.assertThat(countModels(cmComponent), CoreMatchers.equalTo(fileCount));
+        Assert.assertThat(cache.getReadCount(), CoreMatchers.equalTo(fileCount));
+        Assert.assertThat(cmComponent.getNextResult(), CoreMatchers.nullValue());
+    }
+
+    /**
+     * Tests that the variability model is provided while the code model component
+     * is not consumed.
+     *
+     * @throws Exception unwanted exception
+     */
+    @Test
+    public void testGetNextResult_variabilityModelBeforeCodeModel() throws Exception {
+        int fileCount = HybridCacheAdapter.QUEUE_CAPACITY * 2;
+        VariabilityModel varModel = new VariabilityModel(new File("vm"), new HashSet<>());
+        StubHybridCache cache = createCache(fileCount, varModel);
+        Configuration config = new Configuration(new Properties());
+        HybridCacheAdapter adapter =
+                new HybridCacheAdapter(config, createInputComponent(config, cache), CodeModelProcessing.COMPLETE);
+
+        Assert.assertThat(adapter.getVmComponent().getNextResult(), CoreMatchers.sameInstance(varModel));
+        Assert.assertThat(adapter.getVmComponent().getNextResult(), CoreMatchers.nullValue());
+        Assert.assertThat(adapter.getBmComponent().getNextResult(), CoreMatchers.nullValue());
+        Assert.assertThat(cache.getReadCount() < fileCount, CoreMatchers.equalTo(true));
+
+        Assert.assertThat(countModels(adapter.getCmComponent()), CoreMatchers.equalTo(fileCount));
+    }
+
+    /**
+     * Tests that every output component signals the end of its models, including
+     * the components for the previous models.
+     *
+     * @throws Exception unwanted exception
+     */
+    @Test
+    public void testGetNextResult_allOutputsComplete() throws Exception {
+        int fileCount = 3;
+        StubHybridCache cache = createCache(fileCount, null);
+        Configuration config = new Configuration(new Properties());
+        HybridCacheAdapter adapter = new HybridCacheAdapter(config, createInputComponent(config, cache),
+                CodeModelProcessing.COMPLETE, Consideration.ANY_CHANGE);
+
+        // Unchanged files have the same previous and current model
+        Assert.assertThat(countModels(adapter.getPreviousCmComponent()), CoreMatchers.equalTo(fileCount));
+        Assert.assertThat(countModels(adapter.getChangedCmComponent()), CoreMatchers.equalTo(0));
+        Assert.assertThat(countModels(adapter.getPreviousVmComponent()), CoreMatchers.equalTo(0));
+        Assert.assertThat(countModels(adapter.getPreviousBmComponent()), CoreMatchers.equalTo(0));
+        Assert.assertThat(countModels(adapter.getVmComponent()), CoreMatchers.equalTo(0));
+        Assert.assertThat(countModels(adapter.getBmComponent()), CoreMatchers.equalTo(0));
+        Assert.assertThat(countModels(adapter.getCmComponent()), CoreMatchers.equalTo(fileCount));
+    }
+
+    /**
+     * Tests that interrupting the publisher of the code model ends the code model
+     * component while the other components still complete.
+     *
+     * @throws Exception unwanted exception
+     */
+    @Test
+    public void testGetNextResult_interruptedPublisher() throws Exception {
+        int fileCount = HybridCacheAdapter.QUEUE_CAPACITY * 2;
+        VariabilityModel varModel = new VariabilityModel(new File("vm"), new HashSet<>());
+        StubHybridCache cache = createCache(fileCount, varModel);
+        Configuration config = new Configuration(new Properties());
+        HybridCacheAdapter adapter =
+                new HybridCacheAdapter(config, createInputComponent(config, cache), CodeModelProcessing.COMPLETE);
+        AnalysisComponent<SourceFile<?>> cmComponent = adapter.getCmComponent();
+        adapter.start();
+
+        Thread publisher = null;
+        String publisherName = cmComponent.getResultName() + HybridCacheAdapter.PUBLISHER_SUFFIX;
+        while (publisher == null) {
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().equals(publisherName)) {
+                    publisher = thread;
+                }
+            }
+        }
+        publisher.interrupt();
+        publisher.join();
+
+        Assert.assertThat(countModels(cmComponent) < fileCount, CoreMatchers.equalTo(true));
+        Assert.assertThat(cmComponent.getNextResult(), CoreMatchers.nullValue());
+        Assert.assertThat(adapter.getVmComponent().getNextResult(), CoreMatchers.sameInstance(varModel));
+        Assert.assertThat(adapter.getVmComponent().getNextResult(), CoreMatchers.nullValue());
+        Assert.assertThat(adapter.getBmComponent().getNextResult(), CoreMatchers.nullValue());
+    }
+
+    /**
+     * Tests that the code model component signals the end of its models if
+     * reading a model fails unexpectedly.
+     *
+     * @throws Exception unwanted exception
+     */
+    @Test
+    public void testGetNextResult_failingPublisher() throws Exception {
+        VariabilityModel varModel = new VariabilityModel(new File("vm"), new HashSet<>());
+        StubHybridCache cache = createCache(3, varModel);
+        cache.setReadFailure(new IllegalStateException("corrupt model"));
+        Configuration config = new Configuration(new Properties());
+        HybridCacheAdapter adapter =
+                new HybridCacheAdapter(config, createInputComponent(config, cache), CodeModelProcessing.COMPLETE);
+
+        Assert.assertThat(adapter.getCmComponent().getNextResult(), CoreMatchers.nullValue());
+        Assert.assertThat(adapter.getVmComponent().getNextResult(), CoreMatchers.sameInstance(varModel));
+        Assert.assertThat(adapter.getVmComponent().getNextResult(), CoreMatchers.nullValue());
+    }
+
+    /**
+     * Tests that only the changed files are provided for
+     * {@link CodeModelProcessing#CHANGED_SINCE_PREVIOUS} and that the pairs are
+     * handed to all code model components.
+     *
+     * @throws Exception unwanted exception
+     */
+    @Test
+    public void testGetNextResult_changedSincePrevious() throws Exception {
+        Variable a = new Variable("A");
+        StubHybridCache cache = createCache(2, null);
+        cache.write(createSourceFile("dir/file0.c", new Negation(a)));
+        cache.write(createSourceFile("dir/added.c", a));
+        Configuration config = new Configuration(new Properties());
+        HybridCacheAdapter adapter = new HybridCacheAdapter(config, createInputComponent(config, cache),
+                CodeModelProcessing.CHANGED_SINCE_PREVIOUS, Consideration.ANY_CHANGE);
+
+        Set<SourceFile<?>> current = new HashSet<>();
+        SourceFile<?> sourceFile;
+        while ((sourceFile = adapter.getCmComponent().getNextResult()) != null) {
+            current.add(sourceFile);
+        }
+        Assert.assertThat(current.size(), CoreMatchers.equalTo(2));
+        Assert.assertThat(current, CoreMatchers.hasItems(createSourceFile("dir/file0.c", new Negation(a)),
+                createSourceFile("dir/added.c", a)));
+
+        Assert.assertThat(adapter.getPreviousCmComponent().getNextResult(),
+                CoreMatchers.equalTo(createSourceFile("dir/file0.c", a)));
+        Assert.assertThat(adapter.getPreviousCmComponent().getNextResult(), CoreMatchers.nullValue());
+        Assert.assertThat(countModels(adapter.getChangedCmComponent()), CoreMatchers.equalTo(2));
+    }
+
+    /**
+     * Tests that the code model components can be consumed one after another if
+     * more files changed than fit into the queue of a component and that the
+     * changed files are determined only once.
+     *
+     * @throws Exception unwanted exception
+     */
+    @Test
+    public void testGetNextResult_changedSincePreviousConsumedInSequence() throws Exception {
+        int fileCount = HybridCacheAdapter.QUEUE_CAPACITY * 2;
+        Variable a = new Variable("A");
+        StubHybridCache cache = createCache(fileCount, null);
+        for (int i = 0; i < fileCount; i++) {
+            cache.write(createSourceFile("dir/file" + i + ".c", new Negation(a)));
+        }
+        Configuration config = new Configuration(new Properties());
+        HybridCacheAdapter adapter = new HybridCacheAdapter(config, createInputComponent(config, cache),
+                CodeModelProcessing.CHANGED_SINCE_PREVIOUS, Consideration.ANY_CHANGE);
+
+        Assert.assertThat(countModels(adapter.getCmComponent()), CoreMatchers.equalTo(fileCount));
+        Assert.assertThat(countModels(adapter.getPreviousCmComponent()), CoreMatchers.equalTo(fileCount));
+        Assert.assertThat(countModels(adapter.getChangedCmComponent()), CoreMatchers.equalTo(fileCount));
+        Assert.assertThat(cache.getChangeDetectionCount(), CoreMatchers.equalTo(1));
+    }
+
+    /**
+     * Tests that an invalid configured consideration is rejected when the adapter
+     * is created.
+     *
+     * @throws Exception expected {@link SetUpException}
+     */
+    @Test(expected = SetUpException.class)
+    public void testConstructor_invalidConsideration() throws Exception {
+        Properties prop = new Properties();
+        prop.setProperty(IncrementalAnalysisSettings.CHANGE_CONSIDERATION.getKey(), "ANY_CHANGES");
+        Configuration config = new Configuration(prop);
+        new HybridCacheAdapter(config, createInputComponent(config, createCache(1, null)),
+                CodeModelProcessing.CHANGED_SINCE_PREVIOUS);
+    }
+
+    /**
+     * Counts the models of a component until it signals the end of its models.
+     *
+     * @param component the component
+     * @return the number of models
+     */
+    private static int countModels(AnalysisComponent<?> component) {
+        int count = 0;
+        while (component.getNextResult() != null) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Creates a cache containing code models for the given number of files.
+     *
+     * @param fileCount the number of files
+     * @param varModel  the variability model of the cache, may be null
+     * @return the cache
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static StubHybridCache createCache(int fileCount, VariabilityModel varModel) throws IOException {
+        StubHybridCache cache =
+                new StubHybridCache(Files.createTempDirectory("hybrid-cache-test").toFile(), varModel);
+        Variable a = new Variable("A");
+        for (int i = 0; i < fileCount; i++) {
+            cache.writeToEmptyCache(createSourceFile("dir/file" + i + ".c", a));
+        }
+        return cache;
+    }
+
+    /**
+     * Creates a source file with a single block.
+     *
+     * @param path      the path of the file
+     * @param condition the condition of the block
+     * @return the source file
+     */
+    private static SourceFile<CodeElement<?>> createSourceFile(String path, Formula condition) {
+        SourceFile<CodeElement<?>> sourceFile = new SourceFile<CodeElement<?>>(new File(path));
+        sourceFile.addElement(new CodeBlock(1, 2, new File(path), condition, condition));
+        return sourceFile;
+    }
+
+    /**
+     * Creates an input component providing the given cache.
+     *
+     * @param config the configuration
+     * @param cache  the cache
+     * @return the input component
+     */
+    private static AnalysisComponent<HybridCache> createInputComponent(Configuration config, HybridCache cache) {
+        return new AnalysisComponent<HybridCache>(config) {
+
+            @Override
+            protected void execute() {
+                addResult(cache);
+            }
+
+            @Override
+            public String getResultName() {
+                return "HybridCache";
+            }
+        };
+    }
+
+    /**
+     * {@link HybridCache} counting the code model files read and providing a
+     * fixed variability model.
+     */
+    private static class StubHybridCache extends HybridCache {
+
+        /** The number of code model files read. */
+        private AtomicInteger readCount = new AtomicInteger();
+
+        /** The variability model, may be null. */
+        private VariabilityModel varModel;
+
+        /** The number of times the changed files were determined. */
+        private AtomicInteger changeDetectionCount = new AtomicInteger();
+
+        /** The exception thrown when reading a code model file or null. */
+        private volatile RuntimeException readFailure;
+
+        /**
+         * Instantiates a new stub hybrid cache.
+         *
+         * @param cacheFolder the cache folder
+         * @param varModel    the variability model, may be null
+         */
+        StubHybridCache(File cacheFolder, VariabilityModel varModel) {
+            super(cacheFolder);
+            this.varModel = varModel;
+        }
+
+        @Override
+        public VariabilityModel readVm() {
+            return varModel;
+        }
+
+        @Override
+        protected SourceFile<?> readCmCacheFile(File cacheFile) throws IOException, FormatException {
+            readCount.incrementAndGet();
+            if (readFailure != null) {
+                throw readFailure;
+            }
+            return super.readCmCacheFile(cacheFile);
+        }
+
+        @Override
+        public Stream<File> streamChangedCm(SourceFileDifferenceDetector detector) {
+            changeDetectionCount.incrementAndGet();
+            return super.streamChangedCm(detector);
+        }
+
+        /**
+         * Gets the number of times the changed files were determined.
+         *
+         * @return the number of times the changed files were determined
+         */
+        int getChangeDetectionCount() {
+            return changeDetectionCount.get();
+        }
+
+        /**
+         * Lets reading code model files fail with the given exception.
+         *
+         * @param readFailure the exception
+         */
+        void setReadFailure(RuntimeException readFailure) {
+            this.readFailure = readFailure;
+        }
+
+        /**
+         * Gets the number of code model files read.
+         *
+         * @return the number of code model files read
+         */
+        int getReadCount() {
+            return readCount.get();
+        }
+    }
+    // CHECKSTYLE:ON
+
+}
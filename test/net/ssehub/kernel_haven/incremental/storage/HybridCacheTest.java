@@ -4,6 +4,10 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.hamcrest.CoreMatchers;
 import org.junit.Assert;
@@ -13,8 +17,10 @@ import net.ssehub.kernel_haven.code_model.CodeBlock;
 import net.ssehub.kernel_haven.code_model.CodeElement;
 import net.ssehub.kernel_haven.code_model.SourceFile;
 import net.ssehub.kernel_haven.incremental.util.FolderUtil;
+import net.ssehub.kernel_haven.incremental.util.SourceFileDifferenceDetector;
 import net.ssehub.kernel_haven.util.FormatException;
 import net.ssehub.kernel_haven.util.logic.Conjunction;
+import net.ssehub.kernel_haven.util.logic.Formula;
 import net.ssehub.kernel_haven.util.logic.Negation;
 import net.ssehub.kernel_haven.util.logic.Variable;
 
@@ -161,6 +167,242 @@ public class HybridCacheTest extends HybridCache {
         Assert.assertThat(FolderUtil.listRelativeFiles(tempFolder.toFile(), true),
                 CoreMatchers.hasItem(new File("history/backup/test.c.json")));
     }
+
+    /**
+     * Test stream changed cm.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testStreamChangedCm() throws Exception {
+        Path tempFolder = Files.createTempDirectory("hybrid-cache-test");
+        HybridCache cache = new HybridCache(tempFolder.toFile());
+
+        Variable a = new Variable("A");
+        cache.writeToEmptyCache(createSourceFile("modified.c", a));
+        cache.writeToEmptyCache(createSourceFile("rewritten.c", a));
+        cache.writeToEmptyCache(createSourceFile("untouched.c", a));
+
+        // modified.c gets a different model, rewritten.c the same model again
+        cache.write(createSourceFile("modified.c", new Negation(a)));
+        cache.write(createSourceFile("rewritten.c", a));
+        cache.write(createSourceFile("added.c", a));
+
+        Set<File> changed = cache.streamChangedCm(new SourceFileDifferenceDetector(
+                SourceFileDifferenceDetector.Consideration.ANY_CHANGE, null, null)).collect(Collectors.toSet());
+
+        Assert.assertThat(changed, CoreMatchers.hasItems(new File("modified.c"), new File("added.c")));
+        Assert.assertThat(changed.size(), CoreMatchers.equalTo(2));
+        Assert.assertThat(cache.hasIdenticalCmCacheFiles(new File("rewritten.c")), CoreMatchers.equalTo(true));
+        Assert.assertThat(cache.hasIdenticalCmCacheFiles(new File("modified.c")), CoreMatchers.equalTo(false));
+        Assert.assertThat(cache.hasIdenticalCmCacheFiles(new File("added.c")), CoreMatchers.equalTo(false));
+    }
+
+    /**
+     * Test stream changed cm pairs.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testStreamChangedCmPairs() throws Exception {
+        Path tempFolder = Files.createTempDirectory("hybrid-cache-test");
+        HybridCache cache = new HybridCache(tempFolder.toFile());
+
+        Variable a = new Variable("A");
+        cache.writeToEmptyCache(createSourceFile("modified.c", a));
+        cache.writeToEmptyCache(createSourceFile("untouched.c", a));
+        cache.write(createSourceFile("modified.c", new Negation(a)));
+        cache.write(createSourceFile("added.c", a));
+
+        Assert.assertThat(cache.getPreviousCmFiles(),
+                CoreMatchers.hasItems(new File("modified.c"), new File("untouched.c")));
+        Assert.assertThat(cache.getPreviousCmFiles().size(), CoreMatchers.equalTo(2));
+
+        List<SourceFilePair> pairs = cache.streamChangedCmPairs(new SourceFileDifferenceDetector(
+                SourceFileDifferenceDetector.Consideration.ANY_CHANGE, null, null)).collect(Collectors.toList());
+        Assert.assertThat(pairs.size(), CoreMatchers.equalTo(2));
+        for (SourceFilePair pair : pairs) {
+            if (pair.getPath().equals(new File("added.c"))) {
+                Assert.assertThat(pair.getPrevious(), CoreMatchers.nullValue());
+                Assert.assertThat(pair.getCurrent(), CoreMatchers.equalTo(createSourceFile("added.c", a)));
+            } else {
+                Assert.assertThat(pair.getPath(), CoreMatchers.equalTo(new File("modified.c")));
+                Assert.assertThat(pair.getPrevious(), CoreMatchers.equalTo(createSourceFile("modified.c", a)));
+                Assert.assertThat(pair.getCurrent(),
+                        CoreMatchers.equalTo(createSourceFile("modified.c", new Negation(a))));
+            }
+        }
+    }
+
+    /**
+     * Tests that the path of a pair is the path of the file even if it contains
+     * dots that are not preserved by the name of the cache file.
+     *
+     * @throws Exception unwanted exception
+     */
+    @Test
+    public void testStreamChangedCmPairs_pathWithDots() throws Exception {
+        Path tempFolder = Files.createTempDirectory("hybrid-cache-test");
+        HybridCache cache = new HybridCache(tempFolder.toFile());
+
+        Variable a = new Variable("A");
+        cache.writeToEmptyCache(createSourceFile("scripts/kconfig/zconf.tab.c", a));
+        cache.write(createSourceFile("scripts/kconfig/zconf.tab.c", new Negation(a)));
+
+        List<SourceFilePair> pairs = cache.streamChangedCmPairs(new SourceFileDifferenceDetector(
+                SourceFileDifferenceDetector.Consideration.ANY_CHANGE, null, null)).collect(Collectors.toList());
+        Assert.assertThat(pairs.size(), CoreMatchers.equalTo(1));
+        Assert.assertThat(pairs.get(0).getPath(), CoreMatchers.equalTo(new File("scripts/kconfig/zconf.tab.c")));
+    }
+
+    /**
+     * Tests that a rollback does not leave the hash of the new model next to a
+     * restored model that had no hash.
+     *
+     * @throws Exception unwanted exception
+     */
+    @Test
+    public void testRollback_removesHashOfModification() throws Exception {
+        Path tempFolder = Files.createTempDirectory("hybrid-cache-test");
+        HybridCache cache = new HybridCache(tempFolder.toFile());
+
+        Variable a = new Variable("A");
+        cache.writeToEmptyCache(createSourceFile("file.c", a));
+        // Caches written by older versions have no hashes
+        Path hashFile = tempFolder.resolve("current").resolve("file.c.json.hash");
+        Assert.assertThat(hashFile.toFile().exists(), CoreMatchers.equalTo(true));
+        Files.delete(hashFile);
+
+        cache.write(createSourceFile("file.c", new Negation(a)));
+        Assert.assertThat(hashFile.toFile().exists(), CoreMatchers.equalTo(true));
+
+        cache.rollback();
+        Assert.assertThat(hashFile.toFile().exists(), CoreMatchers.equalTo(false));
+        Assert.assertThat(cache.readCm(new File("file.c")), CoreMatchers.equalTo(createSourceFile("file.c", a)));
+    }
+
+    /**
+     * Tests that a cache opened through its manifest provides the same files and
+     * flags and that the manifest is discarded by the first modification.
+     *
+     * @throws Exception unwanted exception
+     */
+    @Test
+    public void testOpenWithManifest() throws Exception {
+        Path tempFolder = Files.createTempDirectory("hybrid-cache-test");
+        HybridCache cache = new HybridCache(tempFolder.toFile());
+
+        Variable a = new Variable("A");
+        cache.writeToEmptyCache(createSourceFile("modified.c", a));
+        cache.writeToEmptyCache(createSourceFile("untouched.c", a));
+        cache.write(createSourceFile("modified.c", new Negation(a)));
+        cache.write(createSourceFile("added.c", a));
+        cache.writeManifest();
+
+        File manifestFile = tempFolder.resolve(HybridCacheManifest.FILE_NAME).toFile();
+        Assert.assertThat(manifestFile.exists(), CoreMatchers.equalTo(true));
+
+        HybridCache opened = HybridCache.open(tempFolder.toFile());
+        Assert.assertThat(opened.getCmFiles().size(), CoreMatchers.equalTo(3));
+        Assert.assertThat(opened.getPreviousCmFiles(),
+                CoreMatchers.hasItems(new File("modified.c"), new File("untouched.c")));
+        Assert.assertThat(opened.getPreviousCmFiles().size(), CoreMatchers.equalTo(2));
+        Assert.assertThat(opened.getFlags(createSourceFile("added.c", a)),
+                CoreMatchers.hasItem(HybridCache.ChangeFlag.ADDITION));
+        Assert.assertThat(opened.getFlags(createSourceFile("modified.c", a)),
+                CoreMatchers.hasItem(HybridCache.ChangeFlag.MODIFICATION));
+        Assert.assertThat(opened.readPreviousCm(new File("modified.c")),
+                CoreMatchers.equalTo(createSourceFile("modified.c", a)));
+
+        opened.clearChangeHistory();
+        Assert.assertThat(manifestFile.exists(), CoreMatchers.equalTo(false));
+        Assert.assertThat(opened.getFlags(createSourceFile("added.c", a)).isEmpty(), CoreMatchers.equalTo(true));
+    }
+
+    /**
+     * Tests that the cache files of all code models are listed and can be read,
+     * including those whose names do not map back to a path.
+     *
+     * @throws Exception unwanted exception
+     */
+    @Test
+    public void testGetCmCacheFiles() throws Exception {
+        Path tempFolder = Files.createTempDirectory("hybrid-cache-test");
+        HybridCache cache = new HybridCache(tempFolder.toFile());
+
+        Variable a = new Variable("A");
+        cache.writeToEmptyCache(createSourceFile("dir/my file.c", a));
+        cache.writeToEmptyCache(createSourceFile("dir/Makefile", a));
+        cache.writeToEmptyCache(createSourceFile("dir/file.c", a));
+
+        Assert.assertThat(cache.getCmFiles(), CoreMatchers.not(CoreMatchers.hasItem(new File("dir/my file.c"))));
+        Assert.assertThat(cache.getCmFiles(), CoreMatchers.not(CoreMatchers.hasItem(new File("dir/Makefile"))));
+        Assert.assertThat(cache.getCmCacheFiles().size(), CoreMatchers.equalTo(3));
+        Set<SourceFile<?>> read = new HashSet<>();
+        for (File cacheFile : cache.getCmCacheFiles()) {
+            read.add(cache.readCmCacheFile(cacheFile));
+        }
+        Assert.assertThat(read, CoreMatchers.hasItems(createSourceFile("dir/my file.c", a),
+                createSourceFile("dir/Makefile", a), createSourceFile("dir/file.c", a)));
+    }
+
+    /**
+     * Tests that a manifest is not used if a folder of the cache was modified
+     * after the manifest was written.
+     *
+     * @throws Exception unwanted exception
+     */
+    @Test
+    public void testOpenWithOutdatedManifest() throws Exception {
+        Path tempFolder = Files.createTempDirectory("hybrid-cache-test");
+        HybridCache cache = new HybridCache(tempFolder.toFile());
+
+        Variable a = new Variable("A");
+        cache.writeToEmptyCache(createSourceFile("file.c", a));
+        cache.writeManifest();
+
+        // Modify the cache without the cache noticing it
+        File currentFolder = tempFolder.resolve("current").toFile();
+        Files.copy(currentFolder.toPath().resolve("file.c.json"), currentFolder.toPath().resolve("copied.c.json"));
+        currentFolder.setLastModified(currentFolder.lastModified() + 10000);
+
+        HybridCache opened = HybridCache.open(tempFolder.toFile());
+        Assert.assertThat(opened.getCmFiles(), CoreMatchers.hasItems(new File("file.c"), new File("copied.c")));
+        Assert.assertThat(opened.getCmFiles().size(), CoreMatchers.equalTo(2));
+
+        // The manifest was rewritten for the modified folder
+        Assert.assertThat(HybridCache.open(tempFolder.toFile()).getCmFiles().size(), CoreMatchers.equalTo(2));
+    }
+
+    /**
+     * Tests that checking a cache folder for emptiness does not create the cache.
+     *
+     * @throws Exception unwanted exception
+     */
+    @Test
+    public void testIsEmptyWithoutCreatingFolders() throws Exception {
+        Path tempFolder = Files.createTempDirectory("hybrid-cache-test");
+        File cacheFolder = tempFolder.resolve("cache").toFile();
+
+        Assert.assertThat(HybridCache.isEmpty(cacheFolder), CoreMatchers.equalTo(true));
+        Assert.assertThat(cacheFolder.exists(), CoreMatchers.equalTo(false));
+
+        new HybridCache(cacheFolder).writeToEmptyCache(createSourceFile("file.c", new Variable("A")));
+        Assert.assertThat(HybridCache.isEmpty(cacheFolder), CoreMatchers.equalTo(false));
+    }
+
+    /**
+     * Creates a source file with a single block.
+     *
+     * @param path      the path of the file
+     * @param condition the condition of the block
+     * @return the source file
+     */
+    private static SourceFile<CodeElement<?>> createSourceFile(String path, Formula condition) {
+        SourceFile<CodeElement<?>> sourceFile = new SourceFile<CodeElement<?>>(new File(path));
+        sourceFile.addElement(new CodeBlock(1, 2, new File(path), condition, condition));
+        return sourceFile;
+    }
     // CHECKSTYLE:ON
 
 }
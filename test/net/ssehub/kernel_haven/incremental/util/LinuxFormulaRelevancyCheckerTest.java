@@ -0,0 +1,123 @@
+package net.ssehub.kernel_haven.incremental.util;
+
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.and;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.not;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.or;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.Variable;
+import net.ssehub.kernel_haven.variability_model.VariabilityModel;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * Tests for {@link LinuxFormulaRelevancyChecker}.
+ *
+ * @author moritz
+ */
+public class LinuxFormulaRelevancyCheckerTest {
+
+    /**
+     * Checker counting the evaluated variables.
+     */
+    private static class CountingChecker extends LinuxFormulaRelevancyChecker {
+
+        /** The number of evaluated variables. */
+        private int visitedVariables;
+
+        /**
+         * Instantiates a new counting checker.
+         *
+         * @param varModel the variability model
+         */
+        CountingChecker(VariabilityModel varModel) {
+            super(varModel, true);
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see net.ssehub.kernel_haven.incremental.util.LinuxFormulaRelevancyChecker#visitVariable(net.ssehub.
+         * kernel_haven.util.logic.Variable)
+         */
+        @Override
+        public Boolean visitVariable(Variable variable) {
+            visitedVariables++;
+            return super.visitVariable(variable);
+        }
+    }
+
+    // CHECKSTYLE:OFF
+    /**
+     * Creates a variability model defining ALPHA.
+     *
+     * @return the variability model
+     */
+    private static VariabilityModel createVariabilityModel() {
+        Set<VariabilityVariable> vars = new HashSet<>();
+        vars.add(new VariabilityVariable("ALPHA", "bool"));
+        return new VariabilityModel(new File("not_existing"), vars);
+    }
+
+    /**
+     * Tests the relevance of formulas.
+     */
+    @Test
+    public void testRelevance() {
+        LinuxFormulaRelevancyChecker checker = new LinuxFormulaRelevancyChecker(createVariabilityModel(), true);
+        Assert.assertTrue(checker.visit(and("BETA", not("ALPHA"))));
+        Assert.assertTrue(checker.visit(new Variable("CONFIG_GAMMA")));
+        Assert.assertTrue(checker.visit(new Variable("GAMMA_MODULE")));
+        Assert.assertFalse(checker.visit(or("BETA", not("GAMMA"))));
+        // Memorized results
+        Assert.assertTrue(checker.visit(and("BETA", not("ALPHA"))));
+        Assert.assertFalse(checker.visit(or("BETA", not("GAMMA"))));
+    }
+
+    /**
+     * Tests whether equal formulas and sub-formulas are only evaluated once.
+     */
+    @Test
+    public void testMemoization() {
+        CountingChecker checker = new CountingChecker(createVariabilityModel());
+        Formula parent = and("BETA", "GAMMA");
+        Assert.assertFalse(checker.visit(parent));
+        Assert.assertEquals(2, checker.visitedVariables);
+
+        // A nested block repeats the condition of its parent
+        Assert.assertTrue(checker.visit(and(and("BETA", "GAMMA"), "ALPHA")));
+        Assert.assertEquals(3, checker.visitedVariables);
+
+        Assert.assertFalse(checker.visit(and("BETA", "GAMMA")));
+        Assert.assertEquals(3, checker.visitedVariables);
+    }
+    /**
+     * Tests whether deeply nested formulas are memorized by instance and by
+     * structure.
+     */
+    @Test
+    public void testMemoization_deepFormula() {
+        CountingChecker checker = new CountingChecker(createVariabilityModel());
+        Formula formula = new Variable("BETA");
+        Formula equalFormula = new Variable("BETA");
+        for (int i = 0; i < 1000; i++) {
+            formula = and(formula, "V" + i);
+            equalFormula = and(equalFormula, "V" + i);
+        }
+        Assert.assertFalse(checker.visit(formula));
+        Assert.assertEquals(1001, checker.visitedVariables);
+
+        Assert.assertFalse(checker.visit(formula));
+        Assert.assertFalse(checker.visit(equalFormula));
+        Assert.assertTrue(checker.visit(or(equalFormula, "ALPHA")));
+        Assert.assertEquals(1002, checker.visitedVariables);
+    }
+    // CHECKSTYLE:ON
+
+}
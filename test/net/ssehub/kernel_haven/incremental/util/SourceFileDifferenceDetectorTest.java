@@ -213,6 +213,39 @@ public class SourceFileDifferenceDetectorTest extends SourceFileDifferenceDetect
 
     }
 
+    /**
+     * Checks that a directly relevant element deep within a chain of irrelevant
+     * elements makes the whole chain relevant while a following sibling stays
+     * irrelevant.
+     */
+    @Test
+    public void testCollectRelevantElements_deepNesting() {
+        CodeBlock top = new CodeBlock(1, 1000, new File("file"), not("NOT_IN_VAR_MODEL"), not("NOT_IN_VAR_MODEL"));
+        CodeBlock current = top;
+        for (int i = 0; i < 100; i++) {
+            CodeBlock nested = new CodeBlock(i + 2, 900 - i, new File("file"), not("NOT_IN_VAR_MODEL" + i),
+                    not("NOT_IN_VAR_MODEL" + i));
+            current.addNestedElement(nested);
+            current = nested;
+        }
+        CodeBlock deepest = new CodeBlock(500, 501, new File("file"), not("ALPHA"), not("ALPHA"));
+        current.addNestedElement(deepest);
+        CodeBlock sibling = new CodeBlock(950, 960, new File("file"), not("NOT_IN_VAR_MODEL"), not("NOT_IN_VAR_MODEL"));
+        top.addNestedElement(sibling);
+
+        SourceFile<CodeElement<?>> srcFile = new SourceFile<CodeElement<?>>(new File("not_existing"));
+        srcFile.addElement(top);
+        SourceFileDifferenceDetector changeDetector = new SourceFileDifferenceDetector(
+                Consideration.ONLY_VARIABILITY_CHANGE, createTestVariabilityModel(), createTestVariabilityModel());
+
+        Set<CodeElement<?>> collectedElements =
+                changeDetector.collectRelevantElements(srcFile, changeDetector.varModelAChecker);
+
+        Assert.assertThat(collectedElements.size(), CoreMatchers.is(102));
+        Assert.assertThat(collectedElements, CoreMatchers.hasItems(top, current, deepest));
+        Assert.assertThat(collectedElements, CoreMatchers.not(CoreMatchers.hasItem(sibling)));
+    }
+
     /**
      * Generate src file.
      *
@@ -0,0 +1,102 @@
+package net.ssehub.kernel_haven.incremental.util;
+
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.and;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.not;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.code_model.CodeBlock;
+import net.ssehub.kernel_haven.code_model.CodeElement;
+import net.ssehub.kernel_haven.code_model.SourceFile;
+import net.ssehub.kernel_haven.incremental.util.SourceFileDifferenceDetector.Consideration;
+import net.ssehub.kernel_haven.util.logic.Variable;
+import net.ssehub.kernel_haven.variability_model.VariabilityModel;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * Tests for {@link StructuralHash}.
+ *
+ * @author moritz
+ */
+public class StructuralHashTest {
+
+    // CHECKSTYLE:OFF
+    /**
+     * Creates a source file with a nested block.
+     *
+     * @param lineOffset the offset added to all lines
+     * @param nestedVar  the variable of the nested block
+     * @return the source file
+     */
+    private static SourceFile<CodeElement<?>> createSourceFile(int lineOffset, String nestedVar) {
+        File file = new File("file.c");
+        CodeBlock outer = new CodeBlock(1 + lineOffset, 10 + lineOffset, file, new Variable("ALPHA"),
+                new Variable("ALPHA"));
+        outer.addNestedElement(new CodeBlock(2 + lineOffset, 5 + lineOffset, file, not(nestedVar),
+                and("ALPHA", not(nestedVar))));
+        CodeBlock other = new CodeBlock(12 + lineOffset, 15 + lineOffset, file, new Variable("BETA"),
+                new Variable("BETA"));
+        SourceFile<CodeElement<?>> sourceFile = new SourceFile<>(file);
+        sourceFile.addElement(outer);
+        sourceFile.addElement(other);
+        return sourceFile;
+    }
+
+    /**
+     * Tests whether the hashes reflect changes of the structure and lines.
+     */
+    @Test
+    public void testHash() {
+        StructuralHash hash = new StructuralHash(createSourceFile(0, "BETA"));
+        StructuralHash sameHash = new StructuralHash(createSourceFile(0, "BETA"));
+        StructuralHash movedHash = new StructuralHash(createSourceFile(3, "BETA"));
+        StructuralHash changedHash = new StructuralHash(createSourceFile(0, "GAMMA"));
+
+        Assert.assertEquals(hash.getHash(true), sameHash.getHash(true));
+        Assert.assertEquals(hash.getHash(false), movedHash.getHash(false));
+        Assert.assertTrue(hash.getHash(true) != movedHash.getHash(true));
+        Assert.assertTrue(hash.getHash(false) != changedHash.getHash(false));
+        Assert.assertEquals(new StructuralHash(null).getHash(true),
+                new StructuralHash(new SourceFile<CodeElement<?>>(new File("empty.c"))).getHash(true));
+
+        // Only the changed subtree gets a different hash
+        SourceFile<CodeElement<?>> file = createSourceFile(0, "BETA");
+        SourceFile<CodeElement<?>> changedFile = createSourceFile(0, "GAMMA");
+        StructuralHash fileHash = new StructuralHash(file);
+        StructuralHash changedFileHash = new StructuralHash(changedFile);
+        Assert.assertTrue(fileHash.getHash(file.getElement(0), false)
+                != changedFileHash.getHash(changedFile.getElement(0), false));
+        Assert.assertEquals(fileHash.getHash(file.getElement(1), false),
+                changedFileHash.getHash(changedFile.getElement(1), false));
+    }
+
+    /**
+     * Tests whether the {@link SourceFileDifferenceDetector} still detects
+     * variability changes if unchanged subtrees are skipped.
+     */
+    @Test
+    public void testDifferenceDetector() {
+        Set<VariabilityVariable> vars = new HashSet<>();
+        vars.add(new VariabilityVariable("ALPHA", "bool"));
+        vars.add(new VariabilityVariable("BETA", "bool"));
+        vars.add(new VariabilityVariable("GAMMA", "bool"));
+        VariabilityModel varModel = new VariabilityModel(new File("not_existing"), vars);
+
+        SourceFileDifferenceDetector detector =
+                new SourceFileDifferenceDetector(Consideration.ONLY_VARIABILITY_CHANGE, varModel, varModel);
+        Assert.assertFalse(detector.isDifferent(createSourceFile(0, "BETA"), createSourceFile(3, "BETA")));
+        Assert.assertTrue(detector.isDifferent(createSourceFile(0, "BETA"), createSourceFile(0, "GAMMA")));
+        Assert.assertTrue(detector.isDifferent(createSourceFile(0, "BETA"), null));
+
+        detector = new SourceFileDifferenceDetector(Consideration.ANY_CHANGE_EXCEPT_LINECHANGE, varModel, varModel);
+        Assert.assertFalse(detector.isDifferent(createSourceFile(0, "BETA"), createSourceFile(3, "BETA")));
+        Assert.assertTrue(detector.isDifferent(createSourceFile(0, "BETA"), createSourceFile(0, "GAMMA")));
+    }
+    // CHECKSTYLE:ON
+
+}
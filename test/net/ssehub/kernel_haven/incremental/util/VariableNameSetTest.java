@@ -0,0 +1,56 @@
+package net.ssehub.kernel_haven.incremental.util;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.variability_model.VariabilityModel;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * Tests for {@link VariableNameSet}.
+ *
+ * @author moritz
+ */
+public class VariableNameSetTest {
+
+    // CHECKSTYLE:OFF
+    /**
+     * Tests the lookup of names.
+     */
+    @Test
+    public void testContains() {
+        VariableNameSet set = new VariableNameSet(Arrays.asList("GAMMA", "ALPHA", "BETA", "ALPHA"));
+        Assert.assertEquals(3, set.size());
+        Assert.assertTrue(set.contains("ALPHA"));
+        Assert.assertTrue(set.contains("BETA"));
+        Assert.assertTrue(set.contains("GAMMA"));
+        Assert.assertFalse(set.contains("DELTA"));
+        Assert.assertFalse(set.contains(""));
+        Assert.assertEquals(0, new VariableNameSet(new HashSet<>()).size());
+    }
+
+    /**
+     * Tests whether the set of a variability model is only built once.
+     */
+    @Test
+    public void testOf() {
+        Set<VariabilityVariable> vars = new HashSet<>();
+        vars.add(new VariabilityVariable("ALPHA", "bool"));
+        vars.add(new VariabilityVariable("BETA", "bool"));
+        VariabilityModel varModel = new VariabilityModel(new File("not_existing"), vars);
+
+        VariableNameSet set = VariableNameSet.of(varModel);
+        Assert.assertTrue(set == VariableNameSet.of(varModel));
+        Assert.assertTrue(set.contains("ALPHA"));
+        Assert.assertFalse(set.contains("GAMMA"));
+        Assert.assertEquals(new VariableNameSet(Arrays.asList("BETA", "ALPHA")), set);
+        Assert.assertEquals(0, VariableNameSet.of(null).size());
+    }
+    // CHECKSTYLE:ON
+
+}
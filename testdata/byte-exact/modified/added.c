@@ -0,0 +1,2 @@
+new
+file
\ No newline at end of file
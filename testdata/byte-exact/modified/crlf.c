@@ -0,0 +1,3 @@
+line1
+changed
+line3
@@ -0,0 +1,3 @@
+int x;
+/* Gre Mller, t */
+int z;
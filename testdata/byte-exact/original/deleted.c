@@ -0,0 +1 @@
+obsolete
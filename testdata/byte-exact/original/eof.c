@@ -0,0 +1,3 @@
+a
+b
+c
\ No newline at end of file
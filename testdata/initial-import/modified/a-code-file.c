@@ -0,0 +1,3 @@
+#ifdef CONFIG_ALPHA
+int a;
+#endif
@@ -0,0 +1,4 @@
+int misc(void)
+{
+	return 0;
+}
\ No newline at end of file